@@ -0,0 +1,31 @@
+package org.icij.datashare;
+
+import java.nio.file.Path;
+import java.util.Date;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Last extraction failure of a file. The directory is the parent of the file path, the content type is
+ * guessed from the file name and the status is the extraction status name (FAILURE_NOT_PARSED...).
+ */
+public record ExtractionError(String path, String directory, String contentType, String status, String exceptionClass, String message, Date date) {
+    public static final String UNKNOWN_CONTENT_TYPE = "application/octet-stream";
+
+    public static ExtractionError create(Path path, String contentType, String status, Exception exception, Date date) {
+        return new ExtractionError(path.toString(), ofNullable(path.getParent()).map(Path::toString).orElse(""),
+                ofNullable(contentType).orElse(UNKNOWN_CONTENT_TYPE), status,
+                exception == null ? "" : exception.getClass().getName(), exception == null ? null : exception.getMessage(), date);
+    }
+
+    public enum Field { EXCEPTION_CLASS, CONTENT_TYPE, DIRECTORY, STATUS }
+
+    /**
+     * Criteria of the errors to read, aggregate or queue again. Null values match all the errors.
+     *
+     * @param directory the errors of the files in this directory and its sub directories
+     */
+    public record Filter(String exceptionClass, String contentType, String directory, String status) {
+        public static final Filter ALL = new Filter(null, null, null, null);
+    }
+}
@@ -2,18 +2,24 @@ package org.icij.datashare;
 
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
 import org.icij.datashare.text.Project;
 import org.icij.datashare.text.Tag;
 import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.datashare.user.User;
 
 import java.util.*;
+import java.util.stream.Stream;
 
 public interface Repository {
     NamedEntity getNamedEntity(String id);
     Document getDocument(String id);
     void create(List<NamedEntity> neList);
     void create(Document document);
+    /**
+     * saves the documents in one transaction: if one of them cannot be saved, none is.
+     */
+    void createDocuments(List<Document> documents);
 
     // user related
     AggregateList<User> getRecommendations(Project project);
@@ -28,6 +34,33 @@ public interface Repository {
 
     // project related
     List<Document> getDocumentsNotTaggedWithPipeline(Project project, Pipeline.Type type);
+    /**
+     * streams the ids of the project documents without named entities for the pipeline,
+     * reading them by pages of batchSize ids ordered by id
+     */
+    Stream<String> getDocumentIdsNotTaggedWithPipeline(Project project, Pipeline.Type type, int batchSize);
+    List<Document> getDocuments(Project project, List<String> documentIds);
+    /**
+     * saves the named entities of the document and records in the same transaction
+     * that the document has been processed by the pipeline
+     */
+    void tagWithPipeline(Project project, Pipeline.Type type, String documentId, List<NamedEntity> namedEntities);
+    /**
+     * replaces the mention counts of the document for the pipeline and updates the project counts
+     * in the same transaction
+     */
+    void rollupNamedEntities(Project project, String documentId, Pipeline.Type type, List<NamedEntityRollup> documentCounts);
+    /**
+     * @param category null for all categories
+     * @return the project counts ordered by decreasing number of mentions
+     */
+    List<NamedEntityRollup> getNamedEntityRollups(Project project, NamedEntity.Category category, String mentionNormPrefix, boolean withHidden, int from, int size);
+    List<NamedEntityRollup> getNamedEntityRollups(Project project, String documentId);
+    /**
+     * hides the mention in all categories, also for the documents processed later
+     * @return 1 if the mention is hidden, 0 if it was already hidden
+     */
+    int hideNamedEntities(Project project, String mentionNorm);
     List<Document> getStarredDocuments(User user);
     List<String> getStarredDocuments(Project project, User user);
     Set<String> getRecommentationsBy(Project project, List<User> users);
@@ -48,6 +81,28 @@ public interface Repository {
     List<String> getDocuments(Project project, Tag... tags);
     List<Tag> getTags(Project project, String documentId);
 
+    // extraction errors
+    /**
+     * saves the error of the file, replacing its previous error if any
+     */
+    boolean save(Project project, ExtractionError error);
+    /**
+     * @return the size first errors matching the filter ordered by path, after afterPath if it is not null
+     */
+    List<ExtractionError> getExtractionErrors(Project project, ExtractionError.Filter filter, String afterPath, int size);
+    /**
+     * @return the number of errors by value of the field, the most frequent first, with the total number of errors matching the filter
+     */
+    AggregateList<String> aggregateExtractionErrors(Project project, ExtractionError.Field field, ExtractionError.Filter filter, int size);
+    /**
+     * streams the paths of the errors matching the filter, reading them by pages of batchSize paths ordered by path
+     */
+    Stream<String> getExtractionErrorPaths(Project project, ExtractionError.Filter filter, int batchSize);
+    /**
+     * deletes the errors matching the filter recorded before the date
+     */
+    int deleteExtractionErrors(Project project, ExtractionError.Filter filter, Date before);
+
     boolean deleteAll(String projectId);
     Project getProject(String projectId);
     List<Project> getProjects();
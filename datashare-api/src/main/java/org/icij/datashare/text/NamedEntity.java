@@ -185,6 +185,7 @@ public final class NamedEntity implements Entity {
     public String getDocumentId() { return documentId; }
     @JsonIgnore
     public String getRootDocument() { return rootDocument; }
+    public String getMentionNorm() { return mentionNorm; }
     public int getMentionNormTextLength() {return mentionNorm.length();}
     public List<Long> getOffsets() { return offsets; }
     public Pipeline.Type getExtractor() { return extractor; }
@@ -0,0 +1,31 @@
+package org.icij.datashare.text;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Number of mentions of a normalized mention for a category, in a document or in a whole project.
+ * For a project, <code>documentCount</code> is the number of documents where it is mentioned.
+ */
+public record NamedEntityRollup(String mentionNorm, NamedEntity.Category category, long mentionCount, long documentCount, boolean hidden) {
+    public NamedEntityRollup(String mentionNorm, NamedEntity.Category category, long mentionCount) {
+        this(mentionNorm, category, mentionCount, 1, false);
+    }
+
+    /**
+     * @return the mentions of the named entities of a document, counted by normalized mention and category
+     */
+    public static List<NamedEntityRollup> count(Collection<NamedEntity> namedEntities) {
+        Map<Key, Long> counts = new LinkedHashMap<>();
+        namedEntities.forEach(ne -> counts.merge(new Key(ne.getMentionNorm(), ne.getCategory()), (long) Math.max(1, ne.getOffsets().size()), Long::sum));
+        return counts.entrySet().stream().map(e -> new NamedEntityRollup(e.getKey().mentionNorm(), e.getKey().category(), e.getValue())).toList();
+    }
+
+    public Key key() {
+        return new Key(mentionNorm, category);
+    }
+
+    public record Key(String mentionNorm, NamedEntity.Category category) {}
+}
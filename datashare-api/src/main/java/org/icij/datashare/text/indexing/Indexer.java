@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.stream.Stream;
 
@@ -42,7 +43,16 @@ public interface Indexer extends Closeable {
     <T extends Entity> T get(String indexName, String id, String root);
     <T extends Entity> T get(String indexName, String id, String root, List<String> sourceExcludes);
 
+    /**
+     * opens a point in time to share one snapshot of the indices between scrolls (ex: the slices of a scan)
+     * @return a cursor to give to the scrolls with {@link ScrollQueryBuilder#withCursor(String)}, or null if the
+     * cluster cannot open a point in time
+     */
+    String openPointInTime(String duration, List<String> indexesNames) throws IOException;
+    void closePointInTime(String cursor) throws IOException;
+
     String executeRaw(String method, String url, String body) throws IOException;
+    RawResponse streamRaw(String method, String url, InputStream body) throws IOException;
 
     // from Repository
     boolean tag(Project prj, String documentId, String rootDocument, Tag... tags) throws IOException;
@@ -66,6 +76,11 @@ public interface Indexer extends Closeable {
         Searcher sort(String field, SortOrder order);
         void clearScroll() throws IOException;
         long totalHits();
+        /**
+         * opaque token to resume the scroll after the last returned page, null if it cannot be resumed.
+         * A scroll resumed once its point in time has expired fails with a {@link ScrollExpiredException}.
+         */
+        String cursor();
         Searcher with(int fuzziness, boolean phraseMatches);
         enum SortOrder { ASC, DESC }
     }
@@ -85,11 +100,17 @@ public interface Indexer extends Closeable {
         private final int numSlice;
         private final int nbSlices;
         private final String stringQuery;
+        private final String cursor;
         public ScrollQuery(String duration, int numSlice, int nbSlices, String stringQuery) {
+            this(duration, numSlice, nbSlices, stringQuery, null);
+        }
+
+        public ScrollQuery(String duration, int numSlice, int nbSlices, String stringQuery, String cursor) {
             this.duration = duration;
             this.numSlice = numSlice;
             this.nbSlices = nbSlices;
             this.stringQuery = stringQuery;
+            this.cursor = cursor;
         }
 
         public String getDuration() {
@@ -107,5 +128,28 @@ public interface Indexer extends Closeable {
         public String getStringQuery() {
             return stringQuery;
         }
+
+        public String getCursor() {
+            return cursor;
+        }
+    }
+
+    /**
+     * the point in time of a scroll has expired: the positions of its results are only valid
+     * in this point in time, so the scroll cannot go on without skipping or repeating results.
+     */
+    class ScrollExpiredException extends IOException {
+        public ScrollExpiredException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * the body of a raw request is larger than the maximum size that can be buffered
+     */
+    class BodyTooLargeException extends IOException {
+        public BodyTooLargeException(long maxSize) {
+            super("request body is larger than " + maxSize + " bytes");
+        }
     }
 }
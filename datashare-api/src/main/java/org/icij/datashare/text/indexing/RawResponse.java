@@ -0,0 +1,17 @@
+package org.icij.datashare.text.indexing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Raw response of the index, whose body is read while it is received.
+ * It must be closed to release the connection, even if the content has not been read.
+ */
+public interface RawResponse extends Closeable {
+    int getStatus();
+    String getHeader(String name);
+    InputStream getContent();
+
+    void close() throws IOException;
+}
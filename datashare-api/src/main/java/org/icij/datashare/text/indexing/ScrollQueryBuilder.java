@@ -9,6 +9,7 @@ public class ScrollQueryBuilder {
     public int numSlice;
     public int nbSlices;
     public String stringQuery;
+    public String cursor;
 
     private ScrollQueryBuilder(){
     }
@@ -31,7 +32,12 @@ public class ScrollQueryBuilder {
         return this;
     }
 
+    public ScrollQueryBuilder withCursor(String cursor){
+        this.cursor = cursor;
+        return this;
+    }
+
     public ScrollQuery build() {
-        return new ScrollQuery(duration, numSlice, nbSlices, stringQuery);
+        return new ScrollQuery(duration, numSlice, nbSlices, stringQuery, cursor);
     }
 }
@@ -0,0 +1,360 @@
+package org.icij.datashare.extract;
+
+import org.apache.tika.metadata.Metadata;
+import org.icij.datashare.text.Hasher;
+import org.icij.extract.document.EmbeddedTikaDocument;
+import org.icij.extract.document.Identifier;
+import org.icij.extract.document.TikaDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Optional.ofNullable;
+import static org.icij.datashare.cli.DatashareCliOptions.CHARSET_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.DIGEST_ALGORITHM_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.DIGEST_PROJECT_NAME_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.EXTRACTION_STORE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.LANGUAGE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_LANGUAGE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_TYPE_OPT;
+
+/**
+ * Content addressed store of extraction results.
+ * <p>
+ * The text, metadata and embedded documents tree of a file are stored under the SHA-256 of the file, in the
+ * directory of the extraction configuration: Tika version and options changing the extracted documents or their
+ * ids. When a file is indexed again into another index, or into another project with the same document ids,
+ * its documents are read from the store instead of being parsed (see {@link StoringExtractor}).
+ * <p>
+ * Entries are written in a temporary directory then moved, so the store can be shared by several workers.
+ */
+public class ExtractionStore {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionStore.class);
+    static final List<String> CONFIGURATION_OPTIONS = List.of(OCR_OPT, OCR_TYPE_OPT, OCR_LANGUAGE_OPT, LANGUAGE_OPT,
+            CHARSET_OPT, DIGEST_ALGORITHM_OPT, DIGEST_PROJECT_NAME_OPT, "embedHandling", "outputFormat");
+    static final String DOCUMENTS_FILE = "documents.bin";
+    static final int FORMAT_VERSION = 1;
+
+    private final Path directory;
+    private final Identifier identifier;
+
+    record StoredDocument(String id, String language, String text, Map<String, String[]> metadata, List<StoredDocument> embeds) {}
+
+    ExtractionStore(Path directory, Identifier identifier) {
+        this.directory = directory;
+        this.identifier = identifier;
+    }
+
+    /**
+     * @param identifier the identifier of the document factory of the extractor, giving the hashes of the stored documents
+     * @return the store of the <code>extractionStore</code> directory for the extraction configuration of the task
+     * arguments, with its directory created if needed. Empty if there is no store.
+     */
+    public static Optional<ExtractionStore> from(Map<String, Object> args, Identifier identifier) {
+        Object storeDir = args.get(EXTRACTION_STORE_OPT);
+        if (storeDir == null || storeDir.toString().isBlank()) {
+            return Optional.empty();
+        }
+        Path directory = Path.of(storeDir.toString()).resolve(configurationKey(args));
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot create extraction store directory " + directory, e);
+        }
+        logger.info("using extraction store {}", directory);
+        return Optional.of(new ExtractionStore(directory, identifier));
+    }
+
+    static String configurationKey(Map<String, Object> args) {
+        String options = CONFIGURATION_OPTIONS.stream()
+                .map(option -> option + "=" + ofNullable(args.get(option)).map(Object::toString).orElse(""))
+                .collect(Collectors.joining("\n"));
+        String tikaVersion = TikaDocument.TIKA_VERSION.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9.]+", "-");
+        return tikaVersion + "-" + Hasher.SHA_256.hash(options).substring(0, 16);
+    }
+
+    /**
+     * @return the SHA-256 of the file content, empty for an empty file
+     */
+    public static String digest(Path path) throws IOException {
+        try (InputStream stream = Files.newInputStream(path)) {
+            return Hasher.SHA_256.hash(stream);
+        }
+    }
+
+    /**
+     * @return the documents of the file with this digest read from the store, with the given path
+     */
+    public Optional<TikaDocument> load(String digest, Path path) throws IOException {
+        Path entry = entry(digest);
+        if (digest.isEmpty() || !Files.exists(entry.resolve(DOCUMENTS_FILE))) {
+            return Optional.empty();
+        }
+        StoredDocument stored = readDocuments(entry.resolve(DOCUMENTS_FILE));
+        if (stored == null) {
+            return Optional.empty();
+        }
+        StoredIdentifier storedIdentifier = new StoredIdentifier(identifier);
+        TikaDocument document = new TikaDocument(stored.id(), storedIdentifier, path, stored.language(), metadata(stored));
+        document.setReader(() -> textReader(entry, stored));
+        restoreEmbeds(entry, document, stored.embeds(), storedIdentifier);
+        return Optional.of(document);
+    }
+
+    /**
+     * Reads the texts of the extracted document and its embedded documents to store them.
+     *
+     * @return the stored documents, to be read as the extracted document was
+     */
+    public TikaDocument save(String digest, TikaDocument document) throws IOException {
+        if (digest.isEmpty()) {
+            return document;
+        }
+        Path entry = entry(digest);
+        Files.createDirectories(entry.getParent());
+        Path temporary = Files.createTempDirectory(entry.getParent(), digest + ".tmp");
+        try {
+            StoredDocument stored = write(temporary, document, new int[] {0});
+            writeDocuments(temporary.resolve(DOCUMENTS_FILE), stored);
+            Files.move(temporary, entry, ATOMIC_MOVE);
+        } catch (FileSystemException e) {
+            if (!Files.exists(entry.resolve(DOCUMENTS_FILE))) {
+                throw e;
+            }
+            logger.debug("{} already stored by another worker", document.getPath());
+        } finally {
+            deleteIfExists(temporary);
+        }
+        return load(digest, document.getPath()).orElseThrow(() -> new IOException("cannot read stored extraction of " + document.getPath()));
+    }
+
+    private StoredDocument write(Path temporary, TikaDocument document, int[] counter) throws IOException {
+        String text = counter[0]++ + ".txt.gz";
+        // the text is read first: the digests, and thus the ids, and the embedded documents are known once it is parsed
+        try (Reader reader = document.getReader();
+             Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temporary.resolve(text))), UTF_8)) {
+            reader.transferTo(writer);
+        }
+        List<StoredDocument> embeds = new ArrayList<>();
+        for (EmbeddedTikaDocument embed : document.getEmbeds()) {
+            embeds.add(write(temporary, embed, counter));
+        }
+        Map<String, String[]> metadata = new TreeMap<>();
+        for (String name : document.getMetadata().names()) {
+            metadata.put(name, document.getMetadata().getValues(name));
+        }
+        return new StoredDocument(document.getId(), document.getLanguage(), text, metadata, embeds);
+    }
+
+    private static void restoreEmbeds(Path entry, TikaDocument parent, List<StoredDocument> embeds, StoredIdentifier storedIdentifier) {
+        for (StoredDocument stored : embeds) {
+            parent.addEmbed(stored.id(), storedIdentifier, parent.getPath(), metadata(stored));
+            EmbeddedTikaDocument embed = parent.getEmbed(stored.id());
+            storedIdentifier.ids.put(embed, stored.id());
+            embed.setReader(() -> textReader(entry, stored));
+            restoreEmbeds(entry, embed, stored.embeds(), storedIdentifier);
+        }
+    }
+
+    private static void writeDocuments(Path file, StoredDocument document) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(FORMAT_VERSION);
+            writeDocument(output, document);
+        }
+    }
+
+    private static void writeDocument(DataOutputStream output, StoredDocument document) throws IOException {
+        writeString(output, document.id());
+        writeString(output, document.language());
+        writeString(output, document.text());
+        output.writeInt(document.metadata().size());
+        for (Map.Entry<String, String[]> metadata : document.metadata().entrySet()) {
+            writeString(output, metadata.getKey());
+            output.writeInt(metadata.getValue().length);
+            for (String value : metadata.getValue()) {
+                writeString(output, value);
+            }
+        }
+        output.writeInt(document.embeds().size());
+        for (StoredDocument embed : document.embeds()) {
+            writeDocument(output, embed);
+        }
+    }
+
+    /**
+     * @return null if the documents have been stored with another format version
+     */
+    private static StoredDocument readDocuments(Path file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return input.readInt() == FORMAT_VERSION ? readDocument(input) : null;
+        }
+    }
+
+    private static StoredDocument readDocument(DataInputStream input) throws IOException {
+        String id = readString(input);
+        String language = readString(input);
+        String text = readString(input);
+        int metadataSize = input.readInt();
+        Map<String, String[]> metadata = new TreeMap<>();
+        for (int i = 0; i < metadataSize; i++) {
+            String name = readString(input);
+            String[] values = new String[input.readInt()];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = readString(input);
+            }
+            metadata.put(name, values);
+        }
+        int embedsSize = input.readInt();
+        List<StoredDocument> embeds = new ArrayList<>(embedsSize);
+        for (int i = 0; i < embedsSize; i++) {
+            embeds.add(readDocument(input));
+        }
+        return new StoredDocument(id, language, text, metadata, embeds);
+    }
+
+    /**
+     * strings are written with their length, metadata values can be longer than {@link DataOutputStream#writeUTF} limit
+     */
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        return length < 0 ? null : new String(input.readNBytes(length), UTF_8);
+    }
+
+    private static Metadata metadata(StoredDocument stored) {
+        Metadata metadata = new Metadata();
+        stored.metadata().forEach((name, values) -> {
+            for (String value : values) {
+                metadata.add(name, value);
+            }
+        });
+        return metadata;
+    }
+
+    private static Reader textReader(Path entry, StoredDocument stored) throws IOException {
+        return new EndClosingReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(entry.resolve(stored.text()))), UTF_8));
+    }
+
+    /**
+     * the spewers read the texts to the end without closing them
+     */
+    private static class EndClosingReader extends FilterReader {
+        private boolean closed = false;
+
+        EndClosingReader(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return closed ? -1 : closeAtEnd(super.read());
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return closed ? -1 : closeAtEnd(super.read(buffer, offset, length));
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                super.close();
+            }
+        }
+
+        private int closeAtEnd(int read) throws IOException {
+            if (read < 0) close();
+            return read;
+        }
+    }
+
+    /**
+     * Identifier giving the stored ids: the ids of the embedded documents cannot be set, they are generated
+     * by the identifier when they are read.
+     */
+    private static class StoredIdentifier implements Identifier {
+        private final Identifier delegate;
+        private final Map<TikaDocument, String> ids = Collections.synchronizedMap(new IdentityHashMap<>());
+
+        StoredIdentifier(Identifier delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public String generate(TikaDocument document) throws Exception {
+            String id = ids.get(document);
+            return id == null ? delegate.generate(document) : id;
+        }
+
+        @Override
+        public String generateForEmbed(EmbeddedTikaDocument document) throws Exception {
+            String id = ids.get(document);
+            return id == null ? delegate.generateForEmbed(document) : id;
+        }
+
+        @Override
+        public String hash(TikaDocument document) throws Exception {
+            return delegate.hash(document);
+        }
+
+        @Override
+        public String retrieveHash(Metadata metadata) {
+            return delegate.retrieveHash(metadata);
+        }
+    }
+
+    private Path entry(String digest) {
+        return directory.resolve(digest.substring(0, Math.min(2, digest.length()))).resolve(digest);
+    }
+
+    private static void deleteIfExists(Path path) throws IOException {
+        if (Files.exists(path)) {
+            try (Stream<Path> paths = Files.walk(path)) {
+                for (Path file : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
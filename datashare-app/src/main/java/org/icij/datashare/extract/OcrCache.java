@@ -0,0 +1,69 @@
+package org.icij.datashare.extract;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.Optional.ofNullable;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_OCR_TYPE;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_CACHE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_LANGUAGE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.OCR_TYPE_OPT;
+
+/**
+ * OCR result cache of the extractor.
+ * <p>
+ * With the <code>ocrCache</code> option, the extractor wraps the OCR parser so that the text of an image is
+ * stored in the cache directory under the SHA-256 of the image, and read from there instead of running the OCR
+ * when the same image is found again. The directory given by the user is split by OCR engine and languages,
+ * so that a cached text is only reused with the configuration that produced it.
+ * <p>
+ * Files are created atomically with lock files, so the directory can be shared by several workers
+ * (local disk or network file system).
+ */
+public final class OcrCache {
+    private static final Logger logger = LoggerFactory.getLogger(OcrCache.class);
+    static final String DEFAULT_OCR_LANGUAGE = "eng";
+
+    private OcrCache() {}
+
+    /**
+     * @return the task arguments with the <code>ocrCache</code> directory replaced by the directory of the
+     * OCR configuration, created if needed. The arguments are returned unchanged if there is no cache
+     * or if OCR is disabled.
+     */
+    public static Map<String, Object> resolve(Map<String, Object> args) {
+        Object cacheDir = args.get(OCR_CACHE_OPT);
+        if (cacheDir == null || cacheDir.toString().isBlank() || "false".equalsIgnoreCase(String.valueOf(args.get(OCR_OPT)))) {
+            return args;
+        }
+        Path directory = Path.of(cacheDir.toString()).resolve(configurationKey(
+                ofNullable(args.get(OCR_TYPE_OPT)).map(Object::toString).orElse(DEFAULT_OCR_TYPE),
+                ofNullable(args.get(OCR_LANGUAGE_OPT)).map(Object::toString).orElse(DEFAULT_OCR_LANGUAGE)));
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot create OCR cache directory " + directory, e);
+        }
+        logger.info("using OCR cache {}", directory);
+        Map<String, Object> resolved = new HashMap<>(args);
+        resolved.put(OCR_CACHE_OPT, directory.toString());
+        return resolved;
+    }
+
+    /**
+     * The languages are kept in their order because tesseract gives priority to the first ones.
+     */
+    static String configurationKey(String ocrType, String ocrLanguages) {
+        String languages = String.join("+", ocrLanguages.trim().toLowerCase(Locale.ROOT).split("\\s*\\+\\s*"));
+        return (ocrType.trim() + "-" + languages).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_+-]", "_");
+    }
+}
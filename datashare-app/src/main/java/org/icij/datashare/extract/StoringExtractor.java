@@ -0,0 +1,38 @@
+package org.icij.datashare.extract;
+
+import org.icij.extract.document.DocumentFactory;
+import org.icij.extract.document.TikaDocument;
+import org.icij.extract.extractor.Extractor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Extractor reading the documents of a file from the {@link ExtractionStore} when a file with the same digest
+ * has already been extracted with the same configuration, and storing them otherwise.
+ * <p>
+ * The file is read once more to compute its digest: re-indexing stored files only costs I/O.
+ */
+public class StoringExtractor extends Extractor {
+    private static final Logger logger = LoggerFactory.getLogger(StoringExtractor.class);
+    private final ExtractionStore store;
+
+    public StoringExtractor(DocumentFactory documentFactory, ExtractionStore store) {
+        super(documentFactory);
+        this.store = store;
+    }
+
+    @Override
+    public TikaDocument extract(Path path) throws IOException {
+        String digest = ExtractionStore.digest(path);
+        Optional<TikaDocument> stored = store.load(digest, path);
+        if (stored.isPresent()) {
+            logger.info("{} read from extraction store", path);
+            return stored.get();
+        }
+        return store.save(digest, super.extract(path));
+    }
+}
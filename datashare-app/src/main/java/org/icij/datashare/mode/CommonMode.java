@@ -47,6 +47,7 @@ import org.icij.datashare.tasks.TaskSupplierAmqp;
 import org.icij.datashare.tasks.TaskSupplierRedis;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.indexing.LanguageGuesser;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexer;
 import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.datashare.user.ApiKeyRepository;
@@ -212,6 +213,11 @@ public abstract class CommonMode extends AbstractModule implements Closeable {
         return indexer;
     }
 
+    @Provides @Singleton
+    ElasticsearchIndexMigration provideIndexMigration(final Indexer indexer) {
+        return new ElasticsearchIndexMigration(((ElasticsearchIndexer) indexer).client);
+    }
+
     @Provides @Singleton
     LanguageGuesser provideLanguageGuesser() throws IOException {
         return new OptimaizeLanguageGuesser();
@@ -14,7 +14,7 @@ public class LocalMode extends CommonMode {
     @Override
     protected void configure() {
         super.configure();
-        bind(IndexWaiterFilter.class).asEagerSingleton();
+        bind(Readiness.class).asEagerSingleton();
         bind(StatusResource.class).asEagerSingleton();
         bind(LocalUserFilter.class).asEagerSingleton();
         configurePersistence();
@@ -36,8 +36,9 @@ public class LocalMode extends CommonMode {
                 add(ProjectResource.class).
                 add(FtmResource.class).
                 add(NoteResource.class).
+                add(ExtractionErrorResource.class).
                 add(NerResource.class).
-                filter(IndexWaiterFilter.class).
+                filter(ReadinessFilter.class).
                 filter(LocalUserFilter.class);
     }
 }
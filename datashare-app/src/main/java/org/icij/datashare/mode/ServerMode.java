@@ -58,6 +58,7 @@ public class ServerMode extends CommonMode {
             bind(YesCookieAuthFilter.class).toInstance(getYesCookieAuthFilter());
         }
         bind(StatusResource.class).asEagerSingleton();
+        bind(Readiness.class).asEagerSingleton();
         configurePersistence();
     }
 
@@ -87,12 +88,14 @@ public class ServerMode extends CommonMode {
                 add(DocumentUserRecommendationResource.class).
                 add(BatchSearchResource.class).
                 add(NoteResource.class).
+                add(ExtractionErrorResource.class).
                 add(FtmResource.class).
                 add(PluginResource.class).
                 add(ExtensionResource.class).
                 add(NerResource.class).
                 add(ApiKeyResource.class).
                 add(ProjectResource.class).
+                filter(ReadinessFilter.class).
                 filter(ApiKeyFilter.class).
                 filter(Filter.class);
     }
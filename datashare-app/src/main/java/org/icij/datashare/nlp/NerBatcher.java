@@ -0,0 +1,218 @@
+package org.icij.datashare.nlp;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.extension.PipelineRegistry;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.DocumentBuilder;
+import org.icij.datashare.text.Language;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.nlp.Pipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NER_BATCH_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NER_BATCH_WAIT_MS;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NER_QUEUE_SIZE;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NER_TIMEOUT_MS;
+import static org.icij.datashare.cli.DatashareCliOptions.NER_BATCH_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NER_BATCH_WAIT_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NER_QUEUE_SIZE_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NER_TIMEOUT_OPT;
+
+/**
+ * Serves the NER requests of the name finding API with one bounded queue per pipeline and language.
+ * <p>
+ * Each queue has its own worker thread: it takes the first waiting request, then gathers the requests arriving
+ * during <code>nerBatchWaitMilliseconds</code> (up to <code>nerBatchSize</code>) and processes them back-to-back
+ * after a single pipeline initialization. So the models of a language are used by one thread and concurrent callers
+ * don't contend on them, while callers of other languages or pipelines are served in parallel.
+ * <p>
+ * When a queue holds <code>nerQueueSize</code> requests, new requests are rejected immediately with a
+ * {@link RejectedExecutionException}, so that the web layer can ask the caller to retry rather than let latency grow.
+ * <p>
+ * A request failing in the pipeline fails alone. If a worker stops anyway, its waiting requests are failed and
+ * its queue is removed, so the next request of the pipeline and language starts a new worker.
+ */
+@Singleton
+public class NerBatcher implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(NerBatcher.class);
+
+    private final PipelineRegistry pipelineRegistry;
+    private final int batchSize;
+    private final long batchWaitMillis;
+    private final int queueSize;
+    private final long timeoutMillis;
+    private final Map<Lane, BlockingQueue<Request>> queues = new ConcurrentHashMap<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean closed = false;
+
+    @Inject
+    public NerBatcher(PipelineRegistry pipelineRegistry, PropertiesProvider propertiesProvider) {
+        this(pipelineRegistry,
+                propertiesProvider.get(NER_BATCH_SIZE_OPT).map(Integer::parseInt).orElse(DEFAULT_NER_BATCH_SIZE),
+                propertiesProvider.get(NER_BATCH_WAIT_OPT).map(Long::parseLong).orElse(DEFAULT_NER_BATCH_WAIT_MS),
+                propertiesProvider.get(NER_QUEUE_SIZE_OPT).map(Integer::parseInt).orElse(DEFAULT_NER_QUEUE_SIZE),
+                propertiesProvider.get(NER_TIMEOUT_OPT).map(Long::parseLong).orElse(DEFAULT_NER_TIMEOUT_MS));
+    }
+
+    public NerBatcher(PipelineRegistry pipelineRegistry, int batchSize, long batchWaitMillis, int queueSize, long timeoutMillis) {
+        this.pipelineRegistry = pipelineRegistry;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchWaitMillis = Math.max(0, batchWaitMillis);
+        this.queueSize = Math.max(1, queueSize);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return the named entities of the text, completed by the worker of the pipeline and language
+     * @throws RejectedExecutionException if the queue of the pipeline and language is full
+     */
+    public CompletableFuture<List<NamedEntity>> submit(Pipeline.Type type, Language language, String text) {
+        if (closed) {
+            throw new RejectedExecutionException("NER service is closed");
+        }
+        Request request = new Request(DocumentBuilder.createDoc("inline").with(text).with(language).build());
+        Lane lane = new Lane(type, language);
+        BlockingQueue<Request> queue = queues.computeIfAbsent(lane, this::startWorker);
+        if (!queue.offer(request)) {
+            throw new RejectedExecutionException(String.format("NER queue of %s/%s is full (%d requests)", type, language, queueSize));
+        }
+        if (queues.get(lane) != queue && queue.remove(request)) {
+            // the worker of the lane has stopped meanwhile: the request goes to a new worker
+            return submit(type, language, text);
+        }
+        // a request cancelled by its caller (timeout, rejected batch) frees its place in the queue
+        request.result.whenComplete((namedEntities, error) -> {
+            if (request.result.isCancelled()) {
+                queue.remove(request);
+            }
+        });
+        return request.result;
+    }
+
+    /**
+     * @return the max number of waiting requests of a pipeline and language
+     */
+    public int queueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return the max time in milliseconds a caller should wait for a submitted request
+     */
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (workers) {
+            workers.forEach(Thread::interrupt);
+        }
+        queues.values().forEach(queue -> {
+            List<Request> requests = new ArrayList<>();
+            queue.drainTo(requests);
+            requests.forEach(r -> r.result.completeExceptionally(new RejectedExecutionException("NER service is closed")));
+        });
+    }
+
+    private BlockingQueue<Request> startWorker(Lane lane) {
+        BlockingQueue<Request> queue = new ArrayBlockingQueue<>(queueSize);
+        Thread worker = new Thread(() -> work(lane, queue), "ner-" + lane.type + "-" + lane.language);
+        worker.setDaemon(true);
+        synchronized (workers) {
+            workers.add(worker);
+        }
+        worker.start();
+        return queue;
+    }
+
+    private void work(Lane lane, BlockingQueue<Request> queue) {
+        List<Request> batch = new ArrayList<>(batchSize);
+        Throwable cause = new RejectedExecutionException("NER service is closed");
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchWaitMillis);
+                while (batch.size() < batchSize) {
+                    Request next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                process(lane, batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            cause = e;
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            logger.error("NER worker of {}/{} stopped", lane.type, lane.language, e);
+            cause = e;
+        } finally {
+            // the next request of the lane starts a new worker, the waiting ones are failed
+            queues.remove(lane, queue);
+            synchronized (workers) {
+                workers.remove(Thread.currentThread());
+            }
+            queue.drainTo(batch);
+            for (Request request : batch) {
+                request.result.completeExceptionally(cause);
+            }
+        }
+    }
+
+    private void process(Lane lane, List<Request> batch) throws InterruptedException {
+        logger.debug("processing batch of {} request(s) with {}/{}", batch.size(), lane.type, lane.language);
+        Pipeline pipeline;
+        boolean initialized;
+        try {
+            pipeline = pipelineRegistry.get(lane.type);
+            initialized = pipeline.initialize(lane.language);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Throwable e) {
+            batch.forEach(r -> r.result.completeExceptionally(e));
+            return;
+        }
+        for (Request request : batch) {
+            if (request.result.isDone()) { // cancelled by a caller that timed out
+                continue;
+            }
+            try {
+                request.result.complete(initialized ? pipeline.process(request.document) : emptyList());
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Throwable e) { // fails the request only, the worker goes on with the next ones
+                request.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private record Lane(Pipeline.Type type, Language language) {}
+
+    private static final class Request {
+        final Document document;
+        final CompletableFuture<List<NamedEntity>> result = new CompletableFuture<>();
+
+        Request(Document document) {
+            this.document = document;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.icij.datashare.nlp;
 
 import static org.icij.datashare.cli.DatashareCliOptions.NLP_PARALLELISM_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NLP_WORKER_SOCKET_OPT;
 import static org.icij.datashare.mode.EmbeddedMode.AMQP_PORT;
 import static org.icij.datashare.utils.ProcessHandler.dumpPid;
 import static org.icij.datashare.utils.ProcessHandler.findPidPaths;
@@ -14,7 +15,9 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.icij.datashare.ExecutableExtensionHelper;
 import org.icij.datashare.ExtensionService;
@@ -29,6 +32,7 @@ public class PythonNlpWorkerPool implements Closeable {
 
     private final ExtensionService extensionService;
     private final int nWorkers;
+    private final Optional<String> localSocket;
     private Process workerProcess;
     protected Path pidPath;
 
@@ -36,6 +40,7 @@ public class PythonNlpWorkerPool implements Closeable {
     public PythonNlpWorkerPool(ExtensionService extensionService, PropertiesProvider propertiesProvider) {
         this.extensionService = extensionService;
         nWorkers = propertiesProvider.get(NLP_PARALLELISM_OPT).map(Integer::parseInt).orElse(1);
+        localSocket = propertiesProvider.get(NLP_WORKER_SOCKET_OPT);
     }
 
     public PythonNlpWorkerPool start() throws IOException, InterruptedException {
@@ -65,14 +70,16 @@ public class PythonNlpWorkerPool implements Closeable {
         return extensionHelper.buildProcess(workerConfigPath.toString(), "-n", String.valueOf(nWorkers));
     }
 
-    private static Path dumpNlpWorkerConfig() throws IOException {
-        Map<String, String> workerConfig = Map.of(
+    private Path dumpNlpWorkerConfig() throws IOException {
+        Map<String, String> workerConfig = new HashMap<>(Map.of(
             "type", "amqp",
             "rabbitmq_host", "localhost",
             "rabbitmq_port", String.valueOf(AMQP_PORT),
             "rabbitmq_user", "admin",
             "rabbitmq_password", "admin"
-        );
+        ));
+        // the workers take their tasks from this socket first, see LocalWorkerServer
+        localSocket.ifPresent(socket -> workerConfig.put("local_socket", socket));
         Path workerConfigPath = Files.createTempFile("datashare-extension-nlp-spacy-config-", ".json");
         File tempFile = workerConfigPath.toFile();
         // Write the JSON object to the temporary file
@@ -0,0 +1,96 @@
+package org.icij.datashare.tasks;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor whose number of tasks running at the same time can be changed while it is running.
+ * <p>
+ * Like the extract <code>BlockingThreadPoolExecutor</code>, {@link #execute(Runnable)} blocks while
+ * the limit is reached, so that the queue drainer doesn't pull more paths than can be processed.
+ * Threads are created up to <code>maxLimit</code>; when the limit is lowered, running tasks finish
+ * and the next ones wait for permits.
+ */
+class AdaptiveExecutor extends ThreadPoolExecutor {
+    private final ResizableSemaphore permits;
+    private final int minLimit;
+    private final int maxLimit;
+    private volatile int limit;
+
+    AdaptiveExecutor(int initialLimit, int minLimit, int maxLimit) {
+        super(maxLimit, maxLimit, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.permits = new ResizableSemaphore(limit);
+        allowCoreThreadTimeOut(true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (isShutdown()) {
+            throw new RejectedExecutionException("executor is shut down");
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("interrupted while waiting for a worker", e);
+        }
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        super.afterExecute(r, t);
+        permits.release();
+    }
+
+    /**
+     * @return the new limit, bounded by the min and max limits
+     */
+    synchronized int setLimit(int newLimit) {
+        int bounded = Math.min(Math.max(newLimit, minLimit), maxLimit);
+        int delta = bounded - limit;
+        if (delta > 0) {
+            permits.release(delta);
+        } else if (delta < 0) {
+            permits.reducePermits(-delta);
+        }
+        limit = bounded;
+        return bounded;
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    int getMinLimit() {
+        return minLimit;
+    }
+
+    int getMaxLimit() {
+        return maxLimit;
+    }
+
+    private static class ResizableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -142,6 +142,8 @@ public class BatchDownloadRunner implements Callable<UriResult>, Monitorable, Us
             }
         } catch (ElasticsearchException esEx) {
             throw ElasticSearchAdapterException.createFrom(esEx);
+        } finally {
+            searcher.clearScroll();
         }
         UriResult result = new UriResult(batchDownload.filename.toUri(), Files.size(batchDownload.filename));
         logger.info("created batch download file {} of {} entries for user {}", result, numberOfResults.get(), batchDownload.user.getId());
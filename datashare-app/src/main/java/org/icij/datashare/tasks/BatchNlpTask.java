@@ -6,9 +6,11 @@ import org.icij.datashare.asynctasks.TaskGroupType;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import org.icij.datashare.Repository;
 import org.icij.datashare.asynctasks.CancellableTask;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskGroup;
@@ -16,6 +18,8 @@ import org.icij.datashare.extension.PipelineRegistry;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Language;
 import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
+import org.icij.datashare.text.Project;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.datashare.user.User;
@@ -32,19 +36,25 @@ public class BatchNlpTask extends DefaultTask<Long> implements UserTask, Cancell
     private final Function<Double, Void> progress;
     private volatile Thread taskThread;
     private final Indexer indexer;
+    private final Repository repository;
     private final List<CreateNlpBatchesFromIndex.BatchDocument> docs;
     private final Pipeline pipeline;
     private final int maxLength;
 
     @Inject
-    public BatchNlpTask(Indexer indexer, PipelineRegistry registry, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> progress) {
-        this(indexer, registry.get(Pipeline.Type.parse((String) taskView.args.get("pipeline"))), taskView, progress);
+    public BatchNlpTask(Indexer indexer, Repository repository, PipelineRegistry registry, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> progress) {
+        this(indexer, repository, registry.get(Pipeline.Type.parse((String) taskView.args.get("pipeline"))), taskView, progress);
     }
 
 
     BatchNlpTask(Indexer indexer, Pipeline pipeline, Task<Long> taskView, final Function<Double, Void> progress) {
+        this(indexer, null, pipeline, taskView, progress);
+    }
+
+    BatchNlpTask(Indexer indexer, Repository repository, Pipeline pipeline, Task<Long> taskView, final Function<Double, Void> progress) {
         this.user = taskView.getUser();
         this.indexer = indexer;
+        this.repository = repository;
         this.pipeline = pipeline;
         this.docs = (List<CreateNlpBatchesFromIndex.BatchDocument>) taskView.args.get("docs");
         this.maxLength = (int) taskView.args.get("maxLength");
@@ -69,9 +79,11 @@ public class BatchNlpTask extends DefaultTask<Long> implements UserTask, Cancell
         for (CreateNlpBatchesFromIndex.BatchDocument doc : this.docs) {
             String project = doc.project();
             Document indexDoc = indexer.get(doc.id(), doc.rootDocument(), EXCLUDED_SOURCES);
+            List<NamedEntityRollup> rollups = new ArrayList<>();
             if (indexDoc.getContentTextLength() < this.maxLength) {
                 List<NamedEntity> namedEntities = pipeline.process(indexDoc);
                 indexer.bulkAdd(project, pipeline.getType(), namedEntities, indexDoc);
+                rollups.addAll(NamedEntityRollup.count(namedEntities));
             } else {
                 int nbChunks = indexDoc.getContentTextLength() / this.maxLength + 1;
                 for (int chunkIndex = 0; chunkIndex < nbChunks; chunkIndex++) {
@@ -82,8 +94,10 @@ public class BatchNlpTask extends DefaultTask<Long> implements UserTask, Cancell
                     } else {
                         indexer.bulkAdd(project, pipeline.getType(), namedEntities, indexDoc);
                     }
+                    rollups.addAll(NamedEntityRollup.count(namedEntities));
                 }
             }
+            NamedEntityRollups.update(repository, Project.project(project), indexDoc.getId(), pipeline.getType(), rollups);
             nProcessed += 1;
             if (nProcessed % updateRate == 0) {
                 Double prog = (double) nProcessed / (double) batchSize;
@@ -0,0 +1,160 @@
+package org.icij.datashare.tasks;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import org.icij.datashare.Entity;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
+import org.icij.datashare.asynctasks.CancelException;
+import org.icij.datashare.asynctasks.CancellableTask;
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskGroup;
+import org.icij.datashare.asynctasks.TaskGroupType;
+import org.icij.datashare.monitoring.Monitorable;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Project;
+import org.icij.datashare.text.Tag;
+import org.icij.datashare.text.indexing.Indexer;
+import org.icij.datashare.text.indexing.SearchQuery;
+import org.icij.datashare.user.User;
+import org.icij.datashare.user.UserTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import static java.lang.Integer.min;
+import static java.lang.Integer.parseInt;
+import static java.lang.String.valueOf;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
+import static org.icij.datashare.cli.DatashareCliOptions.*;
+
+/**
+ * Tags, untags, stars, unstars, recommends or unrecommends all the documents matching a search query.
+ * <p>
+ * The ids of the matching documents are scrolled by pages, and each page is saved in the database
+ * with one statement and in the index (for tags) with one update by query, with a throttle between pages.
+ * All the operations are idempotent, so a task cancelled with requeue (or failed) can be run again from the start.
+ * <p>
+ * Expected args are <code>project</code>, <code>query</code>, <code>action</code> (see {@link Action})
+ * and <code>labels</code> for tag actions.
+ */
+@TaskGroup(TaskGroupType.Java)
+public class BulkAnnotationTask implements Callable<Long>, Monitorable, UserTask, CancellableTask {
+    private static final Logger logger = LoggerFactory.getLogger(BulkAnnotationTask.class);
+    static final int MAX_SCROLL_SIZE = 3500;
+
+    public enum Action {TAG, UNTAG, STAR, UNSTAR, RECOMMEND, UNRECOMMEND}
+
+    private final Indexer indexer;
+    private final Repository repository;
+    private final PropertiesProvider propertiesProvider;
+    private final Task<Long> task;
+    private final Function<Double, Void> progressCallback;
+    private volatile long totalHits = 0;
+    private volatile long processed = 0;
+    private volatile boolean cancelAsked = false;
+    private volatile boolean requeueCancel;
+    private volatile Thread callThread;
+
+    @Inject
+    public BulkAnnotationTask(Indexer indexer, Repository repository, PropertiesProvider propertiesProvider,
+                              @Assisted Task<Long> task, @Assisted Function<Double, Void> progressCallback) {
+        assert task.args.get("project") != null : "'project' property in task shouldn't be null";
+        assert task.args.get("query") != null : "'query' property in task shouldn't be null";
+        this.indexer = indexer;
+        this.repository = repository;
+        this.propertiesProvider = propertiesProvider;
+        this.task = task;
+        this.progressCallback = progressCallback;
+    }
+
+    @Override
+    public Long call() throws Exception {
+        callThread = Thread.currentThread();
+        int throttleMs = parseInt(propertiesProvider.get(BATCH_THROTTLE_OPT).orElse(DEFAULT_BATCH_THROTTLE));
+        String scrollDuration = propertiesProvider.get(SCROLL_DURATION_OPT).orElse(DEFAULT_SCROLL_DURATION);
+        int scrollSize = min(parseInt(propertiesProvider.get(SCROLL_SIZE_OPT).orElse(valueOf(DEFAULT_SCROLL_SIZE))), MAX_SCROLL_SIZE);
+        Project project = Project.project((String) task.args.get("project"));
+        Action action = Action.valueOf(task.args.get("action").toString().toUpperCase());
+        Tag[] tags = getLabels().stream().map(label -> new Tag(label, getUser())).toArray(Tag[]::new);
+        if ((action == Action.TAG || action == Action.UNTAG) && tags.length == 0) {
+            throw new IllegalArgumentException("'labels' cannot be empty for " + action);
+        }
+
+        logger.info("running {} on project {} for user {} with throttle {}ms and scroll size of {}",
+                action, project, getUser().getId(), throttleMs, scrollSize);
+        Indexer.Searcher searcher = indexer.search(List.of(project.getId()), Document.class,
+                new SearchQuery((String) task.args.get("query"))).withSource("rootDocument").limit(scrollSize);
+        try {
+            List<String> ids = searcher.scroll(scrollDuration).map(Entity::getId).collect(toList());
+            totalHits = searcher.totalHits();
+            while (!ids.isEmpty()) {
+                if (cancelAsked) {
+                    logger.info("cancelling {} on project {} requeue={}", action, project, requeueCancel);
+                    throw new CancelException(requeueCancel);
+                }
+                apply(action, project, ids, tags);
+                processed += ids.size();
+                progressCallback.apply(getProgressRate());
+                if (throttleMs > 0) {
+                    Thread.sleep(throttleMs);
+                }
+                ids = searcher.scroll(scrollDuration).map(Entity::getId).collect(toList());
+            }
+        } catch (ElasticsearchException esEx) {
+            throw ElasticSearchAdapterException.createFrom(esEx);
+        } finally {
+            searcher.clearScroll();
+        }
+        logger.info("{} applied to {} documents of project {}", action, processed, project);
+        return processed;
+    }
+
+    private void apply(Action action, Project project, List<String> ids, Tag[] tags) throws IOException {
+        switch (action) {
+            case TAG -> {
+                repository.tag(project, ids, tags);
+                indexer.tag(project, ids, tags);
+            }
+            case UNTAG -> {
+                repository.untag(project, ids, tags);
+                indexer.untag(project, ids, tags);
+            }
+            case STAR -> repository.star(project, getUser(), ids);
+            case UNSTAR -> repository.unstar(project, getUser(), ids);
+            case RECOMMEND -> repository.recommend(project, getUser(), ids);
+            case UNRECOMMEND -> repository.unrecommend(project, getUser(), ids);
+        }
+    }
+
+    private List<String> getLabels() {
+        return ofNullable((List<?>) task.args.get("labels")).orElse(List.of()).stream().map(Object::toString).collect(toList());
+    }
+
+    @Override
+    public double getProgressRate() {
+        return totalHits == 0 ? 0 : (double) processed / totalHits;
+    }
+
+    @Override
+    public User getUser() {
+        return task.getUser();
+    }
+
+    @Override
+    public void cancel(boolean requeue) {
+        requeueCancel = requeue;
+        cancelAsked = true;
+        try {
+            if (callThread != null) callThread.join();
+        } catch (InterruptedException e) {
+            logger.warn("bulk annotation interrupted during cancel check status for {}", task.id);
+        }
+    }
+}
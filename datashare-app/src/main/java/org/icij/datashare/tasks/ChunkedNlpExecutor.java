@@ -0,0 +1,184 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.nlp.Pipeline;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.lang.Math.min;
+
+/**
+ * Named entities extraction of documents larger than one pipeline call.
+ * <p>
+ * The content is split in chunks ending at a sentence boundary, each chunk starting <code>overlap</code> chars
+ * (rounded to the next sentence) before the end of the previous one, so that the entities crossing a boundary
+ * are found whole by one of the two chunks. The chunks of a document are processed in parallel with
+ * {@link Pipeline#process(Document, int, int)} which returns absolute offsets. Then each chunk only keeps the
+ * mentions starting before the middle of its overlap with the next chunk, and the mentions are merged
+ * by (mention, category, metadata) with the same offsets as a single pipeline call would give. The entities
+ * without offset in the content (negative offset, ex: email headers) are returned by each chunk and kept once.
+ * <p>
+ * The pipelines share their models between threads (CoreNLP annotators are thread safe),
+ * so the parallelism is the number of chunks of one document being processed at the same time.
+ */
+public class ChunkedNlpExecutor implements AutoCloseable {
+    private final Pipeline pipeline;
+    private final int chunkLength;
+    private final int overlap;
+    private final ExecutorService executor;
+
+    public ChunkedNlpExecutor(Pipeline pipeline, int chunkLength, int overlap, int parallelism) {
+        if (chunkLength <= 0) {
+            throw new IllegalArgumentException("chunk length should be > 0 (was " + chunkLength + ")");
+        }
+        this.pipeline = pipeline;
+        this.chunkLength = chunkLength;
+        this.overlap = Math.max(0, min(overlap, chunkLength / 2));
+        this.executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "nlp-chunk");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public List<NamedEntity> process(Document doc) throws InterruptedException {
+        List<Chunk> chunks = chunks(doc.getContent(), chunkLength, overlap, locale(doc));
+        List<List<NamedEntity>> results = new ArrayList<>(chunks.size());
+        if (executor == null) {
+            for (Chunk chunk : chunks) {
+                results.add(pipeline.process(doc, chunk.length(), chunk.start));
+            }
+        } else {
+            List<Future<List<NamedEntity>>> futures = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                futures.add(executor.submit((Callable<List<NamedEntity>>) () -> pipeline.process(doc, chunk.length(), chunk.start)));
+            }
+            try {
+                for (Future<List<NamedEntity>> future : futures) {
+                    results.add(get(future));
+                }
+            } finally {
+                futures.forEach(f -> f.cancel(true));
+            }
+        }
+        return merge(chunks, results);
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    static List<Chunk> chunks(String text, int chunkLength, int overlap, Locale locale) {
+        List<Chunk> chunks = new ArrayList<>();
+        BreakIterator sentences = BreakIterator.getSentenceInstance(locale);
+        sentences.setText(text);
+        int start = 0;
+        while (true) {
+            int end = start + chunkLength;
+            if (end >= text.length()) {
+                chunks.add(new Chunk(start, text.length()));
+                return chunks;
+            }
+            int boundary = sentences.preceding(end + 1);
+            if (boundary == BreakIterator.DONE || boundary <= start + overlap) {
+                boundary = end;
+            }
+            int next = boundary;
+            if (overlap > 0) {
+                int target = boundary - overlap;
+                next = sentences.following(target - 1);
+                if (next == BreakIterator.DONE || next >= boundary) {
+                    next = target;
+                }
+            }
+            chunks.add(new Chunk(start, boundary));
+            start = next;
+        }
+    }
+
+    static List<NamedEntity> merge(List<Chunk> chunks, List<List<NamedEntity>> results) {
+        Map<List<Object>, NamedEntity> firstEntities = new LinkedHashMap<>();
+        Map<List<Object>, TreeSet<Long>> offsets = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            long ownedFrom = i == 0 ? 0 : (chunks.get(i - 1).end + chunks.get(i).start) / 2;
+            long ownedTo = i == chunks.size() - 1 ? Long.MAX_VALUE : (chunks.get(i).end + chunks.get(i + 1).start) / 2;
+            for (NamedEntity ne : results.get(i)) {
+                List<Object> key = Arrays.asList(ne.getCategory(), ne.getMention(), ne.getMetadata());
+                for (Long offset : ne.getOffsets()) {
+                    if (offset < 0 || (offset >= ownedFrom && offset < ownedTo)) {
+                        firstEntities.putIfAbsent(key, ne);
+                        offsets.computeIfAbsent(key, k -> new TreeSet<>()).add(offset);
+                    }
+                }
+            }
+        }
+        List<NamedEntity> merged = new ArrayList<>(firstEntities.size());
+        firstEntities.forEach((key, ne) -> merged.add(NamedEntity.create(ne.getCategory(), ne.getMention(),
+                new ArrayList<>(offsets.get(key)), ne.getDocumentId(), ne.getRootDocument(), ne.getExtractor(),
+                ne.getExtractorLanguage(), ne.getMetadata())));
+        return merged;
+    }
+
+    private static Locale locale(Document doc) {
+        return doc.getLanguage() == null ? Locale.ROOT : Locale.forLanguageTag(doc.getLanguage().iso6391Code());
+    }
+
+    private static List<NamedEntity> get(Future<List<NamedEntity>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    static final class Chunk {
+        final int start;
+        final int end;
+
+        Chunk(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        int length() {
+            return end - start;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Chunk && ((Chunk) o).start == start && ((Chunk) o).end == end;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * start + end;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+}
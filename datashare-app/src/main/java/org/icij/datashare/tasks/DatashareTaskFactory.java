@@ -20,6 +20,9 @@ public interface DatashareTaskFactory extends org.icij.datashare.asynctasks.Task
     BatchNlpTask createBatchNlpTask(Task<Long> taskView, Function<Double, Void> updateCallback);
     DeduplicateTask createDeduplicateTask(Task<Long> taskView, Function<Double, Void> updateCallback);
     ArtifactTask createArtifactTask(Task<Long> taskView, Function<Double, Void> updateCallback);
+    BulkAnnotationTask createBulkAnnotationTask(Task<Long> taskView, Function<Double, Void> updateCallback);
+    IndexMigrationTask createIndexMigrationTask(Task<Long> taskView, Function<Double, Void> updateCallback);
+    RequeueExtractionErrorsTask createRequeueExtractionErrorsTask(Task<Long> taskView, Function<Double, Void> updateCallback);
 
     GenApiKeyTask createGenApiKey(User user);
     DelApiKeyTask createDelApiKey(User user);
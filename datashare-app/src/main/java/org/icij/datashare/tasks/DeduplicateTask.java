@@ -13,15 +13,23 @@ import org.icij.extract.queue.DocumentQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
 /**
- * filters the document queue with extracted docs
+ * filters the document queue with extracted docs.
+ * <p>
+ * Paths are streamed from the input queue to the output queue by batches, and the duplicates
+ * are filtered with a {@link DeduplicationSet} so that memory is bounded whatever the size of the queue.
  */
 @TaskGroup(TaskGroupType.Java)
 public class DeduplicateTask extends PipelineTask<Path> {
+    static final int BATCH_SIZE = 1000;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final DocumentCollectionFactory<Path> factory;
 
@@ -34,27 +42,57 @@ public class DeduplicateTask extends PipelineTask<Path> {
     @Override
     public Long call() throws Exception {
         super.call();
-        int duplicates = inputQueue.removeDuplicates();
-        transferToOutputQueue();
-        logger.info("removed {} duplicate paths in inputQueue {}", duplicates, inputQueue.getName());
-        return (long)duplicates;
+        try (DeduplicationSet seen = new DeduplicationSet(inputQueue.size())) {
+            long duplicates = transferToOutputQueue(path -> {
+                try {
+                    return seen.add(path.toString());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            logger.info("removed {} duplicate paths in inputQueue {}", duplicates, inputQueue.getName());
+            return duplicates;
+        }
     }
 
     long transferToOutputQueue() throws Exception {
         return transferToOutputQueue(p -> true);
     }
 
+    /**
+     * moves the paths matching the filter to the output queue by batches, until the poison.
+     * @return the number of paths filtered out
+     */
     long transferToOutputQueue(Predicate<Path> filter) throws Exception {
-        long originalSize = inputQueue.size();
-        try (DocumentQueue<Path> outputQueue = factory.createQueue(getOutputQueueName(), Path.class)) {
-            Path path;
-            while (!(path = inputQueue.take()).equals(PATH_POISON)) {
-                if (filter.test(path)) {
-                    outputQueue.add(path);
+        long filtered = 0;
+        DocumentQueue<Path> outputQueue = factory.createQueue(getOutputQueueName(), Path.class);
+        try {
+            List<Path> batch = new ArrayList<>(BATCH_SIZE);
+            List<Path> accepted = new ArrayList<>(BATCH_SIZE);
+            boolean poisoned = false;
+            while (!poisoned) {
+                batch.clear();
+                accepted.clear();
+                if (inputQueue.drainTo(batch, BATCH_SIZE) == 0) {
+                    batch.add(inputQueue.take());
+                }
+                for (Path path : batch) {
+                    if (path.equals(PATH_POISON)) {
+                        poisoned = true;
+                        break;
+                    }
+                    if (filter.test(path)) {
+                        accepted.add(path);
+                    } else {
+                        filtered++;
+                    }
                 }
+                outputQueue.addAll(accepted);
             }
             outputQueue.add(PATH_POISON);
-            return originalSize - outputQueue.size();
+            return filtered;
+        } finally {
+            outputQueue.close();
         }
     }
 }
@@ -0,0 +1,230 @@
+package org.icij.datashare.tasks;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Set of the strings seen by the {@link DeduplicateTask}, with bounded memory.
+ * <p>
+ * Strings are hashed on 128 bits. A bloom filter sized for the expected number of strings answers
+ * the strings that were never seen (most of them), the others are checked against the exact hashes:
+ * the last ones are kept in memory, and are spilled to sorted files when there are more than <code>maxHashesInMemory</code>.
+ * Files are searched with a binary search, and merged into one when there are more than <code>maxRuns</code>.
+ */
+class DeduplicationSet implements Closeable {
+    static final int DEFAULT_MAX_HASHES_IN_MEMORY = 250_000;
+    static final int DEFAULT_MAX_RUNS = 8;
+    static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+    private static final int HASH_BYTES = 16;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+    private static final Comparator<byte[]> HASH_ORDER = Arrays::compareUnsigned;
+
+    private final BloomFilter<HashCode> bloomFilter;
+    private final Set<HashCode> memoryHashes = new HashSet<>();
+    private final List<SortedRun> runs = new ArrayList<>();
+    private final Path spillDir;
+    private final int maxHashesInMemory;
+    private final int maxRuns;
+    private int runCounter = 0;
+
+    DeduplicationSet(long expectedInsertions) throws IOException {
+        this(expectedInsertions, DEFAULT_MAX_HASHES_IN_MEMORY, DEFAULT_MAX_RUNS);
+    }
+
+    DeduplicationSet(long expectedInsertions, int maxHashesInMemory, int maxRuns) throws IOException {
+        this.bloomFilter = BloomFilter.create((hash, sink) -> sink.putBytes(hash.asBytes()),
+                Math.max(expectedInsertions, 1000), BLOOM_FALSE_POSITIVE_RATE);
+        this.maxHashesInMemory = maxHashesInMemory;
+        this.maxRuns = maxRuns;
+        this.spillDir = Files.createTempDirectory("datashare-dedup");
+    }
+
+    /**
+     * @return true if the value was not in the set
+     */
+    boolean add(String value) throws IOException {
+        HashCode hash = HASH_FUNCTION.hashString(value, UTF_8);
+        if (bloomFilter.mightContain(hash) && contains(hash)) {
+            return false;
+        }
+        bloomFilter.put(hash);
+        memoryHashes.add(hash);
+        if (memoryHashes.size() >= maxHashesInMemory) {
+            spill();
+        }
+        return true;
+    }
+
+    int nbRuns() {
+        return runs.size();
+    }
+
+    private boolean contains(HashCode hash) throws IOException {
+        if (memoryHashes.contains(hash)) {
+            return true;
+        }
+        byte[] bytes = hash.asBytes();
+        for (SortedRun run : runs) {
+            if (run.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void spill() throws IOException {
+        List<byte[]> sorted = new ArrayList<>(memoryHashes.size());
+        memoryHashes.forEach(h -> sorted.add(h.asBytes()));
+        sorted.sort(HASH_ORDER);
+        Path file = nextRunFile();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (byte[] hash : sorted) {
+                output.write(hash);
+            }
+        }
+        runs.add(new SortedRun(file, sorted.size()));
+        memoryHashes.clear();
+        if (runs.size() > maxRuns) {
+            mergeRuns();
+        }
+    }
+
+    /**
+     * k-way merge of the runs. Hashes are only added when they are not found, so runs don't share hashes.
+     */
+    private void mergeRuns() throws IOException {
+        Path file = nextRunFile();
+        PriorityQueue<RunReader> heads = new PriorityQueue<>(Comparator.<RunReader, byte[]>comparing(r -> r.current, HASH_ORDER));
+        long size = 0;
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            for (SortedRun run : runs) {
+                RunReader reader = new RunReader(run.file);
+                if (reader.next()) heads.add(reader); else reader.close();
+            }
+            while (!heads.isEmpty()) {
+                RunReader reader = heads.poll();
+                output.write(reader.current);
+                size++;
+                if (reader.next()) heads.add(reader); else reader.close();
+            }
+        } finally {
+            heads.forEach(RunReader::close);
+        }
+        for (SortedRun run : runs) {
+            run.close();
+            Files.deleteIfExists(run.file);
+        }
+        runs.clear();
+        runs.add(new SortedRun(file, size));
+    }
+
+    private Path nextRunFile() {
+        return spillDir.resolve("run-" + runCounter++);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SortedRun run : runs) {
+            run.close();
+            Files.deleteIfExists(run.file);
+        }
+        runs.clear();
+        memoryHashes.clear();
+        Files.deleteIfExists(spillDir);
+    }
+
+    private static class SortedRun implements Closeable {
+        private final Path file;
+        private final long size;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(HASH_BYTES);
+
+        SortedRun(Path file, long size) throws IOException {
+            this.file = file;
+            this.size = size;
+            this.channel = FileChannel.open(file);
+        }
+
+        boolean contains(byte[] hash) throws IOException {
+            long low = 0;
+            long high = size - 1;
+            while (low <= high) {
+                long middle = (low + high) >>> 1;
+                int comparison = Arrays.compareUnsigned(read(middle), hash);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else if (comparison > 0) {
+                    high = middle - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private byte[] read(long index) throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, index * HASH_BYTES + buffer.position()) < 0) throw new EOFException(file.toString());
+            }
+            return buffer.array();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class RunReader implements AutoCloseable {
+        private final DataInputStream input;
+        private byte[] current;
+
+        RunReader(Path file) throws IOException {
+            this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        }
+
+        boolean next() throws IOException {
+            byte[] hash = new byte[HASH_BYTES];
+            try {
+                input.readFully(hash);
+            } catch (EOFException e) {
+                return false;
+            }
+            current = hash;
+            return true;
+        }
+
+        @Override
+        public void close() {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+                // read only
+            }
+        }
+    }
+}
@@ -6,10 +6,12 @@ import com.google.inject.assistedinject.Assisted;
 import java.util.function.Function;
 import org.icij.datashare.Entity;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskGroup;
 import org.icij.datashare.asynctasks.TaskGroupType;
+import org.icij.datashare.asynctasks.TaskRepository;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.indexing.Indexer;
@@ -19,7 +21,10 @@ import org.icij.extract.queue.DocumentQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static java.lang.Integer.parseInt;
 import static java.util.Collections.singletonList;
@@ -32,24 +37,34 @@ import static org.icij.datashare.cli.DatashareCliOptions.NLP_PIPELINE_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_DURATION_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.SCROLL_SIZE_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.SEARCH_QUERY_OPT;
+import static org.icij.datashare.text.Project.project;
+import static org.icij.datashare.text.indexing.ScrollQueryBuilder.createScrollQuery;
 
 @TaskGroup(TaskGroupType.Java)
 public class EnqueueFromIndexTask extends PipelineTask<String> {
+    static final String CURSOR_CHECKPOINT = "cursor";
     private final DocumentCollectionFactory<String> factory;
     private final String searchQuery;
     Logger logger = LoggerFactory.getLogger(getClass());
     private final Pipeline.Type nlpPipeline;
     private final String projectName;
     private final Indexer indexer;
+    private final Repository repository;
     private final String scrollDuration;
     private final int scrollSize;
 
+    public EnqueueFromIndexTask(final DocumentCollectionFactory<String> factory, final Indexer indexer, final TaskRepository taskRepository,
+                                @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> ignored) {
+        this(factory, indexer, null, taskRepository, taskView, ignored);
+    }
+
     @Inject
-    public EnqueueFromIndexTask(final DocumentCollectionFactory<String> factory, final Indexer indexer,
+    public EnqueueFromIndexTask(final DocumentCollectionFactory<String> factory, final Indexer indexer, final Repository repository, final TaskRepository taskRepository,
                                 @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> ignored) {
-        super(Stage.ENQUEUEIDX, taskView.getUser(), factory, new PropertiesProvider(taskView.args), String.class);
+        super(Stage.ENQUEUEIDX, taskView.getUser(), taskView.id, taskRepository, factory, new PropertiesProvider(taskView.args), String.class);
         this.factory = factory;
         this.indexer = indexer;
+        this.repository = repository;
         this.nlpPipeline = Pipeline.Type.parse((String) taskView.args.getOrDefault(NLP_PIPELINE_OPT, Pipeline.Type.CORENLP.name()));
         this.projectName = (String)taskView.args.getOrDefault(DEFAULT_PROJECT_OPT, DEFAULT_DEFAULT_PROJECT);
         this.scrollDuration = propertiesProvider.get(SCROLL_DURATION_OPT).orElse(DEFAULT_SCROLL_DURATION);
@@ -60,28 +75,69 @@ public class EnqueueFromIndexTask extends PipelineTask<String> {
     @Override
     public Long call() throws Exception {
         super.call();
-        Indexer.Searcher searcher;
-        if (searchQuery == null) {
-            searcher = indexer.search(singletonList(projectName), Document.class)
-                    .without(nlpPipeline).withSource("rootDocument").limit(scrollSize);
-        } else {
-            searcher = indexer.search(singletonList(projectName), Document.class, new SearchQuery(searchQuery))
-                    .withoutSource("content", "contentTranslated").limit(scrollSize);
-        }
-        searcher.sort("language", Indexer.Searcher.SortOrder.ASC);
+        Indexer.Searcher searcher = searcher();
         logger.info("enqueuing doc ids finding for index {} and {} with {} scroll and size of {} : {} documents found", projectName, nlpPipeline,
                 scrollDuration, scrollSize, searcher.totalHits());
-        List<? extends Entity> docsToProcess = searcher.scroll(scrollDuration).collect(toList());
+        String cursor = (String) getCheckpoint().get(CURSOR_CHECKPOINT);
+        if (cursor != null) {
+            logger.info("resuming enqueuing from checkpoint");
+        }
+        List<? extends Entity> docsToProcess;
+        try {
+            docsToProcess = searcher.scroll(createScrollQuery().withDuration(scrollDuration).withCursor(cursor).build()).collect(toList());
+        } catch (Indexer.ScrollExpiredException e) {
+            if (cursor == null) {
+                throw e;
+            }
+            logger.warn("cannot resume enqueuing from checkpoint ({}), enqueuing from the start", e.getMessage());
+            searcher = searcher();
+            docsToProcess = searcher.scroll(createScrollQuery().withDuration(scrollDuration).build()).collect(toList());
+        }
         long totalHits = searcher.totalHits();
 
-        try (DocumentQueue<String> outputQueue = factory.createQueue(getOutputQueueName(), String.class)) {
+        DocumentQueue<String> outputQueue = factory.createQueue(getOutputQueueName(), String.class);
+        try {
             do {
                 docsToProcess.forEach(doc -> outputQueue.add(doc.getId()));
+                if (searcher.cursor() != null) {
+                    saveCheckpoint(Map.of(CURSOR_CHECKPOINT, searcher.cursor()));
+                }
                 docsToProcess = searcher.scroll(scrollDuration).toList();
             } while (!docsToProcess.isEmpty());
             searcher.clearScroll();
+            totalHits += enqueueFromRepository(outputQueue);
+        } finally {
+            outputQueue.close();
         }
         logger.info("enqueued into {} {} files", outputQueue.getName(), totalHits);
         return totalHits;
     }
+
+    /**
+     * enqueues the documents saved in the database (and not in the index) that have not been processed by the pipeline
+     */
+    private long enqueueFromRepository(DocumentQueue<String> outputQueue) {
+        if (repository == null || searchQuery != null) {
+            return 0;
+        }
+        long nbDocuments = 0;
+        try (Stream<String> ids = repository.getDocumentIdsNotTaggedWithPipeline(project(projectName), nlpPipeline, scrollSize)) {
+            for (Iterator<String> it = ids.iterator(); it.hasNext(); nbDocuments++) {
+                outputQueue.add(it.next());
+            }
+        }
+        return nbDocuments;
+    }
+
+    private Indexer.Searcher searcher() {
+        Indexer.Searcher searcher;
+        if (searchQuery == null) {
+            searcher = indexer.search(singletonList(projectName), Document.class)
+                    .without(nlpPipeline).withSource("rootDocument").limit(scrollSize);
+        } else {
+            searcher = indexer.search(singletonList(projectName), Document.class, new SearchQuery(searchQuery))
+                    .withoutSource("content", "contentTranslated").limit(scrollSize);
+        }
+        return searcher.sort("language", Indexer.Searcher.SortOrder.ASC);
+    }
 }
@@ -7,14 +7,17 @@ import java.util.function.Function;
 import org.checkerframework.checker.units.qual.N;
 import org.icij.datashare.HumanReadableSize;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskGroup;
+import org.icij.datashare.asynctasks.TaskRepository;
 import org.icij.datashare.extension.PipelineRegistry;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.datashare.monitoring.Monitorable;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
 import org.icij.datashare.text.Project;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.nlp.Pipeline;
@@ -22,15 +25,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static java.lang.String.valueOf;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toCollection;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_DEFAULT_PROJECT;
+import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_NLP_CHUNK_OVERLAP;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_POLLING_INTERVAL_SEC;
 import static org.icij.datashare.cli.DatashareCliOptions.DEFAULT_PROJECT_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.MAX_CONTENT_LENGTH_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NLP_CHUNK_OVERLAP_OPT;
+import static org.icij.datashare.cli.DatashareCliOptions.NLP_CHUNK_PARALLELISM_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.NLP_PIPELINE_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.POLLING_INTERVAL_SECONDS_OPT;
 import org.icij.datashare.asynctasks.TaskGroupType;
@@ -40,48 +49,94 @@ import static org.icij.extract.document.Identifier.shorten;
 public class ExtractNlpTask extends PipelineTask<String> implements Monitorable {
     private static final int DEFAULT_MAX_CONTENT_LENGTH = 1024 * 1024;
     public static final int NB_MAX_POLLS = 3;
+    static final String IN_FLIGHT_CHECKPOINT = "inFlight";
+    // the ids are taken from the queue by batches, with one checkpoint per batch
+    static final int CHECKPOINT_BATCH_SIZE = 16;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Indexer indexer;
+    private final Repository repository;
     private final Pipeline nlpPipeline;
     private final Project project;
     private final int maxContentLengthChars;
     private final float pollingIntervalSeconds;
+    private final ChunkedNlpExecutor chunkedNlp;
 
     @Inject
-    public ExtractNlpTask(Indexer indexer, PipelineRegistry registry, final DocumentCollectionFactory<String> factory, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
-        this(indexer, registry.get(Pipeline.Type.parse((String)taskView.args.get(NLP_PIPELINE_OPT))), factory, taskView, updateCallback);
+    public ExtractNlpTask(Indexer indexer, Repository repository, PipelineRegistry registry, final DocumentCollectionFactory<String> factory, final TaskRepository taskRepository, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
+        this(indexer, repository, registry.get(Pipeline.Type.parse((String)taskView.args.get(NLP_PIPELINE_OPT))), factory, taskRepository, taskView, updateCallback);
     }
 
-
     ExtractNlpTask(Indexer indexer, Pipeline pipeline, final DocumentCollectionFactory<String> factory, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
-        super(Stage.NLP, taskView.getUser(), factory, new PropertiesProvider(taskView.args), String.class);
+        this(indexer, pipeline, factory, null, taskView, updateCallback);
+    }
+
+    ExtractNlpTask(Indexer indexer, Pipeline pipeline, final DocumentCollectionFactory<String> factory, final TaskRepository taskRepository, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
+        this(indexer, null, pipeline, factory, taskRepository, taskView, updateCallback);
+    }
+
+    ExtractNlpTask(Indexer indexer, Repository repository, Pipeline pipeline, final DocumentCollectionFactory<String> factory, final TaskRepository taskRepository, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) {
+        super(Stage.NLP, taskView.getUser(), taskView.id, taskRepository, factory, new PropertiesProvider(taskView.args), String.class);
         this.nlpPipeline = pipeline;
         project = Project.project(ofNullable((String)taskView.args.get(DEFAULT_PROJECT_OPT)).orElse(DEFAULT_DEFAULT_PROJECT));
         maxContentLengthChars = (int) HumanReadableSize.parse(ofNullable((String)taskView.args.get(MAX_CONTENT_LENGTH_OPT)).orElse(valueOf(DEFAULT_MAX_CONTENT_LENGTH)));
         pollingIntervalSeconds = Float.parseFloat(ofNullable((String)taskView.args.get(POLLING_INTERVAL_SECONDS_OPT)).orElse(DEFAULT_POLLING_INTERVAL_SEC));
+        int chunkOverlap = ofNullable(taskView.args.get(NLP_CHUNK_OVERLAP_OPT)).map(Object::toString).map(Integer::parseInt).orElse(DEFAULT_NLP_CHUNK_OVERLAP);
+        int chunkParallelism = ofNullable(taskView.args.get(NLP_CHUNK_PARALLELISM_OPT)).map(Object::toString).map(Integer::parseInt).orElse(1);
+        chunkedNlp = new ChunkedNlpExecutor(pipeline, maxContentLengthChars, chunkOverlap, chunkParallelism);
         this.indexer = indexer;
+        this.repository = repository;
     }
 
     @Override
     public Long call() throws Exception {
         super.call();
         logger.info("extracting Named Entities with pipeline {} for {} from queue {}", nlpPipeline.getType(), project, inputQueue.getName());
-        String docId;
+        // the ids taken from the queue by the previous run of the task that may not have been processed
+        List<String> batch = ((List<?>) getCheckpoint().getOrDefault(IN_FLIGHT_CHECKPOINT, List.of())).stream()
+                .map(String::valueOf).collect(toCollection(ArrayList::new));
+        if (!batch.isEmpty()) {
+            logger.info("resuming from checkpoint with {} document(s)", batch.size());
+        }
         long nbMessages = 0;
         int nbMaxPolls = NB_MAX_POLLS;
-        while (!(STRING_POISON.equals(docId = inputQueue.poll((long) (pollingIntervalSeconds * 1000), TimeUnit.MILLISECONDS)))
-                && nbMaxPolls > 0) {
-            try {
-                if (docId != null) {
-                    findNamedEntities(project, docId);
-                    nbMessages++;
-                } else {
-                    logger.info("will poll document queue again for pollingInterval={} seconds ({}/{})", pollingIntervalSeconds, nbMaxPolls, NB_MAX_POLLS);
-                    nbMaxPolls--;
+        boolean poisoned = false;
+        try {
+            while (!poisoned && nbMaxPolls > 0) {
+                if (batch.isEmpty()) {
+                    String docId = inputQueue.poll((long) (pollingIntervalSeconds * 1000), TimeUnit.MILLISECONDS);
+                    if (docId == null) {
+                        logger.info("will poll document queue again for pollingInterval={} seconds ({}/{})", pollingIntervalSeconds, nbMaxPolls, NB_MAX_POLLS);
+                        nbMaxPolls--;
+                        continue;
+                    }
+                    batch.add(docId);
+                    inputQueue.drainTo(batch, CHECKPOINT_BATCH_SIZE - 1);
+                    int poison = batch.indexOf(STRING_POISON);
+                    if (poison >= 0) { // the ids after the poison are given back for the next consumer
+                        List<String> next = batch.subList(poison + 1, batch.size());
+                        inputQueue.addAll(next);
+                        next.clear();
+                        batch.remove(poison);
+                        poisoned = true;
+                    }
+                    if (!batch.isEmpty()) {
+                        // the drained ids are not in the queue anymore: keep track of them until the next batch
+                        saveCheckpoint(Map.of(IN_FLIGHT_CHECKPOINT, new ArrayList<>(batch)));
+                    }
+                }
+                for (String id : batch) {
+                    try {
+                        findNamedEntities(project, id);
+                        nbMessages++;
+                    } catch (Throwable e) {
+                        logger.error("error in ExtractNlpTask loop", e);
+                    }
                 }
-            } catch (Throwable e) {
-                logger.error("error in ExtractNlpTask loop", e);
+                batch.clear();
             }
+            clearCheckpoint();
+        } finally {
+            chunkedNlp.close();
         }
         logger.info("exiting ExtractNlpTask loop after {} messages.", nbMessages);
         return nbMessages;
@@ -90,32 +145,32 @@ public class ExtractNlpTask extends PipelineTask<String> implements Monitorable
     void findNamedEntities(final Project project, final String id) throws InterruptedException {
         try {
             Document doc = indexer.get(project.getName(), id);
+            boolean fromRepository = doc == null && repository != null;
+            if (fromRepository) {
+                // documents saved in the database by the DatabaseSpewer are not in the index
+                doc = repository.getDocuments(project, List.of(id)).stream().findFirst().orElse(null);
+            }
             if (doc != null) {
                 logger.info("extracting {} entities for document {}", nlpPipeline.getType(), shorten(doc.getId(), 4));
                 if (nlpPipeline.initialize(doc.getLanguage())) {
-                    int nbEntities = 0;
+                    List<NamedEntity> namedEntities;
                     if (doc.getContent().length() < this.maxContentLengthChars) {
-                        List<NamedEntity> namedEntities = nlpPipeline.process(doc);
-                        indexer.bulkAdd(project.getName(), nlpPipeline.getType(), namedEntities, doc);
-                        nbEntities = namedEntities.size();
+                        namedEntities = nlpPipeline.process(doc);
+                    } else {
+                        logger.info("document is too large, extracting entities by chunks of {} chars", maxContentLengthChars);
+                        namedEntities = chunkedNlp.process(doc);
+                    }
+                    if (fromRepository) {
+                        repository.tagWithPipeline(project, nlpPipeline.getType(), doc.getId(), namedEntities);
                     } else {
-                        int nbChunks = doc.getContent().length() / this.maxContentLengthChars + 1;
-                        logger.info("document is too large, extracting entities for {} document chunks", nbChunks);
-                        for (int chunkIndex = 0; chunkIndex < nbChunks; chunkIndex++) {
-                            List<NamedEntity> namedEntities = nlpPipeline.process(doc, maxContentLengthChars, chunkIndex * maxContentLengthChars);
-                            if (chunkIndex < nbChunks - 1) {
-                                indexer.bulkAdd(project.getName(), namedEntities);
-                            } else {
-                                indexer.bulkAdd(project.getName(), nlpPipeline.getType(), namedEntities, doc);
-                            }
-                            nbEntities += namedEntities.size();
-                        }
+                        indexer.bulkAdd(project.getName(), nlpPipeline.getType(), namedEntities, doc);
                     }
-                    logger.info("added {} named entities to document {}", nbEntities, shorten(doc.getId(), 4));
+                    NamedEntityRollups.update(repository, project, doc.getId(), nlpPipeline.getType(), NamedEntityRollup.count(namedEntities));
+                    logger.info("added {} named entities to document {}", namedEntities.size(), shorten(doc.getId(), 4));
                     nlpPipeline.terminate(doc.getLanguage());
                 }
             } else {
-                logger.warn("no document found in index with id {}", id);
+                logger.warn("no document found with id {}", id);
             }
         } catch (IOException e) {
             logger.error("cannot extract entities of doc {}", id, e);
@@ -0,0 +1,79 @@
+package org.icij.datashare.tasks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estimated cost of the extraction of a file: its size weighted by its type.
+ * <p>
+ * The type is read from the extension, or from the first bytes of the file when the extension is unknown.
+ * Archives and mailboxes contain many documents, images and PDFs may be OCRed.
+ */
+final class ExtractionCost {
+    static final double ARCHIVE_WEIGHT = 4;
+    static final double IMAGE_WEIGHT = 3;
+    static final double PDF_WEIGHT = 2;
+    static final double DEFAULT_WEIGHT = 1;
+    private static final Set<String> ARCHIVES = Set.of("zip", "tar", "gz", "tgz", "bz2", "7z", "rar", "xz", "pst", "ost", "mbox", "iso");
+    private static final Set<String> IMAGES = Set.of("jpg", "jpeg", "png", "tif", "tiff", "bmp", "gif", "webp");
+    private static final Set<String> KNOWN = Set.of("txt", "csv", "html", "htm", "xml", "json", "eml", "msg",
+            "doc", "docx", "xls", "xlsx", "ppt", "pptx", "odt", "ods", "odp", "rtf");
+    private static final Map<byte[], Double> MAGIC_BYTES = Map.of(
+            new byte[]{'%', 'P', 'D', 'F'}, PDF_WEIGHT,
+            new byte[]{'P', 'K', 3, 4}, ARCHIVE_WEIGHT,
+            new byte[]{(byte) 0x1f, (byte) 0x8b}, ARCHIVE_WEIGHT,
+            new byte[]{'7', 'z', (byte) 0xbc, (byte) 0xaf}, ARCHIVE_WEIGHT,
+            new byte[]{'R', 'a', 'r', '!'}, ARCHIVE_WEIGHT,
+            new byte[]{'!', 'B', 'D', 'N'}, ARCHIVE_WEIGHT,
+            new byte[]{(byte) 0xff, (byte) 0xd8, (byte) 0xff}, IMAGE_WEIGHT,
+            new byte[]{(byte) 0x89, 'P', 'N', 'G'}, IMAGE_WEIGHT);
+
+    private ExtractionCost() {}
+
+    /**
+     * @return the size of the file (0 if it cannot be read) multiplied by the weight of its type
+     */
+    static long of(Path path) {
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+        return (long) (size * weight(path));
+    }
+
+    static double weight(Path path) {
+        String fileName = path.getFileName() == null ? "" : path.getFileName().toString().toLowerCase(Locale.ROOT);
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot < 0 ? "" : fileName.substring(dot + 1);
+        if (ARCHIVES.contains(extension)) return ARCHIVE_WEIGHT;
+        if (IMAGES.contains(extension)) return IMAGE_WEIGHT;
+        if ("pdf".equals(extension)) return PDF_WEIGHT;
+        if (KNOWN.contains(extension)) return DEFAULT_WEIGHT;
+        return weightFromMagicBytes(path);
+    }
+
+    private static double weightFromMagicBytes(Path path) {
+        byte[] header = new byte[4];
+        int read;
+        try (InputStream input = Files.newInputStream(path)) {
+            read = input.readNBytes(header, 0, header.length);
+        } catch (IOException e) {
+            return DEFAULT_WEIGHT;
+        }
+        for (Map.Entry<byte[], Double> magic : MAGIC_BYTES.entrySet()) {
+            byte[] bytes = magic.getKey();
+            if (read >= bytes.length && Arrays.equals(header, 0, bytes.length, bytes, 0, bytes.length)) {
+                return magic.getValue();
+            }
+        }
+        return DEFAULT_WEIGHT;
+    }
+}
@@ -0,0 +1,95 @@
+package org.icij.datashare.tasks;
+
+import org.apache.tika.exception.EncryptedDocumentException;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.mime.MimeTypes;
+import org.icij.datashare.ExtractionError;
+import org.icij.datashare.Repository;
+import org.icij.datashare.text.Project;
+import org.icij.extract.extractor.ExtractionStatus;
+import org.icij.extract.report.Report;
+import org.icij.extract.report.ReportMap;
+import org.icij.extract.report.Reporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * Records the extraction failures of a project in the repository, so that they can be aggregated and queued again.
+ * <p>
+ * A failure that cannot be recorded is only logged: it must not stop the extraction.
+ */
+final class ExtractionErrors {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionErrors.class);
+    private final Repository repository;
+    private final Project project;
+
+    ExtractionErrors(Repository repository, Project project) {
+        this.repository = repository;
+        this.project = project;
+    }
+
+    void record(Path path, ExtractionStatus status, Exception exception) {
+        try {
+            repository.save(project, ExtractionError.create(path, contentType(path), status.name(), exception, new Date()));
+        } catch (RuntimeException e) {
+            logger.error("cannot record extraction error of {}", path, e);
+        }
+    }
+
+    /**
+     * status of an exception thrown by the extractor when it is called without reporter
+     */
+    static ExtractionStatus status(Exception exception) {
+        Throwable cause = exception instanceof IOException && exception.getCause() instanceof TikaException ? exception.getCause() : exception;
+        if (cause instanceof NoSuchFileException || cause instanceof FileNotFoundException) return ExtractionStatus.FAILURE_NOT_FOUND;
+        if (cause instanceof EncryptedDocumentException) return ExtractionStatus.FAILURE_NOT_DECRYPTED;
+        if (cause instanceof TikaException) return ExtractionStatus.FAILURE_NOT_PARSED;
+        if (cause instanceof IOException) return ExtractionStatus.FAILURE_UNREADABLE;
+        return ExtractionStatus.FAILURE_UNKNOWN;
+    }
+
+    /**
+     * content type guessed from the file name only: the file may not be readable
+     */
+    static String contentType(Path path) {
+        Path fileName = path.getFileName();
+        if (fileName == null) {
+            return ExtractionError.UNKNOWN_CONTENT_TYPE;
+        }
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, fileName.toString());
+        try {
+            return MimeTypes.getDefaultMimeTypes().detect(null, metadata).toString();
+        } catch (IOException e) {
+            return ExtractionError.UNKNOWN_CONTENT_TYPE;
+        }
+    }
+
+    /**
+     * Reporter recording the failures given by the extractor before saving them in the report map.
+     */
+    static class RecordingReporter extends Reporter {
+        private final ExtractionErrors errors;
+
+        RecordingReporter(ReportMap reportMap, ExtractionErrors errors) {
+            super(reportMap);
+            this.errors = errors;
+        }
+
+        @Override
+        public void save(Path path, Report report) {
+            if (report.getStatus() != ExtractionStatus.SUCCESS) {
+                errors.record(path, report.getStatus(), report.getException().orElse(null));
+            }
+            super.save(path, report);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.icij.datashare.tasks;
+
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import org.icij.datashare.asynctasks.CancelException;
+import org.icij.datashare.asynctasks.CancellableTask;
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskGroup;
+import org.icij.datashare.asynctasks.TaskGroupType;
+import org.icij.datashare.monitoring.Monitorable;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration.Mode;
+import org.icij.datashare.user.User;
+import org.icij.datashare.user.UserTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Migrates the index of a project to a new index with the current settings and mappings, or splits it
+ * in more shards, then makes the project name an alias of the new index (see {@link ElasticsearchIndexMigration}).
+ * <p>
+ * Expected args are <code>project</code>, <code>shards</code>, and optionally <code>mode</code> (REINDEX or SPLIT,
+ * default REINDEX), <code>slices</code> (default auto) and <code>requestsPerSecond</code> (default -1: no throttle).
+ * A cancelled migration is rolled back, so it can be run again from the start.
+ */
+@TaskGroup(TaskGroupType.Java)
+public class IndexMigrationTask implements Callable<Long>, Monitorable, UserTask, CancellableTask {
+    private static final Logger logger = LoggerFactory.getLogger(IndexMigrationTask.class);
+
+    private final ElasticsearchIndexMigration migration;
+    private final Task<Long> task;
+    private final Function<Double, Void> progressCallback;
+    private volatile double progress = 0;
+    private volatile boolean cancelAsked = false;
+    private volatile boolean requeueCancel;
+    private volatile Thread callThread;
+
+    @Inject
+    public IndexMigrationTask(ElasticsearchIndexMigration migration, @Assisted Task<Long> task, @Assisted Function<Double, Void> progressCallback) {
+        assert task.args.get("project") != null : "'project' property in task shouldn't be null";
+        assert task.args.get("shards") != null : "'shards' property in task shouldn't be null";
+        this.migration = migration;
+        this.task = task;
+        this.progressCallback = progressCallback;
+    }
+
+    @Override
+    public Long call() throws Exception {
+        callThread = Thread.currentThread();
+        String project = (String) task.args.get("project");
+        Mode mode = Mode.valueOf(ofNullable(task.args.get("mode")).orElse(Mode.REINDEX).toString().toUpperCase());
+        int shards = parseInt(task.args.get("shards").toString());
+        String slices = ofNullable(task.args.get("slices")).orElse("auto").toString();
+        long requestsPerSecond = parseLong(ofNullable(task.args.get("requestsPerSecond")).orElse(-1).toString());
+
+        logger.info("running {} of project {} to {} shard(s) for user {}", mode, project, shards, getUser().getId());
+        try {
+            migration.migrate(project, mode, shards, slices, requestsPerSecond, rate -> {
+                progress = rate;
+                progressCallback.apply(rate);
+            }, () -> cancelAsked);
+        } catch (CancellationException e) {
+            logger.info("cancelled {} of project {} requeue={}", mode, project, requeueCancel);
+            throw new CancelException(requeueCancel);
+        }
+        return (long) shards;
+    }
+
+    @Override
+    public double getProgressRate() {
+        return progress;
+    }
+
+    @Override
+    public User getUser() {
+        return task.getUser();
+    }
+
+    @Override
+    public void cancel(boolean requeue) {
+        requeueCancel = requeue;
+        cancelAsked = true;
+        try {
+            if (callThread != null) callThread.join();
+        } catch (InterruptedException e) {
+            logger.warn("index migration interrupted during cancel check status for {}", task.id);
+        }
+    }
+}
@@ -3,19 +3,24 @@ package org.icij.datashare.tasks;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import java.util.function.Function;
+import org.icij.concurrent.BlockingThreadPoolExecutor;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.Task;
 import org.icij.datashare.asynctasks.TaskGroup;
 import org.icij.datashare.asynctasks.TaskGroupType;
 import org.icij.datashare.extract.DocumentCollectionFactory;
+import org.icij.datashare.extract.ExtractionStore;
+import org.icij.datashare.extract.OcrCache;
+import org.icij.datashare.extract.StoringExtractor;
 import org.icij.datashare.monitoring.Monitorable;
 import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchSpewer;
+import org.icij.extract.document.DigestIdentifier;
 import org.icij.extract.document.DocumentFactory;
-import org.icij.extract.extractor.DocumentConsumer;
+import org.icij.extract.document.Identifier;
 import org.icij.extract.extractor.Extractor;
 import org.icij.extract.queue.DocumentQueueDrainer;
-import org.icij.extract.report.Reporter;
 import org.icij.task.Options;
 import org.icij.task.annotation.Option;
 import org.icij.task.annotation.OptionsClass;
@@ -23,12 +28,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.util.Map;
 
-import static java.lang.Math.max;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.icij.datashare.cli.DatashareCliOptions.*;
+import static org.icij.datashare.text.Project.project;
 
 @OptionsClass(Extractor.class)
 @OptionsClass(DocumentFactory.class)
@@ -39,25 +46,43 @@ import static org.icij.datashare.cli.DatashareCliOptions.*;
 public class IndexTask extends PipelineTask<Path> implements Monitorable{
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final DocumentQueueDrainer<Path> drainer;
-    private final DocumentConsumer consumer;
+    private final SizeAwareDocumentConsumer consumer;
     private long totalToProcess;
     private final Integer parallelism;
+    private final ParallelismController parallelismController;
 
     @Inject
-    public IndexTask(final ElasticsearchSpewer spewer, final DocumentCollectionFactory<Path> factory, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) throws IOException {
+    public IndexTask(final ElasticsearchSpewer spewer, final DocumentCollectionFactory<Path> factory, final Repository repository, @Assisted Task<Long> taskView, @Assisted final Function<Double, Void> updateCallback) throws IOException {
         super(Stage.INDEX, taskView.getUser(), factory, new PropertiesProvider(taskView.args), Path.class);
         parallelism = propertiesProvider.get(PARALLELISM_OPT).map(Integer::parseInt).orElse(Runtime.getRuntime().availableProcessors());
 
-        Options<String> allTaskOptions = options().createFrom(Options.from(taskView.args));
+        Map<String, Object> args = OcrCache.resolve(taskView.args);
+        Options<String> allTaskOptions = options().createFrom(Options.from(args));
         ((ElasticsearchSpewer) spewer.configure(allTaskOptions)).createIndexIfNotExists();
 
-        DocumentFactory documentFactory = new DocumentFactory().configure(allTaskOptions);
-        Extractor extractor = new Extractor(documentFactory).configure(allTaskOptions);
+        // the store gives its documents the ids of the extracted ones: it shares the identifier of the factory
+        Identifier identifier = new DigestIdentifier(allTaskOptions.valueIfPresent(DIGEST_ALGORITHM_OPT).orElse(DEFAULT_DIGEST_METHOD.toString()),
+                allTaskOptions.valueIfPresent(CHARSET_OPT).map(Charset::forName).orElse(Charset.defaultCharset()));
+        DocumentFactory documentFactory = new DocumentFactory().configure(allTaskOptions).withIdentifier(identifier);
+        Extractor extractor = ExtractionStore.from(args, identifier)
+                .<Extractor>map(store -> new StoringExtractor(documentFactory, store))
+                .orElseGet(() -> new Extractor(documentFactory)).configure(allTaskOptions);
 
-        consumer = new DocumentConsumer(spewer, extractor, this.parallelism);
+        int maxParallelism = propertiesProvider.get(MAX_PARALLELISM_OPT).map(Integer::parseInt).orElse(parallelism);
+        if (maxParallelism > parallelism) {
+            AdaptiveExecutor executor = new AdaptiveExecutor(parallelism, 1, maxParallelism);
+            consumer = new SizeAwareDocumentConsumer(spewer, extractor, executor);
+            parallelismController = new ParallelismController(inputQueue.getName(), executor, inputQueue::size, spewer.getIndexingMetrics());
+        } else {
+            consumer = new SizeAwareDocumentConsumer(spewer, extractor, new BlockingThreadPoolExecutor(parallelism), parallelism);
+            parallelismController = null;
+        }
+        ExtractionErrors extractionErrors = new ExtractionErrors(repository, project(propertiesProvider.get(DEFAULT_PROJECT_OPT).orElse(DEFAULT_DEFAULT_PROJECT)));
         if (propertiesProvider.getProperties().get(REPORT_NAME_OPT) != null) {
             logger.info("report map enabled with name set to {}", propertiesProvider.getProperties().get(REPORT_NAME_OPT));
-            consumer.setReporter(new Reporter(factory.createMap(propertiesProvider.getProperties().get(REPORT_NAME_OPT).toString())));
+            consumer.setReporter(new ExtractionErrors.RecordingReporter(factory.createMap(propertiesProvider.getProperties().get(REPORT_NAME_OPT).toString()), extractionErrors));
+        } else {
+            consumer.setExtractionErrors(extractionErrors);
         }
         drainer = new DocumentQueueDrainer<>(inputQueue, consumer).configure(allTaskOptions);
     }
@@ -65,16 +90,25 @@ public class IndexTask extends PipelineTask<Path> implements Monitorable{
     @Override
     public Long call() throws Exception {
         super.call();
-        logger.info("Processing up to {} file(s) in parallel", parallelism);
-        totalToProcess = drainer.drain(PATH_POISON).get();
-        drainer.shutdown();
-        drainer.awaitTermination(10, SECONDS); // drain is finished
-        logger.info("drained {} documents. Waiting for consumer to shutdown", totalToProcess);
+        if (parallelismController != null) {
+            logger.info("Processing {} file(s) in parallel, adapted up to {}", parallelism, propertiesProvider.get(MAX_PARALLELISM_OPT).orElse(""));
+            parallelismController.start();
+        } else {
+            logger.info("Processing up to {} file(s) in parallel", parallelism);
+        }
+        try {
+            totalToProcess = drainer.drain(PATH_POISON).get();
+            drainer.shutdown();
+            drainer.awaitTermination(10, SECONDS); // drain is finished
+            logger.info("drained {} documents. Waiting for consumer to shutdown", totalToProcess);
 
-        consumer.shutdown();
-        // documents could be currently processed
-        while (!consumer.awaitTermination(30, MINUTES)) {
-            logger.info("Consumer has not terminated yet.");
+            consumer.shutdown();
+            // documents could be currently processed
+            while (!consumer.awaitTermination(30, MINUTES)) {
+                logger.info("Consumer has not terminated yet.");
+            }
+        } finally {
+            if (parallelismController != null) parallelismController.close();
         }
 
         if (consumer.getReporter() != null) consumer.getReporter().close();
@@ -84,7 +118,6 @@ public class IndexTask extends PipelineTask<Path> implements Monitorable{
 
     @Override
     public double getProgressRate() {
-        totalToProcess = max(inputQueue.size(), totalToProcess);
-        return (double)(totalToProcess - inputQueue.size()) / totalToProcess;
+        return consumer.getProgressRate(inputQueue.size());
     }
 }
@@ -0,0 +1,32 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.Repository;
+import org.icij.datashare.text.NamedEntityRollup;
+import org.icij.datashare.text.Project;
+import org.icij.datashare.text.nlp.Pipeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Updates the named entities mention counts of the repository after the NER of a document
+ * (see {@link Repository#rollupNamedEntities(Project, String, Pipeline.Type, List)}).
+ * The counts are only used for the entities lists: a failure is logged and doesn't stop the NER.
+ */
+final class NamedEntityRollups {
+    private static final Logger logger = LoggerFactory.getLogger(NamedEntityRollups.class);
+
+    private NamedEntityRollups() {}
+
+    static void update(Repository repository, Project project, String documentId, Pipeline.Type type, List<NamedEntityRollup> documentCounts) {
+        if (repository == null) {
+            return;
+        }
+        try {
+            repository.rollupNamedEntities(project, documentId, type, documentCounts);
+        } catch (RuntimeException e) {
+            logger.error("cannot update named entities rollups of document {} in {}", documentId, project, e);
+        }
+    }
+}
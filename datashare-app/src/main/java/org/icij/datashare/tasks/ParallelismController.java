@@ -0,0 +1,228 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.text.indexing.elasticsearch.IndexingMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * AIMD controller of the number of extraction threads of an {@link AdaptiveExecutor}.
+ * <p>
+ * At each interval it reads the load signals: the limit is halved when the heap is almost full, when GC takes too much time,
+ * or when elasticsearch rejects or slows down the index requests; it is incremented when paths are waiting in the queue
+ * and all the workers are busy; otherwise it is kept.
+ * <p>
+ * Decisions of the running controllers are exposed in the openmetrics status (see {@link #openMetrics()}).
+ */
+public class ParallelismController implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelismController.class);
+    private static final Set<ParallelismController> RUNNING = ConcurrentHashMap.newKeySet();
+    static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(5);
+    static final double MAX_HEAP_RATIO = 0.85;
+    static final double MAX_GC_RATIO = 0.10;
+    static final double LATENCY_DEGRADATION_FACTOR = 3;
+    // weight of the last interval in the moving average of the index latency
+    static final double BASELINE_WEIGHT = 0.3;
+
+    enum Decision {INCREASE, DECREASE, HOLD}
+
+    record Signals(long queueDepth, int activeWorkers, double heapRatio, double gcRatio, IndexingMetrics.Snapshot indexing) {}
+
+    private final String name;
+    private final AdaptiveExecutor executor;
+    private final Supplier<Signals> signals;
+    private final Duration interval;
+    private final Map<Decision, AtomicLong> decisions = new EnumMap<>(Decision.class);
+    private final ScheduledExecutorService scheduler;
+    private volatile double baselineLatencyMs = 0;
+    private volatile Signals lastSignals;
+
+    ParallelismController(String name, AdaptiveExecutor executor, LongSupplier queueDepth, IndexingMetrics indexingMetrics) {
+        this(name, executor, new JvmSignals(executor, queueDepth, indexingMetrics, DEFAULT_INTERVAL), DEFAULT_INTERVAL);
+    }
+
+    ParallelismController(String name, AdaptiveExecutor executor, Supplier<Signals> signals, Duration interval) {
+        this.name = name;
+        this.executor = executor;
+        this.signals = signals;
+        this.interval = interval;
+        for (Decision decision : Decision.values()) {
+            decisions.put(decision, new AtomicLong());
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "parallelism-controller");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    ParallelismController start() {
+        RUNNING.add(this);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                adjust();
+            } catch (RuntimeException e) {
+                logger.warn("cannot adjust parallelism of {}", name, e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    Decision adjust() {
+        Signals current = signals.get();
+        lastSignals = current;
+        Decision decision = decide(current);
+        int limit = executor.getLimit();
+        int newLimit = switch (decision) {
+            case INCREASE -> executor.setLimit(limit + 1);
+            case DECREASE -> executor.setLimit(limit / 2);
+            case HOLD -> limit;
+        };
+        decisions.get(decision).incrementAndGet();
+        if (newLimit != limit) {
+            logger.info("{} parallelism of {} from {} to {} ({})", decision, name, limit, newLimit, current);
+        }
+        return decision;
+    }
+
+    Decision decide(Signals current) {
+        IndexingMetrics.Snapshot indexing = current.indexing();
+        boolean esOverloaded = indexing.rejections() > 0 || (indexing.requests() > 0 && baselineLatencyMs > 0 &&
+                indexing.averageLatencyMs() > LATENCY_DEGRADATION_FACTOR * Math.max(baselineLatencyMs, 1));
+        if (indexing.requests() > 0) {
+            // the latency depends on the size of the documents: the baseline follows the corpus instead of keeping its lowest value
+            baselineLatencyMs = baselineLatencyMs == 0 ? indexing.averageLatencyMs() :
+                    (1 - BASELINE_WEIGHT) * baselineLatencyMs + BASELINE_WEIGHT * indexing.averageLatencyMs();
+        }
+        if (current.heapRatio() > MAX_HEAP_RATIO || current.gcRatio() > MAX_GC_RATIO || esOverloaded) {
+            return executor.getLimit() > executor.getMinLimit() ? Decision.DECREASE : Decision.HOLD;
+        }
+        if (current.queueDepth() > 0 && current.activeWorkers() >= executor.getLimit() && executor.getLimit() < executor.getMaxLimit()) {
+            return Decision.INCREASE;
+        }
+        return Decision.HOLD;
+    }
+
+    long getDecisionCount(Decision decision) {
+        return decisions.get(decision).get();
+    }
+
+    /**
+     * @return the openmetrics lines of the running controllers, empty if there is none
+     */
+    public static String openMetrics() {
+        List<ParallelismController> controllers = List.copyOf(RUNNING);
+        StringBuilder metrics = new StringBuilder();
+        appendFamily(metrics, controllers, "datashare_parallelism_limit", "gauge", "Number of extraction threads allowed to run",
+                c -> format(Locale.ROOT, "datashare_parallelism_limit{task=\"%s\"} %d\n", c.name, c.executor.getLimit()));
+        appendFamily(metrics, controllers, "datashare_parallelism_decisions_total", "counter", "Decisions of the parallelism controller",
+                c -> Arrays.stream(Decision.values()).map(decision -> format(Locale.ROOT, "datashare_parallelism_decisions_total{task=\"%s\",decision=\"%s\"} %d\n",
+                        c.name, decision.name().toLowerCase(), c.decisions.get(decision).get())).collect(joining()));
+        appendFamily(metrics, controllers, "datashare_parallelism_queue_depth", "gauge", "Paths waiting in the queue at the last adjustment",
+                c -> c.signalSample("datashare_parallelism_queue_depth", s -> String.valueOf(s.queueDepth())));
+        appendFamily(metrics, controllers, "datashare_parallelism_heap_ratio", "gauge", "Old generation usage ratio after GC at the last adjustment",
+                c -> c.signalSample("datashare_parallelism_heap_ratio", s -> format(Locale.ROOT, "%.3f", s.heapRatio())));
+        appendFamily(metrics, controllers, "datashare_parallelism_gc_ratio", "gauge", "Ratio of the last interval spent in GC",
+                c -> c.signalSample("datashare_parallelism_gc_ratio", s -> format(Locale.ROOT, "%.3f", s.gcRatio())));
+        appendFamily(metrics, controllers, "datashare_parallelism_index_latency_ms", "gauge", "Average latency of the index requests of the last interval",
+                c -> c.signalSample("datashare_parallelism_index_latency_ms", s -> format(Locale.ROOT, "%.1f", s.indexing().averageLatencyMs())));
+        appendFamily(metrics, controllers, "datashare_parallelism_index_rejections", "gauge", "Rejected index requests of the last interval",
+                c -> c.signalSample("datashare_parallelism_index_rejections", s -> String.valueOf(s.indexing().rejections())));
+        return metrics.toString();
+    }
+
+    /**
+     * appends the HELP and TYPE lines of a family followed by the samples of all the controllers, nothing if there is no sample
+     */
+    private static void appendFamily(StringBuilder metrics, List<ParallelismController> controllers, String family, String type, String help,
+                                     Function<ParallelismController, String> samples) {
+        String lines = controllers.stream().map(samples).collect(joining());
+        if (!lines.isEmpty()) {
+            metrics.append(format("# HELP %s %s\n# TYPE %s %s\n", family, help, family, type)).append(lines);
+        }
+    }
+
+    private String signalSample(String family, Function<Signals, String> value) {
+        Signals current = lastSignals;
+        return current == null ? "" : format(Locale.ROOT, "%s{task=\"%s\"} %s\n", family, name, value.apply(current));
+    }
+
+    @Override
+    public void close() {
+        RUNNING.remove(this);
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Signals read from the JVM management beans, the queue and the spewer metrics.
+     */
+    static class JvmSignals implements Supplier<Signals> {
+        private final AdaptiveExecutor executor;
+        private final LongSupplier queueDepth;
+        private final IndexingMetrics indexingMetrics;
+        private final long intervalMs;
+        private long lastGcTimeMs = gcTimeMs();
+
+        JvmSignals(AdaptiveExecutor executor, LongSupplier queueDepth, IndexingMetrics indexingMetrics, Duration interval) {
+            this.executor = executor;
+            this.queueDepth = queueDepth;
+            this.indexingMetrics = indexingMetrics;
+            this.intervalMs = interval.toMillis();
+        }
+
+        @Override
+        public Signals get() {
+            double heapRatio = heapRatioAfterGc();
+            long gcTime = gcTimeMs();
+            double gcRatio = (double) (gcTime - lastGcTimeMs) / intervalMs;
+            lastGcTimeMs = gcTime;
+            return new Signals(queueDepth.getAsLong(), executor.getActiveCount(), heapRatio, gcRatio, indexingMetrics.snapshot());
+        }
+
+        /**
+         * usage of the old generation after the last collection: the young generation usage
+         * doesn't tell if the heap is really full.
+         */
+        private static double heapRatioAfterGc() {
+            double ratio = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                    .filter(pool -> pool.getName().contains("Old") || pool.getName().contains("Tenured"))
+                    .map(MemoryPoolMXBean::getCollectionUsage)
+                    .filter(usage -> usage.getMax() > 0)
+                    .mapToDouble(usage -> (double) usage.getUsed() / usage.getMax()).max().orElse(-1);
+            if (ratio < 0) {
+                MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+                ratio = heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : 0;
+            }
+            return ratio;
+        }
+
+        private static long gcTimeMs() {
+            return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                    .mapToLong(GarbageCollectorMXBean::getCollectionTime).filter(t -> t > 0).sum();
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package org.icij.datashare.tasks;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import org.icij.datashare.PipelineHelper;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Stage;
 import org.icij.datashare.asynctasks.CancellableTask;
+import org.icij.datashare.asynctasks.TaskRepository;
+import org.icij.datashare.asynctasks.UnknownTask;
 import org.icij.datashare.extract.DocumentCollectionFactory;
 import org.icij.datashare.user.User;
 import org.icij.datashare.user.UserTask;
 import org.icij.extract.queue.DocumentQueue;
 import org.icij.task.DefaultTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,21 +23,30 @@ import java.nio.file.Paths;
 import static java.util.Optional.ofNullable;
 
 public abstract class PipelineTask<T> extends DefaultTask<Long> implements UserTask, CancellableTask {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineTask.class);
     protected final DocumentQueue<T> inputQueue;
     protected final DocumentQueue<T> outputQueue;
     protected final Stage stage;
     protected final User user;
     protected final PropertiesProvider propertiesProvider;
     private final DocumentCollectionFactory<T> factory;
+    private final String taskId;
+    private final TaskRepository taskRepository;
     public static Path PATH_POISON = Paths.get("POISON");
     public static String STRING_POISON = "POISON";
     private volatile Thread taskThread;
 
     public PipelineTask(Stage stage, User user, DocumentCollectionFactory<T> factory, final PropertiesProvider propertiesProvider, Class<T> clazz) {
+        this(stage, user, null, null, factory, propertiesProvider, clazz);
+    }
+
+    public PipelineTask(Stage stage, User user, String taskId, TaskRepository taskRepository, DocumentCollectionFactory<T> factory, final PropertiesProvider propertiesProvider, Class<T> clazz) {
         this.propertiesProvider = propertiesProvider;
         this.stage = stage;
         this.user = user;
         this.factory = factory;
+        this.taskId = taskId;
+        this.taskRepository = taskRepository;
         this.inputQueue = getInputQueue(clazz);
         this.outputQueue = getOutputQueue(clazz);
     }
@@ -49,6 +64,43 @@ public abstract class PipelineTask<T> extends DefaultTask<Long> implements UserT
     @Override
     public User getUser() { return user;}
 
+    /**
+     * @return the progress markers saved by a previous run of this task (if it has been re-queued), empty otherwise
+     */
+    protected Map<String, Object> getCheckpoint() {
+        if (taskRepository == null) {
+            return Map.of();
+        }
+        try {
+            return ofNullable(taskRepository.getCheckpoint(taskId)).orElse(Map.of());
+        } catch (IOException | UnknownTask e) {
+            LOGGER.warn("cannot read checkpoint of task {}", taskId, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * saves progress markers so that a re-queued task can resume from there (at least once processing).
+     * A failure to save is only logged: the task will restart from an older checkpoint.
+     */
+    protected void saveCheckpoint(Map<String, Object> checkpoint) {
+        if (taskRepository == null) {
+            return;
+        }
+        try {
+            taskRepository.saveCheckpoint(taskId, checkpoint);
+        } catch (IOException | UnknownTask e) {
+            LOGGER.warn("cannot save checkpoint of task {}", taskId, e);
+        }
+    }
+
+    /**
+     * removes the checkpoint once the task has processed everything it recorded
+     */
+    protected void clearCheckpoint() {
+        saveCheckpoint(null);
+    }
+
     protected DocumentQueue<T> getInputQueue(Class<T> clazz) {
         String queueName = getInputQueueName();
         if (queueName != null) {
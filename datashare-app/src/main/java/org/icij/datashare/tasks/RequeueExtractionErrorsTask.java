@@ -0,0 +1,110 @@
+package org.icij.datashare.tasks;
+
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+import org.icij.datashare.ExtractionError;
+import org.icij.datashare.PipelineHelper;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
+import org.icij.datashare.Stage;
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskGroup;
+import org.icij.datashare.asynctasks.TaskGroupType;
+import org.icij.datashare.extract.DocumentCollectionFactory;
+import org.icij.datashare.monitoring.Monitorable;
+import org.icij.datashare.text.Project;
+import org.icij.datashare.user.User;
+import org.icij.datashare.user.UserTask;
+import org.icij.extract.queue.DocumentQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+
+import static org.icij.datashare.PropertiesProvider.DEFAULT_PROJECT_OPTION;
+import static org.icij.datashare.PropertiesProvider.QUEUE_NAME_OPTION;
+import static org.icij.datashare.tasks.PipelineTask.PATH_POISON;
+import static org.icij.datashare.text.Project.project;
+
+/**
+ * Indexes again the files of the extraction errors of a project matching a filter.
+ * <p>
+ * The paths are read by pages ordered by path and put in a queue owned by the task, followed by the end of
+ * queue marker, then an {@link IndexTask} indexes this queue. The errors recorded before the task started are
+ * removed only when the indexing is done, the files that still cannot be extracted having their error recorded again.
+ * <p>
+ * Expected args are the project properties (<code>defaultProject</code>, <code>queueName</code>...)
+ * and optionally the filters <code>exceptionClass</code>, <code>contentType</code>, <code>directory</code>
+ * and <code>status</code>.
+ */
+@TaskGroup(TaskGroupType.Java)
+public class RequeueExtractionErrorsTask implements Callable<Long>, Monitorable, UserTask {
+    private static final Logger logger = LoggerFactory.getLogger(RequeueExtractionErrorsTask.class);
+    static final int BATCH_SIZE = 1000;
+
+    private final Repository repository;
+    private final DocumentCollectionFactory<Path> factory;
+    private final DatashareTaskFactory taskFactory;
+    private final Task<Long> task;
+    private final Function<Double, Void> progressCallback;
+    private volatile IndexTask indexTask;
+
+    @Inject
+    public RequeueExtractionErrorsTask(Repository repository, DocumentCollectionFactory<Path> factory, DatashareTaskFactory taskFactory,
+                                       @Assisted Task<Long> task, @Assisted Function<Double, Void> progressCallback) {
+        assert task.args.get(DEFAULT_PROJECT_OPTION) != null : "'defaultProject' property in task shouldn't be null";
+        this.repository = repository;
+        this.factory = factory;
+        this.taskFactory = taskFactory;
+        this.task = task;
+        this.progressCallback = progressCallback;
+    }
+
+    @Override
+    public Long call() throws Exception {
+        Date start = new Date();
+        Project project = project((String) task.args.get(DEFAULT_PROJECT_OPTION));
+        ExtractionError.Filter filter = new ExtractionError.Filter((String) task.args.get("exceptionClass"),
+                (String) task.args.get("contentType"), (String) task.args.get("directory"), (String) task.args.get("status"));
+
+        Map<String, Object> indexArgs = new HashMap<>(task.args);
+        indexArgs.put(QUEUE_NAME_OPTION, task.args.get(QUEUE_NAME_OPTION) + ":requeue:" + task.id);
+        DocumentQueue<Path> queue = factory.createQueue(new PipelineHelper(new PropertiesProvider(indexArgs)).getQueueNameFor(Stage.INDEX), Path.class);
+        try {
+            long queued = 0;
+            Iterator<String> paths = repository.getExtractionErrorPaths(project, filter, BATCH_SIZE).iterator();
+            while (paths.hasNext()) {
+                queue.add(Paths.get(paths.next()));
+                queued++;
+            }
+            queue.add(PATH_POISON);
+            logger.info("requeued {} file(s) of extraction errors of project {} in {}", queued, project.getId(), queue.getName());
+
+            indexTask = taskFactory.createIndexTask(new Task<>(IndexTask.class.getName(), getUser(), indexArgs), progressCallback);
+            indexTask.call();
+
+            int deleted = repository.deleteExtractionErrors(project, filter, start);
+            logger.info("removed {} extraction error(s) of project {}", deleted, project.getId());
+            return queued;
+        } finally {
+            queue.delete();
+        }
+    }
+
+    @Override
+    public double getProgressRate() {
+        return indexTask == null ? 0 : indexTask.getProgressRate();
+    }
+
+    @Override
+    public User getUser() {
+        return task.getUser();
+    }
+}
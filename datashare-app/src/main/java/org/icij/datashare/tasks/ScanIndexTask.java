@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -68,24 +69,40 @@ public class ScanIndexTask extends PipelineTask<Path> {
     public Long call() throws Exception {
         super.call();
         logger.info("scanning index {} with {} scroll, scroll size {} and {} slice(s)", projectName, scrollDuration, scrollSize, scrollSlices);
-        Optional<Long> nb = IntStream.range(0, scrollSlices).parallel().mapToObj(this::slicedScroll).reduce(Long::sum);
+        // the slices share one point in time to read the same snapshot of the index
+        String pointInTime = indexer.openPointInTime(scrollDuration, singletonList(projectName));
+        Optional<Long> nb;
+        try {
+            nb = IntStream.range(0, scrollSlices).parallel().mapToObj(sliceNum -> slicedScroll(sliceNum, pointInTime)).reduce(Long::sum);
+        } finally {
+            if (pointInTime != null) {
+                indexer.closePointInTime(pointInTime);
+            }
+        }
         logger.info("imported {} paths into map {}", nb.get(), getMapName());
         return nb.get();
     }
 
-    private Long slicedScroll(int sliceNum) {
+    private Long slicedScroll(int sliceNum, String pointInTime) {
         Indexer.Searcher search = indexer.search(singletonList(projectName), Document.class).withSource("path").limit(scrollSize);
         List<? extends Entity> docsToProcess = new ArrayList<>();
         long nbProcessed = 0;
         do {
             try {
-                docsToProcess = search.scroll(createScrollQuery().withDuration(scrollDuration).withSlices(sliceNum, scrollSlices).build()).collect(toList());
+                docsToProcess = search.scroll(createScrollQuery().withDuration(scrollDuration).withSlices(sliceNum, scrollSlices).withCursor(pointInTime).build()).collect(toList());
                 reportMap.putAll(docsToProcess.stream().map(d -> ((Document) d).getPath()).collect(toMap(p -> p, p -> new Report(ExtractionStatus.SUCCESS), (a, b) -> b)));
                 nbProcessed += docsToProcess.size();
+            } catch (Indexer.ScrollExpiredException e) {
+                throw new UncheckedIOException(e);
             } catch (IOException e) {
                 logger.error("error in slice {}", sliceNum, e);
             }
         } while (!docsToProcess.isEmpty());
+        try {
+            search.clearScroll();
+        } catch (IOException e) {
+            logger.warn("cannot clear scroll of slice {}", sliceNum, e);
+        }
         return nbProcessed;
     }
 
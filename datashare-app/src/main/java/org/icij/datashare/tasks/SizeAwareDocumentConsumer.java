@@ -0,0 +1,246 @@
+package org.icij.datashare.tasks;
+
+import org.icij.extract.extractor.DocumentConsumer;
+import org.icij.extract.extractor.Extractor;
+import org.icij.spewer.Spewer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Document consumer scheduling the paths by their estimated extraction cost (see {@link ExtractionCost}).
+ * <p>
+ * Paths given by the queue drainer are kept in a window of <code>windowSize</code> paths, split in two lanes:
+ * small documents in scan order, and large documents by increasing cost. Large documents may use all the workers
+ * but the ones reserved for small documents, and huge documents are limited to <code>maxHugeExtractions</code>
+ * at the same time, so that a few big archives don't hold every worker while thousands of small files wait.
+ * These caps are computed from the current parallelism, so they follow the limit of an {@link AdaptiveExecutor}.
+ * <p>
+ * Progress is weighted by the estimated cost of the documents instead of their number.
+ */
+public class SizeAwareDocumentConsumer extends DocumentConsumer {
+    private static final Logger logger = LoggerFactory.getLogger(SizeAwareDocumentConsumer.class);
+    static final long SMALL_COST = 1024 * 1024;
+    static final long HUGE_COST = 256L * 1024 * 1024;
+    static final int DEFAULT_WINDOW_SIZE = 1000;
+    static final long LIMIT_CHECK_MS = 100;
+
+    private record Job(Path path, long cost) {}
+
+    private final ToLongFunction<Path> costFunction;
+    private final int windowSize;
+    private final IntSupplier parallelism;
+    private final Queue<Job> smallLane = new ArrayDeque<>();
+    private final Queue<Job> largeLane = new PriorityQueue<>(Comparator.comparingLong(Job::cost));
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Thread dispatcher;
+    private int runningLarge = 0;
+    private int runningHuge = 0;
+    private boolean closed = false;
+    private final AtomicLong acceptedCost = new AtomicLong();
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicLong doneCost = new AtomicLong();
+    private ExtractionErrors extractionErrors;
+
+    public SizeAwareDocumentConsumer(Spewer spewer, Extractor extractor, ExecutorService executor, int parallelism) {
+        this(spewer, extractor, executor, () -> parallelism, ExtractionCost::of, DEFAULT_WINDOW_SIZE);
+    }
+
+    SizeAwareDocumentConsumer(Spewer spewer, Extractor extractor, AdaptiveExecutor executor) {
+        this(spewer, extractor, executor, executor::getLimit, ExtractionCost::of, DEFAULT_WINDOW_SIZE);
+    }
+
+    SizeAwareDocumentConsumer(Spewer spewer, Extractor extractor, ExecutorService executor, IntSupplier parallelism,
+                              ToLongFunction<Path> costFunction, int windowSize) {
+        super(spewer, extractor, executor);
+        this.costFunction = costFunction;
+        this.windowSize = windowSize;
+        this.parallelism = parallelism;
+        this.dispatcher = new Thread(this::dispatch, "size-aware-dispatcher");
+        this.dispatcher.setDaemon(true);
+    }
+
+    @Override
+    public void accept(Path path) {
+        Job job = new Job(path, Math.max(1, costFunction.applyAsLong(path)));
+        lock.lock();
+        try {
+            while (smallLane.size() + largeLane.size() >= windowSize) {
+                changed.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new RejectedExecutionException("consumer is shut down");
+            }
+            if (dispatcher.getState() == Thread.State.NEW) {
+                dispatcher.start();
+            }
+            (job.cost < SMALL_COST ? smallLane : largeLane).add(job);
+            acceptedCost.addAndGet(job.cost);
+            acceptedCount.incrementAndGet();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatch() {
+        while (true) {
+            Job job;
+            lock.lock();
+            try {
+                while ((job = nextJob()) == null) {
+                    if (closed && smallLane.isEmpty() && largeLane.isEmpty()) {
+                        return;
+                    }
+                    if (largeLane.isEmpty()) {
+                        changed.awaitUninterruptibly();
+                    } else {
+                        // the large documents wait for a worker or for the parallelism to be raised
+                        awaitUninterruptibly(LIMIT_CHECK_MS);
+                    }
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            submit(job);
+        }
+    }
+
+    /**
+     * must be called with the lock held
+     */
+    private Job nextJob() {
+        Job large = largeLane.peek();
+        int limit = parallelism.getAsInt();
+        if (large != null && runningLarge < maxLargeExtractions(limit) && (large.cost < HUGE_COST || runningHuge < maxHugeExtractions(limit))) {
+            largeLane.poll();
+            runningLarge++;
+            if (large.cost >= HUGE_COST) runningHuge++;
+            return large;
+        }
+        return smallLane.poll();
+    }
+
+    static int maxLargeExtractions(int parallelism) {
+        int reservedForSmall = parallelism > 1 ? Math.max(1, parallelism / 4) : 0;
+        return Math.max(1, parallelism - reservedForSmall);
+    }
+
+    static int maxHugeExtractions(int parallelism) {
+        return Math.max(1, parallelism / 4);
+    }
+
+    /**
+     * must be called with the lock held
+     */
+    private void awaitUninterruptibly(long timeoutMs) {
+        try {
+            changed.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            // like the untimed wait, the dispatcher goes on until the accepted paths are submitted
+            logger.debug("dispatcher interrupted while waiting for a worker");
+        }
+    }
+
+    private void submit(Job job) {
+        try {
+            executor.execute(() -> {
+                try {
+                    extract(job.path);
+                } finally {
+                    done(job);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("cannot extract {}", job.path, e);
+            done(job);
+        }
+    }
+
+    private void extract(Path path) {
+        logger.info("Beginning extraction: \"{}\" ", path);
+        try {
+            if (getReporter() != null) {
+                extractor.extract(path, spewer, getReporter());
+            } else {
+                extractor.extract(path, spewer);
+            }
+        } catch (Exception e) {
+            logger.error("Exception while consuming file: \"{}\".", path, e);
+            if (extractionErrors != null) {
+                extractionErrors.record(path, ExtractionErrors.status(e), e);
+            }
+        }
+    }
+
+    /**
+     * records the failures of the extractions without reporter (with a reporter, the extractor gives them to it)
+     */
+    void setExtractionErrors(ExtractionErrors extractionErrors) {
+        this.extractionErrors = extractionErrors;
+    }
+
+    private void done(Job job) {
+        doneCost.addAndGet(job.cost);
+        if (job.cost >= SMALL_COST) {
+            lock.lock();
+            try {
+                runningLarge--;
+                if (job.cost >= HUGE_COST) runningHuge--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param queueSize the number of paths still in the queue, estimated with the average cost of the accepted paths
+     * @return the ratio of the cost of extracted documents
+     */
+    double getProgressRate(long queueSize) {
+        long count = acceptedCount.get();
+        long accepted = acceptedCost.get();
+        double remaining = count == 0 ? queueSize : queueSize * ((double) accepted / count);
+        double total = accepted + remaining;
+        return total == 0 ? 0 : doneCost.get() / total;
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        dispatcher.join(Math.max(1, unit.toMillis(timeout)));
+        if (dispatcher.isAlive()) {
+            return false;
+        }
+        // the dispatcher has submitted all the paths (or was never started)
+        super.shutdown();
+        return super.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+}
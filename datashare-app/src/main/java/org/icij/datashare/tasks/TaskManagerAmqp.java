@@ -3,10 +3,12 @@ package org.icij.datashare.tasks;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.io.IOException;
+import java.nio.file.Path;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.TaskRepository;
 import org.icij.datashare.asynctasks.bus.amqp.AmqpInterlocutor;
 
+import static org.icij.datashare.cli.DatashareCliOptions.NLP_WORKER_SOCKET_OPT;
 import static org.icij.datashare.cli.DatashareCliOptions.TASK_MANAGER_POLLING_INTERVAL_OPT;
 
 @Singleton
@@ -20,6 +22,7 @@ public class TaskManagerAmqp extends org.icij.datashare.asynctasks.TaskManagerAm
     TaskManagerAmqp(AmqpInterlocutor amqp, TaskRepository taskRepository, PropertiesProvider propertiesProvider,
                     Runnable eventCallback) throws IOException {
         super(amqp, taskRepository, Utils.getRoutingStrategy(propertiesProvider), eventCallback,
-                Integer.parseInt(propertiesProvider.get(TASK_MANAGER_POLLING_INTERVAL_OPT).orElse(String.valueOf(DEFAULT_TASK_POLLING_INTERVAL_MS))));
+                Integer.parseInt(propertiesProvider.get(TASK_MANAGER_POLLING_INTERVAL_OPT).orElse(String.valueOf(DEFAULT_TASK_POLLING_INTERVAL_MS))),
+                propertiesProvider.get(NLP_WORKER_SOCKET_OPT).map(Path::of).orElse(null));
     }
 }
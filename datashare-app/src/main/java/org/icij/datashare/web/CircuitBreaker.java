@@ -0,0 +1,40 @@
+package org.icij.datashare.web;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Breaker of a datashare dependency (index, database, task manager).
+ * <p>
+ * It opens after <code>failureThreshold</code> consecutive failures, reported by the health probes
+ * or by the requests that failed to reach the dependency, and closes on the next success of a probe.
+ * While it is open, requests needing the dependency are rejected without waiting for connection timeouts.
+ */
+class CircuitBreaker {
+    private final int failureThreshold;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+    private final AtomicBoolean open = new AtomicBoolean(false);
+
+    CircuitBreaker(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    boolean isOpen() {
+        return open.get();
+    }
+
+    void recordSuccess() {
+        consecutiveFailures.set(0);
+        open.set(false);
+    }
+
+    /**
+     * @return true if this failure opened the breaker
+     */
+    boolean recordFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            return !open.getAndSet(true);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,145 @@
+package org.icij.datashare.web;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import net.codestory.http.Context;
+import net.codestory.http.annotations.Get;
+import net.codestory.http.annotations.Options;
+import net.codestory.http.annotations.Post;
+import net.codestory.http.annotations.Prefix;
+import net.codestory.http.errors.BadRequestException;
+import net.codestory.http.errors.ForbiddenException;
+import net.codestory.http.payload.Payload;
+import org.icij.datashare.ExtractionError;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
+import org.icij.datashare.Repository.AggregateList;
+import org.icij.datashare.asynctasks.TaskManager;
+import org.icij.datashare.session.DatashareUser;
+import org.icij.datashare.tasks.RequeueExtractionErrorsTask;
+import org.icij.datashare.user.User;
+import org.icij.datashare.web.TaskResource.TaskResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Optional.ofNullable;
+import static net.codestory.http.payload.Payload.ok;
+import static org.icij.datashare.PropertiesProvider.DEFAULT_PROJECT_OPTION;
+import static org.icij.datashare.PropertiesProvider.propertiesToMap;
+import static org.icij.datashare.text.Project.project;
+
+@Singleton
+@Prefix("/api")
+public class ExtractionErrorResource {
+    private final Repository repository;
+    private final TaskManager taskManager;
+    private final PropertiesProvider propertiesProvider;
+
+    @Inject
+    public ExtractionErrorResource(Repository repository, TaskManager taskManager, PropertiesProvider propertiesProvider) {
+        this.repository = repository;
+        this.taskManager = taskManager;
+        this.propertiesProvider = propertiesProvider;
+    }
+
+    @Operation(description = "Gets the extraction errors of a project ordered by path.",
+            parameters = {
+                    @Parameter(name = "project", in = ParameterIn.PATH, description = "the project id"),
+                    @Parameter(name = "exceptionClass", in = ParameterIn.QUERY, description = "filters by exception class name"),
+                    @Parameter(name = "contentType", in = ParameterIn.QUERY, description = "filters by content type"),
+                    @Parameter(name = "directory", in = ParameterIn.QUERY, description = "filters by directory (sub directories included)"),
+                    @Parameter(name = "status", in = ParameterIn.QUERY, description = "filters by extraction status (FAILURE_NOT_PARSED, FAILURE_UNREADABLE...)"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "if not provided default is 100"),
+                    @Parameter(name = "after", in = ParameterIn.QUERY, description = "the path of the last error of the previous page, if not provided it starts from the first error"),
+            })
+    @ApiResponse(responseCode = "403", description = "if the user is not granted for the project")
+    @ApiResponse(responseCode = "200", useReturnTypeSchema = true)
+    @Get("/:project/extractionErrors")
+    public List<ExtractionError> getErrors(String project, Context context) {
+        checkGranted(project, context);
+        int size = Integer.parseInt(ofNullable(context.get("size")).orElse("100"));
+        return repository.getExtractionErrors(project(project), filter(context), context.get("after"), size);
+    }
+
+    @Operation(description = "Counts the extraction errors of a project by exception class, content type, directory or status, the most frequent first.",
+            parameters = {
+                    @Parameter(name = "project", in = ParameterIn.PATH, description = "the project id"),
+                    @Parameter(name = "field", in = ParameterIn.PATH, description = "exceptionClass, contentType, directory or status"),
+                    @Parameter(name = "exceptionClass", in = ParameterIn.QUERY, description = "filters by exception class name"),
+                    @Parameter(name = "contentType", in = ParameterIn.QUERY, description = "filters by content type"),
+                    @Parameter(name = "directory", in = ParameterIn.QUERY, description = "filters by directory (sub directories included)"),
+                    @Parameter(name = "status", in = ParameterIn.QUERY, description = "filters by extraction status"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "number of values, if not provided default is 100"),
+            })
+    @ApiResponse(responseCode = "400", description = "if the field is unknown")
+    @ApiResponse(responseCode = "403", description = "if the user is not granted for the project")
+    @ApiResponse(responseCode = "200", description = "returns the counts by value and the total number of errors", useReturnTypeSchema = true)
+    @Get("/:project/extractionErrors/aggregate/:field")
+    public AggregateList<String> aggregate(String project, String field, Context context) {
+        checkGranted(project, context);
+        int size = Integer.parseInt(ofNullable(context.get("size")).orElse("100"));
+        return repository.aggregateExtractionErrors(project(project), parseField(field), filter(context), size);
+    }
+
+    @Operation(description = "Preflight request for requeue endpoint")
+    @ApiResponse(responseCode = "200", description = "returns POST")
+    @Options("/:project/extractionErrors/requeue")
+    public Payload requeuePreflight(String project, Context context) {
+        return ok().withAllowMethods("OPTIONS", "POST");
+    }
+
+    @Operation(description = """
+            Starts a task that indexes again the files of the extraction errors matching the filters. The files are put in
+            a queue of the task and indexed, then the errors recorded before the task started are removed. The files that
+            still cannot be extracted have their error recorded again.
+            """,
+            parameters = {
+                    @Parameter(name = "project", in = ParameterIn.PATH, description = "the project id"),
+                    @Parameter(name = "exceptionClass", in = ParameterIn.QUERY, description = "filters by exception class name"),
+                    @Parameter(name = "contentType", in = ParameterIn.QUERY, description = "filters by content type"),
+                    @Parameter(name = "directory", in = ParameterIn.QUERY, description = "filters by directory (sub directories included)"),
+                    @Parameter(name = "status", in = ParameterIn.QUERY, description = "filters by extraction status"),
+            })
+    @ApiResponse(responseCode = "403", description = "if the user is not granted for the project")
+    @ApiResponse(responseCode = "200", description = "returns the json task id", useReturnTypeSchema = true)
+    @Post("/:project/extractionErrors/requeue")
+    public TaskResponse requeue(String project, Context context) throws IOException {
+        checkGranted(project, context);
+        Map<String, Object> args = new HashMap<>(propertiesToMap(TaskResource.applyProjectTo(
+                propertiesProvider.createOverriddenWith(Map.of(DEFAULT_PROJECT_OPTION, project)))));
+        ExtractionError.Filter filter = filter(context);
+        ofNullable(filter.exceptionClass()).ifPresent(value -> args.put("exceptionClass", value));
+        ofNullable(filter.contentType()).ifPresent(value -> args.put("contentType", value));
+        ofNullable(filter.directory()).ifPresent(value -> args.put("directory", value));
+        ofNullable(filter.status()).ifPresent(value -> args.put("status", value));
+        return new TaskResponse(taskManager.startTask(RequeueExtractionErrorsTask.class, (User) context.currentUser(), args));
+    }
+
+    private static ExtractionError.Filter filter(Context context) {
+        return new ExtractionError.Filter(context.get("exceptionClass"), context.get("contentType"), context.get("directory"), context.get("status"));
+    }
+
+    private static ExtractionError.Field parseField(String field) {
+        return switch (field) {
+            case "exceptionClass" -> ExtractionError.Field.EXCEPTION_CLASS;
+            case "contentType" -> ExtractionError.Field.CONTENT_TYPE;
+            case "directory" -> ExtractionError.Field.DIRECTORY;
+            case "status" -> ExtractionError.Field.STATUS;
+            default -> throw new BadRequestException();
+        };
+    }
+
+    private static void checkGranted(String project, Context context) {
+        DatashareUser user = (DatashareUser) context.currentUser();
+        if (! user.isGranted(project)) {
+            throw new ForbiddenException();
+        }
+    }
+}
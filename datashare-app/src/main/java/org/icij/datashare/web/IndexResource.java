@@ -10,12 +10,15 @@ import net.codestory.http.Context;
 import net.codestory.http.annotations.*;
 import net.codestory.http.constants.HttpStatus;
 import net.codestory.http.payload.Payload;
+import net.codestory.http.payload.StreamingOutput;
 import org.icij.datashare.text.indexing.Indexer;
+import org.icij.datashare.text.indexing.RawResponse;
 import org.icij.datashare.utils.IndexAccessVerifier;
 import org.icij.datashare.utils.PayloadFormatter;
 
 import java.io.IOException;
 
+import static java.util.Optional.ofNullable;
 import static net.codestory.http.payload.Payload.created;
 import static net.codestory.http.payload.Payload.ok;
 
@@ -82,12 +85,15 @@ public class IndexResource {
             """)
     @ApiResponse(responseCode = "200", description = "returns 200")
     @ApiResponse(responseCode = "400", description = "returns 400 if there is an error from ElasticSearch")
+    @ApiResponse(responseCode = "413", description = "returns 413 if the body is larger than searchProxyMaxBodySize")
     @Post("/search/:path:")
     public Payload esPost(@Parameter(name = "index", description = "elasticsearch path", in = ParameterIn.PATH) final String path, Context context, final net.codestory.http.Request request) throws IOException {
         try {
-            return PayloadFormatter.json(indexer.executeRaw("POST", IndexAccessVerifier.checkPath(path, context), new String(request.contentAsBytes())));
+            return proxy(indexer.streamRaw("POST", IndexAccessVerifier.checkPath(path, context), request.inputStream()));
         } catch ( IllegalArgumentException e){
             return PayloadFormatter.error(e, HttpStatus.BAD_REQUEST);
+        } catch (Indexer.BodyTooLargeException e) {
+            return PayloadFormatter.error(e.getMessage(), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
         }
     }
 
@@ -101,12 +107,27 @@ public class IndexResource {
     @Get("/search/:path:")
     public Payload esGet(@Parameter(name = "path", description = "elasticsearch path", in = ParameterIn.PATH) final String path, Context context) throws IOException {
         try {
-            return PayloadFormatter.json(indexer.executeRaw("GET", IndexAccessVerifier.checkPath(path, context), ""));
+            return proxy(indexer.streamRaw("GET", IndexAccessVerifier.checkPath(path, context), null));
         } catch (IllegalArgumentException e){
             return PayloadFormatter.error(e, HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Pipes the elasticsearch response body to the client while it is received, through bounded buffers.
+     * Like before, elasticsearch errors are returned with a 500 status (with the elasticsearch error body).
+     * The body is gzipped by the payload writer if the client accepts it.
+     */
+    private static Payload proxy(RawResponse response) {
+        int status = response.getStatus() < HttpStatus.BAD_REQUEST ? response.getStatus() : HttpStatus.INTERNAL_SERVER_ERROR;
+        String contentType = ofNullable(response.getHeader("Content-Type")).orElse("application/json");
+        return new Payload(contentType, (StreamingOutput) output -> {
+            try (response) {
+                response.getContent().transferTo(output);
+            }
+        }, status);
+    }
+
     @Operation(description = "Preflight request with OPTIONS")
     @ApiResponse(responseCode = "200", description = "returns OPTIONS")
     @ApiResponse(responseCode = "400", description = "returns 400 if there is an error from ElasticSearch")
@@ -6,31 +6,39 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import net.codestory.http.Context;
 import net.codestory.http.annotations.Get;
 import net.codestory.http.annotations.Options;
 import net.codestory.http.annotations.Prefix;
 import net.codestory.http.annotations.Put;
 import net.codestory.http.payload.Payload;
 import org.icij.datashare.Entity;
+import org.icij.datashare.Repository;
 import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
 import org.icij.datashare.text.indexing.Indexer;
 
 import java.io.IOException;
 import java.util.List;
 
+import static java.lang.Boolean.parseBoolean;
 import static java.util.Collections.singletonList;
+import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static net.codestory.http.errors.NotFoundException.notFoundIfNull;
 import static net.codestory.http.payload.Payload.ok;
+import static org.icij.datashare.text.Project.project;
 
 @Singleton
 @Prefix("/api")
 public class NamedEntityResource {
     private final Indexer indexer;
+    private final Repository repository;
 
     @Inject
-    public NamedEntityResource(final Indexer indexer) {
+    public NamedEntityResource(final Indexer indexer, final Repository repository) {
         this.indexer = indexer;
+        this.repository = repository;
     }
 
     @Operation(description = "Returns the named entity given an id and a document id.")
@@ -57,6 +65,33 @@ public class NamedEntityResource {
         List<? extends Entity> nes = indexer.search(singletonList(project), NamedEntity.class).
                 thatMatchesFieldValue("mentionNorm", mentionNorm).execute().map(ne -> ((NamedEntity)ne).hide()).collect(toList());
         indexer.bulkUpdate(project, nes);
+        repository.hideNamedEntities(project(project), mentionNorm);
         return ok();
     }
+
+    @Operation(description = "Returns the most mentioned named entities of the project, from the rollups updated by the NER pipelines.",
+            parameters = {
+                    @Parameter(name = "category", in = ParameterIn.QUERY, description = "filters by category (PERSON, ORGANIZATION, LOCATION...). Default is all categories"),
+                    @Parameter(name = "prefix", in = ParameterIn.QUERY, description = "filters by the beginning of the normalized mention"),
+                    @Parameter(name = "withHidden", in = ParameterIn.QUERY, description = "boolean, if true it includes hidden named entities. Default is false"),
+                    @Parameter(name = "size", in = ParameterIn.QUERY, description = "if not provided default is 100"),
+                    @Parameter(name = "from", in = ParameterIn.QUERY, description = "if not provided it starts from 0"),
+            })
+    @ApiResponse(responseCode = "200", description = "returns the list of named entity rollups ordered by mention count", useReturnTypeSchema = true)
+    @Get("/:project/namedEntities/rollups/top")
+    public List<NamedEntityRollup> getTopRollups(@Parameter(name = "project", description = "current project", in = ParameterIn.PATH) final String project, Context context) {
+        NamedEntity.Category category = ofNullable(context.get("category")).map(NamedEntity.Category::parse).orElse(null);
+        int from = Integer.parseInt(ofNullable(context.get("from")).orElse("0"));
+        int size = Integer.parseInt(ofNullable(context.get("size")).orElse("100"));
+        return repository.getNamedEntityRollups(project(project), category, context.get("prefix"),
+                parseBoolean(context.get("withHidden")), from, size);
+    }
+
+    @Operation(description = "Returns the named entity rollups of a document, all NER pipelines included.")
+    @ApiResponse(responseCode = "200", description = "returns the list of named entity rollups of the document", useReturnTypeSchema = true)
+    @Get("/:project/namedEntities/rollups/documents/:documentId")
+    public List<NamedEntityRollup> getDocumentRollups(@Parameter(name = "project", description = "current project", in = ParameterIn.PATH) final String project,
+                                                      @Parameter(name = "documentId", description = "document id", in = ParameterIn.PATH) final String documentId) {
+        return repository.getNamedEntityRollups(project(project), documentId);
+    }
 }
@@ -6,32 +6,55 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import net.codestory.http.Context;
 import net.codestory.http.annotations.Get;
 import net.codestory.http.annotations.Post;
 import net.codestory.http.annotations.Prefix;
+import net.codestory.http.constants.HttpStatus;
+import net.codestory.http.convert.TypeConvert;
+import net.codestory.http.payload.Payload;
+import net.codestory.http.payload.StreamingOutput;
 import org.icij.datashare.extension.PipelineRegistry;
-import org.icij.datashare.text.DocumentBuilder;
+import org.icij.datashare.nlp.NerBatcher;
 import org.icij.datashare.text.Language;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.LanguageGuesser;
 import org.icij.datashare.text.nlp.Pipeline;
-import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-import static java.util.Collections.emptyList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.groupingBy;
+import static org.icij.datashare.utils.PayloadFormatter.error;
 
 @Singleton
 @Prefix("/api/ner")
 public class NerResource {
+    static final String NDJSON = "application/x-ndjson";
+    static final int RETRY_AFTER_SECONDS = 1;
     private final PipelineRegistry pipelineRegistry;
     private final LanguageGuesser languageGuesser;
+    private final NerBatcher nerBatcher;
 
     @Inject
-    public NerResource(final PipelineRegistry pipelineRegistry, final LanguageGuesser languageGuesser) {
+    public NerResource(final PipelineRegistry pipelineRegistry, final LanguageGuesser languageGuesser, final NerBatcher nerBatcher) {
         this.pipelineRegistry = pipelineRegistry;
         this.languageGuesser = languageGuesser;
+        this.nerBatcher = nerBatcher;
     }
 
     @Operation(description = "Gets the list of registered pipelines.")
@@ -44,17 +67,146 @@ public class NerResource {
     @Operation(description = """
             When datashare is launched in NER mode (without index) it exposes a name finding HTTP API.
             
-            The text is sent with the HTTP body.""")
+            The text is sent with the HTTP body. Concurrent requests for the same pipeline and language are queued and processed by batches.
+            
+            With an `Accept: application/x-ndjson` header, the entities are streamed one JSON object per line.""")
     @ApiResponse(responseCode = "200", description = "returns the list of NamedEntities annotations", useReturnTypeSchema = true)
+    @ApiResponse(responseCode = "503", description = "if the queue of the pipeline and language is full (with a Retry-After header), or if the entities could not be found in nerTimeoutMilliseconds")
     @Post("/findNames/:pipeline")
-    public List<NamedEntity> getAnnotations(@Parameter(name = "pipeline", description = "pipeline to use", in = ParameterIn.PATH) final String pipeline,
-                                            @Parameter(name = "text", description = "text to analyze in the request body", in = ParameterIn.QUERY) String text) throws Exception {
-        LoggerFactory.getLogger(getClass()).info(String.valueOf(getClass().getClassLoader()));
-        Pipeline p = pipelineRegistry.get(Pipeline.Type.parse(pipeline));
-        Language language = languageGuesser.guess(text);
-        if (p.initialize(language)) {
-            return p.process(DocumentBuilder.createDoc("inline").with(text).with(language).build());
-        }
-        return emptyList();
+    public Payload getAnnotations(@Parameter(name = "pipeline", description = "pipeline to use", in = ParameterIn.PATH) final String pipeline,
+                                  @Parameter(name = "text", description = "text to analyze in the request body", in = ParameterIn.QUERY) String text,
+                                  Context context) throws Exception {
+        Pipeline.Type type = pipelineType(pipeline);
+        CompletableFuture<List<NamedEntity>> result;
+        try {
+            result = nerBatcher.submit(type, languageGuesser.guess(text), text);
+        } catch (RejectedExecutionException e) {
+            return queueFull(e);
+        }
+        List<NamedEntity> namedEntities;
+        try {
+            namedEntities = await(result, deadline());
+        } catch (TimeoutException e) {
+            return error("name finding timed out", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (acceptsNdjson(context)) {
+            return new Payload(NDJSON, (StreamingOutput) output -> {
+                for (NamedEntity namedEntity : namedEntities) {
+                    writeLine(output, namedEntity);
+                }
+            });
+        }
+        return new Payload("application/json", namedEntities);
+    }
+
+    @Operation(description = """
+            Finds the named entities of several texts, sent as NDJSON in the HTTP body: one `{"id": "...", "text": "..."}` object per line.
+            
+            The texts are queued all together (or none of them if the queues are full), and awaited up to nerTimeoutMilliseconds in all. The results are streamed as NDJSON in the order of the request, \
+            one `{"id": "...", "entities": [...]}` object per line, or `{"id": "...", "error": "..."}` if a text could not be processed.""")
+    @ApiResponse(responseCode = "200", description = "returns the NDJSON stream of entities per text")
+    @ApiResponse(responseCode = "400", description = "if a line is not a JSON object with a text")
+    @ApiResponse(responseCode = "413", description = "if there are more texts of a language than its queue can take (nerQueueSize)")
+    @ApiResponse(responseCode = "503", description = "if the queues cannot take all the texts, with a Retry-After header")
+    @Post("/findNamesBatch/:pipeline")
+    public Payload getAnnotationsBatch(@Parameter(name = "pipeline", description = "pipeline to use", in = ParameterIn.PATH) final String pipeline,
+                                       @Parameter(name = "texts", description = "NDJSON texts to analyze in the request body", in = ParameterIn.QUERY) String body) {
+        Pipeline.Type type = pipelineType(pipeline);
+        List<Map<String, Object>> texts = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Map<?, ?> json;
+            try {
+                json = TypeConvert.fromJson(line, Map.class);
+            } catch (RuntimeException e) {
+                return error("invalid NDJSON line: " + line, HttpStatus.BAD_REQUEST);
+            }
+            if (!(json.get("text") instanceof String)) {
+                return error("missing text in line: " + line, HttpStatus.BAD_REQUEST);
+            }
+            texts.add(Map.of("id", String.valueOf(json.get("id")), "text", json.get("text")));
+        }
+        List<Language> languages = new ArrayList<>(texts.size());
+        for (Map<String, Object> text : texts) {
+            languages.add(languageGuesser.guess((String) text.get("text")));
+        }
+        Map<Language, Long> textsByLanguage = languages.stream().collect(groupingBy(identity(), counting()));
+        Optional<Map.Entry<Language, Long>> tooManyTexts = textsByLanguage.entrySet().stream().filter(e -> e.getValue() > nerBatcher.queueSize()).findFirst();
+        if (tooManyTexts.isPresent()) {
+            return error(String.format("%d texts in %s, the queue of a language takes up to %d texts",
+                    tooManyTexts.get().getValue(), tooManyTexts.get().getKey(), nerBatcher.queueSize()), HttpStatus.REQUEST_ENTITY_TOO_LARGE);
+        }
+        List<CompletableFuture<List<NamedEntity>>> results = new ArrayList<>(texts.size());
+        try {
+            for (int i = 0; i < texts.size(); i++) {
+                results.add(nerBatcher.submit(type, languages.get(i), (String) texts.get(i).get("text")));
+            }
+        } catch (RejectedExecutionException e) {
+            results.forEach(r -> r.cancel(false));
+            return queueFull(e);
+        }
+        long deadline = deadline();
+        return new Payload(NDJSON, (StreamingOutput) output -> {
+            for (int i = 0; i < texts.size(); i++) {
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("id", texts.get(i).get("id"));
+                try {
+                    line.put("entities", await(results.get(i), deadline));
+                } catch (TimeoutException e) {
+                    line.put("error", "name finding timed out");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.forEach(r -> r.cancel(false));
+                    return;
+                } catch (Exception e) {
+                    line.put("error", String.valueOf(e.getMessage()));
+                }
+                writeLine(output, line);
+            }
+        });
+    }
+
+    private Pipeline.Type pipelineType(String pipeline) {
+        Pipeline.Type type = Pipeline.Type.parse(pipeline);
+        pipelineRegistry.get(type); // fails if the pipeline is not registered
+        return type;
+    }
+
+    /**
+     * @return the time in nanoseconds (see {@link System#nanoTime()}) until which the results of a request are awaited
+     */
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(nerBatcher.timeoutMillis());
+    }
+
+    private List<NamedEntity> await(CompletableFuture<List<NamedEntity>> result, long deadline) throws Exception {
+        try {
+            return result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(false);
+            throw e;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static boolean acceptsNdjson(Context context) {
+        String accept = context.header("Accept");
+        return accept != null && accept.contains(NDJSON);
+    }
+
+    /**
+     * 503 rather than 429: the http server only writes the status codes it knows, and answers 200 for 429.
+     */
+    private static Payload queueFull(RejectedExecutionException e) {
+        return error(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE).withHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+    }
+
+    private static void writeLine(OutputStream output, Object json) throws IOException {
+        output.write(TypeConvert.toJson(json).getBytes(UTF_8));
+        output.write('\n');
+        output.flush();
     }
 }
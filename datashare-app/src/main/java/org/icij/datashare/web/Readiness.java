@@ -0,0 +1,125 @@
+package org.icij.datashare.web;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.icij.datashare.Repository;
+import org.icij.datashare.asynctasks.TaskManager;
+import org.icij.datashare.text.indexing.Indexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Probes continuously the health of datashare dependencies in background threads
+ * and keeps a circuit breaker for each of them.
+ * <p>
+ * Datashare is started when the index has answered once. After that, a dependency that doesn't answer
+ * opens its breaker, and {@link ReadinessFilter} rejects the requests that need it with a 503 until a probe succeeds again.
+ * The task manager probe checks the configured broker (redis, AMQP or memory).
+ */
+@Singleton
+public class Readiness implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Readiness.class);
+    static final Duration DEFAULT_PROBE_INTERVAL = Duration.ofSeconds(2);
+    static final int DEFAULT_FAILURE_THRESHOLD = 2;
+
+    public enum Dependency {INDEX, DATABASE, TASK_MANAGER}
+
+    private final Map<Dependency, Callable<Boolean>> probes;
+    private final Map<Dependency, CircuitBreaker> breakers = new EnumMap<>(Dependency.class);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final Duration probeInterval;
+    private final ScheduledExecutorService executor;
+
+    @Inject
+    public Readiness(Indexer indexer, Repository repository, TaskManager taskManager) {
+        this(Map.of(Dependency.INDEX, indexer::ping,
+                Dependency.DATABASE, repository::getHealth,
+                Dependency.TASK_MANAGER, taskManager::getHealth), DEFAULT_PROBE_INTERVAL, DEFAULT_FAILURE_THRESHOLD);
+        startProbes();
+    }
+
+    Readiness(Map<Dependency, Callable<Boolean>> probes, Duration probeInterval, int failureThreshold) {
+        this.probes = probes;
+        this.probeInterval = probeInterval;
+        probes.keySet().forEach(dependency -> breakers.put(dependency, new CircuitBreaker(failureThreshold)));
+        // one thread per probe: a probe blocked until its timeout doesn't delay the others
+        executor = Executors.newScheduledThreadPool(Math.max(1, probes.size()), r -> {
+            Thread thread = new Thread(r, "readiness-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private void startProbes() {
+        probes.keySet().forEach(dependency ->
+                executor.scheduleWithFixedDelay(() -> probe(dependency), 0, probeInterval.toMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @return true when the index has answered at least once
+     */
+    public boolean isStarted() {
+        return started.get();
+    }
+
+    public boolean isAvailable(Dependency dependency) {
+        CircuitBreaker breaker = breakers.get(dependency);
+        return breaker == null || !breaker.isOpen();
+    }
+
+    /**
+     * reports a request that couldn't reach the dependency
+     */
+    public void recordFailure(Dependency dependency) {
+        CircuitBreaker breaker = breakers.get(dependency);
+        if (breaker != null && breaker.recordFailure()) {
+            LOGGER.warn("{} is unavailable, rejecting requests that need it", dependency);
+        }
+    }
+
+    /**
+     * @return the number of seconds after which clients could retry
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(probeInterval.toMillis() / 1000.0));
+    }
+
+    void probe(Dependency dependency) {
+        CircuitBreaker breaker = breakers.get(dependency);
+        boolean healthy;
+        try {
+            healthy = Boolean.TRUE.equals(probes.get(dependency).call());
+        } catch (Exception e) {
+            LOGGER.debug("{} probe failed", dependency, e);
+            healthy = false;
+        }
+        if (healthy) {
+            if (breaker.isOpen()) {
+                LOGGER.info("{} is available again", dependency);
+            }
+            breaker.recordSuccess();
+            if (dependency == Dependency.INDEX && !started.getAndSet(true)) {
+                LOGGER.info("Ping indexer succeeded");
+            }
+        } else {
+            if (breaker.recordFailure()) {
+                LOGGER.warn("{} is unavailable, rejecting requests that need it", dependency);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,90 @@
+package org.icij.datashare.web;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import net.codestory.http.Context;
+import net.codestory.http.constants.HttpStatus;
+import net.codestory.http.filters.Filter;
+import net.codestory.http.filters.PayloadSupplier;
+import net.codestory.http.payload.Payload;
+import org.icij.datashare.web.Readiness.Dependency;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static org.icij.datashare.utils.PayloadFormatter.error;
+
+/**
+ * Rejects the requests with a 503 while datashare is starting (the index has not answered yet)
+ * and the requests needing a dependency whose circuit breaker is open (see {@link Readiness}).
+ * <p>
+ * Requests failing because a dependency could not be reached are reported to its breaker.
+ * <code>/api/status</code> is always served.
+ */
+@Singleton
+public class ReadinessFilter implements Filter {
+    private static final long serialVersionUID = 1L;
+    private static final String WAIT_CONTENT = "<!DOCTYPE html>" +
+            "<head><meta HTTP-EQUIV=\"refresh\" CONTENT=\"2\"><title>Datashare</title></head>" +
+            "<body>waiting for Datashare to be up...</body>";
+    private static final Map<Pattern, Dependency> ROUTES_DEPENDENCIES = new LinkedHashMap<>() {{
+        put(Pattern.compile("^/api/index(/.*)?$"), Dependency.INDEX);
+        put(Pattern.compile("^/api/[^/]+/(documents|namedEntities)(/.*)?$"), Dependency.INDEX);
+        put(Pattern.compile("^/api/task(/.*)?$"), Dependency.TASK_MANAGER);
+        put(Pattern.compile("^/api/(batch|document-user-recommendation|users|project|key)(/.*)?$"), Dependency.DATABASE);
+    }};
+    private final Readiness readiness;
+
+    @Inject
+    public ReadinessFilter(Readiness readiness) {
+        this.readiness = readiness;
+    }
+
+    @Override
+    public Payload apply(String uri, Context context, PayloadSupplier nextFilter) throws Exception {
+        if ("/api/status".equals(uri)) {
+            return nextFilter.get();
+        }
+        if (!readiness.isStarted()) {
+            return new Payload("text/html", WAIT_CONTENT, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        Optional<Dependency> dependency = dependencyOf(uri);
+        if (dependency.isPresent() && !readiness.isAvailable(dependency.get())) {
+            return error(dependency.get().name().toLowerCase() + " is unavailable", HttpStatus.SERVICE_UNAVAILABLE)
+                    .withHeader("Retry-After", String.valueOf(readiness.retryAfterSeconds()));
+        }
+        try {
+            return nextFilter.get();
+        } catch (Exception e) {
+            if (dependency.isPresent() && isConnectionFailure(e)) {
+                readiness.recordFailure(dependency.get());
+            }
+            throw e;
+        }
+    }
+
+    static Optional<Dependency> dependencyOf(String uri) {
+        String path = uri.split("\\?")[0];
+        return ROUTES_DEPENDENCIES.entrySet().stream()
+                .filter(e -> e.getKey().matcher(path).matches())
+                .map(Map.Entry::getValue).findFirst();
+    }
+
+    private static boolean isConnectionFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof SocketTimeoutException
+                    || cause instanceof SQLTransientConnectionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean matches(String uri, Context context) { return true;}
+}
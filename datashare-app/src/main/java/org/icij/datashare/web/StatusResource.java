@@ -16,6 +16,7 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.Repository;
 import org.icij.datashare.asynctasks.TaskManager;
 import org.icij.datashare.openmetrics.StatusMapper;
+import org.icij.datashare.tasks.ParallelismController;
 import org.icij.datashare.text.indexing.Indexer;
 
 import java.io.IOException;
@@ -46,7 +47,8 @@ public class StatusResource {
         Status status = new Status(repository.getHealth(), indexer.getHealth(), taskManager.getHealth());
         if ("openmetrics".equals(context.request().query().get("format"))) {
             return new Payload("text/plain;version=0.0.4",
-                    new StatusMapper("datashare", status, propertiesProvider.get("platform").orElse(null)).toString());
+                    new StatusMapper("datashare", status, propertiesProvider.get("platform").orElse(null)) +
+                            ParallelismController.openMetrics());
         } else {
             return new Payload("application/json", status, status.getHttpStatus());
         }
@@ -44,13 +44,17 @@ import org.icij.datashare.extract.OptionsWrapper;
 import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.tasks.BatchDownloadRunner;
 import org.icij.datashare.tasks.BatchSearchRunner;
+import org.icij.datashare.tasks.BulkAnnotationTask;
 import org.icij.datashare.tasks.DatashareTaskFactory;
 import org.icij.datashare.tasks.EnqueueFromIndexTask;
 import org.icij.datashare.tasks.ExtractNlpTask;
+import org.icij.datashare.tasks.IndexMigrationTask;
 import org.icij.datashare.tasks.IndexTask;
 import org.icij.datashare.tasks.ScanIndexTask;
 import org.icij.datashare.tasks.ScanTask;
+import org.icij.datashare.session.DatashareUser;
 import org.icij.datashare.text.Project;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration;
 import org.icij.datashare.user.User;
 
 import java.io.File;
@@ -59,6 +63,7 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
@@ -395,6 +400,70 @@ public class TaskResource {
         return new TaskResponse(taskManager.startTask(BatchDownloadRunner.class, (User) context.currentUser(), Map.of("batchDownload", batchDownload)));
     }
 
+    @Operation(description = """
+            Tags, untags, stars, unstars, recommends or unrecommends all the documents of a project matching a search query.
+
+             Expected parameters are:
+
+            - query: string or elasticsearch JSON query (like for batch download)
+            - action: one of TAG, UNTAG, STAR, UNSTAR, RECOMMEND, UNRECOMMEND
+            - labels: list of tags (for TAG and UNTAG)
+
+            The documents are updated by pages in a background task that can be stopped and run again.
+            """,
+            requestBody = @RequestBody(description = "wrapper for options json", required = true,  content = @Content(schema = @Schema(implementation = OptionsWrapper.class))))
+    @ApiResponse(responseCode = "200", description = "returns 200 and the json task id", useReturnTypeSchema = true)
+    @ApiResponse(responseCode = "400", description = "returns 400 if the query or the action is missing or unknown")
+    @ApiResponse(responseCode = "403", description = "returns 403 if the user is not granted for the project")
+    @Post("/batchUpdate/annotate/:project")
+    public TaskResponse bulkAnnotate(@Parameter(name = "project", description = "project id", in = ParameterIn.PATH) final String projectId, final OptionsWrapper<Object> optionsWrapper, Context context) throws IOException {
+        if (!((DatashareUser) context.currentUser()).isGranted(projectId)) {
+            throw new ForbiddenException();
+        }
+        Map<String, Object> options = optionsWrapper.getOptions();
+        String query = options.get("query") instanceof Map ? JsonObjectMapper.MAPPER.writeValueAsString(options.get("query")): (String)options.get("query");
+        String action = ofNullable(options.get("action")).map(Object::toString).map(String::toUpperCase).orElse("");
+        if (query == null || stream(BulkAnnotationTask.Action.values()).noneMatch(a -> a.name().equals(action))) {
+            throw new BadRequestException();
+        }
+        List<String> labels = ofNullable((List<?>) options.get("labels")).orElse(List.of()).stream().map(Object::toString).collect(toList());
+        return new TaskResponse(taskManager.startTask(BulkAnnotationTask.class, (User) context.currentUser(),
+                Map.of("project", projectId, "query", query, "action", action, "labels", new ArrayList<>(labels))));
+    }
+
+    @Operation(description = """
+            Migrates the index of a project to a new index, then makes the project name an alias of the new index.
+
+             Expected parameters are:
+
+            - shards: number of shards of the new index
+            - mode: REINDEX (default) creates the new index with the current settings and mappings and copies the documents with a sliced and throttled reindex,\
+             SPLIT splits the index in more shards (a multiple of the current number of shards)
+            - slices: number of reindex slices (default auto)
+            - requestsPerSecond: reindex throttle (default -1 for none)
+
+            The project stays searchable during the migration, writes are only blocked at the end of it.
+            """,
+            requestBody = @RequestBody(description = "wrapper for options json", required = true,  content = @Content(schema = @Schema(implementation = OptionsWrapper.class))))
+    @ApiResponse(responseCode = "200", description = "returns 200 and the json task id", useReturnTypeSchema = true)
+    @ApiResponse(responseCode = "400", description = "returns 400 if the shards number is missing or the mode is unknown")
+    @ApiResponse(responseCode = "403", description = "returns 403 if the user is not granted for the project")
+    @Post("/batchUpdate/migrate/:project")
+    public TaskResponse migrateIndex(@Parameter(name = "project", description = "project id", in = ParameterIn.PATH) final String projectId, final OptionsWrapper<Object> optionsWrapper, Context context) throws IOException {
+        if (!((DatashareUser) context.currentUser()).isGranted(projectId)) {
+            throw new ForbiddenException();
+        }
+        Map<String, Object> options = optionsWrapper.getOptions();
+        String mode = ofNullable(options.get("mode")).map(Object::toString).map(String::toUpperCase).orElse(ElasticsearchIndexMigration.Mode.REINDEX.name());
+        if (!(options.get("shards") instanceof Integer shards) || shards < 1 || stream(ElasticsearchIndexMigration.Mode.values()).noneMatch(m -> m.name().equals(mode))) {
+            throw new BadRequestException();
+        }
+        return new TaskResponse(taskManager.startTask(IndexMigrationTask.class, (User) context.currentUser(),
+                Map.of("project", projectId, "mode", mode, "shards", shards,
+                        "slices", ofNullable(options.get("slices")).orElse("auto").toString(),
+                        "requestsPerSecond", ofNullable(options.get("requestsPerSecond")).orElse(-1))));
+    }
+
     @Operation(description = "Indexes files from the queue.",
             requestBody = @RequestBody(description = "wrapper for options json", required = true,  content = @Content(schema = @Schema(implementation = OptionsWrapper.class))))
     @ApiResponse(responseCode = "200", description = "returns 200 and the json task id", content = @Content(schema = @Schema(implementation = TaskResponse.class)))
@@ -0,0 +1,130 @@
+package org.icij.datashare.extract;
+
+import org.apache.tika.metadata.Metadata;
+import org.icij.extract.document.DigestIdentifier;
+import org.icij.extract.document.DocumentFactory;
+import org.icij.extract.document.EmbeddedTikaDocument;
+import org.icij.extract.document.Identifier;
+import org.icij.extract.document.TikaDocument;
+import org.icij.spewer.Spewer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ExtractionStoreTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_from_without_store() {
+        assertThat(ExtractionStore.from(Map.of("ocr", "true"), new DigestIdentifier("SHA-256", UTF_8)).isPresent()).isFalse();
+    }
+
+    @Test
+    public void test_from_creates_configuration_directory() {
+        assertThat(ExtractionStore.from(Map.of("extractionStore", folder.getRoot().toString()), new DigestIdentifier("SHA-256", UTF_8)).isPresent()).isTrue();
+
+        assertThat(folder.getRoot().toPath().resolve(ExtractionStore.configurationKey(Map.of())).toFile()).isDirectory();
+    }
+
+    @Test
+    public void test_configuration_key_depends_on_extraction_options_only() {
+        String key = ExtractionStore.configurationKey(Map.of("digestProjectName", "prj1", "ocr", "true"));
+
+        assertThat(ExtractionStore.configurationKey(Map.of("digestProjectName", "prj1", "ocr", "true", "defaultProject", "prj2"))).isEqualTo(key);
+        assertThat(ExtractionStore.configurationKey(Map.of("digestProjectName", "prj2", "ocr", "true"))).isNotEqualTo(key);
+        assertThat(ExtractionStore.configurationKey(Map.of("digestProjectName", "prj1", "ocr", "false"))).isNotEqualTo(key);
+    }
+
+    @Test
+    public void test_load_unknown_digest() throws Exception {
+        assertThat(store().load("0123abcd", Paths.get("/dir/file.txt")).isPresent()).isFalse();
+        assertThat(store().load("", Paths.get("/dir/file.txt")).isPresent()).isFalse();
+    }
+
+    @Test
+    public void test_save_and_load_document_tree() throws Exception {
+        ExtractionStore store = store();
+        TikaDocument document = new TikaDocument("rootId", new DigestIdentifier("SHA-256", UTF_8), Paths.get("/dir/file.zip"), "ENGLISH", metadata("application/zip", "rootHash"));
+        document.setReader(new StringReader("root text"));
+        document.addEmbed(metadata("text/plain", "embedHash")).setReader(new StringReader("embedded text"));
+        document.getEmbeds().get(0).addEmbed(metadata("text/html", "subEmbedHash")).setReader(new StringReader("sub embedded text"));
+        String embedId = document.getEmbeds().get(0).getId();
+        String subEmbedId = document.getEmbeds().get(0).getEmbeds().get(0).getId();
+
+        TikaDocument saved = store.save("0123abcd", document);
+        assertThat(Spewer.toString(saved.getReader())).isEqualTo("root text");
+
+        TikaDocument loaded = store.load("0123abcd", Paths.get("/other/copy.zip")).get();
+        assertThat(loaded.getId()).isEqualTo("rootId");
+        assertThat(loaded.getPath().toString()).isEqualTo("/other/copy.zip");
+        assertThat(loaded.getLanguage()).isEqualTo("ENGLISH");
+        assertThat(loaded.getMetadata().get("Content-Type")).isEqualTo("application/zip");
+        assertThat(loaded.getMetadata().getValues("tag")).isEqualTo(new String[] {"a", "b"});
+        assertThat(Spewer.toString(loaded.getReader())).isEqualTo("root text");
+        assertThat(loaded.getEmbeds()).hasSize(1);
+        EmbeddedTikaDocument loadedEmbed = loaded.getEmbeds().get(0);
+        assertThat(loadedEmbed.getId()).isEqualTo(embedId);
+        assertThat(loadedEmbed.getPath().toString()).isEqualTo("/other/copy.zip");
+        assertThat(loadedEmbed.getMetadata().get("Content-Type")).isEqualTo("text/plain");
+        assertThat(Spewer.toString(loadedEmbed.getReader())).isEqualTo("embedded text");
+        assertThat(loadedEmbed.getEmbeds().get(0).getId()).isEqualTo(subEmbedId);
+        assertThat(Spewer.toString(loadedEmbed.getEmbeds().get(0).getReader())).isEqualTo("sub embedded text");
+    }
+
+    @Test
+    public void test_save_keeps_existing_entry() throws Exception {
+        ExtractionStore store = store();
+        store.save("0123abcd", document("first text"));
+
+        TikaDocument saved = store.save("0123abcd", document("second text"));
+
+        assertThat(Spewer.toString(saved.getReader())).isEqualTo("first text");
+        try (var files = Files.list(folder.getRoot().toPath().resolve("01"))) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void test_storing_extractor_reads_stored_documents_of_same_content() throws Exception {
+        Path file = folder.newFile("file.txt").toPath();
+        Files.writeString(file, "file content");
+        ExtractionStore store = store();
+        store.save(ExtractionStore.digest(file), document("stored text"));
+        Path copy = folder.newFolder("copy").toPath().resolve("copy.txt");
+        Files.copy(file, copy);
+
+        TikaDocument document = new StoringExtractor(new DocumentFactory().configure(), store).extract(copy);
+
+        assertThat(document.getId()).isEqualTo("rootId");
+        assertThat(document.getPath().toString()).isEqualTo(copy.toString());
+        assertThat(Spewer.toString(document.getReader())).isEqualTo("stored text");
+    }
+
+    private ExtractionStore store() {
+        return new ExtractionStore(folder.getRoot().toPath(), new DigestIdentifier("SHA-256", UTF_8));
+    }
+
+    private static TikaDocument document(String text) {
+        TikaDocument document = new TikaDocument("rootId", new DigestIdentifier("SHA-256", UTF_8), Paths.get("/dir/file.txt"), metadata("text/plain", "hash"));
+        document.setReader(new StringReader(text));
+        return document;
+    }
+
+    private static Metadata metadata(String contentType, String hash) {
+        Metadata metadata = new Metadata();
+        metadata.set("Content-Type", contentType);
+        metadata.set(Identifier.getKey("SHA-256"), hash);
+        metadata.add("tag", "a");
+        metadata.add("tag", "b");
+        return metadata;
+    }
+}
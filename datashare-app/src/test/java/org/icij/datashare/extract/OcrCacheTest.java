@@ -0,0 +1,51 @@
+package org.icij.datashare.extract;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class OcrCacheTest {
+    @Rule public TemporaryFolder cacheFolder = new TemporaryFolder();
+
+    @Test
+    public void test_resolve_without_cache() {
+        Map<String, Object> args = Map.of("ocr", "true");
+        assertThat(OcrCache.resolve(args)).isSameAs(args);
+    }
+
+    @Test
+    public void test_resolve_with_ocr_disabled() {
+        Map<String, Object> args = Map.of("ocr", "false", "ocrCache", cacheFolder.getRoot().toString());
+        assertThat(OcrCache.resolve(args)).isSameAs(args);
+    }
+
+    @Test
+    public void test_resolve_with_default_configuration() {
+        Map<String, Object> resolved = OcrCache.resolve(Map.of("ocrCache", cacheFolder.getRoot().toString(), "foo", "bar"));
+
+        Path directory = cacheFolder.getRoot().toPath().resolve("tesseract-eng");
+        assertThat(resolved.get("ocrCache")).isEqualTo(directory.toString());
+        assertThat(resolved.get("foo")).isEqualTo("bar");
+        assertThat(directory.toFile()).isDirectory();
+    }
+
+    @Test
+    public void test_resolve_with_languages_and_type() {
+        Map<String, Object> resolved = OcrCache.resolve(Map.of("ocrCache", cacheFolder.getRoot().toString(),
+                "ocrType", "TESS4J", "ocrLanguage", "FRA+eng"));
+
+        assertThat(resolved.get("ocrCache")).isEqualTo(cacheFolder.getRoot().toPath().resolve("tess4j-fra+eng").toString());
+    }
+
+    @Test
+    public void test_configuration_key() {
+        assertThat(OcrCache.configurationKey("TESSERACT", "eng + fra")).isEqualTo("tesseract-eng+fra");
+        assertThat(OcrCache.configurationKey("TESSERACT", "fra+eng")).isNotEqualTo(OcrCache.configurationKey("TESSERACT", "eng+fra"));
+        assertThat(OcrCache.configurationKey("TESSERACT", "../eng")).isEqualTo("tesseract-___eng");
+    }
+}
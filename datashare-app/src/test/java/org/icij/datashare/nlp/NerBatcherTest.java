@@ -0,0 +1,139 @@
+package org.icij.datashare.nlp;
+
+import org.icij.datashare.extension.PipelineRegistry;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.nlp.Pipeline;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.Language.FRENCH;
+import static org.icij.datashare.text.NamedEntity.Category.PERSON;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+public class NerBatcherTest {
+    @Mock Pipeline pipeline;
+    @Mock PipelineRegistry registry;
+    private AutoCloseable mocks;
+    private NerBatcher nerBatcher;
+
+    @Before
+    public void setUp() throws Exception {
+        mocks = openMocks(this);
+        doReturn(pipeline).when(registry).get(any());
+        doReturn(true).when(pipeline).initialize(any());
+        doAnswer(invocation -> {
+            Document doc = invocation.getArgument(0);
+            return List.of(NamedEntity.create(PERSON, doc.getContent(), List.of(0L), doc.getId(), doc.getId(), CORENLP, doc.getLanguage()));
+        }).when(pipeline).process(any());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        nerBatcher.close();
+        mocks.close();
+    }
+
+    @Test(timeout = 5000)
+    public void test_concurrent_requests_are_processed_by_batch() throws Exception {
+        nerBatcher = new NerBatcher(registry, 10, 1000, 10, 5000);
+        List<CompletableFuture<List<NamedEntity>>> results = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            results.add(nerBatcher.submit(CORENLP, ENGLISH, "text" + i));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(results.get(i).get().get(0).getMention()).isEqualTo("text" + i);
+        }
+        verify(pipeline, times(1)).initialize(ENGLISH);
+    }
+
+    @Test(timeout = 5000)
+    public void test_languages_have_their_own_queue() throws Exception {
+        nerBatcher = new NerBatcher(registry, 10, 0, 10, 5000);
+
+        assertThat(nerBatcher.submit(CORENLP, ENGLISH, "Jane").get().get(0).getExtractorLanguage()).isEqualTo(ENGLISH);
+        assertThat(nerBatcher.submit(CORENLP, FRENCH, "Jeanne").get().get(0).getExtractorLanguage()).isEqualTo(FRENCH);
+        verify(pipeline).initialize(ENGLISH);
+        verify(pipeline).initialize(FRENCH);
+    }
+
+    @Test(timeout = 5000)
+    public void test_request_is_rejected_when_queue_is_full() throws Exception {
+        nerBatcher = new NerBatcher(registry, 1, 0, 1, 5000);
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            processing.countDown();
+            release.await();
+            return List.of();
+        }).when(pipeline).process(any());
+
+        nerBatcher.submit(CORENLP, ENGLISH, "first");
+        processing.await();
+        CompletableFuture<List<NamedEntity>> second = nerBatcher.submit(CORENLP, ENGLISH, "second");
+        try {
+            nerBatcher.submit(CORENLP, ENGLISH, "third");
+            throw new AssertionError("third request should be rejected");
+        } catch (RejectedExecutionException expected) {
+            assertThat(expected.getMessage()).contains("is full");
+        }
+
+        second.cancel(false);
+        CompletableFuture<List<NamedEntity>> fourth = nerBatcher.submit(CORENLP, ENGLISH, "fourth");
+        release.countDown();
+        assertThat(fourth.get()).isEmpty();
+    }
+
+    @Test(timeout = 5000)
+    public void test_error_of_a_request_fails_only_this_request() throws Exception {
+        nerBatcher = new NerBatcher(registry, 10, 100, 10, 5000);
+        doThrow(new StackOverflowError("too deep")).when(pipeline).process(argThat(doc -> "boom".equals(doc.getContent())));
+
+        CompletableFuture<List<NamedEntity>> failing = nerBatcher.submit(CORENLP, ENGLISH, "boom");
+        CompletableFuture<List<NamedEntity>> other = nerBatcher.submit(CORENLP, ENGLISH, "Jane");
+
+        try {
+            failing.get();
+            throw new AssertionError("request should fail");
+        } catch (ExecutionException expected) {
+            assertThat(expected.getCause()).isInstanceOf(StackOverflowError.class);
+        }
+        assertThat(other.get().get(0).getMention()).isEqualTo("Jane");
+    }
+
+    @Test(timeout = 5000)
+    public void test_stopped_worker_is_replaced_by_a_new_one() throws Exception {
+        nerBatcher = new NerBatcher(registry, 1, 0, 10, 5000);
+        doThrow(new InterruptedException()).when(pipeline).process(argThat(doc -> "stop".equals(doc.getContent())));
+
+        try {
+            nerBatcher.submit(CORENLP, ENGLISH, "stop").get();
+            throw new AssertionError("request should fail");
+        } catch (ExecutionException expected) {
+            assertThat(expected.getCause()).isInstanceOf(InterruptedException.class);
+        }
+
+        assertThat(nerBatcher.submit(CORENLP, ENGLISH, "Jane").get().get(0).getMention()).isEqualTo("Jane");
+    }
+}
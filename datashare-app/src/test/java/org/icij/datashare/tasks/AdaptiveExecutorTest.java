@@ -0,0 +1,73 @@
+package org.icij.datashare.tasks;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class AdaptiveExecutorTest {
+    private final AdaptiveExecutor executor = new AdaptiveExecutor(2, 1, 4);
+
+    @Test
+    public void test_limit_is_bounded() {
+        assertThat(executor.setLimit(10)).isEqualTo(4);
+        assertThat(executor.setLimit(0)).isEqualTo(1);
+        assertThat(new AdaptiveExecutor(8, 1, 4).getLimit()).isEqualTo(4);
+    }
+
+    @Test(timeout = 5000)
+    public void test_running_tasks_do_not_exceed_limit() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            executor.execute(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+        done.await();
+        assertThat(maxRunning.get()).isEqualTo(2);
+    }
+
+    @Test(timeout = 5000)
+    public void test_increase_limit_while_running() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        executor.execute(() -> { started.countDown(); await(release); });
+        executor.execute(() -> { started.countDown(); await(release); });
+
+        executor.setLimit(3);
+        executor.execute(() -> { started.countDown(); await(release); });
+
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
+import org.icij.datashare.asynctasks.CancelException;
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.Tag;
+import org.icij.datashare.text.indexing.Indexer;
+import org.icij.datashare.user.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.cli.DatashareCliOptions.BATCH_THROTTLE_OPT;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+import static org.icij.datashare.text.Project.project;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class BulkAnnotationTaskTest {
+    @Mock Indexer indexer;
+    @Mock Repository repository;
+    MockSearch<Indexer.QueryBuilderSearcher> mockSearch;
+    private final List<Double> progress = new ArrayList<>();
+    private final PropertiesProvider propertiesProvider = new PropertiesProvider(Map.of(BATCH_THROTTLE_OPT, "0"));
+
+    @Test
+    public void test_tag_all_documents_of_query_in_both_stores() throws Exception {
+        mockSearch.willReturn(2, createDoc("doc1").build(), createDoc("doc2").build());
+
+        Long result = createTask("TAG", "foo", "bar").call();
+
+        assertThat(result).isEqualTo(4);
+        verify(repository, times(2)).tag(eq(project("test-datashare")), eq(asList("doc1", "doc2")), any(Tag[].class));
+        verify(indexer, times(2)).tag(eq(project("test-datashare")), eq(asList("doc1", "doc2")), any(Tag[].class));
+    }
+
+    @Test
+    public void test_star_documents_of_query_for_user() throws Exception {
+        mockSearch.willReturn(1, createDoc("doc1").build());
+
+        createTask("star").call();
+
+        verify(repository).star(project("test-datashare"), User.local(), List.of("doc1"));
+        verify(indexer, never()).tag(any(), any(List.class), any(Tag[].class));
+    }
+
+    @Test
+    public void test_progress() throws Exception {
+        mockSearch.willReturn(1, createDoc("doc1").build(), createDoc("doc2").build());
+
+        createTask("RECOMMEND").call();
+
+        assertThat(progress).containsExactly(1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_tag_without_labels() throws Exception {
+        mockSearch.willReturn(1, createDoc("doc1").build());
+        createTask("TAG").call();
+    }
+
+    @Test(expected = CancelException.class)
+    public void test_cancel_before_first_page() throws Exception {
+        mockSearch.willReturn(1, createDoc("doc1").build());
+        BulkAnnotationTask task = createTask("UNSTAR");
+        task.cancel(true);
+        task.call();
+    }
+
+    private BulkAnnotationTask createTask(String action, String... labels) {
+        Task<Long> taskView = new Task<>(BulkAnnotationTask.class.getName(), User.local(), new HashMap<>() {{
+            put("project", "test-datashare");
+            put("query", "*");
+            put("action", action);
+            put("labels", new ArrayList<>(asList(labels)));
+        }});
+        return new BulkAnnotationTask(indexer, repository, propertiesProvider, taskView, p -> {progress.add(p); return null;});
+    }
+
+    @Before
+    public void setUp() { initMocks(this); mockSearch = new MockSearch<>(indexer, Indexer.QueryBuilderSearcher.class);}
+}
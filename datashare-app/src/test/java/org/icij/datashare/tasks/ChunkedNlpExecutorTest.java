@@ -0,0 +1,81 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.tasks.ChunkedNlpExecutor.Chunk;
+import org.icij.datashare.text.Document;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.nlp.AbstractPipeline;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.NamedEntity.Category.LOCATION;
+import static org.icij.datashare.text.NamedEntity.Category.PERSON;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChunkedNlpExecutorTest {
+    private static final String TEXT = "Jane is in Paris. John is in London. Anna is in Rome.";
+
+    @Test
+    public void test_chunks_end_at_sentence_boundaries() {
+        assertThat(ChunkedNlpExecutor.chunks(TEXT, 40, 0, Locale.ENGLISH)).containsExactly(new Chunk(0, 37), new Chunk(37, 53));
+    }
+
+    @Test
+    public void test_chunks_overlap_starts_at_sentence_boundary() {
+        assertThat(ChunkedNlpExecutor.chunks(TEXT, 40, 20, Locale.ENGLISH)).containsExactly(new Chunk(0, 37), new Chunk(18, 53));
+    }
+
+    @Test
+    public void test_chunks_are_cut_when_there_is_no_sentence_boundary() {
+        assertThat(ChunkedNlpExecutor.chunks("0123456789abcdef0123456789", 10, 4, Locale.ROOT))
+                .containsExactly(new Chunk(0, 10), new Chunk(6, 16), new Chunk(12, 22), new Chunk(18, 26));
+    }
+
+    @Test
+    public void test_merge_deduplicates_entities_of_overlap() {
+        List<Chunk> chunks = List.of(new Chunk(0, 37), new Chunk(18, 53));
+
+        List<NamedEntity> merged = ChunkedNlpExecutor.merge(chunks, List.of(
+                List.of(ne(PERSON, "Jane", 0L), ne(LOCATION, "Paris", 11L), ne(PERSON, "John", 18L), ne(LOCATION, "London", 29L)),
+                List.of(ne(PERSON, "John", 18L), ne(LOCATION, "London", 29L), ne(PERSON, "Anna", 37L), ne(LOCATION, "Rome", 48L))));
+
+        assertThat(merged).containsExactly(ne(PERSON, "Jane", 0L), ne(LOCATION, "Paris", 11L), ne(PERSON, "John", 18L),
+                ne(LOCATION, "London", 29L), ne(PERSON, "Anna", 37L), ne(LOCATION, "Rome", 48L));
+    }
+
+    @Test
+    public void test_merge_groups_offsets_of_same_mention() {
+        List<Chunk> chunks = List.of(new Chunk(0, 37), new Chunk(18, 53));
+
+        List<NamedEntity> merged = ChunkedNlpExecutor.merge(chunks, List.of(
+                List.of(ne(PERSON, "Jane", 0L, 30L)), List.of(ne(PERSON, "Jane", 30L, 45L))));
+
+        assertThat(merged).containsExactly(ne(PERSON, "Jane", 0L, 30L, 45L));
+    }
+
+    @Test
+    public void test_process_chunks_in_parallel() throws Exception {
+        Document doc = createDoc("doc").with(TEXT).build();
+        AbstractPipeline pipeline = mock(AbstractPipeline.class);
+        when(pipeline.process(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int offset = invocation.getArgument(2);
+            return offset == 0 ? List.of(ne(PERSON, "Jane", 0L), ne(PERSON, "John", 18L)) : List.of(ne(PERSON, "John", 18L), ne(PERSON, "Anna", 37L));
+        });
+
+        try (ChunkedNlpExecutor executor = new ChunkedNlpExecutor(pipeline, 40, 20, 2)) {
+            assertThat(executor.process(doc)).containsExactly(ne(PERSON, "Jane", 0L), ne(PERSON, "John", 18L), ne(PERSON, "Anna", 37L));
+        }
+    }
+
+    private static NamedEntity ne(NamedEntity.Category category, String mention, Long... offsets) {
+        return NamedEntity.create(category, mention, List.of(offsets), "doc", "doc", CORENLP, ENGLISH);
+    }
+}
@@ -36,6 +36,21 @@ public class DeduplicateTaskTest {
         assertThat(docCollectionFactory.createQueue("test:queue:index", Path.class).size()).isEqualTo(2); // with POISON
     }
 
+    @Test(timeout = 5000)
+    public void test_filter_queue_removes_duplicates_by_batches() throws Exception {
+        DocumentQueue<Path> inputQueue = docCollectionFactory.createQueue("test:queue:deduplicate", Path.class);
+        for (int i = 0; i < 2500; i++) {
+            inputQueue.put(get("/path/to/doc" + i % 1200));
+        }
+        inputQueue.add(PATH_POISON);
+
+        assertThat(new DeduplicateTask(docCollectionFactory,  new Task<>(DeduplicateTask.class.getName(), User.local(), defaultOpts), null).call()).isEqualTo(1300);
+
+        DocumentQueue<Path> outputQueue = docCollectionFactory.createQueue("test:queue:index", Path.class);
+        assertThat(outputQueue.size()).isEqualTo(1201);
+        assertThat(outputQueue.poll().toString()).isEqualTo("/path/to/doc0");
+    }
+
     @Test(timeout = 2000)
     public void test_pipeline_task_transfer_to_output_queue() throws Exception {
         task.inputQueue.put(get("/path/to/doc1"));
@@ -0,0 +1,45 @@
+package org.icij.datashare.tasks;
+
+import org.junit.Test;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DeduplicationSetTest {
+    @Test
+    public void test_add_in_memory() throws Exception {
+        try (DeduplicationSet set = new DeduplicationSet(10)) {
+            assertThat(set.add("/path/to/doc")).isTrue();
+            assertThat(set.add("/path/to/doc")).isFalse();
+            assertThat(set.add("/path/to/other")).isTrue();
+            assertThat(set.nbRuns()).isEqualTo(0);
+        }
+    }
+
+    @Test
+    public void test_add_with_spilled_hashes() throws Exception {
+        try (DeduplicationSet set = new DeduplicationSet(10, 100, 100)) {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(set.add("/path/" + i)).isTrue();
+            }
+            assertThat(set.nbRuns()).isEqualTo(10);
+            for (int i = 0; i < 1000; i++) {
+                assertThat(set.add("/path/" + i)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void test_add_with_merged_runs() throws Exception {
+        try (DeduplicationSet set = new DeduplicationSet(10, 100, 3)) {
+            for (int i = 0; i < 1000; i++) {
+                assertThat(set.add("/path/" + i)).isTrue();
+                assertThat(set.add("/path/" + i / 2)).isFalse();
+            }
+            assertThat(set.nbRuns()).isLessThan(4);
+            for (int i = 0; i < 1000; i++) {
+                assertThat(set.add("/path/" + i)).isFalse();
+            }
+            assertThat(set.add("/path/1000")).isTrue();
+        }
+    }
+}
@@ -1,28 +1,53 @@
 package org.icij.datashare.tasks;
 
+import org.icij.datashare.PipelineHelper;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
+import org.icij.datashare.Stage;
+import org.icij.datashare.asynctasks.Group;
 import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskGroupType;
+import org.icij.datashare.asynctasks.TaskRepository;
+import org.icij.datashare.asynctasks.TaskRepositoryMemory;
+import org.icij.datashare.nlp.EmailPipeline;
 import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.Language;
+import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.text.nlp.AbstractPipeline;
 import org.icij.datashare.user.User;
+import org.icij.extract.queue.DocumentQueue;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
+import java.util.List;
 import java.util.Map;
 
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.cli.DatashareCliOptions.POLLING_INTERVAL_SECONDS_OPT;
+import static org.icij.datashare.nlp.EmailPipeline.tikaMsgHeader;
+import static org.icij.datashare.tasks.ExtractNlpTask.IN_FLIGHT_CHECKPOINT;
 import static org.icij.datashare.tasks.ExtractNlpTask.NB_MAX_POLLS;
+import static org.icij.datashare.tasks.PipelineTask.STRING_POISON;
 import static org.icij.datashare.text.DocumentBuilder.createDoc;
 import static org.icij.datashare.text.Language.ENGLISH;
+import static org.icij.datashare.text.NamedEntity.Category.PERSON;
+import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
+import static org.icij.datashare.text.nlp.Pipeline.Type.EMAIL;
 import static org.icij.datashare.text.Project.project;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -91,6 +116,131 @@ public class ExtractNlpTaskTest {
 
         verify(pipeline).initialize(ENGLISH);
         verify(pipeline).process(doc, 32, 0);
-        verify(pipeline).process(doc, 32, 32);
+        verify(pipeline).process(doc, 17, 16);
+    }
+
+    @Test
+    public void test_on_message_rollups_named_entities_of_all_chunks() throws Exception {
+        Repository repository = mock(Repository.class);
+        ExtractNlpTask nlpTask = new ExtractNlpTask(indexer, repository, pipeline, factory, null, new Task<>(ExtractNlpTask.class.getName(), User.local(),
+                Map.of("maxContentLength", "32")), null);
+        when(pipeline.initialize(any())).thenReturn(true);
+        when(pipeline.getType()).thenReturn(CORENLP);
+        Document doc = createDoc("huge_doc").with("0123456789abcdef0123456789abcdef+").build();
+        when(pipeline.process(doc, 32, 0)).thenReturn(List.of(NamedEntity.create(PERSON, "Jane", List.of(0L, 10L), doc.getId(), doc.getId(), CORENLP, ENGLISH)));
+        when(pipeline.process(doc, 17, 16)).thenReturn(List.of(NamedEntity.create(PERSON, "Jane", List.of(32L), doc.getId(), doc.getId(), CORENLP, ENGLISH)));
+        when(indexer.get("projectName", doc.getId())).thenReturn(doc);
+
+        nlpTask.findNamedEntities(project("projectName"), doc.getId());
+
+        verify(repository).rollupNamedEntities(project("projectName"), doc.getId(), CORENLP,
+                List.of(new NamedEntityRollup("jane", PERSON, 3)));
+    }
+
+    @Test
+    public void test_on_message_processNLP__when_doc_found_in_repository() throws Exception {
+        Repository repository = mock(Repository.class);
+        ExtractNlpTask nlpTask = new ExtractNlpTask(indexer, repository, pipeline, factory, null, new Task<>(ExtractNlpTask.class.getName(), User.local(),
+                Map.of("maxContentLength", "32")), null);
+        when(pipeline.initialize(any())).thenReturn(true);
+        when(pipeline.getType()).thenReturn(CORENLP);
+        Document doc = createDoc("content").build();
+        List<NamedEntity> namedEntities = List.of(NamedEntity.create(PERSON, "Jane", List.of(0L), doc.getId(), doc.getId(), CORENLP, ENGLISH));
+        when(pipeline.process(doc)).thenReturn(namedEntities);
+        when(repository.getDocuments(project("projectName"), List.of(doc.getId()))).thenReturn(List.of(doc));
+
+        nlpTask.findNamedEntities(project("projectName"), doc.getId());
+
+        verify(repository).tagWithPipeline(project("projectName"), CORENLP, doc.getId(), namedEntities);
+        verify(indexer, never()).bulkAdd(anyString(), any(), any(), any());
+    }
+
+    @Test
+    public void test_on_message_merges_entities_of_overlapping_chunks() throws Exception {
+        when(pipeline.initialize(any())).thenReturn(true);
+        when(pipeline.getType()).thenReturn(CORENLP);
+        Document doc = createDoc("huge_doc").with("0123456789abcdef0123456789abcdef+").build();
+        when(pipeline.process(doc, 32, 0)).thenReturn(List.of(NamedEntity.create(PERSON, "Jane", List.of(0L, 20L), doc.getId(), doc.getId(), CORENLP, ENGLISH)));
+        when(pipeline.process(doc, 17, 16)).thenReturn(List.of(NamedEntity.create(PERSON, "Jane", List.of(20L, 30L), doc.getId(), doc.getId(), CORENLP, ENGLISH)));
+        when(indexer.get("projectName", doc.getId())).thenReturn(doc);
+
+        nlpTask.findNamedEntities(project("projectName"), doc.getId());
+
+        verify(indexer).bulkAdd("projectName", CORENLP,
+                List.of(NamedEntity.create(PERSON, "Jane", List.of(0L, 20L, 30L), doc.getId(), doc.getId(), CORENLP, ENGLISH)), doc);
+    }
+
+    @Test
+    public void test_on_message_keeps_header_entities_of_large_email() throws Exception {
+        EmailPipeline emailPipeline = new EmailPipeline(new PropertiesProvider());
+        ExtractNlpTask nlpTask = new ExtractNlpTask(indexer, emailPipeline, factory, new Task<>(ExtractNlpTask.class.getName(), User.local(),
+                Map.of("maxContentLength", "32")), null);
+        Document doc = createDoc("huge_email").with("mail to jane@foo.com. mail to jane@foo.com.").ofContentType("message/rfc822")
+                .with(Map.of(tikaMsgHeader("To"), "jane@foo.com")).build();
+        when(indexer.get("projectName", doc.getId())).thenReturn(doc);
+
+        nlpTask.findNamedEntities(project("projectName"), doc.getId());
+
+        ArgumentCaptor<List<NamedEntity>> namedEntities = ArgumentCaptor.forClass(List.class);
+        verify(indexer).bulkAdd(eq("projectName"), eq(EMAIL), namedEntities.capture(), eq(doc));
+        assertThat(namedEntities.getValue()).hasSize(2);
+        assertThat(namedEntities.getValue()).containsOnly(emailPipeline.process(doc).toArray());
+        assertThat(namedEntities.getValue().stream().map(NamedEntity::getOffsets).collect(toList()))
+                .containsOnly(List.of(8L, 30L), List.of(-1L));
+    }
+
+    @Test(timeout = 3000)
+    public void test_call_saves_one_checkpoint_with_polled_documents() throws Exception {
+        TaskRepository repository = spy(new TaskRepositoryMemory());
+        Task<Long> taskView = new Task<>(ExtractNlpTask.class.getName(), User.local(), Map.of(POLLING_INTERVAL_SECONDS_OPT, "0.1"));
+        repository.insert(taskView, new Group(TaskGroupType.Test));
+        DocumentQueue<String> queue = factory.createQueue(new PipelineHelper(new PropertiesProvider()).getQueueNameFor(Stage.NLP), String.class);
+        queue.addAll(List.of("docId1", "docId2", "docId3", STRING_POISON));
+
+        assertThat(new ExtractNlpTask(indexer, pipeline, factory, repository, taskView, null).call()).isEqualTo(3);
+
+        verify(repository, times(1)).saveCheckpoint(taskView.id, Map.of(IN_FLIGHT_CHECKPOINT, List.of("docId1", "docId2", "docId3")));
+        assertThat(repository.getCheckpoint(taskView.id)).isEmpty();
+    }
+
+    @Test(timeout = 3000)
+    public void test_call_gives_back_the_documents_after_the_poison() throws Exception {
+        DocumentQueue<String> queue = factory.createQueue(new PipelineHelper(new PropertiesProvider()).getQueueNameFor(Stage.NLP), String.class);
+        queue.addAll(List.of("docId1", STRING_POISON, "docId2", STRING_POISON));
+
+        assertThat(new ExtractNlpTask(indexer, pipeline, factory, new Task<>(ExtractNlpTask.class.getName(), User.local(),
+                Map.of(POLLING_INTERVAL_SECONDS_OPT, "0.1")), null).call()).isEqualTo(1);
+
+        assertThat(List.copyOf(queue)).containsExactly("docId2", STRING_POISON);
+    }
+
+    @Test(timeout = 3000)
+    public void test_call_resumes_in_flight_document_from_checkpoint() throws Exception {
+        TaskRepository repository = new TaskRepositoryMemory();
+        Task<Long> taskView = new Task<>(ExtractNlpTask.class.getName(), User.local(), Map.of(POLLING_INTERVAL_SECONDS_OPT, "0.1"));
+        repository.insert(taskView, new Group(TaskGroupType.Test));
+        repository.saveCheckpoint(taskView.id, Map.of(IN_FLIGHT_CHECKPOINT, List.of("docId1", "docId2")));
+
+        new ExtractNlpTask(indexer, pipeline, factory, repository, taskView, null).call();
+
+        verify(indexer).get("local-datashare", "docId1");
+        verify(indexer).get("local-datashare", "docId2");
+    }
+
+    @Test(timeout = 3000)
+    public void test_call_goes_on_when_a_resumed_document_fails() throws Exception {
+        TaskRepository repository = new TaskRepositoryMemory();
+        Task<Long> taskView = new Task<>(ExtractNlpTask.class.getName(), User.local(), Map.of(POLLING_INTERVAL_SECONDS_OPT, "0.1"));
+        repository.insert(taskView, new Group(TaskGroupType.Test));
+        repository.saveCheckpoint(taskView.id, Map.of(IN_FLIGHT_CHECKPOINT, List.of("docId1", "docId2")));
+        when(indexer.get("local-datashare", "docId1")).thenThrow(new IllegalStateException("crash"));
+        DocumentQueue<String> queue = factory.createQueue(new PipelineHelper(new PropertiesProvider()).getQueueNameFor(Stage.NLP), String.class);
+        queue.addAll(List.of("docId3", STRING_POISON));
+
+        assertThat(new ExtractNlpTask(indexer, pipeline, factory, repository, taskView, null).call()).isEqualTo(2);
+
+        verify(indexer).get("local-datashare", "docId2");
+        verify(indexer).get("local-datashare", "docId3");
+        assertThat(repository.getCheckpoint(taskView.id)).isEmpty();
     }
 }
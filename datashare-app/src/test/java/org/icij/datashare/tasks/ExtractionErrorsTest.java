@@ -0,0 +1,77 @@
+package org.icij.datashare.tasks;
+
+import org.apache.tika.exception.EncryptedDocumentException;
+import org.apache.tika.exception.TikaException;
+import org.icij.datashare.ExtractionError;
+import org.icij.datashare.Repository;
+import org.icij.extract.extractor.ExtractionStatus;
+import org.icij.extract.report.HashMapReportMap;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.Project.project;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ExtractionErrorsTest {
+    private final Repository repository = mock(Repository.class);
+    private final ExtractionErrors errors = new ExtractionErrors(repository, project("prj"));
+
+    @Test
+    public void test_record_error() {
+        errors.record(Paths.get("/dir/file.pdf"), ExtractionStatus.FAILURE_NOT_PARSED, new TikaException("bad pdf"));
+
+        ArgumentCaptor<ExtractionError> captor = ArgumentCaptor.forClass(ExtractionError.class);
+        verify(repository).save(eq(project("prj")), captor.capture());
+        assertThat(captor.getValue().path()).isEqualTo("/dir/file.pdf");
+        assertThat(captor.getValue().directory()).isEqualTo("/dir");
+        assertThat(captor.getValue().contentType()).isEqualTo("application/pdf");
+        assertThat(captor.getValue().status()).isEqualTo("FAILURE_NOT_PARSED");
+        assertThat(captor.getValue().exceptionClass()).isEqualTo(TikaException.class.getName());
+        assertThat(captor.getValue().message()).isEqualTo("bad pdf");
+    }
+
+    @Test
+    public void test_record_error_does_not_throw_when_repository_fails() {
+        doThrow(new RuntimeException("db is down")).when(repository).save(any(), any(ExtractionError.class));
+
+        errors.record(Paths.get("/dir/file.pdf"), ExtractionStatus.FAILURE_UNKNOWN, new IllegalStateException());
+    }
+
+    @Test
+    public void test_status_of_exceptions() {
+        assertThat(ExtractionErrors.status(new NoSuchFileException("/file"))).isEqualTo(ExtractionStatus.FAILURE_NOT_FOUND);
+        assertThat(ExtractionErrors.status(new EncryptedDocumentException())).isEqualTo(ExtractionStatus.FAILURE_NOT_DECRYPTED);
+        assertThat(ExtractionErrors.status(new IOException(new TikaException("bad")))).isEqualTo(ExtractionStatus.FAILURE_NOT_PARSED);
+        assertThat(ExtractionErrors.status(new IOException())).isEqualTo(ExtractionStatus.FAILURE_UNREADABLE);
+        assertThat(ExtractionErrors.status(new IllegalStateException())).isEqualTo(ExtractionStatus.FAILURE_UNKNOWN);
+    }
+
+    @Test
+    public void test_content_type_from_file_name() {
+        assertThat(ExtractionErrors.contentType(Paths.get("/dir/image.PNG"))).isEqualTo("image/png");
+        assertThat(ExtractionErrors.contentType(Paths.get("/dir/unknown"))).isEqualTo(ExtractionError.UNKNOWN_CONTENT_TYPE);
+    }
+
+    @Test
+    public void test_recording_reporter_records_failures_only() {
+        HashMapReportMap reportMap = new HashMapReportMap();
+        ExtractionErrors.RecordingReporter reporter = new ExtractionErrors.RecordingReporter(reportMap, errors);
+
+        reporter.save(Paths.get("/dir/ok.txt"), ExtractionStatus.SUCCESS);
+        verify(repository, never()).save(any(), any(ExtractionError.class));
+
+        reporter.save(Paths.get("/dir/ko.txt"), ExtractionStatus.FAILURE_UNREADABLE, new IOException());
+        verify(repository).save(any(), any(ExtractionError.class));
+        assertThat(reportMap.get(Paths.get("/dir/ko.txt")).getStatus()).isEqualTo(ExtractionStatus.FAILURE_UNREADABLE);
+    }
+}
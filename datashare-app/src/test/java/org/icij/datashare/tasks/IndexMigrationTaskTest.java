@@ -0,0 +1,89 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.asynctasks.CancelException;
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration;
+import org.icij.datashare.user.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration.Mode.REINDEX;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration.Mode.SPLIT;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class IndexMigrationTaskTest {
+    @Mock ElasticsearchIndexMigration migration;
+    private final List<Double> progress = new ArrayList<>();
+
+    @Test
+    public void test_migrate_with_defaults() throws Exception {
+        Long result = createTask(Map.of("shards", 2)).call();
+
+        assertThat(result).isEqualTo(2);
+        verify(migration).migrate(eq("test-datashare"), eq(REINDEX), eq(2), eq("auto"), eq(-1L), any(), any());
+    }
+
+    @Test
+    public void test_migrate_with_options() throws Exception {
+        createTask(Map.of("shards", "4", "mode", "split", "slices", "2", "requestsPerSecond", 500)).call();
+
+        verify(migration).migrate(eq("test-datashare"), eq(SPLIT), eq(4), eq("2"), eq(500L), any(), any());
+    }
+
+    @Test
+    public void test_progress_is_reported() throws Exception {
+        when(migration.migrate(anyString(), any(), anyInt(), anyString(), anyLong(), any(), any())).thenAnswer(invocation -> {
+            invocation.<DoubleConsumer>getArgument(5).accept(0.5);
+            return "test-datashare-new";
+        });
+        IndexMigrationTask task = createTask(Map.of("shards", 2));
+
+        task.call();
+
+        assertThat(progress).containsOnly(0.5);
+        assertThat(task.getProgressRate()).isEqualTo(0.5);
+    }
+
+    @Test(expected = CancelException.class)
+    public void test_cancel_is_passed_to_migration() throws Exception {
+        when(migration.migrate(anyString(), any(), anyInt(), anyString(), anyLong(), any(), any())).thenAnswer(invocation -> {
+            if (invocation.<BooleanSupplier>getArgument(6).getAsBoolean()) {
+                throw new CancellationException();
+            }
+            return "test-datashare-new";
+        });
+        IndexMigrationTask task = createTask(Map.of("shards", 2));
+        task.cancel(true);
+
+        task.call();
+    }
+
+    private IndexMigrationTask createTask(Map<String, Object> args) {
+        Task<Long> taskView = new Task<>(IndexMigrationTask.class.getName(), User.local(), new HashMap<>(args) {{
+            put("project", "test-datashare");
+        }});
+        return new IndexMigrationTask(migration, taskView, p -> {progress.add(p); return null;});
+    }
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+}
@@ -47,6 +47,7 @@ class MockSearch<S extends Indexer.Searcher> {
     private void prepareSearcher(long length, Indexer.Searcher searcher) {
         when(searcher.with(anyInt(), anyBoolean())).thenReturn(searcher);
         when(searcher.withoutSource(any())).thenReturn(searcher);
+        when(searcher.withSource(anyString())).thenReturn(searcher);
         if (searcher instanceof Indexer.QueryBuilderSearcher) {
             when(((Indexer.QueryBuilderSearcher)searcher).withFieldValues(anyString())).thenReturn((Indexer.QueryBuilderSearcher) searcher);
             when(((Indexer.QueryBuilderSearcher)searcher).withPrefixQuery(anyString())).thenReturn((Indexer.QueryBuilderSearcher) searcher);
@@ -0,0 +1,106 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.tasks.ParallelismController.Decision;
+import org.icij.datashare.tasks.ParallelismController.Signals;
+import org.icij.datashare.text.indexing.elasticsearch.IndexingMetrics;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.stream.Collectors.toList;
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ParallelismControllerTest {
+    private static final IndexingMetrics.Snapshot NO_REQUEST = new IndexingMetrics.Snapshot(0, 0, 0);
+    private final AdaptiveExecutor executor = new AdaptiveExecutor(4, 1, 8);
+    private final AtomicReference<Signals> signals = new AtomicReference<>();
+    private final ParallelismController controller = new ParallelismController("test:queue", executor, signals::get, Duration.ofSeconds(1));
+
+    @Test
+    public void test_increase_when_workers_are_busy_and_queue_not_empty() {
+        signals.set(new Signals(100, 4, 0.3, 0.01, NO_REQUEST));
+        assertThat(controller.adjust()).isEqualTo(Decision.INCREASE);
+        assertThat(executor.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    public void test_hold_when_queue_is_empty() {
+        signals.set(new Signals(0, 4, 0.3, 0.01, NO_REQUEST));
+        assertThat(controller.adjust()).isEqualTo(Decision.HOLD);
+        assertThat(executor.getLimit()).isEqualTo(4);
+    }
+
+    @Test
+    public void test_decrease_on_heap_pressure() {
+        signals.set(new Signals(100, 4, 0.9, 0.01, NO_REQUEST));
+        assertThat(controller.adjust()).isEqualTo(Decision.DECREASE);
+        assertThat(executor.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_decrease_on_gc_pauses() {
+        signals.set(new Signals(100, 4, 0.3, 0.2, NO_REQUEST));
+        assertThat(controller.adjust()).isEqualTo(Decision.DECREASE);
+    }
+
+    @Test
+    public void test_decrease_on_elasticsearch_rejections_and_latency() {
+        signals.set(new Signals(100, 4, 0.3, 0.01, new IndexingMetrics.Snapshot(10, 20, 0)));
+        assertThat(controller.adjust()).isEqualTo(Decision.INCREASE);
+        signals.set(new Signals(100, 5, 0.3, 0.01, new IndexingMetrics.Snapshot(10, 20, 2)));
+        assertThat(controller.adjust()).isEqualTo(Decision.DECREASE);
+        signals.set(new Signals(100, 2, 0.3, 0.01, new IndexingMetrics.Snapshot(10, 100, 0)));
+        assertThat(controller.adjust()).isEqualTo(Decision.DECREASE);
+        assertThat(executor.getLimit()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_latency_baseline_follows_larger_documents() {
+        for (int i = 0; i < 3; i++) {
+            signals.set(new Signals(100, 0, 0.3, 0.01, new IndexingMetrics.Snapshot(100, 5, 0)));
+            assertThat(controller.adjust()).isEqualTo(Decision.HOLD);
+        }
+
+        signals.set(new Signals(100, 4, 0.3, 0.01, new IndexingMetrics.Snapshot(10, 50, 0)));
+        assertThat(controller.adjust()).isEqualTo(Decision.DECREASE);
+        for (int i = 0; i < 3; i++) {
+            signals.set(new Signals(100, executor.getLimit(), 0.3, 0.01, new IndexingMetrics.Snapshot(10, 50, 0)));
+            assertThat(controller.adjust()).isEqualTo(Decision.INCREASE);
+        }
+        assertThat(executor.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    public void test_hold_at_min_limit() {
+        executor.setLimit(1);
+        signals.set(new Signals(100, 1, 0.9, 0.01, NO_REQUEST));
+        assertThat(controller.adjust()).isEqualTo(Decision.HOLD);
+    }
+
+    @Test
+    public void test_open_metrics() {
+        signals.set(new Signals(100, 4, 0.3, 0.01, NO_REQUEST));
+        controller.start().adjust();
+
+        String metrics = ParallelismController.openMetrics();
+        assertThat(metrics)
+                .contains("# TYPE datashare_parallelism_limit gauge\ndatashare_parallelism_limit{task=\"test:queue\"} 5\n")
+                .contains("# TYPE datashare_parallelism_decisions_total counter\n")
+                .contains("datashare_parallelism_decisions_total{task=\"test:queue\",decision=\"increase\"} 1")
+                .contains("# TYPE datashare_parallelism_queue_depth gauge\ndatashare_parallelism_queue_depth{task=\"test:queue\"} 100\n");
+        List<String> samples = metrics.lines().filter(line -> !line.startsWith("#")).map(line -> line.substring(0, line.indexOf('{'))).distinct().collect(toList());
+        List<String> families = metrics.lines().filter(line -> line.startsWith("# TYPE ")).map(line -> line.split(" ")[2]).collect(toList());
+        assertThat(families).isEqualTo(samples);
+        controller.close();
+        assertThat(ParallelismController.openMetrics()).isEmpty();
+    }
+
+    @After
+    public void tearDown() {
+        controller.close();
+        executor.shutdownNow();
+    }
+}
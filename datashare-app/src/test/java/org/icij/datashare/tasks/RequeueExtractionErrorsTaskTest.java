@@ -0,0 +1,100 @@
+package org.icij.datashare.tasks;
+
+import org.icij.datashare.ExtractionError;
+import org.icij.datashare.Repository;
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.extract.MemoryDocumentCollectionFactory;
+import org.icij.datashare.user.User;
+import org.icij.extract.queue.DocumentQueue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.tasks.PipelineTask.PATH_POISON;
+import static org.icij.datashare.text.Project.project;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class RequeueExtractionErrorsTaskTest {
+    @Mock Repository repository;
+    @Mock DatashareTaskFactory taskFactory;
+    private final MemoryDocumentCollectionFactory<Path> documentCollectionFactory = new MemoryDocumentCollectionFactory<>();
+    private final ExtractionError.Filter pdfFilter = new ExtractionError.Filter(null, "application/pdf", null, null);
+    private final List<Path> indexedPaths = new ArrayList<>();
+
+    @Test
+    public void test_index_the_paths_of_the_errors_from_a_queue_of_the_task() throws Exception {
+        when(repository.getExtractionErrorPaths(eq(project("prj")), eq(pdfFilter), anyInt()))
+                .thenReturn(IntStream.range(0, 1500).mapToObj(i -> "/a/file" + i));
+        Date before = new Date();
+
+        assertThat(requeueTask().call()).isEqualTo(1500);
+
+        ArgumentCaptor<Task<Long>> indexTaskView = ArgumentCaptor.forClass(Task.class);
+        verify(taskFactory).createIndexTask(indexTaskView.capture(), any());
+        assertThat(indexTaskView.getValue().args.get("queueName")).isEqualTo("extract:queue:requeue:requeueTaskId");
+        assertThat(indexedPaths).hasSize(1501);
+        assertThat(indexedPaths.get(0).toString()).isEqualTo("/a/file0");
+        assertThat(indexedPaths.get(1500).equals(PATH_POISON)).isTrue();
+        ArgumentCaptor<Date> deleteDate = ArgumentCaptor.forClass(Date.class);
+        verify(repository).deleteExtractionErrors(eq(project("prj")), eq(pdfFilter), deleteDate.capture());
+        assertThat(deleteDate.getValue().before(before)).isFalse();
+        assertThat(documentCollectionFactory.queues.get("extract:queue:requeue:requeueTaskId:index")).isEmpty();
+    }
+
+    @Test
+    public void test_errors_are_kept_when_indexing_fails() throws Exception {
+        when(repository.getExtractionErrorPaths(eq(project("prj")), eq(pdfFilter), anyInt())).thenReturn(IntStream.range(0, 10).mapToObj(i -> "/a/file" + i));
+        IndexTask indexTask = mock(IndexTask.class);
+        when(indexTask.call()).thenThrow(new IOException("index error"));
+        when(taskFactory.createIndexTask(any(), any())).thenReturn(indexTask);
+
+        try {
+            requeueTask().call();
+        } catch (IOException e) {
+            assertThat(e.getMessage()).isEqualTo("index error");
+        }
+
+        verify(repository, never()).deleteExtractionErrors(any(), any(), any());
+        assertThat(documentCollectionFactory.queues.get("extract:queue:requeue:requeueTaskId:index")).isEmpty();
+    }
+
+    private RequeueExtractionErrorsTask requeueTask() {
+        Map<String, Object> args = new HashMap<>() {{
+            put("defaultProject", "prj");
+            put("queueName", "extract:queue");
+            put("contentType", "application/pdf");
+        }};
+        return new RequeueExtractionErrorsTask(repository, documentCollectionFactory, taskFactory,
+                new Task<>("requeueTaskId", RequeueExtractionErrorsTask.class.getName(), User.local(), args), p -> null);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+        IndexTask indexTask = mock(IndexTask.class);
+        when(indexTask.call()).then(invocation -> {
+            DocumentQueue<Path> queue = documentCollectionFactory.queues.get("extract:queue:requeue:requeueTaskId:index");
+            queue.drainTo(indexedPaths);
+            return (long) indexedPaths.size();
+        });
+        when(taskFactory.createIndexTask(any(), any())).thenReturn(indexTask);
+    }
+}
@@ -0,0 +1,139 @@
+package org.icij.datashare.tasks;
+
+import org.icij.concurrent.BlockingThreadPoolExecutor;
+import org.icij.extract.extractor.Extractor;
+import org.icij.spewer.Spewer;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.nio.file.Paths.get;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.tasks.SizeAwareDocumentConsumer.HUGE_COST;
+import static org.icij.datashare.tasks.SizeAwareDocumentConsumer.SMALL_COST;
+import static org.mockito.Mockito.mock;
+
+public class SizeAwareDocumentConsumerTest {
+    private final Spewer spewer = mock(Spewer.class);
+    private final List<Path> extracted = new CopyOnWriteArrayList<>();
+    private volatile Consumer<Path> extraction = extracted::add;
+    private final Extractor extractor = new Extractor() {
+        @Override
+        public void extract(Path path, Spewer spewer) {
+            extraction.accept(path);
+        }
+    };
+    private final Map<String, Long> costs = Map.of(
+            "small1", 10L, "small2", 10L, "small3", 10L,
+            "large", SMALL_COST * 10,
+            "huge1", HUGE_COST, "huge2", HUGE_COST, "huge3", HUGE_COST);
+
+    @Test(timeout = 5000)
+    public void test_extracts_all_paths() throws Exception {
+        SizeAwareDocumentConsumer consumer = createConsumer(2, 10);
+        for (String name : List.of("huge1", "small1", "large", "small2")) {
+            consumer.accept(get(name));
+        }
+        consumer.shutdown();
+
+        assertThat(consumer.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(extracted).hasSize(4);
+        assertThat(consumer.getProgressRate(0)).isEqualTo(1.0);
+    }
+
+    @Test(timeout = 5000)
+    public void test_huge_extractions_are_capped_and_small_documents_are_not_blocked() throws Exception {
+        CountDownLatch releaseHuge = new CountDownLatch(1);
+        AtomicInteger runningHuge = new AtomicInteger();
+        AtomicInteger maxRunningHuge = new AtomicInteger();
+        CountDownLatch smallDone = new CountDownLatch(3);
+        extraction = path -> {
+            if (path.toString().startsWith("huge")) {
+                maxRunningHuge.accumulateAndGet(runningHuge.incrementAndGet(), Math::max);
+                try {
+                    releaseHuge.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                runningHuge.decrementAndGet();
+            } else {
+                smallDone.countDown();
+            }
+            extracted.add(path);
+        };
+        SizeAwareDocumentConsumer consumer = createConsumer(4, 10);
+
+        for (String name : List.of("huge1", "huge2", "huge3", "small1", "small2", "small3")) {
+            consumer.accept(get(name));
+        }
+
+        assertThat(smallDone.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunningHuge.get()).isEqualTo(1);
+        assertThat(consumer.getProgressRate(0)).isLessThan(0.01);
+        releaseHuge.countDown();
+        consumer.shutdown();
+        assertThat(consumer.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(extracted).hasSize(6);
+    }
+
+    @Test(timeout = 5000)
+    public void test_huge_extractions_cap_follows_the_parallelism() throws Exception {
+        CountDownLatch releaseHuge = new CountDownLatch(1);
+        CountDownLatch firstHugeStarted = new CountDownLatch(1);
+        CountDownLatch twoHugeStarted = new CountDownLatch(2);
+        extraction = path -> {
+            if (path.toString().startsWith("huge")) {
+                firstHugeStarted.countDown();
+                twoHugeStarted.countDown();
+                try {
+                    releaseHuge.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            extracted.add(path);
+        };
+        AtomicInteger parallelism = new AtomicInteger(4);
+        SizeAwareDocumentConsumer consumer = new SizeAwareDocumentConsumer(spewer, extractor, new BlockingThreadPoolExecutor(8),
+                parallelism::get, path -> costs.get(path.toString()), 10);
+
+        for (String name : List.of("huge1", "huge2", "huge3")) {
+            consumer.accept(get(name));
+        }
+        assertThat(firstHugeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(twoHugeStarted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        parallelism.set(8);
+        assertThat(twoHugeStarted.await(2, TimeUnit.SECONDS)).isTrue();
+        releaseHuge.countDown();
+        consumer.shutdown();
+        assertThat(consumer.awaitTermination(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(extracted).hasSize(3);
+    }
+
+    @Test
+    public void test_extraction_caps() {
+        assertThat(SizeAwareDocumentConsumer.maxLargeExtractions(1)).isEqualTo(1);
+        assertThat(SizeAwareDocumentConsumer.maxHugeExtractions(1)).isEqualTo(1);
+        assertThat(SizeAwareDocumentConsumer.maxLargeExtractions(8)).isEqualTo(6);
+        assertThat(SizeAwareDocumentConsumer.maxHugeExtractions(8)).isEqualTo(2);
+    }
+
+    @Test
+    public void test_progress_includes_remaining_queue() {
+        SizeAwareDocumentConsumer consumer = createConsumer(2, 10);
+        assertThat(consumer.getProgressRate(10)).isEqualTo(0.0);
+    }
+
+    private SizeAwareDocumentConsumer createConsumer(int parallelism, int windowSize) {
+        return new SizeAwareDocumentConsumer(spewer, extractor, new BlockingThreadPoolExecutor(parallelism), () -> parallelism,
+                path -> costs.get(path.toString()), windowSize);
+    }
+}
@@ -3,7 +3,9 @@ package org.icij.datashare.tasks;
 import java.util.List;
 import java.util.function.Function;
 import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository;
 import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskRepository;
 import org.icij.datashare.asynctasks.TaskRepositoryMemory;
 import org.icij.datashare.extension.PipelineRegistry;
 import org.icij.datashare.extract.DocumentCollectionFactory;
@@ -43,7 +45,7 @@ public class TaskWorkerLoopForPipelineTasksTest {
     @Test
     public void test_index_task() throws Exception {
         Task<Long> task = new Task<>(IndexTask.class.getName(), User.local(), new HashMap<>());
-        IndexTask taskRunner = new IndexTask(spewer, mock(DocumentCollectionFactory.class), task, updateCallback);
+        IndexTask taskRunner = new IndexTask(spewer, mock(DocumentCollectionFactory.class), mock(Repository.class), task, updateCallback);
         when(taskFactory.createIndexTask(any(), any())).thenReturn(taskRunner);
 
         testTaskWithTaskRunner(task);
@@ -52,7 +54,7 @@ public class TaskWorkerLoopForPipelineTasksTest {
     @Test
     public void test_extract_nlp_task() throws Exception {
         Task<Long> task = new Task<>(ExtractNlpTask.class.getName(), User.local(), Map.of("nlpPipeline", "EMAIL"));
-        ExtractNlpTask taskRunner = new ExtractNlpTask(mock(Indexer.class), new PipelineRegistry(new PropertiesProvider()), mock(DocumentCollectionFactory.class), task, updateCallback);
+        ExtractNlpTask taskRunner = new ExtractNlpTask(mock(Indexer.class), mock(Repository.class), new PipelineRegistry(new PropertiesProvider()), mock(DocumentCollectionFactory.class), mock(TaskRepository.class), task, updateCallback);
         when(taskFactory.createExtractNlpTask(any(), any())).thenReturn(taskRunner);
 
         testTaskWithTaskRunner(task);
@@ -70,7 +72,7 @@ public class TaskWorkerLoopForPipelineTasksTest {
     @Test
     public void test_enqueue_from_index_task() throws Exception {
         Task<Long> task = new Task<>(EnqueueFromIndexTask.class.getName(), User.local(), Map.of("nlpPipeline", "EMAIL"));
-        EnqueueFromIndexTask taskRunner = new EnqueueFromIndexTask(mock(DocumentCollectionFactory.class), mock(Indexer.class), task, updateCallback);
+        EnqueueFromIndexTask taskRunner = new EnqueueFromIndexTask(mock(DocumentCollectionFactory.class), mock(Indexer.class), mock(TaskRepository.class), task, updateCallback);
         when(taskFactory.createEnqueueFromIndexTask(any(), any())).thenReturn(taskRunner);
 
         testTaskWithTaskRunner(task);
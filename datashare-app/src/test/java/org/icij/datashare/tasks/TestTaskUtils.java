@@ -18,6 +18,8 @@ public class TestTaskUtils {
         when(taskFactory.createDeduplicateTask(any(), any())).thenReturn(mock(DeduplicateTask.class));
         when(taskFactory.createBatchDownloadRunner(any(), any())).thenReturn(mock(BatchDownloadRunner.class));
         when(taskFactory.createBatchSearchRunner(any(), any())).thenReturn(mock(BatchSearchRunner.class));
+        when(taskFactory.createBulkAnnotationTask(any(), any())).thenReturn(mock(BulkAnnotationTask.class));
+        when(taskFactory.createIndexMigrationTask(any(), any())).thenReturn(mock(IndexMigrationTask.class));
         when(taskFactory.createScanIndexTask(any(), any())).thenReturn(mock(ScanIndexTask.class));
         when(taskFactory.createEnqueueFromIndexTask(any(), any())).thenReturn(mock(EnqueueFromIndexTask.class));
         when(taskFactory.createExtractNlpTask(any(), any())).thenReturn(mock(ExtractNlpTask.class));
@@ -0,0 +1,88 @@
+package org.icij.datashare.web;
+
+import org.icij.datashare.ExtractionError;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.Repository.Aggregate;
+import org.icij.datashare.Repository.AggregateList;
+import org.icij.datashare.asynctasks.TaskManager;
+import org.icij.datashare.db.JooqRepository;
+import org.icij.datashare.session.LocalUserFilter;
+import org.icij.datashare.tasks.RequeueExtractionErrorsTask;
+import org.icij.datashare.user.User;
+import org.icij.datashare.web.testhelpers.AbstractProdWebServerTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.Project.project;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ExtractionErrorResourceTest extends AbstractProdWebServerTest {
+    @Mock JooqRepository jooqRepository;
+    @Mock TaskManager taskManager;
+
+    @Test
+    public void test_forbidden_for_project() {
+        get("/api/project/extractionErrors").should().respond(403);
+        post("/api/project/extractionErrors/requeue").should().respond(403);
+    }
+
+    @Test
+    public void test_get_extraction_errors() {
+        when(jooqRepository.getExtractionErrors(project("local-datashare"), new ExtractionError.Filter("java.io.IOException", null, "/a", null), "/a/b.pdf", 20))
+                .thenReturn(List.of(ExtractionError.create(Paths.get("/a/file.pdf"), "application/pdf", "FAILURE_UNREADABLE", new IOException("unreadable"), new Date())));
+
+        get("/api/local-datashare/extractionErrors?exceptionClass=java.io.IOException&directory=/a&after=/a/b.pdf&size=20").should().respond(200)
+                .contain("\"path\":\"/a/file.pdf\"")
+                .contain("\"message\":\"unreadable\"");
+    }
+
+    @Test
+    public void test_aggregate_extraction_errors() {
+        when(jooqRepository.aggregateExtractionErrors(project("local-datashare"), ExtractionError.Field.CONTENT_TYPE, ExtractionError.Filter.ALL, 100))
+                .thenReturn(new AggregateList<>(List.of(new Aggregate<>("application/pdf", 12)), 15));
+
+        get("/api/local-datashare/extractionErrors/aggregate/contentType").should().respond(200)
+                .contain("\"item\":\"application/pdf\"")
+                .contain("\"count\":12")
+                .contain("\"totalCount\":15");
+    }
+
+    @Test
+    public void test_aggregate_extraction_errors_with_unknown_field() {
+        get("/api/local-datashare/extractionErrors/aggregate/foo").should().respond(400);
+    }
+
+    @Test
+    public void test_requeue_extraction_errors() throws Exception {
+        when(taskManager.startTask(eq(RequeueExtractionErrorsTask.class), any(), any())).thenReturn("taskId");
+
+        post("/api/local-datashare/extractionErrors/requeue?contentType=application/pdf").should().respond(200).contain("\"taskId\":\"taskId\"");
+
+        ArgumentCaptor<Map<String, Object>> args = ArgumentCaptor.forClass(Map.class);
+        verify(taskManager).startTask(eq(RequeueExtractionErrorsTask.class), eq(User.local()), args.capture());
+        assertThat(args.getValue().get("defaultProject")).isEqualTo("local-datashare");
+        assertThat(args.getValue().get("contentType")).isEqualTo("application/pdf");
+        assertThat(args.getValue().containsKey("exceptionClass")).isFalse();
+        assertThat(args.getValue().get("queueName").toString()).startsWith("extract:queue");
+    }
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        configure(routes -> routes.add(new ExtractionErrorResource(jooqRepository, taskManager, new PropertiesProvider())).
+                filter(new LocalUserFilter(new PropertiesProvider(), jooqRepository)));
+    }
+}
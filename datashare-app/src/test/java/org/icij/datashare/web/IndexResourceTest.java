@@ -73,6 +73,12 @@ public class IndexResourceTest extends AbstractProdWebServerTest {
         post("/api/index/search/unauthorized/_search").should().respond(401);
     }
 
+    @Test
+    public void test_no_auth_forward_elastic_error_with_its_body() {
+        configure(routes -> routes.add(new IndexResource(indexer)).filter(new LocalUserFilter(propertiesProvider, jooqRepository)));
+        get("/api/index/search/test-datashare/_doc/unknown_id").should().respond(500).contain("\"found\":false");
+    }
+
     @Test
     public void test_no_auth_options_forward_request_to_elastic() {
         configure(routes -> routes.add(new IndexResource(indexer)).filter(new LocalUserFilter(propertiesProvider, jooqRepository)));
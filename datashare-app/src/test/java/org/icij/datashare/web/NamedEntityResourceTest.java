@@ -6,6 +6,7 @@ import org.icij.datashare.db.JooqRepository;
 import org.icij.datashare.session.DatashareUser;
 import org.icij.datashare.session.LocalUserFilter;
 import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.web.testhelpers.AbstractProdWebServerTest;
 import org.junit.Before;
@@ -13,6 +14,7 @@ import org.junit.Test;
 import org.mockito.Mock;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static java.util.Collections.singletonList;
@@ -20,6 +22,7 @@ import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.text.Language.FRENCH;
 import static org.icij.datashare.text.NamedEntity.Category.PERSON;
 import static org.icij.datashare.text.NamedEntity.create;
+import static org.icij.datashare.text.Project.project;
 import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
 import static org.mockito.Mockito.*;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -42,7 +45,7 @@ public class NamedEntityResourceTest extends AbstractProdWebServerTest {
 
     @Test
     public void test_get_named_entity_in_prod_mode() {
-        configure(routes -> routes.add(new NamedEntityResource(indexer)).filter(new BasicAuthFilter("/", "icij", DatashareUser.singleUser("anne"))));
+        configure(routes -> routes.add(new NamedEntityResource(indexer, jooqRepository)).filter(new BasicAuthFilter("/", "icij", DatashareUser.singleUser("anne"))));
         NamedEntity toBeReturned = create(PERSON, "mention", singletonList(123L), "docId", "root", CORENLP, FRENCH);
         doReturn(toBeReturned).when(indexer).get("anne-datashare", "my_id", "root_parent");
 
@@ -62,6 +65,30 @@ public class NamedEntityResourceTest extends AbstractProdWebServerTest {
         put("/api/index/namedEntities/hide/to_update").should().respond(200);
 
         verify(indexer).bulkUpdate("index", singletonList(toBeHidden));
+        verify(jooqRepository).hideNamedEntities(project("index"), "to_update");
+    }
+
+    @Test
+    public void test_get_top_named_entity_rollups() {
+        doReturn(List.of(new NamedEntityRollup("jane", PERSON, 12, 3, false))).when(jooqRepository)
+                .getNamedEntityRollups(project("index"), PERSON, "ja", false, 10, 20);
+
+        get("/api/index/namedEntities/rollups/top?category=PERSON&prefix=ja&from=10&size=20").should().respond(200)
+                .contain("\"mentionNorm\":\"jane\"").contain("\"mentionCount\":12").contain("\"documentCount\":3");
+    }
+
+    @Test
+    public void test_get_top_named_entity_rollups_with_defaults() {
+        get("/api/index/namedEntities/rollups/top").should().respond(200);
+
+        verify(jooqRepository).getNamedEntityRollups(project("index"), null, null, false, 0, 100);
+    }
+
+    @Test
+    public void test_get_document_named_entity_rollups() {
+        doReturn(List.of(new NamedEntityRollup("jane", PERSON, 2))).when(jooqRepository).getNamedEntityRollups(project("index"), "docId");
+
+        get("/api/index/namedEntities/rollups/documents/docId").should().respond(200).contain("\"mentionNorm\":\"jane\"");
     }
 
     @Test
@@ -76,6 +103,6 @@ public class NamedEntityResourceTest extends AbstractProdWebServerTest {
         initMocks(this);
         PropertiesProvider propertiesProvider = new PropertiesProvider();
         LocalUserFilter localUserFilter = new LocalUserFilter(propertiesProvider, jooqRepository);
-        configure(routes -> routes.add(new NamedEntityResource(indexer)).filter(localUserFilter));
+        configure(routes -> routes.add(new NamedEntityResource(indexer, jooqRepository)).filter(localUserFilter));
     }
 }
@@ -3,6 +3,7 @@ package org.icij.datashare.web;
 import net.codestory.http.convert.TypeConvert;
 import net.codestory.rest.Response;
 import org.icij.datashare.extension.PipelineRegistry;
+import org.icij.datashare.nlp.NerBatcher;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.DocumentBuilder;
 import org.icij.datashare.text.NamedEntity;
@@ -17,6 +18,7 @@ import org.mockito.Mock;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 
 import static java.util.Collections.emptyList;
 import static org.fest.assertions.Assertions.assertThat;
@@ -25,8 +27,11 @@ import static org.icij.datashare.CollectionUtils.asSet;
 import static org.icij.datashare.text.Language.ENGLISH;
 import static org.icij.datashare.text.nlp.Pipeline.Type.CORENLP;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.openMocks;
 
@@ -35,6 +40,7 @@ public class NerResourceTest extends AbstractProdWebServerTest {
     @Mock PipelineRegistry registry;
 
     private static AutoCloseable openMocks;
+    private NerBatcher nerBatcher;
 
 
     @Before
@@ -42,12 +48,14 @@ public class NerResourceTest extends AbstractProdWebServerTest {
         openMocks = openMocks(this);
         doReturn(true).when(pipeline).initialize(any());
         doReturn(pipeline).when(registry).get(any());
-        NerResource nerResource = new NerResource(registry, l -> ENGLISH);
+        nerBatcher = new NerBatcher(registry, 4, 5, 2, 10_000);
+        NerResource nerResource = new NerResource(registry, l -> ENGLISH, nerBatcher);
         configure(routes -> routes.add(nerResource));
     }
 
     @After
     public void teardown() throws Exception {
+        nerBatcher.close();
         openMocks.close();
     }
 
@@ -86,4 +94,89 @@ public class NerResourceTest extends AbstractProdWebServerTest {
                 entry("offsets", List.of(10))
         );
     }
+
+    @Test
+    public void test_post_text_with_ndjson_accept_streams_one_entity_per_line() throws Exception {
+        Document doc = DocumentBuilder.createDoc("inline").with("Jane and John").with(ENGLISH).build();
+        doReturn(List.of(NamedEntity.create(NamedEntity.Category.PERSON, "Jane", List.of(0L), doc.getId(), "root", CORENLP, ENGLISH),
+                NamedEntity.create(NamedEntity.Category.PERSON, "John", List.of(9L), doc.getId(), "root", CORENLP, ENGLISH))).when(pipeline).process(eq(doc));
+
+        Response response = post("/api/ner/findNames/CORENLP", doc.getContent()).withHeader("Accept", "application/x-ndjson").response();
+
+        assertThat(response.contentType()).contains("application/x-ndjson");
+        String[] lines = response.content().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat((Map<?, ?>) TypeConvert.fromJson(lines[0], Map.class)).includes(entry("mention", "Jane"));
+        assertThat((Map<?, ?>) TypeConvert.fromJson(lines[1], Map.class)).includes(entry("mention", "John"));
+    }
+
+    @Test
+    public void test_post_text_when_queue_is_full_returns_503() throws Exception {
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            processing.countDown();
+            release.await();
+            return emptyList();
+        }).when(pipeline).process(any());
+        try {
+            nerBatcher.submit(CORENLP, ENGLISH, "first");
+            processing.await();
+            nerBatcher.submit(CORENLP, ENGLISH, "second");
+            nerBatcher.submit(CORENLP, ENGLISH, "third");
+
+            post("/api/ner/findNames/CORENLP", "fourth").should().respond(503).haveHeader("Retry-After", "1").contain("is full");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void test_post_ndjson_batch_streams_entities_in_order() throws Exception {
+        doAnswer(invocation -> {
+            Document doc = invocation.getArgument(0);
+            return List.of(NamedEntity.create(NamedEntity.Category.PERSON, doc.getContent(), List.of(0L), doc.getId(), "root", CORENLP, ENGLISH));
+        }).when(pipeline).process(any());
+
+        Response response = post("/api/ner/findNamesBatch/CORENLP", "{\"id\": \"a\", \"text\": \"Jane\"}\n{\"id\": \"b\", \"text\": \"John\"}\n").response();
+
+        String[] lines = response.content().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":\"a\",\"entities\":[").contains("\"mention\":\"Jane\"");
+        assertThat(lines[1]).startsWith("{\"id\":\"b\",\"entities\":[").contains("\"mention\":\"John\"");
+    }
+
+    @Test
+    public void test_post_ndjson_batch_with_bad_line_returns_400() {
+        post("/api/ner/findNamesBatch/CORENLP", "{\"id\": \"a\"}").should().respond(400).contain("missing text");
+    }
+
+    @Test
+    public void test_post_ndjson_batch_is_not_queued_when_queue_cannot_take_all_texts() throws Exception {
+        CountDownLatch processing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            processing.countDown();
+            release.await();
+            return emptyList();
+        }).when(pipeline).process(any());
+        try {
+            nerBatcher.submit(CORENLP, ENGLISH, "first");
+            processing.await();
+            nerBatcher.submit(CORENLP, ENGLISH, "second");
+
+            post("/api/ner/findNamesBatch/CORENLP", "{\"text\": \"a\"}\n{\"text\": \"b\"}").should().respond(503);
+        } finally {
+            release.countDown();
+        }
+        nerBatcher.submit(CORENLP, ENGLISH, "last").get();
+        verify(pipeline, never()).process(argThat((Document doc) -> "a".equals(doc.getContent())));
+    }
+
+    @Test
+    public void test_post_ndjson_batch_with_more_texts_than_queue_size_returns_413() throws Exception {
+        post("/api/ner/findNamesBatch/CORENLP", "{\"text\": \"a\"}\n{\"text\": \"b\"}\n{\"text\": \"c\"}").should().respond(413).contain("up to 2 texts");
+
+        verify(pipeline, never()).process(any());
+    }
 }
@@ -0,0 +1,97 @@
+package org.icij.datashare.web;
+
+import net.codestory.http.Context;
+import net.codestory.http.constants.HttpStatus;
+import net.codestory.http.filters.PayloadSupplier;
+import net.codestory.http.payload.Payload;
+import org.icij.datashare.web.Readiness.Dependency;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ReadinessFilterTest {
+    private final Payload next = Payload.ok();
+    private final PayloadSupplier nextFilter = () -> next;
+    private final Context context = mock(Context.class);
+    private final AtomicBoolean indexUp = new AtomicBoolean(false);
+    private final AtomicBoolean databaseUp = new AtomicBoolean(true);
+    private final Readiness readiness = new Readiness(Map.of(
+            Dependency.INDEX, (Callable<Boolean>) indexUp::get,
+            Dependency.DATABASE, (Callable<Boolean>) databaseUp::get), Duration.ofHours(1), 2);
+    private final ReadinessFilter filter = new ReadinessFilter(readiness);
+
+    @After
+    public void tearDown() { readiness.close(); }
+
+    @Test
+    public void test_wait_for_index() throws Exception {
+        readiness.probe(Dependency.INDEX);
+        Payload payload = filter.apply("/", context, nextFilter);
+
+        assertThat(payload.code()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(payload.rawContentType()).isEqualTo("text/html");
+        assertThat((String) payload.rawContent()).contains("waiting for Datashare to be up...");
+
+        indexUp.set(true);
+        readiness.probe(Dependency.INDEX);
+        assertThat(filter.apply("/", context, nextFilter)).isSameAs(next);
+    }
+
+    @Test
+    public void test_api_status_endpoint_should_return_status() throws Exception {
+        assertThat(filter.apply("/api/status", context, nextFilter).code()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    public void test_rejects_requests_needing_an_unavailable_dependency() throws Exception {
+        indexUp.set(true);
+        readiness.probe(Dependency.INDEX);
+        databaseUp.set(false);
+        readiness.probe(Dependency.DATABASE);
+        readiness.probe(Dependency.DATABASE);
+
+        Payload payload = filter.apply("/api/batch/search", context, nextFilter);
+        assertThat(payload.code()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(payload.headers().get("Retry-After")).isEqualTo("3600");
+        assertThat(filter.apply("/api/index/search/prj/_search", context, nextFilter)).isSameAs(next);
+
+        databaseUp.set(true);
+        readiness.probe(Dependency.DATABASE);
+        assertThat(filter.apply("/api/batch/search", context, nextFilter)).isSameAs(next);
+    }
+
+    @Test
+    public void test_connection_failures_open_the_breaker() throws Exception {
+        indexUp.set(true);
+        readiness.probe(Dependency.INDEX);
+        PayloadSupplier failing = () -> { throw new RuntimeException(new ConnectException("refused")); };
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                filter.apply("/api/prj/documents/docId", context, failing);
+                fail("exception should be thrown");
+            } catch (RuntimeException expected) {}
+        }
+
+        assertThat(filter.apply("/api/prj/documents/docId", context, nextFilter).code()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    public void test_dependency_of_uri() {
+        assertThat(ReadinessFilter.dependencyOf("/api/index/search/prj/_search?scroll=1m")).isEqualTo(Optional.of(Dependency.INDEX));
+        assertThat(ReadinessFilter.dependencyOf("/api/prj/namedEntities/id")).isEqualTo(Optional.of(Dependency.INDEX));
+        assertThat(ReadinessFilter.dependencyOf("/api/task/batchUpdate/index")).isEqualTo(Optional.of(Dependency.TASK_MANAGER));
+        assertThat(ReadinessFilter.dependencyOf("/api/users/me/history")).isEqualTo(Optional.of(Dependency.DATABASE));
+        assertThat(ReadinessFilter.dependencyOf("/api/settings")).isEqualTo(Optional.empty());
+    }
+}
@@ -0,0 +1,58 @@
+package org.icij.datashare.web;
+
+import org.icij.datashare.Repository;
+import org.icij.datashare.asynctasks.TaskManager;
+import org.icij.datashare.text.indexing.Indexer;
+import org.icij.datashare.web.Readiness.Dependency;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReadinessTest {
+    @Test(timeout = 20000)
+    public void test_probes_run_in_background() throws Exception {
+        Indexer indexer = mock(Indexer.class);
+        Repository repository = mock(Repository.class);
+        TaskManager taskManager = mock(TaskManager.class);
+        when(indexer.ping()).thenReturn(true);
+        when(repository.getHealth()).thenReturn(true);
+        when(taskManager.getHealth()).thenThrow(new IOException("broker is down"));
+
+        try (Readiness readiness = new Readiness(indexer, repository, taskManager)) {
+            while (!readiness.isStarted() || readiness.isAvailable(Dependency.TASK_MANAGER)) {
+                Thread.sleep(50);
+            }
+            assertThat(readiness.isAvailable(Dependency.DATABASE)).isTrue();
+            assertThat(readiness.isAvailable(Dependency.INDEX)).isTrue();
+        }
+    }
+
+    @Test
+    public void test_breaker_opens_after_threshold_and_closes_on_success() {
+        Readiness readiness = new Readiness(Map.of(Dependency.DATABASE, (Callable<Boolean>) () -> true), Duration.ofHours(1), 3);
+
+        readiness.recordFailure(Dependency.DATABASE);
+        readiness.recordFailure(Dependency.DATABASE);
+        assertThat(readiness.isAvailable(Dependency.DATABASE)).isTrue();
+        readiness.recordFailure(Dependency.DATABASE);
+        assertThat(readiness.isAvailable(Dependency.DATABASE)).isFalse();
+
+        readiness.probe(Dependency.DATABASE);
+        assertThat(readiness.isAvailable(Dependency.DATABASE)).isTrue();
+        readiness.close();
+    }
+
+    @Test
+    public void test_dependency_without_probe_is_available() {
+        Readiness readiness = new Readiness(Map.of(), Duration.ofHours(1), 1);
+        assertThat(readiness.isAvailable(Dependency.INDEX)).isTrue();
+        readiness.close();
+    }
+}
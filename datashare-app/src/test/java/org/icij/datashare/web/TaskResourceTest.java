@@ -508,6 +508,49 @@ public class TaskResourceTest extends AbstractProdWebServerTest {
         assertThat(taskManager.getTask(taskResponse.taskId())).isNotNull();
     }
 
+    @Test
+    public void test_bulk_annotate() throws Exception {
+        Response response = post("/api/task/batchUpdate/annotate/test-datashare", "{\"options\":{ \"query\": {\"match_all\":{}}, \"action\": \"tag\", \"labels\": [\"foo\"] }}").response();
+
+        assertThat(response.contentType()).startsWith("application/json");
+        TaskResource.TaskResponse taskResponse = MAPPER.readValue(response.content(), TaskResource.TaskResponse.class);
+        Task<?> task = taskManager.getTask(taskResponse.taskId());
+        assertThat(task.args).includes(entry("project", "test-datashare"), entry("action", "TAG"), entry("query", "{\"match_all\":{}}"));
+    }
+
+    @Test
+    public void test_bulk_annotate_with_unknown_action() {
+        post("/api/task/batchUpdate/annotate/test-datashare", "{\"options\":{ \"query\": \"*\", \"action\": \"delete\" }}").should().respond(400);
+    }
+
+    @Test
+    public void test_bulk_annotate_a_project_not_granted() {
+        post("/api/task/batchUpdate/annotate/other-project", "{\"options\":{ \"query\": \"*\", \"action\": \"tag\", \"labels\": [\"foo\"] }}").should().respond(403);
+    }
+
+    @Test
+    public void test_migrate_index() throws Exception {
+        Response response = post("/api/task/batchUpdate/migrate/test-datashare", "{\"options\":{ \"shards\": 4, \"mode\": \"split\" }}").response();
+
+        assertThat(response.contentType()).startsWith("application/json");
+        TaskResource.TaskResponse taskResponse = MAPPER.readValue(response.content(), TaskResource.TaskResponse.class);
+        Task<?> task = taskManager.getTask(taskResponse.taskId());
+        assertThat(task.args).includes(entry("project", "test-datashare"), entry("mode", "SPLIT"), entry("shards", 4),
+                entry("slices", "auto"), entry("requestsPerSecond", -1));
+    }
+
+    @Test
+    public void test_migrate_index_of_a_project_not_granted() {
+        post("/api/task/batchUpdate/migrate/other-project", "{\"options\":{ \"shards\": 2 }}").should().respond(403);
+    }
+
+    @Test
+    public void test_migrate_index_with_bad_options() {
+        post("/api/task/batchUpdate/migrate/test-datashare", "{\"options\":{ \"mode\": \"reindex\" }}").should().respond(400);
+        post("/api/task/batchUpdate/migrate/test-datashare", "{\"options\":{ \"shards\": 0 }}").should().respond(400);
+        post("/api/task/batchUpdate/migrate/test-datashare", "{\"options\":{ \"shards\": 2, \"mode\": \"shrink\" }}").should().respond(400);
+    }
+
     @Test
     public void test_batch_download_multiple_projects() throws Exception {
         Response response = post("/api/task/batchDownload", "{\"options\":{ \"projectIds\":[\"project1\", \"project2\"], \"query\": \"*\" }}").response();
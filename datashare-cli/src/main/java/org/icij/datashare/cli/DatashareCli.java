@@ -121,10 +121,13 @@ public class DatashareCli {
         DatashareCliOptions.stages(parser);
         DatashareCliOptions.dataDir(parser);
         DatashareCliOptions.artifactDir(parser);
+        DatashareCliOptions.contentStoreDir(parser);
         DatashareCliOptions.enableOcr(parser);
         DatashareCliOptions.language(parser);
         DatashareCliOptions.ocrLanguage(parser);
         DatashareCliOptions.ocrType(parser);
+        DatashareCliOptions.ocrCache(parser);
+        DatashareCliOptions.extractionStore(parser);
         DatashareCliOptions.nlpPipeline(parser);
         DatashareCliOptions.nlpMaxTextLength(parser);
         DatashareCliOptions.nlpBatchSize(parser);
@@ -140,11 +143,20 @@ public class DatashareCli {
         DatashareCliOptions.elasticsearchDataPath(parser);
         DatashareCliOptions.reportName(parser);
         DatashareCliOptions.parallelism(parser);
+        DatashareCliOptions.maxParallelism(parser);
         DatashareCliOptions.fileParserParallelism(parser);
         DatashareCliOptions.nlpParallelism(parser);
+        DatashareCliOptions.nlpChunkOverlap(parser);
+        DatashareCliOptions.nlpChunkParallelism(parser);
+        DatashareCliOptions.nlpWorkerSocket(parser);
+        DatashareCliOptions.nerBatchSize(parser);
+        DatashareCliOptions.nerBatchWait(parser);
+        DatashareCliOptions.nerQueueSize(parser);
+        DatashareCliOptions.nerTimeout(parser);
         DatashareCliOptions.followSymlinks(parser);
         DatashareCliOptions.enableBrowserOpenLink(parser);
         DatashareCliOptions.embeddedDocumentDownloadMaxSize(parser);
+        DatashareCliOptions.searchProxyMaxBodySize(parser);
         DatashareCliOptions.batchSearchMaxTime(parser);
         DatashareCliOptions.batchThrottle(parser);
         DatashareCliOptions.batchQueueType(parser);
@@ -163,6 +175,10 @@ public class DatashareCli {
         DatashareCliOptions.defaultProject(parser);
         DatashareCliOptions.oauthClaimIdAttribute(parser);
         DatashareCliOptions.esHost(parser);
+        DatashareCliOptions.indexShards(parser);
+        DatashareCliOptions.expectedDocuments(parser);
+        DatashareCliOptions.indexReplicas(parser);
+        DatashareCliOptions.indexAlias(parser);
         DatashareCliOptions.queueName(parser);
         DatashareCliOptions.cors(parser);
         DatashareCliOptions.queueType(parser);
@@ -44,6 +44,7 @@ public final class DatashareCliOptions {
     public static final String BUS_TYPE_OPT = "busType";
     public static final String CHARSET_OPT = "charset";
     public static final String CLUSTER_NAME_OPT = "clusterName";
+    public static final String CONTENT_STORE_DIR_OPT = "contentStoreDir";
     public static final String CORS_OPT = "cors";
     public static final String CREATE_INDEX_OPT = "createIndex";
     public static final String CRE_API_KEY_ABBR_OPT = "k";
@@ -62,28 +63,41 @@ public final class DatashareCliOptions {
     public static final String ELASTICSEARCH_ADDRESS_OPT = "elasticsearchAddress";
     public static final String ELASTICSEARCH_DATA_PATH_OPT = "elasticsearchDataPath";
     public static final String EMBEDDED_DOCUMENT_DOWNLOAD_MAX_SIZE_OPT = "embeddedDocumentDownloadMaxSize";
+    public static final String EXPECTED_DOCUMENTS_OPT = "expectedDocuments";
     public static final String EXTENSIONS_DIR_OPT = "extensionsDir";
     public static final String EXTENSION_DELETE_OPT = "extensionDelete";
     public static final String EXTENSION_INSTALL_OPT = "extensionInstall";
     public static final String EXTENSION_LIST_OPT = "extensionList";
     public static final String EXT_OPT = "ext";
+    public static final String EXTRACTION_STORE_OPT = "extractionStore";
     public static final String FOLLOW_SYMLINKS_OPT = "followSymlinks";
     public static final String GET_API_KEY_OPT = "apiKey";
     public static final String HELP_ABBR_OPT = "h";
     public static final String HELP_OPT = "help";
+    public static final String INDEX_ALIAS_OPT = "indexAlias";
+    public static final String INDEX_REPLICAS_OPT = "indexReplicas";
+    public static final String INDEX_SHARDS_OPT = "indexShards";
     public static final String LANGUAGE_ABBR_OPT = "l";
     public static final String LANGUAGE_OPT = "language";
     public static final String LOG_LEVEL_OPT = "logLevel";
     public static final String MAX_CONTENT_LENGTH_OPT = "maxContentLength";
+    public static final String MAX_PARALLELISM_OPT = "maxParallelism";
     public static final String MESSAGE_BUS_OPT = "messageBusAddress";
     public static final String MODE_ABBR_OPT = "m";
     public static final String MODE_OPT = "mode";
+    public static final String NER_BATCH_SIZE_OPT = "nerBatchSize";
+    public static final String NER_BATCH_WAIT_OPT = "nerBatchWaitMilliseconds";
+    public static final String NER_QUEUE_SIZE_OPT = "nerQueueSize";
+    public static final String NER_TIMEOUT_OPT = "nerTimeoutMilliseconds";
     public static final String NLP_BATCH_SIZE_OPT = "batchSize";
+    public static final String NLP_CHUNK_OVERLAP_OPT = "nlpChunkOverlap";
+    public static final String NLP_CHUNK_PARALLELISM_OPT = "nlpChunkParallelism";
     public static final String NLP_PARALLELISM_ABBR_OPT = "np";
     public static final String NLP_MAX_TEXT_LENGTH_OPT = "maxTextLength";
     public static final String NLP_PARALLELISM_OPT = "nlpParallelism";
     public static final String NLP_PIPELINE_ABBR_OPT = "nlpp";
     public static final String NLP_PIPELINE_OPT = "nlpPipeline";
+    public static final String NLP_WORKER_SOCKET_OPT = "nlpWorkerSocket";
     public static final String NO_DIGEST_PROJECT_OPT = "noDigestProject";
     public static final String OAUTH_API_URL_OPT = "oauthApiUrl";
     public static final String OAUTH_AUTHORIZE_URL_OPT = "oauthAuthorizeUrl";
@@ -94,6 +108,7 @@ public final class DatashareCliOptions {
     public static final String OAUTH_SCOPE_OPT = "oauthScope";
     public static final String OAUTH_TOKEN_URL_OPT = "oauthTokenUrl";
     public static final String OCR_ABBR_OPT = "o";
+    public static final String OCR_CACHE_OPT = "ocrCache";
     public static final String OCR_LANGUAGE_OPT = "ocrLanguage";
     public static final String OCR_OPT = "ocr";
     public static final String OCR_TYPE_OPT = "ocrType";
@@ -127,6 +142,7 @@ public final class DatashareCliOptions {
     public static final String VERSION_OPT = "version";
     public static final String ARTIFACT_DIR_OPT = "artifactDir";
     public static final String SEARCH_QUERY_OPT = "searchQuery";
+    public static final String SEARCH_PROXY_MAX_BODY_SIZE_OPT = "searchProxyMaxBodySize";
     public static final String TASK_ROUTING_STRATEGY_OPT = "taskRoutingStrategy";
     public static final String TASK_ROUTING_KEY_OPT = "taskRoutingKey";
     public static final String OAUTH_USER_PROJECTS_KEY_OPT = "oauthUserProjectsAttribute";
@@ -137,6 +153,11 @@ public final class DatashareCliOptions {
 
     private static final Path DEFAULT_DATASHARE_HOME = Paths.get(System.getProperty("user.home"), ".local/share/datashare");
     private static final Integer DEFAULT_NLP_PARALLELISM = 1;
+    public static final int DEFAULT_NLP_CHUNK_OVERLAP = 1000;
+    public static final int DEFAULT_NER_BATCH_SIZE = 16;
+    public static final long DEFAULT_NER_BATCH_WAIT_MS = 5;
+    public static final int DEFAULT_NER_QUEUE_SIZE = 256;
+    public static final long DEFAULT_NER_TIMEOUT_MS = 60_000;
     private static final Integer DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors() == 1 ? 2 : Runtime.getRuntime().availableProcessors();
     private static final Integer DEFAULT_PARSER_PARALLELISM = 1;
     public static final DigestAlgorithm DEFAULT_DIGEST_METHOD = DigestAlgorithm.SHA_384;
@@ -158,6 +179,7 @@ public final class DatashareCliOptions {
     public static final String DEFAULT_ELASTICSEARCH_ADDRESS = "http://elasticsearch:9200";
     public static final String DEFAULT_ELASTICSEARCH_DATA_PATH = DEFAULT_DATASHARE_HOME.resolve("es").toString();
     public static final String DEFAULT_EMBEDDED_DOCUMENT_DOWNLOAD_MAX_SIZE = "1G";
+    public static final String DEFAULT_SEARCH_PROXY_MAX_BODY_SIZE = "10M";
     public static final String DEFAULT_EXTENSIONS_DIR = DEFAULT_DATASHARE_HOME.resolve("extensions").toString();
     public static final boolean DEFAULT_FOLLOW_SYMLINKS = true;
     public static final String DEFAULT_LOG_LEVEL = Level.INFO.toString();
@@ -378,6 +400,13 @@ public final class DatashareCliOptions {
                 .withRequiredArg();
     }
 
+    static void contentStoreDir(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(CONTENT_STORE_DIR_OPT),
+                "Directory where extracted texts are stored compressed for random access reads. If not provided datashare will read them from the index." )
+                .withRequiredArg();
+    }
+
     static void rootHost(OptionParser parser) {
             parser.acceptsAll(
                     singletonList(ROOT_HOST_OPT),
@@ -460,6 +489,71 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_NLP_BATCH_SIZE);
     }
 
+    static void nlpChunkOverlap(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NLP_CHUNK_OVERLAP_OPT),
+                "Number of chars shared by two consecutive chunks of a document larger than maxContentLength " +
+                        "(rounded to sentences), so that entities are not cut at chunk boundaries.")
+                .withRequiredArg()
+                .ofType( Integer.class )
+                .defaultsTo(DEFAULT_NLP_CHUNK_OVERLAP);
+    }
+
+    static void nlpChunkParallelism(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NLP_CHUNK_PARALLELISM_OPT),
+                "Number of chunks of a document larger than maxContentLength processed in parallel by the NLP pipeline.")
+                .withRequiredArg()
+                .ofType( Integer.class )
+                .defaultsTo(DEFAULT_PARALLELISM);
+    }
+
+    static void nlpWorkerSocket(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NLP_WORKER_SOCKET_OPT),
+                "Path of the Unix domain socket where the NLP workers of the same host can connect (with AMQP queue type). " +
+                        "NLP tasks are sent to them while they have room for it, and to the AMQP broker otherwise.")
+                .withRequiredArg()
+                .withValuesConvertedBy(toAbsolute());
+    }
+
+    static void nerBatchSize(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NER_BATCH_SIZE_OPT),
+                "Max number of name finding requests of the same pipeline and language processed in one batch (NER mode).")
+                .withRequiredArg()
+                .ofType( Integer.class )
+                .defaultsTo(DEFAULT_NER_BATCH_SIZE);
+    }
+
+    static void nerBatchWait(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NER_BATCH_WAIT_OPT),
+                "Max time in milliseconds waiting for other name finding requests to fill a batch (NER mode).")
+                .withRequiredArg()
+                .ofType( Long.class )
+                .defaultsTo(DEFAULT_NER_BATCH_WAIT_MS);
+    }
+
+    static void nerQueueSize(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NER_QUEUE_SIZE_OPT),
+                "Max number of waiting name finding requests per pipeline and language, " +
+                        "requests are rejected with HTTP 503 and a Retry-After header beyond (NER mode).")
+                .withRequiredArg()
+                .ofType( Integer.class )
+                .defaultsTo(DEFAULT_NER_QUEUE_SIZE);
+    }
+
+    static void nerTimeout(OptionParser parser) {
+        parser.acceptsAll(
+                List.of(NER_TIMEOUT_OPT),
+                "Max time in milliseconds of a name finding request, including its wait in queue (NER mode).")
+                .withRequiredArg()
+                .ofType( Long.class )
+                .defaultsTo(DEFAULT_NER_TIMEOUT_MS);
+    }
+
     static void nlpMaxTextLength(OptionParser parser) {
         parser.acceptsAll(
                 asList(NLP_PARALLELISM_ABBR_OPT, NLP_PARALLELISM_OPT),
@@ -604,6 +698,23 @@ public final class DatashareCliOptions {
             .defaultsTo(DEFAULT_OCR_TYPE);
     }
 
+    static void ocrCache(OptionParser parser) {
+        parser.acceptsAll(List.of(OCR_CACHE_OPT),
+                "Directory of the OCR results cache. Texts are stored by image digest, OCR type and languages, " +
+                        "and reused when the same image is found again. It can be shared by several workers.")
+            .withRequiredArg()
+            .ofType(String.class);
+    }
+
+    static void extractionStore(OptionParser parser) {
+        parser.acceptsAll(List.of(EXTRACTION_STORE_OPT),
+                "Directory of the extraction results store. Extracted texts, metadata and embedded documents are stored " +
+                        "by file digest and extraction configuration, and reused when the same file is indexed again " +
+                        "(other index or project). It can be shared by several workers.")
+            .withRequiredArg()
+            .ofType(String.class);
+    }
+
     static void nlpPipeline(OptionParser parser) {
         parser.acceptsAll(
                 asList(NLP_PIPELINE_ABBR_OPT, NLP_PIPELINE_OPT),
@@ -621,6 +732,15 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_PARALLELISM);
     }
 
+    static void maxParallelism(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(MAX_PARALLELISM_OPT),
+                "Maximum number of extraction threads. If greater than parallelism, the number of threads is adapted " +
+                        "at runtime between 1 and this value depending on heap, GC and elasticsearch load.")
+                .withRequiredArg()
+                .ofType( Integer.class );
+    }
+
     static void esHost(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(ELASTICSEARCH_ADDRESS_OPT), "Elasticsearch host address")
@@ -629,6 +749,39 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_ELASTICSEARCH_ADDRESS);
     }
 
+    static void indexShards(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_SHARDS_OPT), "Number of shards of the created project indices. " +
+                        "If not set, it is computed from " + EXPECTED_DOCUMENTS_OPT + " (1 by default).")
+                .withRequiredArg()
+                .ofType(Integer.class);
+    }
+
+    static void expectedDocuments(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(EXPECTED_DOCUMENTS_OPT), "Expected number of documents of the created project indices, " +
+                        "used to choose their number of shards.")
+                .withRequiredArg()
+                .ofType(Long.class);
+    }
+
+    static void indexReplicas(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_REPLICAS_OPT), "Number of replicas of the created project indices.")
+                .withRequiredArg()
+                .ofType(Integer.class)
+                .defaultsTo(1);
+    }
+
+    static void indexAlias(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(INDEX_ALIAS_OPT), "Creates project indices as a generation index (<project>-000001) " +
+                        "behind a <project> alias, so they can be migrated or split without downtime.")
+                .withRequiredArg()
+                .ofType(Boolean.class)
+                .defaultsTo(false);
+    }
+
     static void dataSourceUrl(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(DATA_SOURCE_URL_OPT), "Datasource URL. For using memory you can use 'jdbc:sqlite:file:memorydb.db?mode=memory&cache=shared'")
@@ -778,6 +931,14 @@ public final class DatashareCliOptions {
                 .defaultsTo(DEFAULT_EMBEDDED_DOCUMENT_DOWNLOAD_MAX_SIZE);
     }
 
+    public static void searchProxyMaxBodySize(OptionParser parser) {
+        parser.acceptsAll(
+                singletonList(SEARCH_PROXY_MAX_BODY_SIZE_OPT), "Maximum size of the request bodies sent to the search proxy. Human readable suffix K/M/G for KB/MB/GB (Default 10M)")
+                .withRequiredArg()
+                .withValuesConvertedBy(regex("[0-9]+[KMG]?"))
+                .defaultsTo(DEFAULT_SEARCH_PROXY_MAX_BODY_SIZE);
+    }
+
     public static void batchDownloadMaxSize(OptionParser parser) {
         parser.acceptsAll(
                 singletonList(BATCH_DOWNLOAD_MAX_SIZE_OPT), "Maximum total files size that can be zipped. Human readable suffix K/M/G for KB/MB/GB (Default 100M)")
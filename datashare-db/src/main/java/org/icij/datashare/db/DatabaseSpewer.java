@@ -1,5 +1,6 @@
 package org.icij.datashare.db;
 
+import org.apache.commons.io.TaggedIOException;
 import org.icij.datashare.Repository;
 import org.icij.datashare.text.Document;
 import org.icij.datashare.text.DocumentBuilder;
@@ -9,26 +10,77 @@ import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.extract.document.TikaDocument;
 import org.icij.spewer.FieldNames;
 import org.icij.spewer.Spewer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
 import static org.apache.tika.metadata.HttpHeaders.*;
 
+/**
+ * Saves the extracted documents in the database.
+ * <p>
+ * Documents are inserted by batches in one transaction (instead of one auto-committed insert per document that
+ * pays a fsync with SQLite). A write returns once the documents of its tree are committed: the writer flushes the
+ * buffer, and the documents written meanwhile by the other extraction threads are committed in the next batch
+ * (group commit). The buffer is also flushed when it contains <code>batchSize</code> documents or when their
+ * estimated size exceeds <code>maxBatchBytes</code>, so that memory stays bounded for large trees.
+ * <p>
+ * When a batch fails, its documents are inserted one by one and the write of each document that still cannot be
+ * saved fails with an {@link IOException} tagged with the spewer, so the extractor reports it as not saved.
+ */
 public class DatabaseSpewer extends Spewer {
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final long DEFAULT_MAX_BATCH_BYTES = 16L * 1024 * 1024;
+    private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseSpewer.class);
+    private static final String DEFAULT_VALUE_UNKNOWN = "unknown";
+
     private final Project project;
     final Repository repository;
     private final LanguageGuesser languageGuesser;
-    private static final String DEFAULT_VALUE_UNKNOWN = "unknown";
+    private final int batchSize;
+    private final long maxBatchBytes;
+    private final Object flushLock = new Object();
+    private final ThreadLocal<List<CompletableFuture<Void>>> written = ThreadLocal.withInitial(ArrayList::new);
+    private final List<Pending> buffer = new ArrayList<>(); // guarded by this
+    private long bufferBytes = 0; // guarded by this
 
     DatabaseSpewer(Project project, Repository repository, LanguageGuesser languageGuesser) {
+        this(project, repository, languageGuesser, DEFAULT_BATCH_SIZE, DEFAULT_MAX_BATCH_BYTES);
+    }
+
+    DatabaseSpewer(Project project, Repository repository, LanguageGuesser languageGuesser, int batchSize, long maxBatchBytes) {
         super(new FieldNames());
         this.project = project;
         this.repository = repository;
         this.languageGuesser = languageGuesser;
+        this.batchSize = batchSize;
+        this.maxBatchBytes = maxBatchBytes;
+    }
+
+    @Override
+    public void write(TikaDocument tikaDocument) throws IOException {
+        List<CompletableFuture<Void>> saved = written.get();
+        try {
+            super.write(tikaDocument);
+            flush();
+            for (CompletableFuture<Void> document : saved) {
+                document.join();
+            }
+        } catch (CompletionException e) {
+            throw new TaggedIOException(new IOException("cannot save document in database", e.getCause()), this);
+        } finally {
+            saved.clear();
+        }
     }
 
     @Override
@@ -58,6 +110,70 @@ public class DatabaseSpewer extends Spewer {
                 withContentLength(contentLength).
                 with(new Pipeline.Type[]{}).
                 build();
-        repository.create(document);
+        written.get().add(add(document));
+    }
+
+    CompletableFuture<Void> add(Document document) {
+        Pending pending = new Pending(document);
+        boolean full;
+        synchronized (this) {
+            buffer.add(pending);
+            bufferBytes += estimatedSize(document);
+            full = buffer.size() >= batchSize || bufferBytes >= maxBatchBytes;
+        }
+        if (full) {
+            flush();
+        }
+        return pending.saved;
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            List<Pending> batch;
+            synchronized (this) {
+                if (buffer.isEmpty()) return;
+                batch = new ArrayList<>(buffer);
+                buffer.clear();
+                bufferBytes = 0;
+            }
+            try {
+                repository.createDocuments(batch.stream().map(p -> p.document).collect(toList()));
+                batch.forEach(p -> p.saved.complete(null));
+            } catch (RuntimeException batchException) {
+                LOGGER.warn("cannot save batch of {} documents, saving them one by one", batch.size(), batchException);
+                for (Pending pending : batch) {
+                    try {
+                        repository.create(pending.document);
+                        pending.saved.complete(null);
+                    } catch (RuntimeException e) {
+                        LOGGER.error("cannot save document {} in database", pending.document.getId(), e);
+                        pending.saved.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        flush();
+        super.close();
+    }
+
+    static long estimatedSize(Document document) {
+        long chars = document.getContent().length() + document.getPath().toString().length();
+        for (Map.Entry<String, Object> entry : document.getMetadata().entrySet()) {
+            chars += entry.getKey().length() + String.valueOf(entry.getValue()).length();
+        }
+        return 2 * chars;
+    }
+
+    private static final class Pending {
+        final Document document;
+        final CompletableFuture<Void> saved = new CompletableFuture<>();
+
+        Pending(Document document) {
+            this.document = document;
+        }
     }
 }
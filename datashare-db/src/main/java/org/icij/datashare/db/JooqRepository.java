@@ -2,6 +2,7 @@ package org.icij.datashare.db;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import org.icij.datashare.DocumentUserRecommendation;
+import org.icij.datashare.ExtractionError;
 import org.icij.datashare.Note;
 import org.icij.datashare.Repository;
 import org.icij.datashare.UserEvent;
@@ -9,6 +10,7 @@ import org.icij.datashare.db.tables.records.DocumentRecord;
 import org.icij.datashare.db.tables.records.DocumentTagRecord;
 import org.icij.datashare.db.tables.records.DocumentUserRecommendationRecord;
 import org.icij.datashare.db.tables.records.DocumentUserStarRecord;
+import org.icij.datashare.db.tables.records.NamedEntityDocRollupRecord;
 import org.icij.datashare.db.tables.records.NamedEntityRecord;
 import org.icij.datashare.db.tables.records.NoteRecord;
 import org.icij.datashare.db.tables.records.ProjectRecord;
@@ -20,6 +22,7 @@ import org.icij.datashare.text.Document;
 import org.icij.datashare.text.DocumentBuilder;
 import org.icij.datashare.text.Language;
 import org.icij.datashare.text.NamedEntity;
+import org.icij.datashare.text.NamedEntityRollup;
 import org.icij.datashare.text.Project;
 import org.icij.datashare.text.ProjectProxy;
 import org.icij.datashare.text.Tag;
@@ -40,14 +43,24 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.nio.charset.Charset.forName;
 import static java.util.Arrays.asList;
@@ -58,10 +71,15 @@ import static org.icij.datashare.Entity.LOGGER;
 import static org.icij.datashare.UserEvent.Type.fromId;
 import static org.icij.datashare.db.Tables.USER_HISTORY_PROJECT;
 import static org.icij.datashare.db.tables.Document.DOCUMENT;
+import static org.icij.datashare.db.tables.DocumentNerPipeline.DOCUMENT_NER_PIPELINE;
 import static org.icij.datashare.db.tables.DocumentTag.DOCUMENT_TAG;
 import static org.icij.datashare.db.tables.DocumentUserRecommendation.DOCUMENT_USER_RECOMMENDATION;
 import static org.icij.datashare.db.tables.DocumentUserStar.DOCUMENT_USER_STAR;
+import static org.icij.datashare.db.tables.ExtractionError.EXTRACTION_ERROR;
 import static org.icij.datashare.db.tables.NamedEntity.NAMED_ENTITY;
+import static org.icij.datashare.db.tables.NamedEntityDocRollup.NAMED_ENTITY_DOC_ROLLUP;
+import static org.icij.datashare.db.tables.NamedEntityHidden.NAMED_ENTITY_HIDDEN;
+import static org.icij.datashare.db.tables.NamedEntityRollup.NAMED_ENTITY_ROLLUP;
 import static org.icij.datashare.db.tables.Note.NOTE;
 import static org.icij.datashare.db.tables.Project.PROJECT;
 import static org.icij.datashare.db.tables.UserHistory.USER_HISTORY;
@@ -70,9 +88,9 @@ import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
 import static org.icij.datashare.text.Document.Status.fromCode;
 import static org.icij.datashare.text.Language.parse;
 import static org.icij.datashare.text.Project.project;
-import static org.jooq.impl.DSL.condition;
 import static org.jooq.impl.DSL.count;
 import static org.jooq.impl.DSL.countDistinct;
+import static org.jooq.impl.DSL.selectOne;
 import static org.jooq.impl.DSL.using;
 import static org.jooq.impl.DSL.value;
 
@@ -93,22 +111,21 @@ public class JooqRepository implements Repository {
 
     @Override
     public void create(List<NamedEntity> neList) {
-        DSLContext create = DSL.using(connectionProvider, dialect);
-        InsertValuesStep9<NamedEntityRecord, String, String, String, Short, String, String, String, String, Boolean>
+        insertNamedEntities(DSL.using(connectionProvider, dialect), neList);
+    }
+
+    private void insertNamedEntities(DSLContext create, List<NamedEntity> neList) {
+        if (neList.isEmpty()) return;
+        InsertValuesStep10<NamedEntityRecord, String, String, String, byte[], Short, String, String, String, String, Boolean>
                 insertQuery = create.insertInto(NAMED_ENTITY,
-                NAMED_ENTITY.ID, NAMED_ENTITY.MENTION, NAMED_ENTITY.OFFSETS, NAMED_ENTITY.EXTRACTOR,
+                NAMED_ENTITY.ID, NAMED_ENTITY.MENTION, NAMED_ENTITY.OFFSETS, NAMED_ENTITY.OFFSETS_BIN, NAMED_ENTITY.EXTRACTOR,
                 NAMED_ENTITY.CATEGORY, NAMED_ENTITY.DOC_ID, NAMED_ENTITY.ROOT_ID,
                 NAMED_ENTITY.EXTRACTOR_LANGUAGE, NAMED_ENTITY.HIDDEN);
-        neList.forEach(ne -> {
-            try {
-                insertQuery.values(
-                        ne.getId(), ne.getMention(), MAPPER.writeValueAsString(ne.getOffsets()), ne.getExtractor().code,
-                        ne.getCategory().getAbbreviation(), ne.getDocumentId(), ne.getRootDocument(),
-                        ne.getExtractorLanguage().iso6391Code(), ne.isHidden());
-            } catch (JsonProcessingException e) {
-                LOGGER.error("cannot serialize offsets {}", ne.getOffsets());
-            }
-        });
+        // offsets (json) is kept empty: it is only read for rows that have not been converted yet
+        neList.forEach(ne -> insertQuery.values(
+                ne.getId(), ne.getMention(), "", NamedEntityOffsets.encode(ne.getOffsets()), ne.getExtractor().code,
+                ne.getCategory().getAbbreviation(), ne.getDocumentId(), ne.getRootDocument(),
+                ne.getExtractorLanguage().iso6391Code(), ne.isHidden()));
         insertQuery.execute();
     }
 
@@ -120,30 +137,308 @@ public class JooqRepository implements Repository {
 
     @Override
     public void create(Document doc) {
+        createDocuments(List.of(doc));
+    }
+
+    @Override
+    public void createDocuments(List<Document> documents) {
+        if (documents.isEmpty()) return;
         DSLContext ctx = DSL.using(connectionProvider, dialect);
-        try {
-            ctx.insertInto(DOCUMENT, DOCUMENT.PROJECT_ID,
-                            DOCUMENT.ID, DOCUMENT.PATH, DOCUMENT.CONTENT, DOCUMENT.STATUS,
-                            DOCUMENT.CHARSET, DOCUMENT.LANGUAGE, DOCUMENT.CONTENT_TYPE,
-                            DOCUMENT.EXTRACTION_DATE, DOCUMENT.PARENT_ID, DOCUMENT.ROOT_ID,
-                            DOCUMENT.EXTRACTION_LEVEL, DOCUMENT.CONTENT_LENGTH, DOCUMENT.METADATA, DOCUMENT.NER_MASK).
-                    values(doc.getProject().getId(), doc.getId(), doc.getPath().toString(), doc.getContent(), doc.getStatus().code,
-                            doc.getContentEncoding().toString(), doc.getLanguage().iso6391Code(), doc.getContentType(),
-                            new Timestamp(doc.getExtractionDate().getTime()).toLocalDateTime(), doc.getParentDocument(), doc.getRootDocument(),
-                            doc.getExtractionLevel(), doc.getContentLength(),
-                            MAPPER.writeValueAsString(doc.getMetadata()), doc.getNerMask()).execute();
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
+        ctx.transaction(configuration -> insertDocuments(DSL.using(configuration), documents));
+    }
+
+    private static void insertDocuments(DSLContext ctx, List<Document> documents) throws JsonProcessingException {
+        BatchBindStep documentBatch = ctx.batch(ctx.insertInto(DOCUMENT, DOCUMENT.PROJECT_ID,
+                        DOCUMENT.ID, DOCUMENT.PATH, DOCUMENT.CONTENT, DOCUMENT.STATUS,
+                        DOCUMENT.CHARSET, DOCUMENT.LANGUAGE, DOCUMENT.CONTENT_TYPE,
+                        DOCUMENT.EXTRACTION_DATE, DOCUMENT.PARENT_ID, DOCUMENT.ROOT_ID,
+                        DOCUMENT.EXTRACTION_LEVEL, DOCUMENT.CONTENT_LENGTH, DOCUMENT.METADATA, DOCUMENT.NER_MASK).
+                values(Collections.nCopies(15, null)));
+        BatchBindStep pipelineBatch = ctx.batch(ctx.insertInto(DOCUMENT_NER_PIPELINE,
+                        DOCUMENT_NER_PIPELINE.PRJ_ID, DOCUMENT_NER_PIPELINE.PIPELINE, DOCUMENT_NER_PIPELINE.DOC_ID).
+                values((String) null, null, null).onConflictDoNothing());
+        for (Document doc : documents) {
+            documentBatch.bind(doc.getProject().getId(), doc.getId(), doc.getPath().toString(), doc.getContent(), doc.getStatus().code,
+                    doc.getContentEncoding().toString(), doc.getLanguage().iso6391Code(), doc.getContentType(),
+                    new Timestamp(doc.getExtractionDate().getTime()).toLocalDateTime(), doc.getParentDocument(), doc.getRootDocument(),
+                    doc.getExtractionLevel(), doc.getContentLength(),
+                    MAPPER.writeValueAsString(doc.getMetadata()), doc.getNerMask());
+            for (Pipeline.Type type : doc.getNerTags()) {
+                pipelineBatch.bind(doc.getProject().getId(), type.code, doc.getId());
+            }
+        }
+        documentBatch.execute();
+        if (pipelineBatch.size() > 0) {
+            pipelineBatch.execute();
         }
     }
 
     @Override
     public List<Document> getDocumentsNotTaggedWithPipeline(Project project, Pipeline.Type type) {
         DSLContext create = using(connectionProvider, dialect);
-        return create.selectFrom(DOCUMENT).where(
-                        condition("(ner_mask & ?) = 0", type.mask)).
+        return create.selectFrom(DOCUMENT).where(notTaggedWithPipeline(project, type)).orderBy(DOCUMENT.ID).
                 fetch().stream().map(this::createDocumentFrom).collect(toList());
+    }
+
+    @Override
+    public Stream<String> getDocumentIdsNotTaggedWithPipeline(Project project, Pipeline.Type type, int batchSize) {
+        Iterator<String> ids = new Iterator<>() {
+            private List<String> page = nextPage(null);
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) return true;
+                if (page.size() < batchSize) return false;
+                page = nextPage(page.get(page.size() - 1));
+                index = 0;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return page.get(index++);
+            }
+
+            // keyset pagination: no cursor is kept open between pages
+            private List<String> nextPage(String afterId) {
+                Condition condition = notTaggedWithPipeline(project, type);
+                return using(connectionProvider, dialect).select(DOCUMENT.ID).from(DOCUMENT)
+                        .where(afterId == null ? condition : condition.and(DOCUMENT.ID.gt(afterId)))
+                        .orderBy(DOCUMENT.ID).limit(batchSize).fetch(DOCUMENT.ID);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(ids, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public List<Document> getDocuments(Project project, List<String> documentIds) {
+        DSLContext create = using(connectionProvider, dialect);
+        return create.selectFrom(DOCUMENT).where(DOCUMENT.PROJECT_ID.eq(project.getId())).and(DOCUMENT.ID.in(documentIds)).
+                orderBy(DOCUMENT.ID).fetch().stream().map(this::createDocumentFrom).collect(toList());
+    }
+
+    @Override
+    public void tagWithPipeline(Project project, Pipeline.Type type, String documentId, List<NamedEntity> namedEntities) {
+        using(connectionProvider, dialect).transaction(configuration -> {
+            DSLContext inner = DSL.using(configuration);
+            insertNamedEntities(inner, namedEntities);
+            insertNerPipeline(inner, project, type, documentId);
+            inner.update(DOCUMENT).set(DOCUMENT.NER_MASK, DOCUMENT.NER_MASK.bitOr((short) type.mask))
+                    .where(DOCUMENT.ID.eq(documentId)).and(DOCUMENT.PROJECT_ID.eq(project.getId())).execute();
+        });
+    }
+
+    @Override
+    public void rollupNamedEntities(Project project, String documentId, Pipeline.Type type, List<NamedEntityRollup> documentCounts) {
+        Map<NamedEntityRollup.Key, Long> newCounts = new HashMap<>();
+        documentCounts.forEach(c -> newCounts.merge(c.key(), c.mentionCount(), Long::sum));
+        using(connectionProvider, dialect).transaction(configuration -> {
+            DSLContext inner = DSL.using(configuration);
+            Map<NamedEntityRollup.Key, Long> oldCounts = new HashMap<>();
+            Set<NamedEntityRollup.Key> otherPipelinesKeys = new HashSet<>();
+            inner.selectFrom(NAMED_ENTITY_DOC_ROLLUP).where(NAMED_ENTITY_DOC_ROLLUP.PRJ_ID.eq(project.getId()))
+                    .and(NAMED_ENTITY_DOC_ROLLUP.DOC_ID.eq(documentId)).fetch().forEach(r -> {
+                NamedEntityRollup.Key key = new NamedEntityRollup.Key(r.getMentionNorm(), NamedEntity.Category.parse(r.getCategory()));
+                if (r.getExtractor() == type.code) {
+                    oldCounts.put(key, r.getMentionCount().longValue());
+                } else {
+                    otherPipelinesKeys.add(key);
+                }
+            });
+            inner.deleteFrom(NAMED_ENTITY_DOC_ROLLUP).where(NAMED_ENTITY_DOC_ROLLUP.PRJ_ID.eq(project.getId()))
+                    .and(NAMED_ENTITY_DOC_ROLLUP.DOC_ID.eq(documentId)).and(NAMED_ENTITY_DOC_ROLLUP.EXTRACTOR.eq(type.code)).execute();
+            if (!newCounts.isEmpty()) {
+                InsertValuesStep6<NamedEntityDocRollupRecord, String, String, Short, String, String, Integer> insertQuery =
+                        inner.insertInto(NAMED_ENTITY_DOC_ROLLUP, NAMED_ENTITY_DOC_ROLLUP.PRJ_ID, NAMED_ENTITY_DOC_ROLLUP.DOC_ID,
+                                NAMED_ENTITY_DOC_ROLLUP.EXTRACTOR, NAMED_ENTITY_DOC_ROLLUP.CATEGORY, NAMED_ENTITY_DOC_ROLLUP.MENTION_NORM,
+                                NAMED_ENTITY_DOC_ROLLUP.MENTION_COUNT);
+                newCounts.forEach((key, count) -> insertQuery.values(project.getId(), documentId, type.code,
+                        key.category().getAbbreviation(), key.mentionNorm(), count.intValue()));
+                insertQuery.execute();
+            }
+            // project rows are always updated in the same order so that concurrent rollups don't deadlock
+            Set<NamedEntityRollup.Key> keys = new TreeSet<>(Comparator.comparing((NamedEntityRollup.Key k) -> k.category().getAbbreviation())
+                    .thenComparing(NamedEntityRollup.Key::mentionNorm));
+            keys.addAll(oldCounts.keySet());
+            keys.addAll(newCounts.keySet());
+            List<Query> upserts = new ArrayList<>();
+            for (NamedEntityRollup.Key key : keys) {
+                long oldCount = oldCounts.getOrDefault(key, 0L);
+                long newCount = newCounts.getOrDefault(key, 0L);
+                int docDelta = otherPipelinesKeys.contains(key) ? 0 : (newCount > 0 ? 1 : 0) - (oldCount > 0 ? 1 : 0);
+                if (newCount == oldCount && docDelta == 0) {
+                    continue;
+                }
+                upserts.add(inner.insertInto(NAMED_ENTITY_ROLLUP, NAMED_ENTITY_ROLLUP.PRJ_ID, NAMED_ENTITY_ROLLUP.CATEGORY,
+                                NAMED_ENTITY_ROLLUP.MENTION_NORM, NAMED_ENTITY_ROLLUP.MENTION_COUNT, NAMED_ENTITY_ROLLUP.DOC_COUNT)
+                        .values(project.getId(), key.category().getAbbreviation(), key.mentionNorm(), newCount - oldCount, docDelta)
+                        .onConflict(NAMED_ENTITY_ROLLUP.PRJ_ID, NAMED_ENTITY_ROLLUP.CATEGORY, NAMED_ENTITY_ROLLUP.MENTION_NORM).doUpdate()
+                        .set(NAMED_ENTITY_ROLLUP.MENTION_COUNT, NAMED_ENTITY_ROLLUP.MENTION_COUNT.plus(newCount - oldCount))
+                        .set(NAMED_ENTITY_ROLLUP.DOC_COUNT, NAMED_ENTITY_ROLLUP.DOC_COUNT.plus(docDelta)));
+            }
+            if (!upserts.isEmpty()) {
+                inner.batch(upserts).execute();
+            }
+            inner.deleteFrom(NAMED_ENTITY_ROLLUP).where(NAMED_ENTITY_ROLLUP.PRJ_ID.eq(project.getId()))
+                    .and(NAMED_ENTITY_ROLLUP.MENTION_COUNT.le(0L)).execute();
+        });
+    }
+
+    @Override
+    public List<NamedEntityRollup> getNamedEntityRollups(Project project, NamedEntity.Category category, String mentionNormPrefix, boolean withHidden, int from, int size) {
+        Condition condition = NAMED_ENTITY_ROLLUP.PRJ_ID.eq(project.getId());
+        if (category != null) {
+            condition = condition.and(NAMED_ENTITY_ROLLUP.CATEGORY.eq(category.getAbbreviation()));
+        }
+        if (mentionNormPrefix != null && !mentionNormPrefix.isEmpty()) {
+            condition = condition.and(NAMED_ENTITY_ROLLUP.MENTION_NORM.startsWith(mentionNormPrefix));
+        }
+        if (!withHidden) {
+            condition = condition.and(NAMED_ENTITY_HIDDEN.MENTION_NORM.isNull());
+        }
+        return using(connectionProvider, dialect)
+                .select(NAMED_ENTITY_ROLLUP.CATEGORY, NAMED_ENTITY_ROLLUP.MENTION_NORM, NAMED_ENTITY_ROLLUP.MENTION_COUNT,
+                        NAMED_ENTITY_ROLLUP.DOC_COUNT, NAMED_ENTITY_HIDDEN.MENTION_NORM)
+                .from(NAMED_ENTITY_ROLLUP).leftJoin(NAMED_ENTITY_HIDDEN)
+                .on(NAMED_ENTITY_HIDDEN.PRJ_ID.eq(NAMED_ENTITY_ROLLUP.PRJ_ID))
+                .and(NAMED_ENTITY_HIDDEN.MENTION_NORM.eq(NAMED_ENTITY_ROLLUP.MENTION_NORM))
+                .where(condition)
+                .orderBy(NAMED_ENTITY_ROLLUP.MENTION_COUNT.desc(), NAMED_ENTITY_ROLLUP.MENTION_NORM)
+                .limit(size).offset(from).fetch().stream()
+                .map(r -> new NamedEntityRollup(r.value2(), NamedEntity.Category.parse(r.value1()),
+                        r.value3(), r.value4(), r.value5() != null)).collect(toList());
+    }
+
+    @Override
+    public List<NamedEntityRollup> getNamedEntityRollups(Project project, String documentId) {
+        Field<java.math.BigDecimal> mentionCount = DSL.sum(NAMED_ENTITY_DOC_ROLLUP.MENTION_COUNT);
+        return using(connectionProvider, dialect)
+                .select(NAMED_ENTITY_DOC_ROLLUP.CATEGORY, NAMED_ENTITY_DOC_ROLLUP.MENTION_NORM, mentionCount, NAMED_ENTITY_HIDDEN.MENTION_NORM)
+                .from(NAMED_ENTITY_DOC_ROLLUP).leftJoin(NAMED_ENTITY_HIDDEN)
+                .on(NAMED_ENTITY_HIDDEN.PRJ_ID.eq(NAMED_ENTITY_DOC_ROLLUP.PRJ_ID))
+                .and(NAMED_ENTITY_HIDDEN.MENTION_NORM.eq(NAMED_ENTITY_DOC_ROLLUP.MENTION_NORM))
+                .where(NAMED_ENTITY_DOC_ROLLUP.PRJ_ID.eq(project.getId())).and(NAMED_ENTITY_DOC_ROLLUP.DOC_ID.eq(documentId))
+                .groupBy(NAMED_ENTITY_DOC_ROLLUP.CATEGORY, NAMED_ENTITY_DOC_ROLLUP.MENTION_NORM, NAMED_ENTITY_HIDDEN.MENTION_NORM)
+                .orderBy(mentionCount.desc(), NAMED_ENTITY_DOC_ROLLUP.MENTION_NORM)
+                .fetch().stream()
+                .map(r -> new NamedEntityRollup(r.value2(), NamedEntity.Category.parse(r.value1()), r.value3().longValue(), 1,
+                        r.value4() != null)).collect(toList());
+    }
+
+    @Override
+    public int hideNamedEntities(Project project, String mentionNorm) {
+        return using(connectionProvider, dialect).insertInto(NAMED_ENTITY_HIDDEN, NAMED_ENTITY_HIDDEN.PRJ_ID, NAMED_ENTITY_HIDDEN.MENTION_NORM)
+                .values(project.getId(), mentionNorm).onConflictDoNothing().execute();
+    }
+
+    @Override
+    public boolean save(Project project, ExtractionError error) {
+        LocalDateTime date = new Timestamp(error.date().getTime()).toLocalDateTime();
+        return using(connectionProvider, dialect).insertInto(EXTRACTION_ERROR, EXTRACTION_ERROR.PRJ_ID, EXTRACTION_ERROR.PATH,
+                        EXTRACTION_ERROR.DIRECTORY, EXTRACTION_ERROR.CONTENT_TYPE, EXTRACTION_ERROR.STATUS,
+                        EXTRACTION_ERROR.EXCEPTION_CLASS, EXTRACTION_ERROR.MESSAGE, EXTRACTION_ERROR.ERROR_DATE)
+                .values(project.getId(), error.path(), error.directory(), error.contentType(), error.status(),
+                        error.exceptionClass(), error.message(), date)
+                .onConflict(EXTRACTION_ERROR.PRJ_ID, EXTRACTION_ERROR.PATH).doUpdate()
+                .set(EXTRACTION_ERROR.CONTENT_TYPE, error.contentType())
+                .set(EXTRACTION_ERROR.STATUS, error.status())
+                .set(EXTRACTION_ERROR.EXCEPTION_CLASS, error.exceptionClass())
+                .set(EXTRACTION_ERROR.MESSAGE, error.message())
+                .set(EXTRACTION_ERROR.ERROR_DATE, date).execute() > 0;
+    }
+
+    @Override
+    public List<ExtractionError> getExtractionErrors(Project project, ExtractionError.Filter filter, String afterPath, int size) {
+        Condition condition = extractionErrorsMatching(project, filter);
+        return using(connectionProvider, dialect).selectFrom(EXTRACTION_ERROR)
+                .where(afterPath == null ? condition : condition.and(EXTRACTION_ERROR.PATH.gt(afterPath)))
+                .orderBy(EXTRACTION_ERROR.PATH).limit(size)
+                .fetch().stream().map(r -> new ExtractionError(r.getPath(), r.getDirectory(), r.getContentType(), r.getStatus(),
+                        r.getExceptionClass(), r.getMessage(), Date.from(r.getErrorDate().toInstant(ZoneOffset.UTC)))).collect(toList());
+    }
+
+    @Override
+    public AggregateList<String> aggregateExtractionErrors(Project project, ExtractionError.Field field, ExtractionError.Filter filter, int size) {
+        DSLContext ctx = using(connectionProvider, dialect);
+        Field<String> column = extractionErrorColumn(field);
+        Field<Integer> count = count().as("count");
+        Condition condition = extractionErrorsMatching(project, filter);
+        List<Aggregate<String>> aggregates = ctx.select(column, count).from(EXTRACTION_ERROR).where(condition)
+                .groupBy(column).orderBy(count.desc(), column).limit(size)
+                .fetch().stream().map(r -> new Aggregate<>(r.get(column), r.get(count))).collect(toList());
+        return new AggregateList<>(aggregates, ctx.selectCount().from(EXTRACTION_ERROR).where(condition).fetchOne(0, int.class));
+    }
+
+    @Override
+    public Stream<String> getExtractionErrorPaths(Project project, ExtractionError.Filter filter, int batchSize) {
+        Iterator<String> paths = new Iterator<>() {
+            private List<String> page = nextPage(null);
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) return true;
+                if (page.size() < batchSize) return false;
+                page = nextPage(page.get(page.size() - 1));
+                index = 0;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return page.get(index++);
+            }
 
+            private List<String> nextPage(String afterPath) {
+                Condition condition = extractionErrorsMatching(project, filter);
+                return using(connectionProvider, dialect).select(EXTRACTION_ERROR.PATH).from(EXTRACTION_ERROR)
+                        .where(afterPath == null ? condition : condition.and(EXTRACTION_ERROR.PATH.gt(afterPath)))
+                        .orderBy(EXTRACTION_ERROR.PATH).limit(batchSize).fetch(EXTRACTION_ERROR.PATH);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(paths, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public int deleteExtractionErrors(Project project, ExtractionError.Filter filter, Date before) {
+        return using(connectionProvider, dialect).deleteFrom(EXTRACTION_ERROR).where(extractionErrorsMatching(project, filter))
+                .and(EXTRACTION_ERROR.ERROR_DATE.lt(new Timestamp(before.getTime()).toLocalDateTime())).execute();
+    }
+
+    private static Condition extractionErrorsMatching(Project project, ExtractionError.Filter filter) {
+        Condition condition = EXTRACTION_ERROR.PRJ_ID.eq(project.getId());
+        if (filter.exceptionClass() != null) condition = condition.and(EXTRACTION_ERROR.EXCEPTION_CLASS.eq(filter.exceptionClass()));
+        if (filter.contentType() != null) condition = condition.and(EXTRACTION_ERROR.CONTENT_TYPE.eq(filter.contentType()));
+        if (filter.status() != null) condition = condition.and(EXTRACTION_ERROR.STATUS.eq(filter.status()));
+        if (filter.directory() != null) {
+            condition = condition.and(EXTRACTION_ERROR.DIRECTORY.eq(filter.directory())
+                    .or(EXTRACTION_ERROR.DIRECTORY.startsWith(filter.directory().endsWith("/") ? filter.directory() : filter.directory() + "/")));
+        }
+        return condition;
+    }
+
+    private static Field<String> extractionErrorColumn(ExtractionError.Field field) {
+        return switch (field) {
+            case EXCEPTION_CLASS -> EXTRACTION_ERROR.EXCEPTION_CLASS;
+            case CONTENT_TYPE -> EXTRACTION_ERROR.CONTENT_TYPE;
+            case DIRECTORY -> EXTRACTION_ERROR.DIRECTORY;
+            case STATUS -> EXTRACTION_ERROR.STATUS;
+        };
+    }
+
+    private static Condition notTaggedWithPipeline(Project project, Pipeline.Type type) {
+        return DOCUMENT.PROJECT_ID.eq(project.getId()).andNotExists(selectOne().from(DOCUMENT_NER_PIPELINE)
+                .where(DOCUMENT_NER_PIPELINE.PRJ_ID.eq(DOCUMENT.PROJECT_ID))
+                .and(DOCUMENT_NER_PIPELINE.PIPELINE.eq(type.code))
+                .and(DOCUMENT_NER_PIPELINE.DOC_ID.eq(DOCUMENT.ID)));
+    }
+
+    private static void insertNerPipeline(DSLContext ctx, Project project, Pipeline.Type type, String documentId) {
+        ctx.insertInto(DOCUMENT_NER_PIPELINE, DOCUMENT_NER_PIPELINE.PRJ_ID, DOCUMENT_NER_PIPELINE.PIPELINE, DOCUMENT_NER_PIPELINE.DOC_ID)
+                .values(project.getId(), type.code, documentId).onConflictDoNothing().execute();
     }
 
     @Override
@@ -194,7 +489,7 @@ public class JooqRepository implements Repository {
                 insertInto(DOCUMENT_USER_RECOMMENDATION, DOCUMENT_USER_RECOMMENDATION.DOC_ID, DOCUMENT_USER_RECOMMENDATION.USER_ID, DOCUMENT_USER_RECOMMENDATION.PRJ_ID, DOCUMENT_USER_RECOMMENDATION.CREATION_DATE);
         LocalDateTime now = Timestamp.from(Instant.now()).toLocalDateTime();
         documentIds.forEach(t -> query.values(t, user.id, project.getId(), now));
-        return query.execute();
+        return query.onConflictDoNothing().execute();
 
     }
 
@@ -426,13 +721,19 @@ public class JooqRepository implements Repository {
         DSLContext ctx = using(connectionProvider, dialect);
         return ctx.transactionResult(configuration -> {
             DSLContext inner = using(configuration);
+            // on postgres the project partitions are dropped, the deletes below only concern the default partitions
+            boolean droppedPartitions = dialect == SQLDialect.POSTGRES && ProjectPartitions.drop(inner, projectId);
             int deleteTagResult = inner.deleteFrom(DOCUMENT_TAG).where(DOCUMENT_TAG.PRJ_ID.eq(projectId)).execute();
             int deleteStarResult = inner.deleteFrom(DOCUMENT_USER_STAR).where(DOCUMENT_USER_STAR.PRJ_ID.eq(projectId)).execute();
             int deleteUserRecommendationResult = inner.deleteFrom(DOCUMENT_USER_RECOMMENDATION).where(DOCUMENT_USER_RECOMMENDATION.PRJ_ID.eq(projectId)).execute();
             List<Integer> deletedUserHistoryProjectIds = inner.deleteFrom(USER_HISTORY_PROJECT).where(USER_HISTORY_PROJECT.PRJ_ID.eq(projectId)).returning().fetch().getValues(USER_HISTORY_PROJECT.USER_HISTORY_ID);
             int deleteUserHistoryResult = inner.deleteFrom(USER_HISTORY).where(USER_HISTORY.ID.in(deletedUserHistoryProjectIds)).execute();
+            inner.deleteFrom(NAMED_ENTITY_DOC_ROLLUP).where(NAMED_ENTITY_DOC_ROLLUP.PRJ_ID.eq(projectId)).execute();
+            inner.deleteFrom(NAMED_ENTITY_ROLLUP).where(NAMED_ENTITY_ROLLUP.PRJ_ID.eq(projectId)).execute();
+            inner.deleteFrom(NAMED_ENTITY_HIDDEN).where(NAMED_ENTITY_HIDDEN.PRJ_ID.eq(projectId)).execute();
+            inner.deleteFrom(EXTRACTION_ERROR).where(EXTRACTION_ERROR.PRJ_ID.eq(projectId)).execute();
             int deleteProject = inner.deleteFrom(PROJECT).where(PROJECT.ID.eq(projectId)).execute();
-            return deleteStarResult + deleteTagResult + deleteUserRecommendationResult + deletedUserHistoryProjectIds.size() + deleteUserHistoryResult + deleteProject > 0;
+            return droppedPartitions || deleteStarResult + deleteTagResult + deleteUserRecommendationResult + deletedUserHistoryProjectIds.size() + deleteUserHistoryResult + deleteProject > 0;
         });
 
     }
@@ -520,29 +821,35 @@ public class JooqRepository implements Repository {
     public boolean save(Project project) {
         LocalDateTime projectCreationDate = project.creationDate == null ? null : LocalDateTime.ofInstant(project.creationDate.toInstant(),ZoneOffset.UTC);
         LocalDateTime projectUpdateDate = project.updateDate == null ? null : LocalDateTime.ofInstant(project.updateDate.toInstant(),ZoneOffset.UTC);
-        InsertOnDuplicateSetMoreStep<ProjectRecord> innerSet = using(connectionProvider, dialect).insertInto(
-                        PROJECT, PROJECT.ID, PROJECT.LABEL, PROJECT.DESCRIPTION, PROJECT.PATH, PROJECT.SOURCE_URL,
-                        PROJECT.MAINTAINER_NAME, PROJECT.PUBLISHER_NAME, PROJECT.LOGO_URL,
-                        PROJECT.ALLOW_FROM_MASK,
-                        PROJECT.CREATION_DATE, PROJECT.UPDATE_DATE).
-                values(
-                        project.name, project.label, project.description, project.sourcePath.toString(), project.sourceUrl,
-                        project.maintainerName, project.publisherName, project.logoUrl,
-                        project.allowFromMask,
-                        projectCreationDate, projectUpdateDate).
-                onConflict(PROJECT.ID).
-                doUpdate().
-                set(PROJECT.LABEL, project.label);
-        return innerSet.
-                set(PROJECT.DESCRIPTION, project.description).
-                set(PROJECT.SOURCE_URL, project.sourceUrl).
-                set(PROJECT.MAINTAINER_NAME, project.maintainerName).
-                set(PROJECT.PUBLISHER_NAME, project.publisherName).
-                set(PROJECT.LOGO_URL, project.logoUrl).
-                set(PROJECT.ALLOW_FROM_MASK, project.allowFromMask).
-                set(PROJECT.UPDATE_DATE, projectUpdateDate).
-                execute() > 0;
-
+        return using(connectionProvider, dialect).transactionResult(configuration -> {
+            DSLContext inner = using(configuration);
+            InsertOnDuplicateSetMoreStep<ProjectRecord> innerSet = inner.insertInto(
+                            PROJECT, PROJECT.ID, PROJECT.LABEL, PROJECT.DESCRIPTION, PROJECT.PATH, PROJECT.SOURCE_URL,
+                            PROJECT.MAINTAINER_NAME, PROJECT.PUBLISHER_NAME, PROJECT.LOGO_URL,
+                            PROJECT.ALLOW_FROM_MASK,
+                            PROJECT.CREATION_DATE, PROJECT.UPDATE_DATE).
+                    values(
+                            project.name, project.label, project.description, project.sourcePath.toString(), project.sourceUrl,
+                            project.maintainerName, project.publisherName, project.logoUrl,
+                            project.allowFromMask,
+                            projectCreationDate, projectUpdateDate).
+                    onConflict(PROJECT.ID).
+                    doUpdate().
+                    set(PROJECT.LABEL, project.label);
+            boolean saved = innerSet.
+                    set(PROJECT.DESCRIPTION, project.description).
+                    set(PROJECT.SOURCE_URL, project.sourceUrl).
+                    set(PROJECT.MAINTAINER_NAME, project.maintainerName).
+                    set(PROJECT.PUBLISHER_NAME, project.publisherName).
+                    set(PROJECT.LOGO_URL, project.logoUrl).
+                    set(PROJECT.ALLOW_FROM_MASK, project.allowFromMask).
+                    set(PROJECT.UPDATE_DATE, projectUpdateDate).
+                    execute() > 0;
+            if (dialect == SQLDialect.POSTGRES) {
+                ProjectPartitions.create(inner, project.name);
+            }
+            return saved;
+        });
     }
 
     public boolean save(User user) {
@@ -674,7 +981,8 @@ public class JooqRepository implements Repository {
     private NamedEntity createFrom(NamedEntityRecord record) {
         try {
             return NamedEntity.create(NamedEntity.Category.parse(record.getCategory()),
-                    record.getMention(), MAPPER.readValue(record.getOffsets(), List.class),
+                    record.getMention(), record.getOffsetsBin() == null ?
+                            MAPPER.readValue(record.getOffsets(), List.class) : NamedEntityOffsets.decode(record.getOffsetsBin()),
                     record.getDocId(), record.getRootId(), Pipeline.Type.fromCode(record.getExtractor()),
                     Language.parse(record.getExtractorLanguage()));
         } catch (IOException e) {
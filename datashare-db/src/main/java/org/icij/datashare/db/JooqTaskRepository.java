@@ -127,6 +127,31 @@ public class JooqTaskRepository implements TaskRepository {
         return new Group(TaskGroupType.valueOf(groupId));
     }
 
+    @Override
+    public void saveCheckpoint(String taskId, Map<String, Object> checkpoint) throws IOException, UnknownTask {
+        int updated = DSL.using(connectionProvider, dialect).update(TASK)
+            .set(TASK.CHECKPOINT, JsonObjectMapper.MAPPER.writeValueAsString(checkpoint))
+            .where(TASK.ID.eq(taskId))
+            .execute();
+        if (updated == 0) {
+            throw new UnknownTask(taskId);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getCheckpoint(String taskId) throws IOException, UnknownTask {
+        String checkpoint = Optional.ofNullable(
+            DSL.using(connectionProvider, dialect)
+                .select(TASK.CHECKPOINT)
+                .from(TASK)
+                .where(TASK.ID.eq(taskId))
+                .fetchOne()
+            )
+            .orElseThrow(() -> new UnknownTask(taskId))
+            .get(TASK.CHECKPOINT);
+        return checkpoint == null ? Map.of() : JsonObjectMapper.MAPPER.readValue(checkpoint, new TypeReference<>() {});
+    }
+
     @Override
     public Stream<Task<? extends Serializable>> getTasks(TaskFilters filters) {
         if (filters == null) {
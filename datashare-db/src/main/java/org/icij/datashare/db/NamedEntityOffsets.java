@@ -0,0 +1,54 @@
+package org.icij.datashare.db;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary codec for the named entity offsets stored in <code>named_entity.offsets_bin</code>.
+ * <p>
+ * Each offset is stored as the difference with the previous one (offsets are usually sorted
+ * so differences are small), zigzag encoded to keep unsorted lists exact, then written as a
+ * varint (7 bits per byte, high bit set when more bytes follow).
+ */
+final class NamedEntityOffsets {
+    private NamedEntityOffsets() {}
+
+    static byte[] encode(List<Long> offsets) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(offsets.size() * 2);
+        long previous = 0;
+        for (Number offset : offsets) {
+            long delta = offset.longValue() - previous;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                bytes.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            bytes.write((int) zigzag);
+            previous = offset.longValue();
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Long> decode(byte[] bytes) {
+        List<Long> offsets = new ArrayList<>();
+        long previous = 0;
+        int i = 0;
+        while (i < bytes.length) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (i >= bytes.length || shift > 63) {
+                    throw new IllegalArgumentException("invalid offsets encoding");
+                }
+                b = bytes[i++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            offsets.add(previous);
+        }
+        return offsets;
+    }
+}
@@ -0,0 +1,85 @@
+package org.icij.datashare.db;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.jooq.BatchBindStep;
+import org.jooq.DSLContext;
+import org.jooq.Record2;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.icij.datashare.db.tables.NamedEntity.NAMED_ENTITY;
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
+import static org.jooq.impl.DSL.using;
+
+/**
+ * Converts the json offsets of the named entities saved before <code>offsets_bin</code> was added.
+ * <p>
+ * Rows are converted by batches, each in its own transaction, so datashare can be used during the conversion:
+ * the repository reads the json offsets of the rows that are not converted yet.
+ */
+class NamedEntityOffsetsMigration implements Runnable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(NamedEntityOffsetsMigration.class);
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final SQLDialect dialect;
+    private final int batchSize;
+    private String lastId = "";
+
+    NamedEntityOffsetsMigration(DataSource dataSource, SQLDialect dialect, int batchSize) {
+        this.dataSource = dataSource;
+        this.dialect = dialect;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run() {
+        try {
+            long converted = 0;
+            int nb;
+            while ((nb = migrateBatch()) > 0) {
+                converted += nb;
+            }
+            if (converted > 0) {
+                LOGGER.info("converted offsets of {} named entities", converted);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("error while converting named entities offsets", e);
+        }
+    }
+
+    /**
+     * @return the number of rows read in the batch (rows with invalid json are skipped)
+     */
+    int migrateBatch() {
+        return using(dataSource, dialect).transactionResult(configuration -> {
+            DSLContext ctx = using(configuration);
+            Result<Record2<String, String>> rows = ctx.select(NAMED_ENTITY.ID, NAMED_ENTITY.OFFSETS).from(NAMED_ENTITY)
+                    .where(NAMED_ENTITY.OFFSETS_BIN.isNull()).and(NAMED_ENTITY.ID.gt(lastId))
+                    .orderBy(NAMED_ENTITY.ID).limit(batchSize).fetch();
+            if (rows.isEmpty()) return 0;
+
+            BatchBindStep update = ctx.batch(ctx.update(NAMED_ENTITY)
+                    .set(NAMED_ENTITY.OFFSETS_BIN, (byte[]) null).set(NAMED_ENTITY.OFFSETS, (String) null)
+                    .where(NAMED_ENTITY.ID.eq((String) null)).and(NAMED_ENTITY.OFFSETS_BIN.isNull()));
+            for (Record2<String, String> row : rows) {
+                try {
+                    List<Long> offsets = MAPPER.readerForListOf(Long.class).readValue(row.value2());
+                    update.bind(NamedEntityOffsets.encode(offsets), "", row.value1());
+                } catch (JsonProcessingException e) {
+                    LOGGER.warn("cannot read offsets {} of named entity {}", row.value2(), row.value1());
+                }
+            }
+            if (update.size() > 0) {
+                update.execute();
+            }
+            lastId = rows.get(rows.size() - 1).value1();
+            return rows.size();
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package org.icij.datashare.db;
+
+import org.icij.datashare.text.Hasher;
+import org.jooq.DSLContext;
+import org.jooq.Table;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.icij.datashare.db.tables.DocumentTag.DOCUMENT_TAG;
+import static org.icij.datashare.db.tables.DocumentUserRecommendation.DOCUMENT_USER_RECOMMENDATION;
+import static org.icij.datashare.db.tables.DocumentUserStar.DOCUMENT_USER_STAR;
+import static org.icij.datashare.db.tables.ExtractionError.EXTRACTION_ERROR;
+import static org.icij.datashare.db.tables.NamedEntityDocRollup.NAMED_ENTITY_DOC_ROLLUP;
+import static org.icij.datashare.db.tables.NamedEntityRollup.NAMED_ENTITY_ROLLUP;
+import static org.jooq.impl.DSL.inline;
+import static org.jooq.impl.DSL.name;
+import static org.jooq.impl.DSL.table;
+
+/**
+ * Postgres partitions of the document user tables, of the named entity rollups and of the extraction errors
+ * (see 043-partitions-document-user-tables.yml, 046-partitions-named-entity-rollups.yml and 047-partitions-extraction-error.yml).
+ * <p>
+ * Each saved project has its own partition, so deleting a project drops tables
+ * instead of deleting its rows one by one from tables shared with the other projects.
+ * Rows of projects without partition (not saved in the project table) go to the default partition.
+ */
+class ProjectPartitions {
+    static final List<Table<?>> PARTITIONED_TABLES = List.of(DOCUMENT_TAG, DOCUMENT_USER_STAR, DOCUMENT_USER_RECOMMENDATION,
+            NAMED_ENTITY_DOC_ROLLUP, NAMED_ENTITY_ROLLUP, EXTRACTION_ERROR);
+    private static final int MAX_PROJECT_CHARS = 24;
+
+    private ProjectPartitions() {}
+
+    static String partitionName(Table<?> table, String projectId) {
+        String sanitized = projectId.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_]", "_");
+        return table.getName() + "_p_" + sanitized.substring(0, Math.min(sanitized.length(), MAX_PROJECT_CHARS))
+                + "_" + Hasher.SHA_1.hash(projectId).substring(0, 8);
+    }
+
+    /**
+     * creates the partitions of the project, moving its rows that were in the default partitions.
+     * Must be called in a transaction.
+     */
+    static void create(DSLContext ctx, String projectId) {
+        for (Table<?> table : PARTITIONED_TABLES) {
+            String partition = partitionName(table, projectId);
+            if (exists(ctx, partition)) continue;
+            ctx.execute("CREATE TABLE {0} (LIKE {1} INCLUDING DEFAULTS)", name(partition), table);
+            ctx.execute("WITH moved AS (DELETE FROM {0} WHERE prj_id = {1} RETURNING *) INSERT INTO {2} SELECT * FROM moved",
+                    name(table.getName() + "_default"), inline(projectId), name(partition));
+            ctx.execute("ALTER TABLE {0} ATTACH PARTITION {1} FOR VALUES IN ({2})", table, name(partition), inline(projectId));
+        }
+    }
+
+    /**
+     * drops the partitions of the project. Must be called in a transaction.
+     * @return true if one of the dropped partitions had rows
+     */
+    static boolean drop(DSLContext ctx, String projectId) {
+        boolean hadRows = false;
+        for (Table<?> table : PARTITIONED_TABLES) {
+            String partition = partitionName(table, projectId);
+            if (!exists(ctx, partition)) continue;
+            hadRows |= ctx.fetchExists(table(name(partition)));
+            ctx.execute("DROP TABLE {0}", name(partition));
+        }
+        return hadRows;
+    }
+
+    private static boolean exists(DSLContext ctx, String partition) {
+        return Boolean.TRUE.equals(ctx.fetchValue("SELECT to_regclass({0}) IS NOT NULL", inline("public.\"" + partition + "\"")));
+    }
+}
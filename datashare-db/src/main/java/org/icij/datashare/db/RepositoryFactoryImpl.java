@@ -53,11 +53,15 @@ public class RepositoryFactoryImpl implements RepositoryFactory {
     }
 
     void initDatabase(final DataSource dataSource) {
+        initDatabase(dataSource, "liquibase/changelog/db.changelog.yml");
+    }
+
+    void initDatabase(final DataSource dataSource, final String changelogFile) {
         System.setProperty("liquibase.command.showSummaryOutput", "LOG"); // avoid double log
         try (Connection connection = dataSource.getConnection()){
             try (Database db = DatabaseFactory.getInstance().findCorrectDatabaseImplementation(new JdbcConnection(connection))) {
                 CommandScope updateCommand = new CommandScope(UpdateCommandStep.COMMAND_NAME);
-                updateCommand.addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, "liquibase/changelog/db.changelog.yml");
+                updateCommand.addArgumentValue(UpdateCommandStep.CHANGELOG_FILE_ARG, changelogFile);
                 Scope.enter(Map.of(Scope.Attr.ui.name(), new NullUIService()));
                 updateCommand.addArgumentValue(DbUrlConnectionArgumentsCommandStep.DATABASE_ARG, db);
                 updateCommand.execute();
@@ -71,6 +75,10 @@ public class RepositoryFactoryImpl implements RepositoryFactory {
 
     public void initDatabase() {
         initDatabase(dataSource);
+        Thread offsetsMigration = new Thread(new NamedEntityOffsetsMigration(dataSource, guessSqlDialect(),
+                NamedEntityOffsetsMigration.DEFAULT_BATCH_SIZE), "named-entity-offsets-migration");
+        offsetsMigration.setDaemon(true);
+        offsetsMigration.start();
     }
 
     private <T> T createRepository(BiFunction<DataSource, SQLDialect, T> constructor) {
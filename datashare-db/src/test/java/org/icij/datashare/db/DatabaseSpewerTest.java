@@ -1,7 +1,10 @@
 package org.icij.datashare.db;
 
+import org.apache.commons.io.TaggedIOException;
 import org.icij.datashare.text.Document;
+import org.icij.datashare.text.DocumentBuilder;
 import org.icij.datashare.text.Language;
+import org.icij.datashare.text.nlp.Pipeline;
 import org.icij.extract.document.TikaDocument;
 import org.icij.extract.extractor.Extractor;
 import org.junit.Rule;
@@ -11,14 +14,19 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 import static java.nio.charset.Charset.forName;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.text.Project.project;
+import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
 public class DatabaseSpewerTest {
@@ -46,10 +54,84 @@ public class DatabaseSpewerTest {
         TikaDocument tikaDocument = new Extractor().extract(file.toPath());
 
         dbSpewer.write(tikaDocument);
+        dbSpewer.close();
         Document actual = dbSpewer.repository.getDocument(tikaDocument.getId());
         assertThat(actual.getContent()).isEqualTo("chaîne en iso8859");
         assertThat(actual.getContentEncoding()).isEqualTo(forName("iso8859-1"));
         assertThat(actual.getContentLength()).isEqualTo(18);
         assertThat(actual.getContentType()).isEqualTo("text/plain");
     }
+
+    @Test
+    public void test_spew_document_is_saved_when_write_returns() throws Exception {
+        DatabaseSpewer spewer = new DatabaseSpewer(project("prj"), dbRule.createRepository(), text -> Language.ENGLISH,
+                100, DatabaseSpewer.DEFAULT_MAX_BATCH_BYTES);
+        TikaDocument doc = extract("doc.txt", "content");
+
+        spewer.write(doc);
+
+        assertThat(spewer.repository.getDocument(doc.getId()).getContent()).isEqualTo("content");
+        spewer.close();
+    }
+
+    @Test
+    public void test_spew_documents_added_meanwhile_are_saved_in_the_same_batch() throws Exception {
+        DatabaseSpewer spewer = new DatabaseSpewer(project("prj"), dbRule.createRepository(), text -> Language.ENGLISH,
+                100, DatabaseSpewer.DEFAULT_MAX_BATCH_BYTES);
+        TikaDocument doc1 = extract("doc1.txt", "content 1");
+        TikaDocument doc2 = extract("doc2.txt", "content 2");
+        spewer.add(document(doc1, "content 1")); // written by another extraction thread
+
+        spewer.write(doc2);
+
+        assertThat(spewer.repository.getDocument(doc1.getId()).getContent()).isEqualTo("content 1");
+        assertThat(spewer.repository.getDocument(doc2.getId()).getContent()).isEqualTo("content 2");
+        spewer.close();
+    }
+
+    @Test
+    public void test_spew_flushes_when_buffer_exceeds_memory_budget() throws Exception {
+        DatabaseSpewer spewer = new DatabaseSpewer(project("prj"), dbRule.createRepository(), text -> Language.ENGLISH,
+                100, 1);
+        TikaDocument doc = extract("doc.txt", "content");
+
+        CompletableFuture<Void> saved = spewer.add(document(doc, "content"));
+
+        assertThat(saved.isDone()).isTrue();
+        assertThat(spewer.repository.getDocument(doc.getId())).isNotNull();
+        spewer.close();
+    }
+
+    @Test
+    public void test_spew_write_fails_for_document_that_cannot_be_saved() throws Exception {
+        DatabaseSpewer spewer = new DatabaseSpewer(project("prj"), dbRule.createRepository(), text -> Language.ENGLISH,
+                100, DatabaseSpewer.DEFAULT_MAX_BATCH_BYTES);
+        TikaDocument doc1 = extract("doc1.txt", "content 1");
+        TikaDocument doc2 = extract("doc2.txt", "content 2");
+        spewer.write(doc1);
+        CompletableFuture<Void> savedMeanwhile = spewer.add(document(doc2, "content 2"));
+
+        try {
+            spewer.write(doc1);
+            fail("write of a duplicate document should fail");
+        } catch (IOException e) {
+            assertThat(TaggedIOException.isTaggedWith(e, spewer)).isTrue();
+        }
+        assertThat(savedMeanwhile.isCompletedExceptionally()).isFalse();
+        assertThat(spewer.repository.getDocument(doc2.getId())).isNotNull();
+        spewer.close();
+    }
+
+    private static Document document(TikaDocument tikaDocument, String content) {
+        return DocumentBuilder.createDoc().with(project("prj")).withId(tikaDocument.getId()).with(tikaDocument.getPath())
+                .with(Document.Status.PARSED).with(content).with(Language.ENGLISH).with(forName("utf-8"))
+                .ofContentType("text/plain").extractedAt(new Date()).withContentLength((long) content.length()).with(new HashMap<>())
+                .with(new Pipeline.Type[]{}).build();
+    }
+
+    private TikaDocument extract(String name, String content) throws IOException {
+        File file = tmp.newFile(name);
+        Files.write(file.toPath(), singletonList(content));
+        return new Extractor().extract(file.toPath());
+    }
 }
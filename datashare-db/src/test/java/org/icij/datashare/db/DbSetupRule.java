@@ -6,6 +6,7 @@ import com.ninja_squad.dbsetup.operation.Operation;
 import com.ninja_squad.dbsetup.operation.SqlOperation;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.batch.BatchSearchRepository;
+import org.jooq.SQLDialect;
 import org.junit.rules.ExternalResource;
 
 import javax.sql.DataSource;
@@ -20,9 +21,9 @@ public class DbSetupRule extends ExternalResource {
     final DataSource dataSource;
     private final String dataSourceUrl;
     private static final Operation DELETE_ALL = deleteAllFrom(
-            "document", "named_entity", "document_user_star", "document_tag", "batch_search_project", "batch_search", "user_inventory",
+            "document", "document_ner_pipeline", "named_entity", "document_user_star", "document_tag", "batch_search_project", "batch_search", "user_inventory",
             "batch_search_query", "batch_search_result", "project", "note", "document_user_recommendation", "api_key",
-            "user_history_project", "user_history_project","user_history");
+            "user_history_project", "user_history_project","user_history", "named_entity_doc_rollup", "named_entity_rollup", "named_entity_hidden", "extraction_error");
     private static final SqlOperation RESET_USER_HISTORY_ID_SEQ_POSTGRES = sql("ALTER SEQUENCE user_history_id_seq RESTART WITH 1;");
     private static final SqlOperation RESET_ID_SEQ_SQLITE = sql("DELETE FROM `sqlite_sequence`;");
 
@@ -48,6 +49,14 @@ public class DbSetupRule extends ExternalResource {
         return new JooqRepository(dataSource, RepositoryFactoryImpl.guessSqlDialectFrom(dataSourceUrl));
     }
 
+    NamedEntityOffsetsMigration createNamedEntityOffsetsMigration(int batchSize) {
+        return new NamedEntityOffsetsMigration(dataSource, dialect(), batchSize);
+    }
+
+    SQLDialect dialect() {
+        return RepositoryFactoryImpl.guessSqlDialectFrom(dataSourceUrl);
+    }
+
     public JooqApiKeyRepository createApiKeyRepository() {
         return new JooqApiKeyRepository(dataSource, RepositoryFactoryImpl.guessSqlDialectFrom(dataSourceUrl));
     }
@@ -1,19 +1,26 @@
 package org.icij.datashare.db;
 
 
+import liquibase.changelog.ChangeLogHistoryServiceFactory;
 import org.icij.datashare.DocumentUserRecommendation;
+import org.icij.datashare.ExtractionError;
 import org.icij.datashare.Note;
 import org.icij.datashare.Repository;
 import org.icij.datashare.UserEvent;
 import org.icij.datashare.test.DatashareTimeRule;
 import org.icij.datashare.text.*;
 import org.icij.datashare.user.User;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -21,10 +28,18 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.UserEvent.Type.DOCUMENT;
 import static org.icij.datashare.UserEvent.Type.SEARCH;
+import static org.icij.datashare.db.tables.DocumentNerPipeline.DOCUMENT_NER_PIPELINE;
+import static org.icij.datashare.db.tables.DocumentTag.DOCUMENT_TAG;
+import static org.icij.datashare.db.tables.ExtractionError.EXTRACTION_ERROR;
+import static org.icij.datashare.db.tables.NamedEntity.NAMED_ENTITY;
+import static org.icij.datashare.db.tables.NamedEntityDocRollup.NAMED_ENTITY_DOC_ROLLUP;
+import static org.icij.datashare.db.tables.NamedEntityRollup.NAMED_ENTITY_ROLLUP;
 import static org.icij.datashare.db.tables.UserHistory.USER_HISTORY;
 import static org.icij.datashare.text.Language.*;
 import static org.icij.datashare.text.NamedEntity.Category.PERSON;
@@ -32,6 +47,8 @@ import static org.icij.datashare.text.Project.project;
 import static org.icij.datashare.text.Tag.tag;
 import static org.icij.datashare.text.nlp.Pipeline.Type.*;
 import static org.icij.datashare.user.User.nullUser;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 @RunWith(Parameterized.class)
 public class JooqRepositoryTest {
@@ -78,6 +95,32 @@ public class JooqRepositoryTest {
         assertThat(actual.getProject()).isEqualTo(project("prj"));
     }
 
+    @Test
+    public void test_create_documents() {
+        Document doc1 = DocumentBuilder.createDoc("id1").with(project("prj")).with("content 1").with(CORENLP).build();
+        Document doc2 = DocumentBuilder.createDoc("id2").with(project("prj")).with("content 2").build();
+
+        repository.createDocuments(asList(doc1, doc2));
+
+        assertThat(repository.getDocument("id1").getContent()).isEqualTo("content 1");
+        assertThat(repository.getDocument("id2").getContent()).isEqualTo("content 2");
+        assertThat(repository.getDocumentsNotTaggedWithPipeline(project("prj"), CORENLP)).containsExactly(repository.getDocument("id2"));
+    }
+
+    @Test
+    public void test_create_documents_is_transactional() {
+        Document doc1 = DocumentBuilder.createDoc("id1").with(project("prj")).with("content 1").build();
+        repository.create(doc1);
+        Document doc2 = DocumentBuilder.createDoc("id2").with(project("prj")).with("content 2").build();
+
+        try {
+            repository.createDocuments(asList(doc2, doc1));
+            fail("the duplicated document should make the batch fail");
+        } catch (DataAccessException expected) {}
+
+        assertThat(repository.getDocuments(project("prj"), singletonList("id2"))).isEmpty();
+    }
+
     @Test
     public void test_get_untagged_documents() {
         Document coreAndOpenNlp = DocumentBuilder.createDoc("idCore")
@@ -109,6 +152,98 @@ public class JooqRepositoryTest {
         assertThat(repository.getDocumentsNotTaggedWithPipeline(project("prj"), TEST)).containsExactly(coreAndOpenNlp, spacyPipe);
     }
 
+    @Test
+    public void test_get_untagged_documents_of_project() {
+        repository.create(DocumentBuilder.createDoc("id1").with(project("prj")).with(Paths.get("/path/to/id1")).with("content 1").build());
+        repository.create(DocumentBuilder.createDoc("id2").with(project("other")).with(Paths.get("/path/to/id2")).with("content 2").build());
+
+        assertThat(repository.getDocumentsNotTaggedWithPipeline(project("prj"), CORENLP)).hasSize(1);
+        assertThat(repository.getDocumentsNotTaggedWithPipeline(project("prj"), CORENLP).get(0).getId()).isEqualTo("id1");
+    }
+
+    @Test
+    public void test_stream_untagged_document_ids_by_pages() {
+        for (int i = 0; i < 5; i++) {
+            repository.create(DocumentBuilder.createDoc("id" + i).with(project("prj")).with(Paths.get("/path/to/id" + i)).with("content").build());
+        }
+        repository.create(DocumentBuilder.createDoc("idSpacy").with(project("prj")).with(Paths.get("/path/to/spacy")).with("content").with(SPACY).build());
+
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), SPACY, 2).collect(toList()))
+                .containsExactly("id0", "id1", "id2", "id3", "id4");
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), CORENLP, 3).count()).isEqualTo(6);
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("other"), CORENLP, 3).count()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_get_documents_by_ids() {
+        repository.create(DocumentBuilder.createDoc("id1").with(project("prj")).with(Paths.get("/path/to/id1")).with("content 1").build());
+        repository.create(DocumentBuilder.createDoc("id2").with(project("prj")).with(Paths.get("/path/to/id2")).with("content 2").build());
+        repository.create(DocumentBuilder.createDoc("id3").with(project("prj")).with(Paths.get("/path/to/id3")).with("content 3").build());
+
+        assertThat(repository.getDocuments(project("prj"), List.of("id3", "id1")).stream().map(Document::getContent).collect(toList()))
+                .containsExactly("content 1", "content 3");
+    }
+
+    @Test
+    public void test_tag_with_pipeline() {
+        repository.create(DocumentBuilder.createDoc("docId").with(project("prj")).with(Paths.get("/path/to/doc")).with("content").with(SPACY).build());
+
+        repository.tagWithPipeline(project("prj"), CORENLP, "docId",
+                List.of(NamedEntity.create(PERSON, "mention", List.of(12L), "docId", "docId", CORENLP, ENGLISH)));
+
+        assertThat(repository.getDocument("docId").getNerTags()).containsOnly(SPACY, CORENLP);
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), CORENLP, 10).count()).isEqualTo(0);
+        assertThat(repository.getNamedEntity(NamedEntity.create(PERSON, "mention", List.of(12L), "docId", "docId", CORENLP, ENGLISH).getId())).isNotNull();
+    }
+
+    @Test
+    public void test_create_named_entity_stores_binary_offsets() {
+        NamedEntity ne = NamedEntity.create(PERSON, "mention", List.of(12L, 3L, 4000000000L), "docId", "root", CORENLP, ENGLISH);
+        repository.create(List.of(ne));
+
+        assertThat(repository.getNamedEntity(ne.getId()).getOffsets()).isEqualTo(List.of(12L, 3L, 4000000000L));
+        assertThat(DSL.using(dbRule.dataSource, dbRule.dialect()).select(NAMED_ENTITY.OFFSETS_BIN).from(NAMED_ENTITY)
+                .where(NAMED_ENTITY.ID.eq(ne.getId())).fetchOne().value1()).isNotNull();
+    }
+
+    @Test
+    public void test_migrate_json_offsets_by_batch() {
+        DSLContext ctx = DSL.using(dbRule.dataSource, dbRule.dialect());
+        for (String id : List.of("ne1", "ne2", "ne3")) {
+            ctx.insertInto(NAMED_ENTITY, NAMED_ENTITY.ID, NAMED_ENTITY.MENTION, NAMED_ENTITY.OFFSETS, NAMED_ENTITY.EXTRACTOR,
+                    NAMED_ENTITY.CATEGORY, NAMED_ENTITY.DOC_ID, NAMED_ENTITY.ROOT_ID, NAMED_ENTITY.EXTRACTOR_LANGUAGE, NAMED_ENTITY.HIDDEN)
+                    .values(id, "mention", "[12,34]", CORENLP.code, "PERS", "docId", "docId", "en", false).execute();
+        }
+        assertThat(repository.getNamedEntity("ne1").getOffsets().toString()).isEqualTo("[12, 34]");
+
+        NamedEntityOffsetsMigration migration = dbRule.createNamedEntityOffsetsMigration(2);
+        assertThat(migration.migrateBatch()).isEqualTo(2);
+        assertThat(ctx.fetchCount(NAMED_ENTITY, NAMED_ENTITY.OFFSETS_BIN.isNull())).isEqualTo(1);
+        migration.run();
+
+        assertThat(ctx.fetchCount(NAMED_ENTITY, NAMED_ENTITY.OFFSETS_BIN.isNull())).isEqualTo(0);
+        assertThat(repository.getNamedEntity("ne3").getOffsets()).isEqualTo(List.of(12L, 34L));
+    }
+
+    @Test
+    public void test_migrate_ner_mask_to_document_pipelines_once() {
+        repository.create(DocumentBuilder.createDoc("id1").with(project("prj")).with(Paths.get("/path/to/id1")).with("content").with(CORENLP, SPACY).build());
+        repository.create(DocumentBuilder.createDoc("id2").with(project("prj")).with(Paths.get("/path/to/id2")).with("content").build());
+        DSLContext ctx = DSL.using(dbRule.dataSource, dbRule.dialect());
+        ctx.deleteFrom(DOCUMENT_NER_PIPELINE).execute();
+        new RepositoryFactoryImpl().initDatabase(dbRule.dataSource);
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), SPACY, 10).count()).isEqualTo(2);
+
+        String changelog = "liquibase/changelog/changes/048-fills-document-ner-pipeline.yml";
+        ctx.deleteFrom(DSL.table("databasechangelog")).where(DSL.field("filename").eq(changelog)).execute();
+        ChangeLogHistoryServiceFactory.getInstance().resetAll(); // liquibase caches the ran change sets
+        new RepositoryFactoryImpl().initDatabase(dbRule.dataSource, changelog);
+
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), SPACY, 10).collect(toList())).containsExactly("id2");
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), CORENLP, 10).collect(toList())).containsExactly("id2");
+        assertThat(repository.getDocumentIdsNotTaggedWithPipeline(project("prj"), OPENNLP, 10).count()).isEqualTo(2);
+    }
+
     @Test
     public void test_create_named_entity_list() {
         List<NamedEntity> namedEntities = Arrays.asList(
@@ -187,6 +322,21 @@ public class JooqRepositoryTest {
         assertThat(repository.unrecommend(project("prj"), user1, singletonList("id3"))).isEqualTo(1);
     }
 
+    @Test
+    public void test_tags_are_unique_by_project() {
+        assertThat(repository.tag(project("prj1"), "doc_id", tag("tag1"))).isTrue();
+        assertThat(repository.tag(project("prj2"), "doc_id", tag("tag1"))).isTrue();
+        assertThat(repository.tag(project("prj1"), "doc_id", tag("tag1"))).isFalse();
+
+        assertThat(repository.getDocuments(project("prj1"), tag("tag1"))).containsExactly("doc_id");
+        assertThat(repository.getDocuments(project("prj2"), tag("tag1"))).containsExactly("doc_id");
+        try {
+            DSL.using(dbRule.dataSource, dbRule.dialect()).insertInto(DOCUMENT_TAG, DOCUMENT_TAG.DOC_ID, DOCUMENT_TAG.LABEL, DOCUMENT_TAG.PRJ_ID)
+                    .values("doc_id", "tag1", null).execute();
+            fail("a tag without project should be rejected");
+        } catch (DataAccessException expected) {}
+    }
+
     @Test
     public void test_tag_untag_a_document() {
         assertThat(repository.tag(project("prj"), "doc_id", tag("tag1"), tag("tag2"))).isTrue();
@@ -416,6 +566,71 @@ public class JooqRepositoryTest {
         assertThat(repository.getUserEvents(user)).isEmpty();
     }
 
+    @Test
+    public void test_delete_all_saved_project() {
+        User user = new User("userid");
+        repository.tag(project("prj"), "doc_id", tag("tag1"));
+        repository.save(new Project("prj"));
+        repository.tag(project("prj"), "doc_id", tag("tag2"));
+        repository.star(project("prj"), user, singletonList("doc_id"));
+        repository.tag(project("other"), "other_doc_id", tag("tag1"));
+
+        assertThat(repository.getTags(project("prj"), "doc_id")).containsOnly(tag("tag1"), tag("tag2"));
+        assertThat(repository.deleteAll("prj")).isTrue();
+        assertThat(repository.deleteAll("prj")).isFalse();
+
+        assertThat(repository.getTags(project("prj"), "doc_id")).isEmpty();
+        assertThat(repository.getStarredDocuments(user)).isEmpty();
+        assertThat(repository.getTags(project("other"), "other_doc_id")).containsOnly(tag("tag1"));
+    }
+
+    @Test
+    public void test_project_partitions_on_postgres() {
+        assumeTrue(dbRule.dialect() == SQLDialect.POSTGRES);
+        DSLContext ctx = DSL.using(dbRule.dataSource, dbRule.dialect());
+        String partition = ProjectPartitions.partitionName(DOCUMENT_TAG, "prj");
+
+        repository.save(new Project("prj"));
+        repository.tag(project("prj"), "doc_id", tag("tag"));
+        assertThat(ctx.fetchCount(DSL.table(DSL.name(partition)))).isEqualTo(1);
+
+        repository.deleteAll("prj");
+        assertThat(ctx.fetchValue("SELECT to_regclass({0})", DSL.inline(partition))).isNull();
+    }
+
+    @Test
+    public void test_named_entity_rollups_partitions_on_postgres() {
+        assumeTrue(dbRule.dialect() == SQLDialect.POSTGRES);
+        DSLContext ctx = DSL.using(dbRule.dataSource, dbRule.dialect());
+        String docPartition = ProjectPartitions.partitionName(NAMED_ENTITY_DOC_ROLLUP, "prj");
+        String projectPartition = ProjectPartitions.partitionName(NAMED_ENTITY_ROLLUP, "prj");
+
+        repository.save(new Project("prj"));
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, singletonList(new NamedEntityRollup("jane", PERSON, 3)));
+        repository.hideNamedEntities(project("prj"), "jane");
+        assertThat(ctx.fetchCount(DSL.table(DSL.name(docPartition)))).isEqualTo(1);
+        assertThat(ctx.fetchCount(DSL.table(DSL.name(projectPartition)))).isEqualTo(1);
+
+        assertThat(repository.deleteAll("prj")).isTrue();
+        assertThat(ctx.fetchValue("SELECT to_regclass({0})", DSL.inline(docPartition))).isNull();
+        assertThat(ctx.fetchValue("SELECT to_regclass({0})", DSL.inline(projectPartition))).isNull();
+        assertThat(repository.hideNamedEntities(project("prj"), "jane")).isEqualTo(1);
+    }
+
+    @Test
+    public void test_extraction_error_partitions_on_postgres() {
+        assumeTrue(dbRule.dialect() == SQLDialect.POSTGRES);
+        DSLContext ctx = DSL.using(dbRule.dataSource, dbRule.dialect());
+        String partition = ProjectPartitions.partitionName(EXTRACTION_ERROR, "prj");
+
+        repository.save(new Project("prj"));
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/dir/file.pdf"), "application/pdf", "FAILURE_NOT_PARSED", new IllegalStateException("bad"), new Date()));
+        assertThat(ctx.fetchCount(DSL.table(DSL.name(partition)))).isEqualTo(1);
+
+        assertThat(repository.deleteAll("prj")).isTrue();
+        assertThat(ctx.fetchValue("SELECT to_regclass({0})", DSL.inline(partition))).isNull();
+    }
+
     @Test
     public void test_save_project() {
         Project project = new Project(
@@ -666,6 +881,155 @@ public class JooqRepositoryTest {
         List<UserEvent> userDocEvents2 = repository.getUserHistory(User.local(), DOCUMENT, 0, 10, "modification_date", true);
         assertThat(userDocEvents2.get(0).name).isEqualTo("doc_name1");
     }
+    @Test
+    public void test_rollup_named_entities_replaces_document_counts() {
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, asList(
+                new NamedEntityRollup("jane", PERSON, 3), new NamedEntityRollup("acme", NamedEntity.Category.ORGANIZATION, 1)));
+        repository.rollupNamedEntities(project("prj"), "doc2", CORENLP, singletonList(new NamedEntityRollup("jane", PERSON, 2)));
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, singletonList(new NamedEntityRollup("jane", PERSON, 1)));
+
+        assertThat(repository.getNamedEntityRollups(project("prj"), null, null, false, 0, 10)).containsExactly(
+                new NamedEntityRollup("jane", PERSON, 3, 2, false));
+    }
+
+    @Test
+    public void test_rollup_named_entities_counts_documents_once_for_all_pipelines() {
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, singletonList(new NamedEntityRollup("jane", PERSON, 3)));
+        repository.rollupNamedEntities(project("prj"), "doc1", SPACY, singletonList(new NamedEntityRollup("jane", PERSON, 2)));
+
+        assertThat(repository.getNamedEntityRollups(project("prj"), null, null, false, 0, 10)).containsExactly(
+                new NamedEntityRollup("jane", PERSON, 5, 1, false));
+        assertThat(repository.getNamedEntityRollups(project("prj"), "doc1")).containsExactly(
+                new NamedEntityRollup("jane", PERSON, 5, 1, false));
+    }
+
+    @Test
+    public void test_get_named_entity_rollups_filters() {
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, asList(new NamedEntityRollup("jane", PERSON, 1),
+                new NamedEntityRollup("john", PERSON, 4), new NamedEntityRollup("jakarta", NamedEntity.Category.LOCATION, 2)));
+        repository.rollupNamedEntities(project("other"), "doc1", CORENLP, singletonList(new NamedEntityRollup("jack", PERSON, 10)));
+
+        assertThat(mentionNorms(repository.getNamedEntityRollups(project("prj"), null, null, false, 0, 10)))
+                .containsExactly("john", "jakarta", "jane");
+        assertThat(mentionNorms(repository.getNamedEntityRollups(project("prj"), PERSON, null, false, 0, 10)))
+                .containsExactly("john", "jane");
+        assertThat(mentionNorms(repository.getNamedEntityRollups(project("prj"), null, "ja", false, 0, 10)))
+                .containsExactly("jakarta", "jane");
+        assertThat(mentionNorms(repository.getNamedEntityRollups(project("prj"), null, null, false, 1, 1)))
+                .containsExactly("jakarta");
+    }
+
+    @Test
+    public void test_hide_named_entities() {
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, asList(
+                new NamedEntityRollup("jane", PERSON, 1), new NamedEntityRollup("john", PERSON, 4)));
+
+        assertThat(repository.hideNamedEntities(project("prj"), "john")).isEqualTo(1);
+
+        assertThat(mentionNorms(repository.getNamedEntityRollups(project("prj"), null, null, false, 0, 10)))
+                .containsExactly("jane");
+        assertThat(repository.getNamedEntityRollups(project("prj"), null, null, true, 0, 10)).containsExactly(
+                new NamedEntityRollup("john", PERSON, 4, 1, true), new NamedEntityRollup("jane", PERSON, 1, 1, false));
+    }
+
+    @Test
+    public void test_hide_named_entities_before_they_are_counted() {
+        assertThat(repository.hideNamedEntities(project("prj"), "john")).isEqualTo(1);
+        assertThat(repository.hideNamedEntities(project("prj"), "john")).isEqualTo(0);
+
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, singletonList(new NamedEntityRollup("john", PERSON, 2)));
+
+        assertThat(repository.getNamedEntityRollups(project("prj"), null, null, false, 0, 10)).isEmpty();
+        assertThat(repository.getNamedEntityRollups(project("prj"), "doc1")).containsExactly(
+                new NamedEntityRollup("john", PERSON, 2, 1, true));
+    }
+
+    @Test
+    public void test_hidden_named_entities_stay_hidden_when_counted_again() {
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, singletonList(new NamedEntityRollup("john", PERSON, 2)));
+        repository.hideNamedEntities(project("prj"), "john");
+        repository.rollupNamedEntities(project("prj"), "doc1", CORENLP, emptyList());
+        assertThat(repository.getNamedEntityRollups(project("prj"), null, null, true, 0, 10)).isEmpty();
+
+        repository.rollupNamedEntities(project("prj"), "doc2", CORENLP, singletonList(new NamedEntityRollup("john", PERSON, 1)));
+
+        assertThat(repository.getNamedEntityRollups(project("prj"), null, null, true, 0, 10)).containsExactly(
+                new NamedEntityRollup("john", PERSON, 1, 1, true));
+    }
+
+    @Test
+    public void test_save_extraction_error_replaces_previous_error() {
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/dir/file.pdf"), "application/pdf", "FAILURE_NOT_PARSED", new IllegalStateException("bad"), new Date()));
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/dir/file.pdf"), "application/pdf", "FAILURE_UNREADABLE", new IOException("unreadable"), new Date()));
+
+        List<ExtractionError> errors = repository.getExtractionErrors(project("prj"), ExtractionError.Filter.ALL, null, 10);
+        assertThat(errors).hasSize(1);
+        assertThat(errors.get(0).path()).isEqualTo("/dir/file.pdf");
+        assertThat(errors.get(0).directory()).isEqualTo("/dir");
+        assertThat(errors.get(0).status()).isEqualTo("FAILURE_UNREADABLE");
+        assertThat(errors.get(0).exceptionClass()).isEqualTo("java.io.IOException");
+        assertThat(errors.get(0).message()).isEqualTo("unreadable");
+    }
+
+    @Test
+    public void test_get_extraction_errors_with_filter() {
+        saveExtractionErrors();
+
+        assertThat(errorPaths(repository.getExtractionErrors(project("prj"), ExtractionError.Filter.ALL, null, 10)))
+                .containsExactly("/a/b/doc.doc", "/a/bc/doc.pdf", "/a/file.pdf", "/c/image.png");
+        assertThat(errorPaths(repository.getExtractionErrors(project("prj"), new ExtractionError.Filter(null, "application/pdf", null, null), null, 10)))
+                .containsExactly("/a/bc/doc.pdf", "/a/file.pdf");
+        assertThat(errorPaths(repository.getExtractionErrors(project("prj"), new ExtractionError.Filter(null, null, "/a/b", null), null, 10)))
+                .containsExactly("/a/b/doc.doc");
+        assertThat(errorPaths(repository.getExtractionErrors(project("prj"), new ExtractionError.Filter("java.io.IOException", null, "/a", null), null, 10)))
+                .containsExactly("/a/b/doc.doc", "/a/file.pdf");
+        assertThat(errorPaths(repository.getExtractionErrors(project("prj"), ExtractionError.Filter.ALL, "/a/b/doc.doc", 2)))
+                .containsExactly("/a/bc/doc.pdf", "/a/file.pdf");
+    }
+
+    @Test
+    public void test_aggregate_extraction_errors() {
+        saveExtractionErrors();
+
+        Repository.AggregateList<String> byException = repository.aggregateExtractionErrors(project("prj"), ExtractionError.Field.EXCEPTION_CLASS, ExtractionError.Filter.ALL, 10);
+        assertThat(byException.aggregates).containsExactly(new Repository.Aggregate<>("java.io.IOException", 3), new Repository.Aggregate<>("java.lang.IllegalStateException", 1));
+        assertThat(byException.totalCount).isEqualTo(4);
+
+        Repository.AggregateList<String> byDirectory = repository.aggregateExtractionErrors(project("prj"), ExtractionError.Field.DIRECTORY, new ExtractionError.Filter("java.io.IOException", null, null, null), 1);
+        assertThat(byDirectory.aggregates).containsExactly(new Repository.Aggregate<>("/a", 1));
+        assertThat(byDirectory.totalCount).isEqualTo(3);
+    }
+
+    @Test
+    public void test_get_and_delete_extraction_error_paths() {
+        saveExtractionErrors();
+
+        assertThat(repository.getExtractionErrorPaths(project("prj"), new ExtractionError.Filter("java.io.IOException", null, null, null), 2).collect(toList()))
+                .containsExactly("/a/b/doc.doc", "/a/file.pdf", "/c/image.png");
+        Date requeueDate = new Date(new Date().getTime() + 1);
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/c/image.png"), "image/png", "FAILURE_UNREADABLE", new IOException(), new Date(requeueDate.getTime() + 1000)));
+
+        assertThat(repository.deleteExtractionErrors(project("prj"), new ExtractionError.Filter("java.io.IOException", null, null, null), requeueDate)).isEqualTo(2);
+        assertThat(errorPaths(repository.getExtractionErrors(project("prj"), ExtractionError.Filter.ALL, null, 10)))
+                .containsExactly("/a/bc/doc.pdf", "/c/image.png");
+    }
+
+    private void saveExtractionErrors() {
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/a/file.pdf"), "application/pdf", "FAILURE_UNREADABLE", new IOException(), new Date()));
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/a/b/doc.doc"), "application/msword", "FAILURE_UNREADABLE", new IOException(), new Date()));
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/a/bc/doc.pdf"), "application/pdf", "FAILURE_UNKNOWN", new IllegalStateException(), new Date()));
+        repository.save(project("prj"), ExtractionError.create(Paths.get("/c/image.png"), "image/png", "FAILURE_UNREADABLE", new IOException(), new Date()));
+        repository.save(project("other"), ExtractionError.create(Paths.get("/a/other.pdf"), "application/pdf", "FAILURE_UNREADABLE", new IOException(), new Date()));
+    }
+
+    private static List<String> errorPaths(List<ExtractionError> errors) {
+        return errors.stream().map(ExtractionError::path).collect(toList());
+    }
+
+    private static List<String> mentionNorms(List<NamedEntityRollup> rollups) {
+        return rollups.stream().map(NamedEntityRollup::mentionNorm).collect(toList());
+    }
+
     @Test
     public void test_db_status(){
         assertThat(repository.getHealth()).isTrue();
@@ -103,6 +103,25 @@ public class JooqTaskRepositoryTest {
     }
 
 
+    @Test
+    public void test_save_checkpoint() throws Exception {
+        Task<Integer> foo = new Task<>("foo", User.local(), Map.of("user", User.local()));
+        repository.insert(foo, new Group(TaskGroupType.Test));
+        assertThat(repository.getCheckpoint(foo.getId())).isEmpty();
+
+        repository.saveCheckpoint(foo.getId(), Map.of("cursor", "abc", "processed", 12));
+        foo.setProgress(0.5);
+        repository.update(foo);
+
+        assertThat(repository.getCheckpoint(foo.getId())).isEqualTo(Map.of("cursor", "abc", "processed", 12));
+    }
+
+    @Test
+    public void test_save_checkpoint_should_throw_unknown_task() {
+        assertThrows(UnknownTask.class, () -> repository.saveCheckpoint("unknown", Map.of("cursor", "abc")));
+        assertThrows(UnknownTask.class, () -> repository.getCheckpoint("unknown"));
+    }
+
     @Test
     public void test_delete() throws IOException {
         Task<?> foo = new Task<>("foo", User.local(), Map.of());
@@ -0,0 +1,33 @@
+package org.icij.datashare.db;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class NamedEntityOffsetsTest {
+    @Test
+    public void test_encode_decode_empty() {
+        assertThat(NamedEntityOffsets.encode(List.of())).isEmpty();
+        assertThat(NamedEntityOffsets.decode(new byte[0])).isEmpty();
+    }
+
+    @Test
+    public void test_sorted_offsets_are_delta_encoded() {
+        byte[] encoded = NamedEntityOffsets.encode(List.of(1000L, 1010L, 1020L));
+        assertThat(encoded).hasSize(4);
+        assertThat(NamedEntityOffsets.decode(encoded)).isEqualTo(List.of(1000L, 1010L, 1020L));
+    }
+
+    @Test
+    public void test_unsorted_and_large_offsets() {
+        List<Long> offsets = List.of(5000000000L, 3L, 0L, Long.MAX_VALUE, 12L);
+        assertThat(NamedEntityOffsets.decode(NamedEntityOffsets.encode(offsets))).isEqualTo(offsets);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_decode_truncated_varint() {
+        NamedEntityOffsets.decode(new byte[]{(byte) 0x80});
+    }
+}
@@ -0,0 +1,299 @@
+package org.icij.datashare.text.indexing;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.cli.DatashareCliOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Local store for document extracted texts, addressed by project and document id.
+ * <p>
+ * Each text is split in chunks of {@link #DEFAULT_CHUNK_SIZE} characters compressed with LZ4,
+ * followed by an index of the chunks character offsets. A slice of the text can then be read
+ * by decompressing only the chunks it overlaps, without loading the whole content in memory.
+ * <p>
+ * File layout:
+ * <pre>
+ * [chunk 0]...[chunk n-1] [charOffset, rawLength, compressedLength] x n [nbChunks, totalChars, indexOffset, version, magic]
+ * </pre>
+ * The store is disabled (nothing is written and {@link #exists(String, String)} is always false)
+ * when the <code>contentStoreDir</code> property is not set.
+ */
+public class ContentStore {
+    private static final Logger logger = LoggerFactory.getLogger(ContentStore.class);
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    static final int MAGIC = 0x44534354; // DSCT
+    static final int VERSION = 1;
+    private static final int TRAILER_SIZE = 4 + 4 + 8 + 4 + 4;
+    private static final int INDEX_ENTRY_SIZE = 4 + 4 + 4;
+    private static final Pattern SAFE_NAME = Pattern.compile("[\\w\\-]+[\\w.\\-]*");
+
+    private final Path root;
+    private final int chunkSize;
+    private final LZ4Compressor compressor = LZ4Factory.fastestInstance().fastCompressor();
+    private final LZ4FastDecompressor decompressor = LZ4Factory.fastestInstance().fastDecompressor();
+
+    public ContentStore(PropertiesProvider propertiesProvider) {
+        this(propertiesProvider.get(DatashareCliOptions.CONTENT_STORE_DIR_OPT).filter(s -> !s.isBlank()).map(Paths::get).orElse(null));
+    }
+
+    public ContentStore(Path root) {
+        this(root, DEFAULT_CHUNK_SIZE);
+    }
+
+    ContentStore(Path root, int chunkSize) {
+        if (chunkSize < 2) {
+            throw new IllegalArgumentException("chunk size should be greater than 1 (was " + chunkSize + ")");
+        }
+        this.root = root == null ? null : root.toAbsolutePath().normalize();
+        this.chunkSize = chunkSize;
+    }
+
+    public boolean isEnabled() {
+        return root != null;
+    }
+
+    public void put(String project, String id, String content) throws IOException {
+        if (!isEnabled() || content == null) return;
+        Path path = pathFor(project, id);
+        Files.createDirectories(path.getParent());
+        Path tmp = Files.createTempFile(path.getParent(), id, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                List<int[]> index = new ArrayList<>();
+                long position = 0;
+                int start = 0;
+                while (start < content.length()) {
+                    int end = Math.min(start + chunkSize, content.length());
+                    if (end < content.length() && Character.isHighSurrogate(content.charAt(end - 1))) {
+                        end--; // don't split surrogate pairs across chunks
+                    }
+                    byte[] raw = content.substring(start, end).getBytes(StandardCharsets.UTF_8);
+                    byte[] compressed = compressor.compress(raw);
+                    out.write(compressed);
+                    index.add(new int[]{start, raw.length, compressed.length});
+                    position += compressed.length;
+                    start = end;
+                }
+                ByteBuffer footer = ByteBuffer.allocate(index.size() * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+                for (int[] entry : index) {
+                    footer.putInt(entry[0]).putInt(entry[1]).putInt(entry[2]);
+                }
+                footer.putInt(index.size()).putInt(content.length()).putLong(position).putInt(VERSION).putInt(MAGIC);
+                out.write(footer.array());
+            }
+            Files.move(tmp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public boolean exists(String project, String id) {
+        return isEnabled() && isSafe(project) && isSafe(id) && Files.isRegularFile(pathFor(project, id));
+    }
+
+    /**
+     * @return the length (in characters) of the stored text
+     */
+    public int length(String project, String id) throws IOException {
+        try (FileChannel channel = FileChannel.open(pathFor(project, id), READ)) {
+            return readIndex(channel).totalChars;
+        }
+    }
+
+    public String read(String project, String id) throws IOException {
+        return read(project, id, 0, length(project, id));
+    }
+
+    /**
+     * reads <code>limit</code> characters starting at <code>offset</code>
+     * @throws StringIndexOutOfBoundsException if the range is not in the text
+     */
+    public String read(String project, String id, int offset, int limit) throws IOException {
+        if (offset < 0 || limit < 0) {
+            throw new StringIndexOutOfBoundsException(format("offset or limit should not be negative (offset=%d, limit=%d)", offset, limit));
+        }
+        try (FileChannel channel = FileChannel.open(pathFor(project, id), READ)) {
+            ChunkIndex index = readIndex(channel);
+            int end = offset + limit;
+            if (end > index.totalChars || end < 0) {
+                throw new StringIndexOutOfBoundsException(format("Range [%d-%d] is out of document range ([0-%d])", offset, end, index.totalChars));
+            }
+            StringBuilder result = new StringBuilder(limit);
+            for (int chunk = index.chunkFor(offset); chunk < index.nbChunks && index.charOffset(chunk) < end; chunk++) {
+                String text = readChunk(channel, index, chunk);
+                int chunkStart = index.charOffset(chunk);
+                result.append(text, Math.max(offset - chunkStart, 0), Math.min(end - chunkStart, text.length()));
+            }
+            return result.toString();
+        }
+    }
+
+    /**
+     * Searches the occurrences of <code>query</code> in the stored text chunk by chunk.
+     * Text and query are lower cased and stripped from diacritics the same way as the
+     * <code>searchOccurrences.painless.java</code> script, so offsets are identical.
+     */
+    public int[] occurrences(String project, String id, String query) throws IOException {
+        String normalizedQuery = normalizeLetters(query.toLowerCase());
+        if (normalizedQuery.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        List<Integer> offsets = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(pathFor(project, id), READ)) {
+            ChunkIndex index = readIndex(channel);
+            String buffer = "";
+            int bufferStart = 0;
+            int nextSearch = 0;
+            for (int chunk = 0; chunk < index.nbChunks; chunk++) {
+                buffer = buffer + normalizeLetters(readChunk(channel, index, chunk).toLowerCase());
+                int found = buffer.indexOf(normalizedQuery, Math.max(nextSearch - bufferStart, 0));
+                while (found != -1) {
+                    offsets.add(bufferStart + found);
+                    nextSearch = bufferStart + found + normalizedQuery.length();
+                    found = buffer.indexOf(normalizedQuery, nextSearch - bufferStart);
+                }
+                int keep = Math.min(normalizedQuery.length() - 1, buffer.length());
+                bufferStart += buffer.length() - keep;
+                buffer = buffer.substring(buffer.length() - keep);
+            }
+        }
+        return offsets.stream().mapToInt(i -> i).toArray();
+    }
+
+    public boolean delete(String project, String id) throws IOException {
+        return exists(project, id) && Files.deleteIfExists(pathFor(project, id));
+    }
+
+    public void delete(String project) throws IOException {
+        if (!isEnabled() || !isSafe(project)) return;
+        Path projectDir = root.resolve(project);
+        if (!Files.isDirectory(projectDir)) return;
+        try (Stream<Path> paths = Files.walk(projectDir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+        logger.info("deleted content store for project {}", project);
+    }
+
+    Path pathFor(String project, String id) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("content store is disabled");
+        }
+        if (!isSafe(project) || !isSafe(id)) {
+            throw new IllegalArgumentException(format("invalid project or document id (%s, %s)", project, id));
+        }
+        return root.resolve(project).resolve(id.substring(0, Math.min(2, id.length()))).resolve(id);
+    }
+
+    private static boolean isSafe(String name) {
+        return name != null && SAFE_NAME.matcher(name).matches();
+    }
+
+    private String readChunk(FileChannel channel, ChunkIndex index, int chunk) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(index.compressedLength(chunk));
+        readFully(channel, compressed, index.position(chunk));
+        byte[] raw = new byte[index.rawLength(chunk)];
+        decompressor.decompress(compressed.array(), 0, raw, 0, raw.length);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static ChunkIndex readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < TRAILER_SIZE) {
+            throw new IOException("content store file is truncated");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        readFully(channel, trailer, size - TRAILER_SIZE);
+        int nbChunks = trailer.getInt();
+        int totalChars = trailer.getInt();
+        long indexOffset = trailer.getLong();
+        int version = trailer.getInt();
+        if (trailer.getInt() != MAGIC || version != VERSION || indexOffset + (long) nbChunks * INDEX_ENTRY_SIZE + TRAILER_SIZE != size) {
+            throw new IOException("invalid content store file");
+        }
+        ByteBuffer entries = ByteBuffer.allocate(nbChunks * INDEX_ENTRY_SIZE);
+        readFully(channel, entries, indexOffset);
+        return new ChunkIndex(nbChunks, totalChars, entries.array());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of content store file");
+            }
+        }
+        buffer.flip();
+    }
+
+    public static String normalizeLetters(String input) {
+        StringBuilder output = new StringBuilder(input.length());
+        for (char c : input.toCharArray()) {
+            if (Character.getType(c) == Character.LOWERCASE_LETTER) {
+                for (char n : Normalizer.normalize(Character.toString(c), Normalizer.Form.NFKD).toCharArray()) {
+                    if (Character.getType(n) != Character.NON_SPACING_MARK) {
+                        output.append(n);
+                    }
+                }
+            } else {
+                output.append(c);
+            }
+        }
+        return output.toString();
+    }
+
+    private static class ChunkIndex {
+        final int nbChunks;
+        final int totalChars;
+        private final ByteBuffer entries;
+        private final long[] positions;
+
+        ChunkIndex(int nbChunks, int totalChars, byte[] entries) {
+            this.nbChunks = nbChunks;
+            this.totalChars = totalChars;
+            this.entries = ByteBuffer.wrap(entries);
+            this.positions = new long[nbChunks];
+            for (int i = 1; i < nbChunks; i++) {
+                positions[i] = positions[i - 1] + compressedLength(i - 1);
+            }
+        }
+
+        int charOffset(int chunk) { return entries.getInt(chunk * INDEX_ENTRY_SIZE); }
+        int rawLength(int chunk) { return entries.getInt(chunk * INDEX_ENTRY_SIZE + 4); }
+        int compressedLength(int chunk) { return entries.getInt(chunk * INDEX_ENTRY_SIZE + 8); }
+        long position(int chunk) { return positions[chunk]; }
+
+        int chunkFor(int offset) {
+            int low = 0, high = nbChunks - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (charOffset(mid) <= offset) low = mid; else high = mid - 1;
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.icij.datashare.text.Hasher;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Extracted text read in one pass from the document reader: at most <code>maxLength</code> characters are kept,
+ * the rest is only counted and digested, so that huge documents are never loaded in memory.
+ * <p>
+ * Like <code>toString(reader).trim()</code>, the kept text and the full length don't include the leading and
+ * trailing whitespaces. The digest is computed on the UTF-8 bytes of the whole text given by the reader.
+ */
+record BoundedText(String text, long fullLength, String digest) {
+    static final int BUFFER_SIZE = 8192;
+
+    boolean isTruncated() {
+        return fullLength > text.length();
+    }
+
+    /**
+     * @param maxLength max number of characters kept, -1 for no limit
+     */
+    static BoundedText read(Reader reader, int maxLength, Hasher hasher) throws IOException {
+        MessageDigest digest = messageDigest(hasher);
+        StringBuilder kept = new StringBuilder(maxLength < 0 ? BUFFER_SIZE : Math.min(maxLength, BUFFER_SIZE));
+        char[] buffer = new char[BUFFER_SIZE + 1];
+        int carried = 0; // high surrogate waiting for its pair from the next read
+        long length = 0; // from the first non whitespace char
+        long trimmedLength = 0; // up to the last non whitespace char
+        int nbRead;
+        while ((nbRead = reader.read(buffer, carried, BUFFER_SIZE)) != -1) {
+            int end = carried + nbRead;
+            for (int i = carried; i < end; i++) {
+                char c = buffer[i];
+                if (length == 0 && c <= ' ') {
+                    continue;
+                }
+                length++;
+                if (c > ' ') {
+                    trimmedLength = length;
+                }
+                if (maxLength < 0 || kept.length() < maxLength) {
+                    kept.append(c);
+                }
+            }
+            carried = end > 0 && Character.isHighSurrogate(buffer[end - 1]) ? 1 : 0;
+            digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(buffer, 0, end - carried)));
+            if (carried > 0) {
+                buffer[0] = buffer[end - 1];
+            }
+        }
+        if (carried > 0) {
+            digest.update(StandardCharsets.UTF_8.encode(CharBuffer.wrap(buffer, 0, carried)));
+        }
+        return new BoundedText(kept.toString().trim(), trimmedLength, Hasher.getHex(digest.digest()));
+    }
+
+    private static MessageDigest messageDigest(Hasher hasher) {
+        try {
+            return MessageDigest.getInstance(hasher.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("unknown digest algorithm " + hasher, e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import co.elastic.clients.elasticsearch.indices.ExistsRequest;
 import co.elastic.clients.elasticsearch.indices.IndexSettings;
 import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.auth.AuthScope;
@@ -18,6 +19,7 @@ import org.apache.http.message.BasicHeader;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.common.settings.Settings;
+import org.icij.datashare.HumanReadableSize;
 import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.json.JsonObjectMapper;
 import org.slf4j.Logger;
@@ -27,6 +29,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.google.common.io.ByteStreams.toByteArray;
 import static java.lang.String.format;
@@ -44,12 +48,18 @@ public class ElasticsearchConfiguration {
     static protected final int DEFAULT_SEARCH_FROM = 0;
     static protected final int DEFAULT_SEARCH_SIZE = 10000;
     static protected final int DEFAULT_TIMEOUT_INSEC = 10;
+    static final String DEFAULT_SEARCH_PROXY_MAX_BODY_SIZE = "10M";
 
     public static final String INDEX_ADDRESS_PROP = "elasticsearchAddress";
     public static final String INDEX_NAME_PROP = "indexName";
     public static final String INDEX_JOIN_FIELD_NAME_PROP = "indexJoinFieldName";
     public static final String INDEX_TYPE_FIELD_NAME_PROP = "indexTypeFieldName";
     public static final String CLUSTER_PROP = "clusterName";
+    public static final String INDEX_SHARDS_PROP = "indexShards";
+    public static final String INDEX_REPLICAS_PROP = "indexReplicas";
+    public static final String EXPECTED_DOCUMENTS_PROP = "expectedDocuments";
+    public static final String INDEX_ALIAS_PROP = "indexAlias";
+    public static final String SEARCH_PROXY_MAX_BODY_SIZE_PROP = "searchProxyMaxBodySize";
 
     public static final String DEFAULT_ADDRESS = "http://localhost:9200";
     public static final String ES_CLUSTER_NAME = "datashare";
@@ -62,16 +72,57 @@ public class ElasticsearchConfiguration {
 
     private static final String DEFAULT_DOC_TYPE_FIELD = "type";
 
+    // root documents, children and named entities of a shard of a few tens of GB
+    static final long DOCUMENTS_PER_SHARD = 5_000_000;
+    static final int MAX_SHARDS = 128;
+    private static final Pattern GENERATION_SUFFIX = Pattern.compile("-(\\d{6})");
+
     final String indexJoinField;
     final String docTypeField;
     Refresh refreshPolicy = Refresh.False;
 
-    final int shards = 1;
-    final int replicas = 1;
+    final int shards;
+    final int replicas;
+    final boolean indexAlias;
+    final int searchProxyMaxBodySize;
 
     ElasticsearchConfiguration(PropertiesProvider propertiesProvider) {
         indexJoinField = propertiesProvider.get(INDEX_JOIN_FIELD_NAME_PROP).orElse(DEFAULT_INDEX_JOIN_FIELD);
         docTypeField = propertiesProvider.get(INDEX_TYPE_FIELD_NAME_PROP).orElse(DEFAULT_DOC_TYPE_FIELD);
+        shards = propertiesProvider.get(INDEX_SHARDS_PROP).map(Integer::parseInt)
+                .orElseGet(() -> shardsFor(propertiesProvider.get(EXPECTED_DOCUMENTS_PROP).map(Long::parseLong).orElse(0L)));
+        replicas = propertiesProvider.get(INDEX_REPLICAS_PROP).map(Integer::parseInt).orElse(1);
+        indexAlias = propertiesProvider.get(INDEX_ALIAS_PROP).map(Boolean::parseBoolean).orElse(false);
+        searchProxyMaxBodySize = (int) HumanReadableSize.parse(propertiesProvider.get(SEARCH_PROXY_MAX_BODY_SIZE_PROP).orElse(DEFAULT_SEARCH_PROXY_MAX_BODY_SIZE));
+    }
+
+    /**
+     * Documents are routed by their root document: a root document, its embedded documents, its named entities
+     * and its duplicates are in the same shard, whatever the number of shards.
+     *
+     * @return the number of shards for the expected number of documents. It is a power of 2 so that
+     * the index can be split later (see {@link ElasticsearchIndexMigration})
+     */
+    static int shardsFor(long expectedDocuments) {
+        int shards = 1;
+        while (shards < MAX_SHARDS && (long) shards * DOCUMENTS_PER_SHARD < expectedDocuments) {
+            shards *= 2;
+        }
+        return shards;
+    }
+
+    /**
+     * @return the name of the index following <code>index</code> behind the <code>alias</code>:
+     * <code>alias-000001</code> for the first generation, then <code>alias-000002</code>...
+     */
+    static String nextGeneration(String alias, String index) {
+        Matcher matcher = GENERATION_SUFFIX.matcher(index.startsWith(alias) ? index.substring(alias.length()) : "");
+        int generation = matcher.matches() ? Integer.parseInt(matcher.group(1)) + 1 : 1;
+        return format("%s-%06d", alias, generation);
+    }
+
+    static boolean isGeneration(String alias, String index) {
+        return index.startsWith(alias) && GENERATION_SUFFIX.matcher(index.substring(alias.length())).matches();
     }
 
     public static ElasticsearchClient createESClient(final PropertiesProvider propertiesProvider) {
@@ -114,13 +165,27 @@ public class ElasticsearchConfiguration {
     }
 
     public static boolean createIndex(ElasticsearchClient client, String indexName) {
+        return createIndex(client, indexName, 1, 1, false);
+    }
+
+    /**
+     * creates the index if there is no index or alias with that name.
+     *
+     * @param alias if true, the index is created as the first generation behind an alias named <code>indexName</code>
+     */
+    public static boolean createIndex(ElasticsearchClient client, String indexName, int shards, int replicas, boolean alias) {
         ExistsRequest existsRequest = ExistsRequest.of(er -> er.index(indexName));
         try {
             if (!client.indices().exists(existsRequest).value()) {
-                LOGGER.info("index {} does not exist, creating one", indexName);
-                CreateIndexRequest.Builder createReq = new CreateIndexRequest.Builder().index(indexName);
-                createReq.settings(IndexSettings.of(is -> is.withJson(ElasticsearchConfiguration.getSettings())));
+                String index = alias ? nextGeneration(indexName, indexName) : indexName;
+                LOGGER.info("index {} does not exist, creating {} with {} shard(s) and {} replica(s)", indexName, index, shards, replicas);
+                CreateIndexRequest.Builder createReq = new CreateIndexRequest.Builder().index(index);
+                StringReader settings = ElasticsearchConfiguration.getSettings(shards, replicas);
+                createReq.settings(IndexSettings.of(is -> is.withJson(settings)));
                 createReq.mappings(TypeMapping.of(tm -> tm.withJson(ElasticsearchConfiguration.getMapping())));
+                if (alias) {
+                    createReq.aliases(indexName, a -> a);
+                }
                 client.indices().create(createReq.build());
                 return true;
             }
@@ -137,6 +202,13 @@ public class ElasticsearchConfiguration {
         return new StringReader(getResourceContent(SETTINGS_RESOURCE_NAME));
     }
 
+    static StringReader getSettings(int shards, int replicas) throws IOException {
+        ObjectNode settings = (ObjectNode) JsonObjectMapper.MAPPER.readTree(getSettings());
+        settings.put("index.number_of_shards", shards);
+        settings.put("index.number_of_replicas", replicas);
+        return new StringReader(JsonObjectMapper.MAPPER.writeValueAsString(settings));
+    }
+
     public static StringReader getMapping() {
         return new StringReader(getResourceContent(MAPPING_RESOURCE_NAME));
     }
@@ -153,6 +225,7 @@ public class ElasticsearchConfiguration {
                 ", docTypeField='" + docTypeField + '\'' +
                 ", shards=" + shards +
                 ", replicas=" + replicas +
+                ", indexAlias=" + indexAlias +
                 '}';
     }
 
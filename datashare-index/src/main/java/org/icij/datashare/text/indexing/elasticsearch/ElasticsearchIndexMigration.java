@@ -0,0 +1,261 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.transport.rest_client.RestClientTransport;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NStringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleConsumer;
+
+import static java.lang.String.format;
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
+
+/**
+ * Online migration of a project index to its next generation index (<code>project-000001</code>,
+ * <code>project-000002</code>...), followed by an atomic swap of the project alias.
+ * <p>
+ * With {@link Mode#REINDEX}, the new index is created with the current settings and mappings, and documents are
+ * copied with a sliced and throttled <code>_reindex</code> while the project is still searched and written.
+ * Writes are then blocked on the old index for a second <code>_reindex</code> copying the documents indexed or
+ * updated meanwhile: the sequence numbers of the old index shards are recorded before the first copy, and the
+ * second one only reads the documents with a greater <code>_seq_no</code> (external versions only copy newer documents).
+ * With {@link Mode#SPLIT}, the old index is blocked for writes and split in more shards (its settings and
+ * mappings are kept), which only links the segment files.
+ * <p>
+ * The project name then becomes an alias of the new index, and the old index is deleted, in one
+ * <code>_aliases</code> request: searches never see a missing index. If the migration fails or is cancelled,
+ * the new index is deleted and the old one is writable again.
+ */
+public class ElasticsearchIndexMigration {
+    private static final Logger logger = LoggerFactory.getLogger(ElasticsearchIndexMigration.class);
+    static final String AUTO_SLICES = "auto";
+    static final double COPY_PROGRESS = 0.9;
+
+    public enum Mode {REINDEX, SPLIT}
+
+    private final RestClient restClient;
+    private final Duration pollInterval;
+
+    public ElasticsearchIndexMigration(ElasticsearchClient client) {
+        this(client, Duration.ofSeconds(2));
+    }
+
+    ElasticsearchIndexMigration(ElasticsearchClient client, Duration pollInterval) {
+        this.restClient = ((RestClientTransport) client._transport()).restClient();
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * @param name the project index name, concrete index or alias of one index
+     * @param shards number of shards of the new index
+     * @param slices number of reindex slices, or <code>auto</code> for one slice per shard
+     * @param requestsPerSecond reindex throttle, -1 for none
+     * @param progress receives the progress rate of the copy
+     * @param cancelled polled during the copy, the migration is rolled back when it returns true
+     * @return the name of the new index
+     * @throws CancellationException if the migration has been cancelled
+     */
+    public String migrate(String name, Mode mode, int shards, String slices, long requestsPerSecond,
+                          DoubleConsumer progress, BooleanSupplier cancelled) throws IOException, InterruptedException {
+        String source = concreteIndex(name);
+        String target = ElasticsearchConfiguration.nextGeneration(name, source);
+        logger.info("migrating {} (index {}) to {} with {} and {} shard(s)", name, source, target, mode, shards);
+        try {
+            if (mode == Mode.SPLIT) {
+                blockWrites(source, true);
+                split(source, target, shards);
+            } else {
+                long copiedSeqNo = minMaxSeqNo(source);
+                createIndex(source, target, shards);
+                reindex(source, target, null, slices, requestsPerSecond, rate -> progress.accept(rate * COPY_PROGRESS), cancelled);
+                blockWrites(source, true);
+                reindex(source, target, changedAfter(copiedSeqNo), slices, -1, rate -> progress.accept(COPY_PROGRESS + rate * (1 - COPY_PROGRESS)), cancelled);
+            }
+            checkCount(source, target);
+            swap(name, source, target);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            logger.error("migration of {} to {} failed, rolling back", name, target, e);
+            rollback(source, target);
+            throw e;
+        }
+        progress.accept(1);
+        logger.info("{} is now an alias of {}", name, target);
+        return target;
+    }
+
+    /**
+     * @return the index name, or the index of the alias
+     */
+    String concreteIndex(String name) throws IOException {
+        JsonNode aliases = perform("GET", name + "/_alias", null);
+        if (aliases.size() != 1) {
+            throw new IllegalStateException(format("%s is an alias of %d indices, it cannot be migrated", name, aliases.size()));
+        }
+        Map.Entry<String, JsonNode> index = aliases.fields().next();
+        JsonNode alias = index.getValue().path("aliases").path(name);
+        if (alias.has("filter") || alias.has("routing") || alias.has("index_routing")) {
+            throw new IllegalStateException(format("%s is a filtered or routed alias of %s, it cannot be migrated", name, index.getKey()));
+        }
+        return index.getKey();
+    }
+
+    /**
+     * The sequence numbers are given by shard, the smallest of the primaries maximums is a lower bound for all of them:
+     * every document indexed or updated after this call has a greater <code>_seq_no</code>.
+     *
+     * @return the smallest of the max sequence numbers of the index primary shards (-1 if a shard is empty)
+     */
+    long minMaxSeqNo(String index) throws IOException {
+        JsonNode shards = perform("GET", index + "/_stats?level=shards", null).path("indices").path(index).path("shards");
+        long minMaxSeqNo = Long.MAX_VALUE;
+        for (JsonNode copies : shards) {
+            for (JsonNode copy : copies) {
+                if (copy.path("routing").path("primary").asBoolean()) {
+                    minMaxSeqNo = Math.min(minMaxSeqNo, copy.path("seq_no").path("max_seq_no").asLong(-1));
+                }
+            }
+        }
+        return minMaxSeqNo == Long.MAX_VALUE ? -1 : minMaxSeqNo;
+    }
+
+    private static ObjectNode changedAfter(long seqNo) {
+        ObjectNode query = MAPPER.createObjectNode();
+        query.putObject("range").putObject("_seq_no").put("gt", seqNo);
+        return query;
+    }
+
+    private void createIndex(String source, String target, int shards) throws IOException {
+        int replicas = perform("GET", source + "/_settings/index.number_of_replicas", null)
+                .path(source).path("settings").path("index").path("number_of_replicas").asInt(1);
+        ObjectNode body = MAPPER.createObjectNode();
+        body.set("settings", MAPPER.readTree(ElasticsearchConfiguration.getSettings(shards, replicas)));
+        body.set("mappings", MAPPER.readTree(ElasticsearchConfiguration.getMapping()));
+        perform("PUT", target, body);
+    }
+
+    private void split(String source, String target, int shards) throws IOException {
+        ObjectNode settings = MAPPER.createObjectNode();
+        settings.put("index.number_of_shards", shards);
+        settings.putNull("index.blocks.write");
+        ObjectNode body = MAPPER.createObjectNode();
+        body.set("settings", settings);
+        perform("POST", format("%s/_split/%s", source, target), body);
+        perform("GET", format("_cluster/health/%s?wait_for_status=yellow&timeout=%ds", target, 300), null);
+    }
+
+    private void reindex(String source, String target, ObjectNode query, String slices, long requestsPerSecond,
+                         DoubleConsumer progress, BooleanSupplier cancelled) throws IOException, InterruptedException {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.put("conflicts", "proceed");
+        ObjectNode sourceNode = body.putObject("source").put("index", source);
+        if (query != null) {
+            sourceNode.set("query", query);
+        }
+        body.putObject("dest").put("index", target).put("version_type", "external");
+        String taskId = perform("POST", format("_reindex?wait_for_completion=false&refresh=true&slices=%s&requests_per_second=%d",
+                slices, requestsPerSecond), body).path("task").asText();
+        logger.info("reindex task {} started from {} to {}", taskId, source, target);
+        while (true) {
+            JsonNode task = perform("GET", "_tasks/" + taskId, null);
+            JsonNode status = task.path("task").path("status");
+            long total = status.path("total").asLong();
+            long done = status.path("created").asLong() + status.path("updated").asLong() + status.path("deleted").asLong() +
+                    status.path("version_conflicts").asLong() + status.path("noops").asLong();
+            boolean completed = task.path("completed").asBoolean();
+            if (cancelled.getAsBoolean()) {
+                if (!completed) {
+                    perform("POST", format("_tasks/%s/_cancel", taskId), null);
+                }
+                throw new CancellationException(format("reindex task %s cancelled", taskId));
+            }
+            if (completed) {
+                checkReindexResult(taskId, task);
+                progress.accept(1);
+                return;
+            }
+            progress.accept(total == 0 ? 0 : (double) done / total);
+            Thread.sleep(pollInterval.toMillis());
+        }
+    }
+
+    private static void checkReindexResult(String taskId, JsonNode task) throws IOException {
+        if (task.has("error")) {
+            throw new IOException(format("reindex task %s failed: %s", taskId, task.path("error").path("reason").asText()));
+        }
+        JsonNode failures = task.path("response").path("failures");
+        if (failures.size() > 0) {
+            throw new IOException(format("reindex task %s failed for %d document(s), first failure: %s", taskId, failures.size(), failures.get(0)));
+        }
+    }
+
+    private void checkCount(String source, String target) throws IOException {
+        perform("POST", target + "/_refresh", null);
+        long sourceCount = perform("GET", source + "/_count", null).path("count").asLong();
+        long targetCount = perform("GET", target + "/_count", null).path("count").asLong();
+        if (targetCount < sourceCount) {
+            throw new IllegalStateException(format("%s has %d document(s) whereas %s has %d", target, targetCount, source, sourceCount));
+        }
+    }
+
+    /**
+     * adds the alias to the new index and deletes the old one (and its aliases) atomically
+     */
+    private void swap(String name, String source, String target) throws IOException {
+        ObjectNode body = MAPPER.createObjectNode();
+        body.putArray("actions")
+                .add(MAPPER.createObjectNode().set("add", MAPPER.createObjectNode().put("index", target).put("alias", name)))
+                .add(MAPPER.createObjectNode().set("remove_index", MAPPER.createObjectNode().put("index", source)));
+        perform("POST", "_aliases", body);
+    }
+
+    private void blockWrites(String index, boolean blocked) throws IOException {
+        ObjectNode settings = MAPPER.createObjectNode();
+        if (blocked) {
+            settings.put("index.blocks.write", true);
+        } else {
+            settings.putNull("index.blocks.write");
+        }
+        perform("PUT", index + "/_settings", settings);
+    }
+
+    private void rollback(String source, String target) {
+        try {
+            perform("DELETE", target + "?ignore_unavailable=true", null);
+            blockWrites(source, false);
+        } catch (IOException e) {
+            logger.error("cannot roll back migration of {} to {}", source, target, e);
+        }
+    }
+
+    private JsonNode perform(String method, String endpoint, JsonNode body) throws IOException {
+        String[] pathAndQuery = endpoint.split("\\?", 2);
+        Request request = new Request(method, "/" + pathAndQuery[0]);
+        if (pathAndQuery.length > 1) {
+            for (String parameter : pathAndQuery[1].split("&")) {
+                String[] keyValue = parameter.split("=", 2);
+                request.addParameter(keyValue[0], keyValue.length > 1 ? keyValue[1] : "");
+            }
+        }
+        if (body != null) {
+            request.setEntity(new NStringEntity(MAPPER.writeValueAsString(body), ContentType.APPLICATION_JSON));
+        }
+        try {
+            return MAPPER.readTree(EntityUtils.toString(restClient.performRequest(request).getEntity()));
+        } catch (ResponseException e) {
+            throw new IOException(format("%s %s failed: %s", method, endpoint, EntityUtils.toString(e.getResponse().getEntity())), e);
+        }
+    }
+}
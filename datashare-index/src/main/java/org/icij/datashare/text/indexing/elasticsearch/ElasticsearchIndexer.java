@@ -3,10 +3,12 @@ package org.icij.datashare.text.indexing.elasticsearch;
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
 import co.elastic.clients.elasticsearch._types.Conflicts;
 import co.elastic.clients.elasticsearch._types.FieldValue;
-import co.elastic.clients.elasticsearch._types.InlineScript;
 import co.elastic.clients.elasticsearch._types.Refresh;
 import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch._types.Script;
 import co.elastic.clients.elasticsearch._types.ScriptField;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
+import co.elastic.clients.elasticsearch._types.mapping.TermVectorOption;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.*;
 import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
@@ -16,7 +18,9 @@ import co.elastic.clients.elasticsearch.core.bulk.UpdateAction;
 import co.elastic.clients.elasticsearch.core.bulk.UpdateOperation;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.SourceConfigParam;
-import co.elastic.clients.json.JsonData;
+import co.elastic.clients.elasticsearch.core.termvectors.TermVector;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.IndexState;
 import co.elastic.clients.transport.rest_client.RestClientTransport;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -25,6 +29,7 @@ import com.google.inject.Singleton;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.entity.ContentType;
+import org.apache.http.nio.entity.NByteArrayEntity;
 import org.apache.http.nio.entity.NStringEntity;
 import org.apache.http.util.EntityUtils;
 import org.elasticsearch.client.Request;
@@ -38,8 +43,10 @@ import org.icij.datashare.text.Document;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.Project;
 import org.icij.datashare.text.Tag;
+import org.icij.datashare.text.indexing.ContentStore;
 import org.icij.datashare.text.indexing.ExtractedText;
 import org.icij.datashare.text.indexing.Indexer;
+import org.icij.datashare.text.indexing.RawResponse;
 import org.icij.datashare.text.indexing.SearchQuery;
 import org.icij.datashare.text.indexing.SearchedText;
 import org.icij.datashare.text.nlp.Pipeline;
@@ -53,28 +60,36 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static co.elastic.clients.elasticsearch.core.UpdateRequest.Builder;
 import static java.lang.String.format;
 import static java.util.Arrays.stream;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
 import static org.icij.datashare.json.JsonObjectMapper.getJson;
 import static org.icij.datashare.json.JsonObjectMapper.getParent;
 import static org.icij.datashare.json.JsonObjectMapper.getRoot;
 import static org.icij.datashare.json.JsonObjectMapper.getType;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.DEFAULT_SEARCH_SIZE;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchScripts.Name.*;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchSearcher.searchHitStream;
-import static org.icij.datashare.utils.JsonUtils.mapObjectTomapJsonData;
 
 @Singleton
 public class ElasticsearchIndexer implements Indexer {
     public final ElasticsearchClient client;
     private final ElasticsearchConfiguration esCfg;
+    private final ContentStore contentStore;
+    private final ElasticsearchScripts scripts;
 
-    static private final Map<String, String> memoizeScript = new HashMap<>();
+    static private final Map<String, String> memoizeScript = new ConcurrentHashMap<>();
+    private static final Set<TermVectorOption> STORED_OFFSETS = Set.of(TermVectorOption.WithOffsets,
+            TermVectorOption.WithPositionsOffsets, TermVectorOption.WithPositionsOffsetsPayloads);
 
     public static Map<String, String> getMemoizeScript() {
         return memoizeScript;
@@ -84,6 +99,8 @@ public class ElasticsearchIndexer implements Indexer {
     public ElasticsearchIndexer(final ElasticsearchClient esClient, final PropertiesProvider propertiesProvider) {
         this.client = esClient;
         esCfg = new ElasticsearchConfiguration(propertiesProvider);
+        contentStore = new ContentStore(propertiesProvider);
+        scripts = new ElasticsearchScripts(esClient);
         LOGGER.info("indexer defined with {}", esCfg);
     }
 
@@ -96,6 +113,23 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public boolean bulkAdd(final String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent) throws IOException {
+        BulkResponse bulkResponse = client.bulk(nerBulkRequest(indexName, nerType, namedEntities, parent));
+        if (bulkResponse.errors() && bulkResponse.items().stream().anyMatch(item -> scripts.isMissing(item.error()))) {
+            scripts.forget(ADD_NER_TAG);
+            bulkResponse = client.bulk(nerBulkRequest(indexName, nerType, namedEntities, parent));
+        }
+        if (bulkResponse.errors()) {
+            for (BulkResponseItem resp : bulkResponse.items()) {
+                if (resp.error() != null) {
+                    LOGGER.error("bulk add failed : {}", resp.error().reason());
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private BulkRequest nerBulkRequest(String indexName, Pipeline.Type nerType, List<NamedEntity> namedEntities, Document parent) {
         BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
 
         String routing = ofNullable(parent.getRootDocument()).orElse(parent.getId());
@@ -110,9 +144,7 @@ public class ElasticsearchIndexer implements Indexer {
             BulkOperation.of(op -> op.update(up -> up.index(indexName)
                     .id(parent.getId())
                     .routing(routing)
-                    .action(a -> a.script(scr -> scr.inline(iscr -> iscr.lang("painless")
-                            .source("if (!ctx._source.nerTags.contains(params.nerTag)) ctx._source.nerTags.add(params.nerTag);")
-                            .params("nerTag", JsonData.of(nerType.toString())))))))
+                    .action(a -> a.script(scripts.script(ADD_NER_TAG, Map.of("nerTag", nerType.toString()))))))
         );
 
         for (Entity child : namedEntities) {
@@ -122,16 +154,7 @@ public class ElasticsearchIndexer implements Indexer {
 
         bulkRequest.refresh(esCfg.refreshPolicy);
 
-        BulkResponse bulkResponse = client.bulk(bulkRequest.build());
-        if (bulkResponse.errors()) {
-            for (BulkResponseItem resp : bulkResponse.items()) {
-                if (resp.error() != null) {
-                    LOGGER.error("bulk add failed : {}", resp.error().reason());
-                }
-            }
-            return false;
-        }
-        return true;
+        return bulkRequest.build();
     }
 
     @Override
@@ -139,6 +162,7 @@ public class ElasticsearchIndexer implements Indexer {
         BulkRequest.Builder bulkRequest = new BulkRequest.Builder();
         for (T obj : objs) {
             bulkRequest.operations(op -> op.index(createIndexRequest(indexName, getType(obj), obj.getId(), getJson(obj), getParent(obj), getRoot(obj))));
+            storeContent(indexName, obj);
         }
         return executeBulk(bulkRequest);
     }
@@ -169,6 +193,13 @@ public class ElasticsearchIndexer implements Indexer {
             req.routing(root);
         }
         client.index(req.build());
+        storeContent(indexName, obj);
+    }
+
+    private <T extends Entity> void storeContent(String indexName, T obj) throws IOException {
+        if (contentStore.isEnabled() && obj instanceof Document) {
+            contentStore.put(indexName, obj.getId(), ((Document) obj).getContent());
+        }
     }
 
     @Override
@@ -207,6 +238,17 @@ public class ElasticsearchIndexer implements Indexer {
         return client.exists(getRequest.build()).value();
     }
 
+    @Override
+    public String openPointInTime(String duration, List<String> indexesNames) throws IOException {
+        String pitId = ElasticsearchSearcher.openPointInTime(client, indexesNames, duration);
+        return pitId == null ? null : new ElasticsearchSearcher.Cursor(pitId, List.of(), true).encode();
+    }
+
+    @Override
+    public void closePointInTime(String cursor) throws IOException {
+        client.closePointInTime(ClosePointInTimeRequest.of(c -> c.id(ElasticsearchSearcher.Cursor.decode(cursor).pitId)));
+    }
+
     @Override
     public String executeRaw(String method, String url, String rawJson) throws IOException {
         Request request = new Request(method, url.startsWith("/") ? url : "/" + url);
@@ -222,6 +264,27 @@ public class ElasticsearchIndexer implements Indexer {
         return entity != null ? EntityUtils.toString(entity) : null;
     }
 
+    /**
+     * The request body is buffered (up to <code>searchProxyMaxBodySize</code>) before it is sent: the rest client
+     * I/O reactor must not block on the client stream, and a buffered entity can be sent again on retry.
+     *
+     * @throws BodyTooLargeException if the body is larger than <code>searchProxyMaxBodySize</code>
+     */
+    @Override
+    public RawResponse streamRaw(String method, String url, InputStream body) throws IOException {
+        Request request = new Request(method, url.startsWith("/") ? url : "/" + url);
+        if (body != null) {
+            byte[] content = body.readNBytes(esCfg.searchProxyMaxBodySize + 1);
+            if (content.length > esCfg.searchProxyMaxBodySize) {
+                throw new BodyTooLargeException(esCfg.searchProxyMaxBodySize);
+            }
+            if (content.length > 0) {
+                request.setEntity(new NByteArrayEntity(content, ContentType.APPLICATION_JSON));
+            }
+        }
+        return StreamingRawResponse.execute(((RestClientTransport) client._transport()).restClient(), request);
+    }
+
     private IndexOperation<Map<String, Object>> createIndexRequest(String index, String type, String id, Map<String, Object> json, String parent, String root) {
         IndexOperation.Builder<Map<String, Object>> req = new IndexOperation.Builder<>();
         req.index(index).id(id);
@@ -278,16 +341,23 @@ public class ElasticsearchIndexer implements Indexer {
     public <T extends Entity> T get(String indexName, String id, String root, List<String> sourceExcludes) {
         String type = null;
         try {
+            // the content is read from the local store rather than through the document _source
+            boolean contentFromStore = !sourceExcludes.contains("content") && contentStore.exists(indexName, id);
+            List<String> excludes = contentFromStore ?
+                    Stream.concat(sourceExcludes.stream(), Stream.of("content")).collect(toList()) : sourceExcludes;
             final GetRequest req = new GetRequest.Builder()
                     .index(indexName)
                     .id(id)
                     .routing(root)
-                    .sourceExcludes(sourceExcludes)
+                    .sourceExcludes(excludes)
                     .build();
             GetResponse<ObjectNode> resp = client.get(req, ObjectNode.class);
             if (resp.found()) {
                 Map<String, Object> sourceAsMap = MAPPER.readValue(MAPPER.writeValueAsString(resp.source()), new TypeReference<>() {});
                 sourceAsMap.put("rootDocument", ofNullable(resp.routing()).orElse(id));
+                if (contentFromStore) {
+                    sourceAsMap.put("content", contentStore.read(indexName, id));
+                }
                 type = (String) sourceAsMap.get(esCfg.docTypeField);
                 Class<T> tClass = (Class<T>) Class.forName("org.icij.datashare.text." + type);
                 return JsonObjectMapper.getObject(id, resp.index(), sourceAsMap, tClass);
@@ -308,16 +378,14 @@ public class ElasticsearchIndexer implements Indexer {
         }
     }
     public static String getScriptStringFromFile(String filename) throws IOException {
-        String script;
-        if (memoizeScript.containsKey(filename)) {
-            script = memoizeScript.get(filename);
-        } else {
+        String script = memoizeScript.get(filename);
+        if (script == null) {
             script = ElasticsearchIndexer.readScriptFile(filename);
-            memoizeScript.put(filename, script);
+            memoizeScript.putIfAbsent(filename, script);
         }
         return script;
     }
-    private static InlineScript getExtractedTextScript(final int offset, final int limit, final String targetLanguage) throws IOException {
+    private static Map<String, Object> extractedTextParams(final int offset, final int limit, final String targetLanguage) {
         Map<String,Object> params =  new HashMap<String, Object>() {{
             put("offset", offset);
             put("limit", limit);
@@ -325,9 +393,7 @@ public class ElasticsearchIndexer implements Indexer {
         if(targetLanguage != null){
             params.put("targetLanguage",targetLanguage);
         }
-        return new InlineScript.Builder().lang("painless")
-                .source(ElasticsearchIndexer.getScriptStringFromFile("extractedText.painless.java"))
-                .params(mapObjectTomapJsonData(params)).build();
+        return params;
     }
 
     public ExtractedText getExtractedText(String indexName, String id, String routing, final int offset, final int limit, String targetLanguage) throws IOException {
@@ -337,14 +403,14 @@ public class ElasticsearchIndexer implements Indexer {
     }
 
     private ExtractedText getExtractedContent(String indexName, String id, String routing, final int offset, final int limit, String targetLanguage) throws IOException {
-        SearchRequest.Builder sourceBuilder = new SearchRequest.Builder().index(indexName).size(DEFAULT_SEARCH_SIZE).timeout("30m");
         if (offset < 0 || limit < 0) {
             throw new StringIndexOutOfBoundsException(format("offset or limit should not be negative (offset=%d, limit=%d)", offset, limit));
         }
-        sourceBuilder.query(Query.of(q -> q.bool(bq -> bq.must(qt -> qt.term(t -> t.field("_id").value(id))))));
-        InlineScript script = getExtractedTextScript(offset, limit, targetLanguage);
-        sourceBuilder.scriptFields("pagination", ScriptField.of(sf -> sf.script(scr -> scr.inline(script))));
-        SearchResponse<ObjectNode> search = client.search(sourceBuilder.routing(routing).build(), ObjectNode.class);
+        if (targetLanguage == null && contentStore.exists(indexName, id)) {
+            return new ExtractedText(contentStore.read(indexName, id, offset, limit), offset, limit, contentStore.length(indexName, id));
+        }
+        SearchResponse<ObjectNode> search = scripts.withScript(EXTRACTED_TEXT, extractedTextParams(offset, limit, targetLanguage),
+                script -> client.search(scriptFieldSearch(indexName, id, routing, script), ObjectNode.class));
         List<Hit<ObjectNode>> tHits = searchHitStream(() -> search.hits().hits().iterator()).collect(toList());
         if(tHits.isEmpty()){
             throw new IllegalArgumentException("Document not found");
@@ -372,7 +438,7 @@ public class ElasticsearchIndexer implements Indexer {
        return extractedText;
     }
 
-    private static InlineScript searchQueryOccurrencesScript(final String query, String targetLanguage) throws IOException {
+    private static Map<String, Object> searchQueryOccurrencesParams(final String query, String targetLanguage) {
         Map<String,Object> params = new HashMap<String, Object>() {{
             put("query", query);
         }};
@@ -381,9 +447,14 @@ public class ElasticsearchIndexer implements Indexer {
             params.put("targetLanguage",targetLanguage);
         }
 
-        return new InlineScript.Builder().lang("painless")
-                .source(ElasticsearchIndexer.getScriptStringFromFile("searchOccurrences.painless.java"))
-                .params(mapObjectTomapJsonData(params)).build();
+        return params;
+    }
+
+    private static SearchRequest scriptFieldSearch(String indexName, String id, String routing, Script script) {
+        return new SearchRequest.Builder().index(indexName).size(DEFAULT_SEARCH_SIZE).timeout("30m")
+                .query(Query.of(q -> q.bool(bq -> bq.must(qt -> qt.term(t -> t.field("_id").value(id))))))
+                .scriptFields("pagination", ScriptField.of(sf -> sf.script(script)))
+                .routing(routing).build();
     }
     @Override
     public SearchedText searchTextOccurrences(String indexName, String id, String query, String targetLanguage) throws IOException {
@@ -395,15 +466,52 @@ public class ElasticsearchIndexer implements Indexer {
         return this.searchContentOccurrences(indexName, id, routing, query, targetLanguage);
 
     }
+    /**
+     * reads the term vector stored for the content (term_vector=with_positions_offsets in the mapping) with its
+     * offsets only: the content is not sent back and not analyzed again. The response has all the terms of the
+     * document, so it grows with the number of distinct terms of the document.
+     */
+    private SearchedText searchContentOccurrencesWithTermVector(String indexName, String id, String routing, final String query) throws IOException {
+        TermvectorsResponse response = client.termvectors(TermvectorsRequest.of(t -> t.index(indexName).id(id).routing(routing)
+                .fields("content").offsets(true).positions(false).payloads(false).termStatistics(false).fieldStatistics(false)));
+        if (!response.found()) {
+            throw new IllegalArgumentException("Document not found");
+        }
+        TermVector termVector = response.termVectors().get("content");
+        Map<String, List<int[]>> tokens = termVector == null ? Map.of() : termVector.terms().entrySet().stream()
+                .collect(toMap(Map.Entry::getKey, e -> e.getValue().tokens().stream()
+                        .map(token -> new int[]{token.startOffset(), token.endOffset()}).collect(toList())));
+        int[] offsets = TermOccurrences.offsets(tokens, query);
+        return new SearchedText(offsets, offsets.length, query);
+    }
+
+    /**
+     * indices created before the content term vectors were added to the mapping would compute them on the fly
+     * from the source for each request: they keep using the script until they are reindexed.
+     * Only the mapping of the content field is read, so that the check follows an alias moved by a reindex.
+     */
+    boolean hasContentTermVectors(String indexName) throws IOException {
+        List<Property> contents = client.indices().getFieldMapping(f -> f.index(indexName).fields("content")).result().values().stream()
+                .map(mappings -> mappings.mappings().get("content"))
+                .map(field -> field == null ? null : field.mapping().get("content"))
+                .collect(toList());
+        return !contents.isEmpty() && contents.stream()
+                .allMatch(content -> content != null && content.isText() && STORED_OFFSETS.contains(content.text().termVector()));
+    }
+
     private SearchedText searchContentOccurrences(String indexName, String id, String routing, final String query, String targetLanguage) throws IOException {
-        SearchRequest.Builder sourceBuilder = new SearchRequest.Builder().index(indexName).size(DEFAULT_SEARCH_SIZE).timeout("30m");
         if (query.isEmpty()) {
             throw new IllegalArgumentException();
         }
-        sourceBuilder.query(Query.of(q -> q.bool(bq -> bq.must(qt -> qt.term(t -> t.field("_id").value(id))))));
-        InlineScript script = searchQueryOccurrencesScript(query, targetLanguage);
-        sourceBuilder.scriptFields("pagination", ScriptField.of(sf -> sf.script(scr -> scr.inline(script))));
-        SearchResponse<ObjectNode> search = client.search(sourceBuilder.routing(routing).build(), ObjectNode.class);
+        if (targetLanguage == null && contentStore.exists(indexName, id)) {
+            int[] offsets = contentStore.occurrences(indexName, id, query);
+            return new SearchedText(offsets, offsets.length, query);
+        }
+        if (targetLanguage == null && TermOccurrences.isSupported(query) && hasContentTermVectors(indexName)) {
+            return searchContentOccurrencesWithTermVector(indexName, id, routing, query);
+        }
+        SearchResponse<ObjectNode> search = scripts.withScript(SEARCH_OCCURRENCES, searchQueryOccurrencesParams(query, targetLanguage),
+                script -> client.search(scriptFieldSearch(indexName, id, routing, script), ObjectNode.class));
         List<Hit<ObjectNode>> tHits = searchHitStream(() -> search.hits().hits().iterator()).collect(toList());
         if(tHits.isEmpty()){
             throw new IllegalArgumentException("Document not found");
@@ -440,17 +548,17 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public boolean tag(Project prj, String documentId, String rootDocument, Tag... tags) throws IOException {
-        return tagUntag(prj, documentId, rootDocument, createTagScript(tags));
+        return scripts.withScript(TAG, tagsParams(tags), script -> tagUntag(prj, documentId, rootDocument, script));
     }
 
     @Override
     public boolean untag(Project prj, String documentId, String rootDocument, Tag... tags) throws IOException {
-        return tagUntag(prj, documentId, rootDocument, createUntagScript(tags));
+        return scripts.withScript(UNTAG, tagsParams(tags), script -> tagUntag(prj, documentId, rootDocument, script));
     }
 
-    private boolean tagUntag(Project prj, String documentId, String rootDocument, InlineScript untagScript) throws IOException {
+    private boolean tagUntag(Project prj, String documentId, String rootDocument, Script untagScript) throws IOException {
         Builder<Object, Object> updateRequest = new Builder<>().index(prj.getId()).id(documentId).routing(rootDocument);
-        updateRequest.script(co.elastic.clients.elasticsearch._types.Script.of(scr -> scr.inline(untagScript)));
+        updateRequest.script(untagScript);
         updateRequest.refresh(esCfg.refreshPolicy);
         UpdateResponse<Object> updateResponse = client.update(updateRequest.build(), ObjectNode.class);
         return updateResponse.result() == Result.Updated;
@@ -458,55 +566,36 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public boolean tag(Project prj, List<String> documentIds, Tag... tags) throws IOException {
-        return groupTagUntag(prj, documentIds, createTagScript(tags));
+        return groupTagUntag(prj, documentIds, TAG, tagsParams(tags));
     }
 
     @Override
     public boolean untag(Project prj, List<String> documentIds, Tag... tags) throws IOException {
-        return groupTagUntag(prj, documentIds, createUntagScript(tags));
+        return groupTagUntag(prj, documentIds, UNTAG, tagsParams(tags));
+    }
+
+    private boolean groupTagUntag(Project prj, List<String> documentIds, ElasticsearchScripts.Name name, Map<String, Object> params) throws IOException {
+        UpdateByQueryResponse updateResponse = scripts.withScript(name, params, script -> updateByQuery(prj, documentIds, script));
+        if (updateResponse.failures().stream().anyMatch(failure -> scripts.isMissing(failure.cause()))) {
+            scripts.forget(name);
+            updateResponse = updateByQuery(prj, documentIds, scripts.script(name, params));
+        }
+        int updated = updateResponse.updated() != null ? updateResponse.updated().intValue() : 0;
+        return updateResponse.failures().size() == 0 && updated > 0;
     }
 
-    private boolean groupTagUntag(Project prj, List<String> documentIds, InlineScript untagScript) throws IOException {
+    private UpdateByQueryResponse updateByQuery(Project prj, List<String> documentIds, Script untagScript) throws IOException {
         UpdateByQueryRequest.Builder updateByQuery = new UpdateByQueryRequest.Builder().index(prj.getId());
         updateByQuery.query(q -> q.terms(qt -> qt.field("_id")
                                                  .terms(tq -> tq.value(stream(documentIds.toArray(new String[0])).map(FieldValue::of).collect(toList())))));
         updateByQuery.conflicts(Conflicts.Proceed);
-        updateByQuery.script(scr -> scr.inline(untagScript));
+        updateByQuery.script(untagScript);
         updateByQuery.refresh(esCfg.refreshPolicy.equals(Refresh.True));
-        UpdateByQueryResponse updateResponse = client.updateByQuery(updateByQuery.build());
-        int updated = updateResponse.updated() != null ? updateResponse.updated().intValue() : 0;
-        return updateResponse.failures().size() == 0 && updated > 0;
+        return client.updateByQuery(updateByQuery.build());
     }
 
-    private InlineScript createTagScript(Tag[] tags) {
-        return new InlineScript.Builder().lang("painless")
-                .source(                "int updates = 0;" +
-                        "if (ctx._source.tags == null) ctx._source.tags = [];" +
-                        "for (int i = 0; i < params.tags.length; i++) {" +
-                        "  if (!ctx._source.tags.contains(params.tags[i])) {" +
-                        "   ctx._source.tags.add(params.tags[i]);" +
-                        "   updates++;" +
-                        "  }" +
-                        "}" +
-                        "if (updates == 0) ctx.op = 'noop';")
-                .params(mapObjectTomapJsonData(new HashMap<String, Object>() {{
-                    put("tags", stream(tags).map(t -> t.label).collect(toList()));
-                }})).build();
-    }
-
-    private InlineScript createUntagScript(Tag[] tags) {
-        return new InlineScript.Builder().lang("painless")
-                .source("int updates = 0;" +
-                        "for (int i = 0; i < params.tags.length; i++) {" +
-                        "  if (ctx._source.tags.contains(params.tags[i])) {" +
-                        "    ctx._source.tags.remove(ctx._source.tags.indexOf(params.tags[i]));" +
-                        "    updates++;" +
-                        "  }" +
-                        "}" +
-                        "if (updates == 0) ctx.op = 'noop';")
-                .params(mapObjectTomapJsonData(new HashMap<String, Object>() {{
-                    put("tags", stream(tags).map(t -> t.label).collect(toList()));
-                }})).build();
+    private static Map<String, Object> tagsParams(Tag[] tags) {
+        return Map.of("tags", stream(tags).map(t -> t.label).collect(toList()));
     }
 
     @Override
@@ -523,12 +612,32 @@ public class ElasticsearchIndexer implements Indexer {
 
     @Override
     public boolean createIndex(final String indexName) {
-        return ElasticsearchConfiguration.createIndex(client, indexName);
+        boolean created = ElasticsearchConfiguration.createIndex(client, indexName, esCfg.shards, esCfg.replicas, esCfg.indexAlias);
+        if (created) {
+            scripts.storeAll();
+        }
+        return created;
     }
 
     @Override
     public boolean deleteAll(String indexName) throws IOException {
         if (!exists(indexName)) return false;
+        contentStore.delete(indexName);
+        Map<String, IndexState> indices = client.indices().get(g -> g.index(indexName)).result();
+        if (indices.size() == 1 && (indices.containsKey(indexName) || ElasticsearchConfiguration.isGeneration(indexName, indices.keySet().iterator().next()))) {
+            // the project has its own index (or its own index generation behind an alias): dropping it is a metadata operation
+            // whereas a delete by query marks every document as deleted and rewrites the segments
+            Map.Entry<String, IndexState> dropped = indices.entrySet().iterator().next();
+            IndexSettings settings = ofNullable(dropped.getValue().settings()).map(is -> ofNullable(is.index()).orElse(is)).orElse(null);
+            // the index is created again like the dropped one, that may have been split, reindexed or sized for its documents
+            int shards = ofNullable(settings).map(IndexSettings::numberOfShards).map(Integer::parseInt).orElse(esCfg.shards);
+            int replicas = ofNullable(settings).map(IndexSettings::numberOfReplicas).map(Integer::parseInt).orElse(esCfg.replicas);
+            boolean alias = !dropped.getKey().equals(indexName);
+            client.indices().delete(d -> d.index(dropped.getKey()));
+            ElasticsearchConfiguration.createIndex(client, indexName, shards, replicas, alias);
+            return true;
+        }
+        // indexName is an alias on indices shared with other projects
         Request post = new Request("POST", indexName + "/_delete_by_query?refresh");
         post.setEntity(new NStringEntity("{\"query\":{\"match_all\": {}}}", ContentType.APPLICATION_JSON));
         RestClient restClient = ((RestClientTransport) client._transport()).restClient();
@@ -0,0 +1,173 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorCause;
+import co.elastic.clients.elasticsearch._types.Script;
+import org.icij.datashare.text.Hasher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.icij.datashare.utils.JsonUtils.mapObjectTomapJsonData;
+
+/**
+ * Registry of the painless scripts used by datashare.
+ * <p>
+ * Scripts are sent once to the cluster as stored scripts and then referenced by id, so
+ * elasticsearch compiles them once instead of each time an inline source is received
+ * (which can trip the script compilation circuit breaker when tagging or running NER).
+ * Stored script ids contain a hash of the source: different datashare versions sharing
+ * a cluster don't overwrite each other scripts.
+ * <p>
+ * If a script cannot be stored (cluster not ready, missing privileges) it is sent inline, and stored again after
+ * a back-off delay. A script lost by the cluster is stored again by {@link #withScript(Name, Map, ScriptRequest)}.
+ */
+public class ElasticsearchScripts {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchScripts.class);
+    public static final String LANG = "painless";
+
+    public enum Name {
+        EXTRACTED_TEXT("extractedText.painless.java"),
+        SEARCH_OCCURRENCES("searchOccurrences.painless.java"),
+        TAG("tag.painless.java"),
+        UNTAG("untag.painless.java"),
+        ADD_NER_TAG("addNerTag.painless.java");
+
+        public final String filename;
+
+        Name(String filename) {
+            this.filename = filename;
+        }
+    }
+
+    static final long MIN_RETRY_DELAY_MS = 1_000;
+    static final long MAX_RETRY_DELAY_MS = 300_000;
+
+    private final ElasticsearchClient client;
+    private final LongSupplier nanoTime;
+    private final Map<Name, Stored> storedIds = new ConcurrentHashMap<>();
+
+    public ElasticsearchScripts(ElasticsearchClient client) {
+        this(client, System::nanoTime);
+    }
+
+    ElasticsearchScripts(ElasticsearchClient client, LongSupplier nanoTime) {
+        this.client = client;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * stores all the scripts in the cluster
+     */
+    public void storeAll() {
+        for (Name name : Name.values()) {
+            storedId(name);
+        }
+    }
+
+    public Script script(Name name, Map<String, Object> params) {
+        String id = storedId(name);
+        if (id == null) {
+            return Script.of(s -> s.inline(i -> i.lang(LANG).source(source(name)).params(mapObjectTomapJsonData(params))));
+        }
+        return Script.of(s -> s.stored(st -> st.id(id).params(mapObjectTomapJsonData(params))));
+    }
+
+    /**
+     * runs the request with the script, and runs it once more with the script stored again
+     * if the cluster has lost it (cluster state restored, scripts deleted...)
+     */
+    public <T> T withScript(Name name, Map<String, Object> params, ScriptRequest<T> request) throws IOException {
+        try {
+            return request.apply(script(name, params));
+        } catch (ElasticsearchException e) {
+            if (!isMissing(e.error())) {
+                throw e;
+            }
+            forget(name);
+            return request.apply(script(name, params));
+        }
+    }
+
+    /**
+     * @return true if the error is caused by a stored script that cannot be found in the cluster
+     */
+    public boolean isMissing(ErrorCause error) {
+        if (error == null) {
+            return false;
+        }
+        if (error.reason() != null && error.reason().contains("unable to find script")) {
+            return true;
+        }
+        return isMissing(error.causedBy()) || error.rootCause().stream().anyMatch(this::isMissing);
+    }
+
+    /**
+     * the script will be stored again the next time it is used
+     */
+    public void forget(Name name) {
+        LOGGER.warn("stored script {} not found in the cluster, it will be stored again", id(name));
+        storedIds.remove(name);
+    }
+
+    @FunctionalInterface
+    public interface ScriptRequest<T> {
+        T apply(Script script) throws IOException;
+    }
+
+    static String id(Name name) {
+        return "datashare-" + name.name().toLowerCase().replace('_', '-') + "-" + Hasher.SHA_1.hash(source(name)).substring(0, 12);
+    }
+
+    static String source(Name name) {
+        try {
+            return ElasticsearchIndexer.getScriptStringFromFile(name.filename);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The script is stored by one caller at a time, outside of any lock: the caller swapping the previous state
+     * for a pending failure stores it, the others send the script inline meanwhile. A failure is kept with
+     * a delay before the next try, doubled at each failure.
+     *
+     * @return the stored script id or null when the script isn't stored (yet)
+     */
+    private String storedId(Name name) {
+        Stored current = storedIds.get(name);
+        long now = nanoTime.getAsLong();
+        if (current != null && (current.id != null || now - current.retryAt < 0)) {
+            return current.id;
+        }
+        int failures = current == null ? 0 : current.failures + 1;
+        Stored pending = new Stored(null, failures, now + MILLISECONDS.toNanos(retryDelayMs(failures)));
+        boolean reserved = current == null ? storedIds.putIfAbsent(name, pending) == null : storedIds.replace(name, current, pending);
+        if (!reserved) {
+            return null;
+        }
+        String id = id(name);
+        try {
+            client.putScript(p -> p.id(id).script(s -> s.lang(LANG).source(source(name))));
+            LOGGER.info("stored script {}", id);
+            storedIds.replace(name, pending, new Stored(id, 0, now));
+            return id;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("cannot store script {}, sending it inline for {}ms", id, retryDelayMs(failures), e);
+            return null;
+        }
+    }
+
+    private static long retryDelayMs(int failures) {
+        return Math.min(MAX_RETRY_DELAY_MS, MIN_RETRY_DELAY_MS << Math.min(failures, 20));
+    }
+
+    private record Stored(String id, int failures, long retryAt) {}
+}
@@ -1,38 +1,53 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.Time;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
 import co.elastic.clients.elasticsearch.core.ClearScrollRequest;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
 import co.elastic.clients.elasticsearch.core.ScrollRequest;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.ResponseBody;
+import co.elastic.clients.transport.TransportException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.json.JsonException;
+import java.util.Base64;
 import java.util.Objects;
 import org.icij.datashare.Entity;
 import org.icij.datashare.json.JsonObjectMapper;
 import org.icij.datashare.text.indexing.Indexer;
 import org.icij.datashare.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static co.elastic.clients.elasticsearch.core.SearchRequest.Builder;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
 import static java.util.Optional.ofNullable;
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
 import static org.icij.datashare.text.indexing.Indexer.*;
 import static org.icij.datashare.text.indexing.ScrollQueryBuilder.createScrollQuery;
 import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchConfiguration.DEFAULT_SEARCH_SIZE;
 
 class ElasticsearchSearcher implements Indexer.Searcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchSearcher.class);
+    static final String SHARD_DOC_FIELD = "_shard_doc";
     protected final List<String> indexesNames;
     protected final ElasticsearchClient client;
     protected final Class<? extends Entity> cls;
@@ -40,6 +55,10 @@ class ElasticsearchSearcher implements Indexer.Searcher {
     final Builder sourceBuilder;
     private String scrollId;
     private SearchRequest scrollSearchRequest;
+    private SearchRequest pitSearchRequest;
+    private String pitId;
+    private boolean sharedPit;
+    private List<FieldValue> searchAfter;
     private long totalHits;
     private final JsonNode jsonBoolQuery;
     private final static String TEMPLATE_QUERY = "<query>";
@@ -112,8 +131,102 @@ class ElasticsearchSearcher implements Indexer.Searcher {
         return jsonBoolQuery.toString().contains(TEMPLATE_QUERY);
     }
 
+    /**
+     * Iterates over the results with a point in time and search_after: unlike scroll contexts,
+     * a point in time doesn't keep one search context per slice and per page on the cluster,
+     * and the slices opened with the cursor of the same point in time read the same snapshot.
+     * It falls back to the legacy scroll API if the cluster cannot open a point in time.
+     */
     @Override
     public Stream<? extends Entity> scroll(ScrollQuery scrollQuery) throws IOException {
+        if (scrollSearchRequest == null && pitSearchRequest == null) {
+            BoolQuery.Builder boolQueryBuilder = getBoolQueryBuilder(queryAsString(scrollQuery.getStringQuery()));
+            if (!openPointInTime(scrollQuery)) {
+                return legacyScroll(scrollQuery);
+            }
+            sourceBuilder.query(q -> q.bool(boolQueryBuilder.build()))
+                    .sort(builder -> builder.field(fieldBuilder -> fieldBuilder.field(SHARD_DOC_FIELD)));
+            if (scrollQuery.getNbSlices() > 1) {
+                sourceBuilder.slice(s -> s.id(String.valueOf(scrollQuery.getNumSlice())).max(scrollQuery.getNbSlices()));
+            }
+            pitSearchRequest = sourceBuilder.build();
+            SearchResponse<ObjectNode> response = nextPitPage(scrollQuery.getDuration(), true);
+            totalHits = Objects.requireNonNull(response.hits().total()).value();
+            return resultStream(this.cls, () -> response.hits().hits().iterator());
+        } else if (pitSearchRequest != null) {
+            if (scrollQuery.getStringQuery() != null) {
+                throw new IllegalStateException("cannot change query when scroll is pending");
+            }
+            if (pitId == null) {
+                throw new IllegalStateException("point in time must have been cleared");
+            }
+            SearchResponse<ObjectNode> response = nextPitPage(scrollQuery.getDuration(), false);
+            return resultStream(this.cls, () -> response.hits().hits().iterator());
+        }
+        return legacyScroll(scrollQuery);
+    }
+
+    private boolean openPointInTime(ScrollQuery scrollQuery) throws IOException {
+        if (scrollQuery.getCursor() != null) {
+            Cursor cursor = Cursor.decode(scrollQuery.getCursor());
+            pitId = cursor.pitId;
+            sharedPit = cursor.shared;
+            searchAfter = cursor.searchAfter.isEmpty() ? null : cursor.searchAfter;
+            return true;
+        }
+        pitId = openPointInTime(client, indexesNames, scrollQuery.getDuration());
+        return pitId != null;
+    }
+
+    static String openPointInTime(ElasticsearchClient client, List<String> indexesNames, String keepAlive) throws IOException {
+        try {
+            return client.openPointInTime(OpenPointInTimeRequest.of(o -> o.index(indexesNames)
+                    .keepAlive(Time.of(t -> t.time(keepAlive))))).id();
+        } catch (ElasticsearchException esEx) {
+            LOGGER.warn("cannot open point in time on {} ({}), falling back to scroll", indexesNames, esEx.getMessage());
+        } catch (TransportException trEx) {
+            LOGGER.warn("point in time not supported by cluster ({}), falling back to scroll", trEx.getMessage());
+        }
+        return null;
+    }
+
+    private SearchResponse<ObjectNode> nextPitPage(String keepAlive, boolean trackTotalHits) throws IOException {
+        SearchResponse<ObjectNode> response;
+        try {
+            response = client.search(pitPageRequest(keepAlive, trackTotalHits), ObjectNode.class);
+        } catch (ElasticsearchException esEx) {
+            if (esEx.status() != 404) {
+                throw esEx;
+            }
+            // _shard_doc sort values are only meaningful in the point in time that produced them
+            throw new ScrollExpiredException(format("point in time of the scroll on %s has expired", indexesNames), esEx);
+        }
+        pitId = ofNullable(response.pitId()).orElse(pitId);
+        List<Hit<ObjectNode>> hits = response.hits().hits();
+        if (!hits.isEmpty()) {
+            searchAfter = hits.get(hits.size() - 1).sort();
+        }
+        return response;
+    }
+
+    private SearchRequest pitPageRequest(String keepAlive, boolean trackTotalHits) {
+        return SearchRequest.of(b -> {
+            b.query(pitSearchRequest.query())
+                    .source(pitSearchRequest.source())
+                    .size(pitSearchRequest.size())
+                    .timeout(pitSearchRequest.timeout())
+                    .sort(pitSearchRequest.sort())
+                    .slice(pitSearchRequest.slice())
+                    .trackTotalHits(t -> t.enabled(trackTotalHits))
+                    .pit(p -> p.id(pitId).keepAlive(Time.of(t -> t.time(keepAlive))));
+            if (searchAfter != null) {
+                b.searchAfter(searchAfter);
+            }
+            return b;
+        });
+    }
+
+    private Stream<? extends Entity> legacyScroll(ScrollQuery scrollQuery) throws IOException {
         ResponseBody<ObjectNode> response;
         if (scrollSearchRequest == null) {
             BoolQuery.Builder boolQueryBuilder = getBoolQueryBuilder(queryAsString(scrollQuery.getStringQuery()));
@@ -135,6 +248,11 @@ class ElasticsearchSearcher implements Indexer.Searcher {
         return resultStream(this.cls, () -> response.hits().hits().iterator());
     }
 
+    @Override
+    public String cursor() {
+        return pitId == null || searchAfter == null ? null : new Cursor(pitId, searchAfter, sharedPit).encode();
+    }
+
     @Override
     public Indexer.Searcher withSource(String... fields) {
         sourceBuilder.source(s -> s.filter(f -> f.includes(stream(fields).collect(Collectors.toList()))));
@@ -185,8 +303,16 @@ class ElasticsearchSearcher implements Indexer.Searcher {
 
     @Override
     public void clearScroll() throws IOException {
-        this.client.clearScroll(ClearScrollRequest.of(csr -> csr.scrollId(scrollId)));
-        scrollId = null;
+        if (pitSearchRequest != null) {
+            if (pitId != null && !sharedPit) {
+                this.client.closePointInTime(ClosePointInTimeRequest.of(cpr -> cpr.id(pitId)));
+            }
+            pitId = null;
+            searchAfter = null;
+        } else if (scrollId != null) {
+            this.client.clearScroll(ClearScrollRequest.of(csr -> csr.scrollId(scrollId)));
+            scrollId = null;
+        }
         totalHits = 0;
     }
 
@@ -206,4 +332,59 @@ class ElasticsearchSearcher implements Indexer.Searcher {
             case DESC -> co.elastic.clients.elasticsearch._types.SortOrder.Desc;
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * opaque resume token for a point in time iteration: the point in time id and
+     * the sort values of the last returned hit (none before the first page).
+     * A shared point in time is closed by the one who opened it, not by the scrolls using it.
+     */
+    static class Cursor {
+        final String pitId;
+        final List<FieldValue> searchAfter;
+        final boolean shared;
+
+        Cursor(String pitId, List<FieldValue> searchAfter, boolean shared) {
+            this.pitId = pitId;
+            this.searchAfter = searchAfter;
+            this.shared = shared;
+        }
+
+        String encode() {
+            ObjectNode node = MAPPER.createObjectNode().put("pit", pitId).put("shared", shared);
+            ArrayNode values = node.putArray("searchAfter");
+            for (FieldValue value : searchAfter) {
+                switch (value._kind()) {
+                    case Long -> values.add(value.longValue());
+                    case Double -> values.add(value.doubleValue());
+                    case Boolean -> values.add(value.booleanValue());
+                    case String -> values.add(value.stringValue());
+                    default -> values.addNull();
+                }
+            }
+            return Base64.getUrlEncoder().encodeToString(node.toString().getBytes(UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                JsonNode node = MAPPER.readTree(new String(Base64.getUrlDecoder().decode(cursor), UTF_8));
+                List<FieldValue> values = new ArrayList<>();
+                for (JsonNode value : node.get("searchAfter")) {
+                    if (value.isIntegralNumber()) {
+                        values.add(FieldValue.of(value.longValue()));
+                    } else if (value.isNumber()) {
+                        values.add(FieldValue.of(value.doubleValue()));
+                    } else if (value.isBoolean()) {
+                        values.add(FieldValue.of(value.booleanValue()));
+                    } else if (value.isTextual()) {
+                        values.add(FieldValue.of(value.textValue()));
+                    } else {
+                        values.add(FieldValue.NULL);
+                    }
+                }
+                return new Cursor(node.get("pit").textValue(), values, node.path("shared").asBoolean(false));
+            } catch (IOException | IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("invalid scroll cursor " + cursor, e);
+            }
+        }
+    }
+}
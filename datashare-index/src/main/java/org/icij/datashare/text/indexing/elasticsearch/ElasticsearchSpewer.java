@@ -1,5 +1,6 @@
 package org.icij.datashare.text.indexing.elasticsearch;
 
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import com.google.inject.Inject;
 import org.icij.datashare.*;
 import org.icij.datashare.extract.DocumentCollectionFactory;
@@ -20,6 +21,8 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 import static java.lang.System.currentTimeMillis;
 import static java.util.Optional.ofNullable;
@@ -29,12 +32,15 @@ import static org.icij.datashare.text.Hasher.shorten;
 public class ElasticsearchSpewer extends Spewer implements Serializable {
     private static final Logger logger = LoggerFactory.getLogger(ElasticsearchSpewer.class);
     public static final String DEFAULT_VALUE_UNKNOWN = "unknown";
+    public static final String CONTENT_TEXT_FULL_LENGTH = "datashare_content_text_full_length";
+    public static final String CONTENT_TEXT_DIGEST = "datashare_content_text_digest";
 
     private final Indexer indexer;
     private final LanguageGuesser languageGuesser;
     private final int maxContentLength;
     private final Hasher digestAlgorithm;
     private final DocumentQueue<String> nlpQueue;
+    private final IndexingMetrics indexingMetrics = new IndexingMetrics();
     public String indexName;
 
     @Inject
@@ -61,11 +67,11 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
         if (parent == null && isDuplicate(doc.getId())) {
             doc.setDuplicate(true);
             copy(doc.getReader(), OutputStream.nullOutputStream()); // flush document content reader
-            indexer.add(indexName, new Duplicate(doc.getPath(), doc.getId(), digestAlgorithm));
+            add(new Duplicate(doc.getPath(), doc.getId(), digestAlgorithm));
             docType = "Duplicate";
         } else {
             Document document = getDocument(doc, root, parent, (short) level);
-            indexer.add(indexName, document);
+            add(document);
             if (!nlpQueue.offer(document.getId())) {
                 logger.warn("cannot offer {} to queue {}", document.getId(), nlpQueue.getName());
             }
@@ -74,6 +80,26 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
                 shorten(doc.getId(), 4), currentTimeMillis() - before, doc);
     }
 
+    private void add(Entity entity) throws IOException {
+        long before = currentTimeMillis();
+        try {
+            indexer.add(indexName, entity);
+            indexingMetrics.recordRequest(currentTimeMillis() - before);
+        } catch (ElasticsearchException esEx) {
+            if (esEx.status() == 429) {
+                indexingMetrics.recordRejection();
+            }
+            throw esEx;
+        }
+    }
+
+    /**
+     * @return the latency and rejections of the index requests, read by the adaptive parallelism of the index task
+     */
+    public IndexingMetrics getIndexingMetrics() {
+        return indexingMetrics;
+    }
+
     private boolean isDuplicate(String docId) throws IOException {
         return indexer.exists(indexName, docId);
     }
@@ -81,26 +107,28 @@ public class ElasticsearchSpewer extends Spewer implements Serializable {
     Document getDocument(TikaDocument document, TikaDocument root, TikaDocument parent, short level) throws IOException {
         Charset charset = Charset.isSupported(ofNullable(document.getMetadata().get(CONTENT_ENCODING)).orElse(DEFAULT_VALUE_UNKNOWN)) ?
                 Charset.forName(document.getMetadata().get(CONTENT_ENCODING)) : StandardCharsets.US_ASCII;
+        Map<String, Object> metadata = new HashMap<>(getMetadata(document));
         DocumentBuilder builder = DocumentBuilder.createDoc(document.getId())
                 .with(document.getPath())
                 .with(Document.Status.INDEXED)
-                .with(getMetadata(document))
                 .ofContentType(ofNullable(document.getMetadata().get(CONTENT_TYPE)).orElse(DEFAULT_VALUE_UNKNOWN).split(";")[0])
                 .withContentLength(Long.parseLong(ofNullable(document.getMetadata().get(CONTENT_LENGTH)).orElse("-1")))
                 .with(charset)
                 .withExtractionLevel(level);
 
-        String content = toString(document.getReader()).trim();
-        if (maxContentLength != -1 && content.length() > maxContentLength) {
-            logger.warn("document id {} extracted text will be truncated to {} bytes", document.getId(), maxContentLength);
-            content = content.substring(0, maxContentLength).trim();
+        BoundedText content = BoundedText.read(document.getReader(), maxContentLength, digestAlgorithm);
+        if (content.isTruncated()) {
+            logger.warn("document id {} extracted text ({} chars) will be truncated to {} chars", document.getId(), content.fullLength(), maxContentLength);
         }
+        metadata.put(CONTENT_TEXT_FULL_LENGTH, content.fullLength());
+        metadata.put(CONTENT_TEXT_DIGEST, content.digest());
+        builder.with(metadata);
         if (document.getLanguage() == null) {
-            builder.with(languageGuesser.guess(content));
+            builder.with(languageGuesser.guess(content.text()));
         } else  {
             builder.with(Language.parse(document.getLanguage()));
         }
-        builder.with(content);
+        builder.with(content.text());
 
         if (parent != null) {
             builder.withParentId(parent.getId());
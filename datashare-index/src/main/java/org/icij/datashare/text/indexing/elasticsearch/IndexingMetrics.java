@@ -0,0 +1,32 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and rejections of the index requests of a spewer, read by intervals (see {@link #snapshot()}).
+ */
+public class IndexingMetrics {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder totalLatencyMs = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public record Snapshot(long requests, double averageLatencyMs, long rejections) {}
+
+    void recordRequest(long latencyMs) {
+        requests.increment();
+        totalLatencyMs.add(latencyMs);
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+
+    /**
+     * @return the metrics since the last snapshot
+     */
+    public Snapshot snapshot() {
+        long nbRequests = requests.sumThenReset();
+        long latency = totalLatencyMs.sumThenReset();
+        return new Snapshot(nbRequests, nbRequests == 0 ? 0 : (double) latency / nbRequests, rejections.sumThenReset());
+    }
+}
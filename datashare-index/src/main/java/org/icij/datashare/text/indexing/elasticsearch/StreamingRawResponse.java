@@ -0,0 +1,174 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.Cancellable;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.ResponseListener;
+import org.elasticsearch.client.RestClient;
+import org.icij.datashare.text.indexing.RawResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * Response of a raw elasticsearch request whose body is read while it is received.
+ * <p>
+ * The rest client buffers the whole response body in heap before giving it back. Here the body goes through a
+ * bounded buffer: when it is full, the http client stops reading the socket until the content is consumed,
+ * so the memory used doesn't depend on the size of the response.
+ * <p>
+ * Error statuses are returned like the others, with the elasticsearch error body.
+ */
+class StreamingRawResponse implements RawResponse {
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Consumer consumer;
+    private final HttpResponse response;
+    private final Cancellable cancellable;
+
+    private StreamingRawResponse(Consumer consumer, HttpResponse response, Cancellable cancellable) {
+        this.consumer = consumer;
+        this.response = response;
+        this.cancellable = cancellable;
+    }
+
+    static RawResponse execute(RestClient restClient, Request request) throws IOException {
+        Consumer consumer = new Consumer();
+        RequestOptions.Builder options = RequestOptions.DEFAULT.toBuilder();
+        options.setHttpAsyncResponseConsumerFactory(() -> consumer);
+        request.setOptions(options);
+        Cancellable cancellable = restClient.performRequestAsync(request, new ResponseListener() {
+            @Override
+            public void onSuccess(Response response) {}
+
+            @Override
+            public void onFailure(Exception exception) {
+                if (!(exception instanceof ResponseException)) { // error statuses are streamed to the caller
+                    consumer.fail(exception);
+                }
+            }
+        });
+        try {
+            return new StreamingRawResponse(consumer, consumer.headers.get(), cancellable);
+        } catch (InterruptedException e) {
+            cancellable.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for elasticsearch response");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public int getStatus() {
+        return response.getStatusLine().getStatusCode();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return ofNullable(response.getFirstHeader(name)).map(Header::getValue).orElse(null);
+    }
+
+    @Override
+    public InputStream getContent() {
+        return consumer.content;
+    }
+
+    @Override
+    public void close() {
+        if (!consumer.isDone()) {
+            cancellable.cancel();
+        }
+        consumer.buffer.shutdown();
+    }
+
+    /**
+     * Gives the response as soon as its headers are received, and fills the bounded buffer with its content.
+     */
+    static class Consumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+        private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+        private final CompletableFuture<HttpResponse> headers = new CompletableFuture<>();
+        private final InputStream content = new FilterInputStream(new ContentInputStream(buffer)) {
+            @Override
+            public int read() throws IOException {
+                return checkFailure(super.read());
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return checkFailure(super.read(b, off, len));
+            }
+        };
+        private volatile Exception failure;
+        private HttpResponse httpResponse;
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            this.httpResponse = response;
+            headers.complete(response);
+        }
+
+        @Override
+        protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {}
+
+        @Override
+        protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+            buffer.consumeContent(decoder, ioControl);
+        }
+
+        /**
+         * The rest client reads the entity of the result to build its error messages:
+         * the content has been given to the caller, so the result has no entity.
+         */
+        @Override
+        protected HttpResponse buildResult(HttpContext context) {
+            BasicHttpResponse result = new BasicHttpResponse(httpResponse.getStatusLine());
+            result.setHeaders(httpResponse.getAllHeaders());
+            return result;
+        }
+
+        @Override
+        protected void releaseResources() {
+            if (getException() != null) {
+                fail(getException());
+            } else {
+                buffer.close();
+            }
+        }
+
+        void fail(Exception exception) {
+            failure = exception;
+            headers.completeExceptionally(exception);
+            buffer.shutdown();
+        }
+
+        private int checkFailure(int read) throws IOException {
+            if (read == -1 && failure != null) {
+                throw failure instanceof IOException ioException ? ioException : new IOException(failure);
+            }
+            return read;
+        }
+    }
+}
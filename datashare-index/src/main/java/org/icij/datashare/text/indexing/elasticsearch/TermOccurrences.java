@@ -0,0 +1,50 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.icij.datashare.text.indexing.ContentStore.normalizeLetters;
+
+/**
+ * Computes the occurrences offsets of a query from the term vector of a document content.
+ * <p>
+ * Each term containing the query is a candidate, the query is then located inside the term with the same
+ * normalization as <code>searchOccurrences.painless.java</code> so that a query matching the middle of a word
+ * (ex: "tent" in "content") is found like with the script. Only the terms and their offsets are read: the content
+ * itself is never transferred.
+ */
+class TermOccurrences {
+    // the folding analyzer splits words on what is not a letter or a digit so only such queries can be found in terms
+    private static final Pattern SUPPORTED_QUERY = Pattern.compile("[a-z0-9]+");
+
+    static boolean isSupported(String query) {
+        return SUPPORTED_QUERY.matcher(normalize(query)).matches();
+    }
+
+    static String normalize(String query) {
+        return normalizeLetters(query.toLowerCase());
+    }
+
+    /**
+     * @param tokens term vector of the content: the start and end offsets of the tokens of each term
+     * @return the sorted offsets of the query in the content
+     */
+    static int[] offsets(Map<String, List<int[]>> tokens, String query) {
+        String normalizedQuery = normalize(query);
+        List<Integer> offsets = new ArrayList<>();
+        tokens.forEach((term, termTokens) -> {
+            String normalizedTerm = normalize(term);
+            int found = normalizedTerm.indexOf(normalizedQuery);
+            while (found != -1) {
+                for (int[] token : termTokens) {
+                    // the folded term can be shorter than the token (ex: ligatures), the offset stays in the token
+                    offsets.add(token[0] + Math.min(found, Math.max(token[1] - token[0] - 1, 0)));
+                }
+                found = normalizedTerm.indexOf(normalizedQuery, found + normalizedQuery.length());
+            }
+        });
+        return offsets.stream().mapToInt(i -> i).sorted().toArray();
+    }
+}
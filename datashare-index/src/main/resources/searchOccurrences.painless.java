@@ -42,7 +42,7 @@ ArrayList getOffsets(String query, String content) {
     def offsets = new ArrayList();
     String contentInLower = normalizeLetters(content.toLowerCase());
     String queryInLower = normalizeLetters(query.toLowerCase());
-    int queryLength = query.length();
+    int queryLength = queryInLower.length();
     int lastIndex = contentInLower.indexOf(queryInLower);
     while (lastIndex != -1) {
         offsets.add(lastIndex);
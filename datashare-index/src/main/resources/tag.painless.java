@@ -0,0 +1,9 @@
+int updates = 0;
+if (ctx._source.tags == null) ctx._source.tags = [];
+for (int i = 0; i < params.tags.length; i++) {
+  if (!ctx._source.tags.contains(params.tags[i])) {
+    ctx._source.tags.add(params.tags[i]);
+    updates++;
+  }
+}
+if (updates == 0) ctx.op = 'noop';
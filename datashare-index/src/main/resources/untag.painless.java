@@ -0,0 +1,8 @@
+int updates = 0;
+for (int i = 0; i < params.tags.length; i++) {
+  if (ctx._source.tags.contains(params.tags[i])) {
+    ctx._source.tags.remove(ctx._source.tags.indexOf(params.tags[i]));
+    updates++;
+  }
+}
+if (updates == 0) ctx.op = 'noop';
@@ -0,0 +1,114 @@
+package org.icij.datashare.text.indexing;
+
+import org.icij.datashare.PropertiesProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ContentStoreTest {
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void test_disabled_store_without_directory() throws IOException {
+        ContentStore store = new ContentStore(new PropertiesProvider());
+        store.put("prj", "id", "content");
+        assertThat(store.isEnabled()).isFalse();
+        assertThat(store.exists("prj", "id")).isFalse();
+    }
+
+    @Test
+    public void test_put_and_read_content() throws IOException {
+        ContentStore store = new ContentStore(new PropertiesProvider(Map.of("contentStoreDir", folder.getRoot().toString())));
+        store.put("prj", "docId", "hello world");
+
+        assertThat(store.exists("prj", "docId")).isTrue();
+        assertThat(store.exists("other", "docId")).isFalse();
+        assertThat(store.length("prj", "docId")).isEqualTo(11);
+        assertThat(store.read("prj", "docId")).isEqualTo("hello world");
+        assertThat(Files.exists(folder.getRoot().toPath().resolve("prj/do/docId"))).isTrue();
+    }
+
+    @Test
+    public void test_read_empty_content() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath());
+        store.put("prj", "docId", "");
+        assertThat(store.length("prj", "docId")).isEqualTo(0);
+        assertThat(store.read("prj", "docId", 0, 0)).isEqualTo("");
+    }
+
+    @Test
+    public void test_read_range_across_chunks() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath(), 4);
+        store.put("prj", "docId", "0123456789abcdef");
+
+        assertThat(store.read("prj", "docId", 0, 4)).isEqualTo("0123");
+        assertThat(store.read("prj", "docId", 3, 7)).isEqualTo("3456789");
+        assertThat(store.read("prj", "docId", 14, 2)).isEqualTo("ef");
+        assertThat(store.read("prj", "docId", 16, 0)).isEqualTo("");
+    }
+
+    @Test
+    public void test_read_does_not_split_surrogate_pairs() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath(), 4);
+        String content = "abc😀def😀";
+        store.put("prj", "docId", content);
+
+        assertThat(store.read("prj", "docId")).isEqualTo(content);
+        assertThat(store.read("prj", "docId", 3, 2)).isEqualTo("😀");
+    }
+
+    @Test(expected = StringIndexOutOfBoundsException.class)
+    public void test_read_out_of_range() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath());
+        store.put("prj", "docId", "hello");
+        store.read("prj", "docId", 3, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_invalid_document_id() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath());
+        store.read("prj", "../../etc/passwd", 0, 1);
+    }
+
+    @Test
+    public void test_occurrences_across_chunks() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath(), 5);
+        store.put("prj", "docId", "Élève and eleve and ELEVE, elev");
+
+        assertThat(store.occurrences("prj", "docId", "eleve")).isEqualTo(new int[]{0, 10, 20});
+        assertThat(store.occurrences("prj", "docId", "nope")).isEmpty();
+    }
+
+    @Test
+    public void test_occurrences_are_not_overlapping() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath(), 3);
+        store.put("prj", "docId", "aaaaa");
+        assertThat(store.occurrences("prj", "docId", "aa")).isEqualTo(new int[]{0, 2});
+    }
+
+    @Test
+    public void test_occurrences_of_a_query_longer_once_normalized() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath(), 3);
+        store.put("prj", "docId", "fff ffff");
+        assertThat(store.occurrences("prj", "docId", "\uFB00")).isEqualTo(new int[]{0, 4, 6});
+    }
+
+    @Test
+    public void test_delete_project() throws IOException {
+        ContentStore store = new ContentStore(folder.getRoot().toPath());
+        store.put("prj", "docId1", "content 1");
+        store.put("prj", "docId2", "content 2");
+
+        assertThat(store.delete("prj", "docId1")).isTrue();
+        assertThat(store.exists("prj", "docId1")).isFalse();
+        store.delete("prj");
+        assertThat(store.exists("prj", "docId2")).isFalse();
+        assertThat(Files.exists(folder.getRoot().toPath().resolve("prj"))).isFalse();
+    }
+}
@@ -0,0 +1,48 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.icij.datashare.text.Hasher;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class BoundedTextTest {
+    @Test
+    public void test_read_without_limit() throws Exception {
+        BoundedText text = BoundedText.read(new StringReader("  this content is ok \n"), -1, Hasher.SHA_256);
+
+        assertThat(text.text()).isEqualTo("this content is ok");
+        assertThat(text.fullLength()).isEqualTo(18);
+        assertThat(text.isTruncated()).isFalse();
+        assertThat(text.digest()).isEqualTo(Hasher.SHA_256.hash("  this content is ok \n"));
+    }
+
+    @Test
+    public void test_read_truncated_text() throws Exception {
+        BoundedText text = BoundedText.read(new StringReader(" this content should be truncated "), 20, Hasher.SHA_256);
+
+        assertThat(text.text()).isEqualTo("this content should");
+        assertThat(text.fullLength()).isEqualTo(32);
+        assertThat(text.isTruncated()).isTrue();
+        assertThat(text.digest()).isEqualTo(Hasher.SHA_256.hash(" this content should be truncated "));
+    }
+
+    @Test
+    public void test_read_large_text_by_chunks() throws Exception {
+        String content = "a😀".repeat(BoundedText.BUFFER_SIZE);
+        Reader oddChunksReader = new StringReader(content) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+                return super.read(cbuf, off, Math.min(len, 4099));
+            }
+        };
+
+        BoundedText text = BoundedText.read(oddChunksReader, 10, Hasher.SHA_384);
+
+        assertThat(text.text()).hasSize(10);
+        assertThat(text.fullLength()).isEqualTo(content.length());
+        assertThat(text.digest()).isEqualTo(Hasher.SHA_384.hash(content));
+    }
+}
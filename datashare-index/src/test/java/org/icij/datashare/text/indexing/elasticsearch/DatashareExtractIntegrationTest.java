@@ -60,7 +60,7 @@ public class DatashareExtractIntegrationTest {
         assertThat(doc.getContentEncoding()).isEqualTo(StandardCharsets.ISO_8859_1);
         assertThat(doc.getContentType()).isEqualTo("text/plain");
         assertThat(doc.getExtractionLevel()).isEqualTo((short) 0);
-        assertThat(doc.getMetadata()).hasSize(10);
+        assertThat(doc.getMetadata()).hasSize(12);
         assertThat(doc.getParentDocument()).isNull();
         assertThat(doc.getRootDocument()).isEqualTo(doc.getId());
         assertThat(doc.getCreationDate()).isNull();
@@ -12,6 +12,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.icij.datashare.test.ElasticsearchRule.TEST_INDEX;
@@ -61,4 +62,33 @@ public class ElasticsearchConfigurationTest {
 
         assertThat(response.getHeader("X-Elastic-Product")).isNotNull();
     }
+
+    @Test
+    public void test_shards_for_expected_documents() {
+        assertThat(ElasticsearchConfiguration.shardsFor(0)).isEqualTo(1);
+        assertThat(ElasticsearchConfiguration.shardsFor(ElasticsearchConfiguration.DOCUMENTS_PER_SHARD)).isEqualTo(1);
+        assertThat(ElasticsearchConfiguration.shardsFor(ElasticsearchConfiguration.DOCUMENTS_PER_SHARD + 1)).isEqualTo(2);
+        assertThat(ElasticsearchConfiguration.shardsFor(300_000_000L)).isEqualTo(64);
+        assertThat(ElasticsearchConfiguration.shardsFor(Long.MAX_VALUE)).isEqualTo(ElasticsearchConfiguration.MAX_SHARDS);
+    }
+
+    @Test
+    public void test_layout_from_properties() {
+        ElasticsearchConfiguration cfg = new ElasticsearchConfiguration(new PropertiesProvider(Map.of("expectedDocuments", "12000000", "indexReplicas", "0")));
+
+        assertThat(cfg.shards).isEqualTo(4);
+        assertThat(cfg.replicas).isEqualTo(0);
+        assertThat(cfg.indexAlias).isFalse();
+        assertThat(new ElasticsearchConfiguration(new PropertiesProvider(Map.of("expectedDocuments", "12000000", "indexShards", "3"))).shards).isEqualTo(3);
+    }
+
+    @Test
+    public void test_index_generations() {
+        assertThat(ElasticsearchConfiguration.nextGeneration("prj", "prj")).isEqualTo("prj-000001");
+        assertThat(ElasticsearchConfiguration.nextGeneration("prj", "prj-000001")).isEqualTo("prj-000002");
+        assertThat(ElasticsearchConfiguration.nextGeneration("prj", "other-000004")).isEqualTo("prj-000001");
+        assertThat(ElasticsearchConfiguration.isGeneration("prj", "prj-000012")).isTrue();
+        assertThat(ElasticsearchConfiguration.isGeneration("prj", "prj-foo-000012")).isFalse();
+        assertThat(ElasticsearchConfiguration.isGeneration("prj", "prj")).isFalse();
+    }
 }
@@ -0,0 +1,157 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch.indices.GetAliasRequest;
+import co.elastic.clients.elasticsearch.indices.GetIndicesSettingsRequest;
+import co.elastic.clients.json.JsonData;
+import org.icij.datashare.PropertiesProvider;
+import org.icij.datashare.test.ElasticsearchRule;
+import org.icij.datashare.text.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.DocumentBuilder.createDoc;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration.Mode.REINDEX;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchIndexMigration.Mode.SPLIT;
+import static org.junit.Assert.fail;
+
+public class ElasticsearchIndexMigrationTest {
+    private static final String INDEX = "test-migration";
+    @ClassRule
+    public static ElasticsearchRule es = new ElasticsearchRule();
+    private final ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider()).withRefresh(Refresh.True);
+    private final ElasticsearchIndexMigration migration = new ElasticsearchIndexMigration(es.client, Duration.ofMillis(10));
+
+    @Before
+    public void setUp() throws IOException {
+        ElasticsearchConfiguration.createIndex(es.client, INDEX);
+        for (int i = 0; i < 20; i++) {
+            indexer.add(INDEX, createDoc("doc" + i).build());
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        es.delete(INDEX + "*");
+    }
+
+    @Test
+    public void test_reindex_in_new_index_with_more_shards() throws Exception {
+        List<Double> progress = new ArrayList<>();
+
+        String target = migration.migrate(INDEX, REINDEX, 2, "auto", -1, progress::add, () -> false);
+
+        assertThat(target).isEqualTo(INDEX + "-000001");
+        assertThat(migration.concreteIndex(INDEX)).isEqualTo(target);
+        assertThat(shards(target)).isEqualTo("2");
+        assertThat(document("doc12")).isNotNull();
+        assertThat(es.client.count(c -> c.index(INDEX)).count()).isEqualTo(20);
+        assertThat(progress.get(progress.size() - 1)).isEqualTo(1.0);
+    }
+
+    @Test
+    public void test_migrated_index_is_writable_through_alias() throws Exception {
+        migration.migrate(INDEX, REINDEX, 1, "2", 1000, d -> {}, () -> false);
+
+        indexer.add(INDEX, createDoc("newDoc").build());
+
+        assertThat(document("newDoc")).isNotNull();
+    }
+
+    @Test
+    public void test_reindex_copies_documents_written_during_the_first_copy() throws Exception {
+        List<Double> progress = new ArrayList<>();
+
+        migration.migrate(INDEX, REINDEX, 2, "auto", -1, rate -> {
+            if (progress.isEmpty()) {
+                try {
+                    indexer.add(INDEX, createDoc("lateDoc").build());
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            progress.add(rate);
+        }, () -> false);
+
+        assertThat(document("lateDoc")).isNotNull();
+        assertThat(es.client.count(c -> c.index(INDEX)).count()).isEqualTo(21);
+    }
+
+    @Test
+    public void test_min_max_seq_no_is_below_the_next_writes() throws Exception {
+        long seqNo = migration.minMaxSeqNo(INDEX);
+
+        indexer.add(INDEX, createDoc("newDoc").build());
+
+        assertThat(seqNo).isGreaterThan(-1);
+        assertThat(es.client.count(c -> c.index(INDEX).query(q -> q.range(r -> r.field("_seq_no").gt(JsonData.of(seqNo))))).count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void test_migrate_alias_twice() throws Exception {
+        String first = migration.migrate(INDEX, SPLIT, 2, "auto", -1, d -> {}, () -> false);
+
+        String second = migration.migrate(INDEX, SPLIT, 4, "auto", -1, d -> {}, () -> false);
+
+        assertThat(second).isEqualTo(INDEX + "-000002");
+        assertThat(shards(second)).isEqualTo("4");
+        assertThat(es.client.indices().exists(e -> e.index(first)).value()).isFalse();
+        assertThat(es.client.indices().getAlias(GetAliasRequest.of(a -> a.name(INDEX))).result().keySet()).containsOnly(second);
+    }
+
+    @Test
+    public void test_split_keeps_documents_and_unblocks_writes() throws Exception {
+        String target = migration.migrate(INDEX, SPLIT, 4, "auto", -1, d -> {}, () -> false);
+
+        assertThat(shards(target)).isEqualTo("4");
+        assertThat(es.client.count(c -> c.index(INDEX)).count()).isEqualTo(20);
+        indexer.add(INDEX, createDoc("newDoc").build());
+        assertThat(document("newDoc")).isNotNull();
+    }
+
+    @Test
+    public void test_split_with_wrong_shard_number_rolls_back() throws Exception {
+        try {
+            migration.migrate(INDEX, SPLIT, 0, "auto", -1, d -> {}, () -> false);
+            fail("split in 0 shards should fail");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("_split");
+        }
+
+        assertThat(migration.concreteIndex(INDEX)).isEqualTo(INDEX);
+        indexer.add(INDEX, createDoc("newDoc").build());
+        assertThat(document("newDoc")).isNotNull();
+    }
+
+    @Test
+    public void test_cancel_rolls_back() throws Exception {
+        try {
+            migration.migrate(INDEX, REINDEX, 2, "auto", 1, d -> {}, () -> true);
+            fail("migration should be cancelled");
+        } catch (CancellationException ignored) {}
+
+        assertThat(migration.concreteIndex(INDEX)).isEqualTo(INDEX);
+        assertThat(es.client.indices().get(g -> g.index(INDEX + "*")).result().keySet()).containsOnly(INDEX);
+        indexer.add(INDEX, createDoc("newDoc").build());
+        assertThat(document("newDoc")).isNotNull();
+    }
+
+    private Document document(String id) {
+        return indexer.get(INDEX, id);
+    }
+
+    private static String shards(String index) throws IOException {
+        return es.client.indices().getSettings(GetIndicesSettingsRequest.of(s -> s.index(index)))
+                .get(index).settings().index().numberOfShards();
+    }
+}
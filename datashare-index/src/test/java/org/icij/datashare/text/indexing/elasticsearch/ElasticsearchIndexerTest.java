@@ -2,7 +2,10 @@ package org.icij.datashare.text.indexing.elasticsearch;
 
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.Refresh;
+import co.elastic.clients.elasticsearch._types.mapping.IndexOptions;
 import co.elastic.clients.elasticsearch.core.GetRequest;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.json.JsonException;
 import java.util.Objects;
 import org.apache.http.ConnectionClosedException;
@@ -18,12 +21,14 @@ import org.icij.datashare.text.Language;
 import org.icij.datashare.text.NamedEntity;
 import org.icij.datashare.text.indexing.ExtractedText;
 import org.icij.datashare.text.indexing.Indexer;
+import org.icij.datashare.text.indexing.RawResponse;
 import org.icij.datashare.text.indexing.SearchQuery;
 import org.icij.datashare.text.indexing.SearchedText;
 import org.junit.After;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Path;
@@ -415,6 +420,57 @@ public class ElasticsearchIndexerTest {
         searcher.clearScroll();
     }
 
+    @Test
+    public void test_search_with_scroll_resumed_from_cursor() throws IOException {
+        for (int i = 0 ; i < 12; i++) {
+            Document doc = createDoc("id" + i).build();
+            indexer.add(TEST_INDEX,doc);
+        }
+        Indexer.Searcher searcher = indexer.search(singletonList(TEST_INDEX), Document.class).limit(5);
+        assertThat(searcher.scroll(KEEP_ALIVE).count()).isEqualTo(5);
+        String cursor = searcher.cursor();
+        assertThat(cursor).isNotNull();
+
+        Indexer.Searcher resumed = indexer.search(singletonList(TEST_INDEX), Document.class).limit(5);
+        assertThat(resumed.scroll(createScrollQuery().withDuration(KEEP_ALIVE).withCursor(cursor).build()).count()).isEqualTo(5);
+        assertThat(resumed.totalHits()).isEqualTo(12);
+        assertThat(resumed.scroll(KEEP_ALIVE).count()).isEqualTo(2);
+        assertThat(resumed.scroll(KEEP_ALIVE).count()).isEqualTo(0);
+        resumed.clearScroll();
+    }
+
+    @Test
+    public void test_sliced_scrolls_share_a_point_in_time() throws IOException {
+        for (int i = 0 ; i < 12; i++) {
+            indexer.add(TEST_INDEX, createDoc("id" + i).build());
+        }
+        String pointInTime = indexer.openPointInTime(KEEP_ALIVE, singletonList(TEST_INDEX));
+        indexer.add(TEST_INDEX, createDoc("added_after_point_in_time").build());
+
+        long count = 0;
+        for (int slice = 0; slice < 2; slice++) {
+            Indexer.Searcher searcher = indexer.search(singletonList(TEST_INDEX), Document.class).limit(5);
+            long page;
+            do {
+                page = searcher.scroll(createScrollQuery().withDuration(KEEP_ALIVE).withSlices(slice, 2).withCursor(pointInTime).build()).count();
+                count += page;
+            } while (page > 0);
+            searcher.clearScroll();
+        }
+
+        assertThat(count).isEqualTo(12);
+        indexer.closePointInTime(pointInTime);
+    }
+
+    @Test(expected = Indexer.ScrollExpiredException.class)
+    public void test_scroll_on_expired_point_in_time_fails() throws IOException {
+        indexer.add(TEST_INDEX, createDoc("id").build());
+        String pointInTime = indexer.openPointInTime(KEEP_ALIVE, singletonList(TEST_INDEX));
+        indexer.closePointInTime(pointInTime);
+
+        indexer.search(singletonList(TEST_INDEX), Document.class).scroll(createScrollQuery().withDuration(KEEP_ALIVE).withCursor(pointInTime).build());
+    }
+
     @Test
     public void test_scroll_with_json_query() throws IOException {
         for (int i = 0; i < 12; i++) {
@@ -508,11 +564,78 @@ public class ElasticsearchIndexerTest {
         assertThat(documents.length).isEqualTo(0);
     }
 
+    @Test
+    public void test_delete_all_recreates_the_project_index() throws Exception {
+        indexer.add(TEST_INDEX, createDoc("docId").build());
+
+        assertThat(indexer.deleteAll(TEST_INDEX)).isTrue();
+
+        assertThat(indexer.exists(TEST_INDEX)).isTrue();
+        assertThat(indexer.exists(TEST_INDEX, "docId")).isFalse();
+        indexer.add(TEST_INDEX, createDoc("newDocId").build());
+        assertThat((Document) indexer.get(TEST_INDEX, "newDocId")).isNotNull();
+    }
+
     @Test
     public void test_delete_all_non_existing_index() throws Exception {
         assertThat(indexer.deleteAll("non_existing_index")).isFalse();
     }
 
+    @Test
+    public void test_indexer_works_behind_alias_of_multi_shard_index() throws Exception {
+        ElasticsearchIndexer aliasIndexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(Map.of(
+                "indexAlias", "true", "indexShards", "4", "indexReplicas", "0"))).withRefresh(Refresh.True);
+        try {
+            assertThat(aliasIndexer.createIndex("test-alias")).isTrue();
+            assertThat(es.client.indices().getAlias(a -> a.name("test-alias")).result().keySet()).containsOnly("test-alias-000001");
+            assertThat(es.client.indices().getSettings(s -> s.index("test-alias")).get("test-alias-000001").settings().index().numberOfShards()).isEqualTo("4");
+
+            Document root = createDoc("root").with("content with john doe").build();
+            aliasIndexer.add("test-alias", root);
+            aliasIndexer.add("test-alias", createDoc("child").withParentId("root").withRootId("root").build());
+            aliasIndexer.bulkAdd("test-alias", CORENLP, singletonList(create(PERSON, "John Doe", singletonList(12L), "root", "root", CORENLP, ENGLISH)), root);
+            aliasIndexer.add("test-alias", new Duplicate(Paths.get("duplicate"), "root"));
+
+            assertThat((Document) aliasIndexer.get("test-alias", "child", "root")).isNotNull();
+            assertThat(aliasIndexer.exists("test-alias", "root")).isTrue();
+            Object[] documents = aliasIndexer.search(singletonList("test-alias"), Document.class, new SearchQuery("john")).execute().toArray();
+            assertThat(documents.length).isEqualTo(1);
+
+            List<Hit<ObjectNode>> hits = es.client.search(s -> s.index("test-alias").size(10), ObjectNode.class).hits().hits();
+            assertThat(hits).hasSize(4);
+            hits.stream().filter(hit -> !"root".equals(hit.id())).forEach(hit ->
+                    assertThat(hit.routing()).as(hit.source().get("type").asText()).isEqualTo("root"));
+            assertThat(es.client.search(s -> s.index("test-alias").query(q -> q.hasChild(h -> h.type("NamedEntity")
+                    .query(c -> c.match(m -> m.field("mention").query("john"))))), ObjectNode.class).hits().hits()
+                    .stream().map(Hit::id).collect(toList())).containsOnly("root");
+            assertThat(es.client.search(s -> s.index("test-alias").query(q -> q.hasParent(h -> h.parentType("Document")
+                    .query(p -> p.ids(i -> i.values("root"))))), ObjectNode.class).hits().hits()
+                    .stream().map(hit -> hit.source().get("type").asText()).collect(toList())).containsOnly("NamedEntity", "Duplicate");
+
+            assertThat(aliasIndexer.deleteAll("test-alias")).isTrue();
+            assertThat(aliasIndexer.exists("test-alias", "root")).isFalse();
+            assertThat(es.client.indices().getAlias(a -> a.name("test-alias")).result().keySet()).containsOnly("test-alias-000001");
+        } finally {
+            es.delete("test-alias-000001");
+        }
+    }
+
+    @Test
+    public void test_delete_all_keeps_the_layout_of_the_index() throws Exception {
+        assertThat(ElasticsearchConfiguration.createIndex(es.client, "test-layout", 2, 0, true)).isTrue();
+        try {
+            indexer.add("test-layout", createDoc("id").build());
+
+            assertThat(indexer.deleteAll("test-layout")).isTrue();
+
+            assertThat(indexer.exists("test-layout", "id")).isFalse();
+            assertThat(es.client.indices().getAlias(a -> a.name("test-layout")).result().keySet()).containsOnly("test-layout-000001");
+            assertThat(es.client.indices().getSettings(s -> s.index("test-layout")).get("test-layout-000001").settings().index().numberOfShards()).isEqualTo("2");
+        } finally {
+            es.delete("test-layout-000001");
+        }
+    }
+
     @Test
     public void test_query_like_js_front_finds_document_from_its_child_named_entity() throws Exception {
         Document doc = createDoc("id").with("content with john doe").build();
@@ -535,6 +658,40 @@ public class ElasticsearchIndexerTest {
         assertThat(indexer.executeRaw("POST", TEST_INDEX + "/_search", "{\"query\":{\"match\":{\"content\":\"foo\"}}}")).doesNotContain("my content");
     }
 
+    @Test
+    public void test_stream_raw_search() throws Exception {
+        Document doc = createDoc("id").with("my content").with(OPENNLP).build();
+        indexer.add(TEST_INDEX, doc);
+        try (RawResponse response = indexer.streamRaw("POST", TEST_INDEX + "/_search",
+                new ByteArrayInputStream("{\"query\":{\"match_all\":{}}}".getBytes()))) {
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader("Content-Type")).contains("application/json");
+            assertThat(new String(response.getContent().readAllBytes())).contains("my content");
+        }
+    }
+
+    @Test
+    public void test_stream_raw_with_empty_body() throws Exception {
+        try (RawResponse response = indexer.streamRaw("POST", TEST_INDEX + "/_count", new ByteArrayInputStream(new byte[0]))) {
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(new String(response.getContent().readAllBytes())).contains("\"count\":");
+        }
+    }
+
+    @Test(expected = Indexer.BodyTooLargeException.class)
+    public void test_stream_raw_rejects_body_larger_than_max_size() throws Exception {
+        ElasticsearchIndexer indexer = new ElasticsearchIndexer(es.client, new PropertiesProvider(Map.<String, Object>of("searchProxyMaxBodySize", "16")));
+        indexer.streamRaw("POST", TEST_INDEX + "/_search", new ByteArrayInputStream("{\"query\":{\"match_all\":{}}}".getBytes()));
+    }
+
+    @Test
+    public void test_stream_raw_returns_error_status_with_body() throws Exception {
+        try (RawResponse response = indexer.streamRaw("GET", "unknown_index/_search", null)) {
+            assertThat(response.getStatus()).isEqualTo(404);
+            assertThat(new String(response.getContent().readAllBytes())).contains("index_not_found_exception");
+        }
+    }
+
     @Test
     public void test_execute_raw_with_head() throws Exception {
         assertThat(indexer.executeRaw("HEAD", TEST_INDEX, "")).isNull();
@@ -675,6 +832,37 @@ public class ElasticsearchIndexerTest {
         assertArrayEquals(actual.offsets, new int[]{5,13,22,30});
     }
     @Test
+    public void test_search_occurrences_without_content_term_vectors() throws Exception {
+        assertThat(indexer.hasContentTermVectors(TEST_INDEX)).isTrue();
+        es.client.indices().create(c -> c.index("test-no-term-vectors").mappings(m -> m.properties("content", p -> p.text(t -> t.indexOptions(IndexOptions.Offsets)))));
+        try {
+            assertThat(indexer.hasContentTermVectors("test-no-term-vectors")).isFalse();
+            indexer.add("test-no-term-vectors", createDoc("id").with("this content contains content containing john doe").withContentLength(49L).build());
+
+            assertArrayEquals(new int[]{5, 13, 22, 30}, indexer.searchTextOccurrences("test-no-term-vectors", "id", "cont", null).offsets);
+        } finally {
+            es.delete("test-no-term-vectors");
+        }
+    }
+    @Test
+    public void test_search_occurrences_of_query_in_the_middle_of_words() throws Exception {
+        Document doc = createDoc("id").with("this content contains content containing john doe").withContentLength(49L).build();
+        indexer.add(TEST_INDEX, doc);
+
+        SearchedText actual = indexer.searchTextOccurrences(TEST_INDEX, "id", "tent",null);
+        assertThat(actual.count).isEqualTo(2);
+        assertArrayEquals(new int[]{8,25}, actual.offsets);
+    }
+    @Test
+    public void test_search_occurrences_of_query_not_in_content() throws Exception {
+        Document doc = createDoc("id").with("this content contains content containing john doe").withContentLength(49L).build();
+        indexer.add(TEST_INDEX, doc);
+
+        SearchedText actual = indexer.searchTextOccurrences(TEST_INDEX, "id", "jane",null);
+        assertThat(actual.count).isEqualTo(0);
+        assertArrayEquals(new int[]{}, actual.offsets);
+    }
+    @Test
     public void test_search_occurrences_of_query_with_diacritics() throws Exception {
         Document doc = createDoc("id").with("contigüe et accentué s'est tueTuE").withContentLength(38L).build();
         indexer.add(TEST_INDEX, doc);
@@ -0,0 +1,100 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch._types.Script;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchScripts.Name.TAG;
+import static org.icij.datashare.text.indexing.elasticsearch.ElasticsearchScripts.Name.UNTAG;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ElasticsearchScriptsTest {
+    private final ElasticsearchClient client = mock(ElasticsearchClient.class);
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final ElasticsearchScripts scripts = new ElasticsearchScripts(client, nanoTime::get);
+
+    @Test
+    public void test_id_contains_source_hash() {
+        assertThat(ElasticsearchScripts.id(TAG)).matches("datashare-tag-[0-9a-f]{12}");
+        assertThat(ElasticsearchScripts.id(TAG)).isNotEqualTo(ElasticsearchScripts.id(UNTAG));
+    }
+
+    @Test
+    public void test_script_is_stored_once_and_referenced_by_id() throws IOException {
+        Script script = scripts.script(TAG, Map.of("tags", "foo"));
+        scripts.script(TAG, Map.of("tags", "bar"));
+
+        verify(client, times(1)).putScript(any(Function.class));
+        assertThat(script.isStored()).isTrue();
+        assertThat(script.stored().id()).isEqualTo(ElasticsearchScripts.id(TAG));
+        assertThat(script.stored().params()).hasSize(1);
+    }
+
+    @Test
+    public void test_script_is_inline_when_it_cannot_be_stored() throws IOException {
+        when(client.putScript(any(Function.class))).thenThrow(new IOException("cluster not ready"));
+
+        Script script = scripts.script(TAG, Map.of("tags", "foo"));
+        assertThat(script.isInline()).isTrue();
+        assertThat(script.inline().source()).isEqualTo(ElasticsearchScripts.source(TAG));
+
+        scripts.script(TAG, Map.of("tags", "foo"));
+        verify(client, times(1)).putScript(any(Function.class));
+    }
+
+    @Test
+    public void test_script_is_stored_again_after_a_back_off() throws IOException {
+        when(client.putScript(any(Function.class))).thenThrow(new IOException("cluster not ready")).thenReturn(null);
+        assertThat(scripts.script(TAG, Map.of()).isInline()).isTrue();
+
+        nanoTime.addAndGet(MILLISECONDS.toNanos(ElasticsearchScripts.MIN_RETRY_DELAY_MS - 1));
+        assertThat(scripts.script(TAG, Map.of()).isInline()).isTrue();
+        nanoTime.addAndGet(MILLISECONDS.toNanos(1));
+        assertThat(scripts.script(TAG, Map.of()).isStored()).isTrue();
+
+        verify(client, times(2)).putScript(any(Function.class));
+    }
+
+    @Test
+    public void test_request_is_run_again_with_the_script_stored_again_when_it_is_missing() throws IOException {
+        ErrorResponse missing = ErrorResponse.of(r -> r.status(404).error(e -> e.type("search_phase_execution_exception")
+                .rootCause(c -> c.type("resource_not_found_exception").reason("unable to find script [" + ElasticsearchScripts.id(TAG) + "] in cluster state"))));
+        List<Script> sent = new ArrayList<>();
+
+        String result = scripts.withScript(TAG, Map.of("tags", "foo"), script -> {
+            sent.add(script);
+            if (sent.size() == 1) throw new ElasticsearchException("search", missing);
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(sent).hasSize(2);
+        verify(client, times(2)).putScript(any(Function.class));
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void test_other_errors_are_not_retried() throws IOException {
+        ErrorResponse error = ErrorResponse.of(r -> r.status(400).error(e -> e.type("illegal_argument_exception").reason("bad request")));
+        scripts.withScript(TAG, Map.of("tags", "foo"), script -> {
+            throw new ElasticsearchException("update", error);
+        });
+    }
+
+    @Test
+    public void test_store_all() throws IOException {
+        scripts.storeAll();
+        verify(client, times(ElasticsearchScripts.Name.values().length)).putScript(any(Function.class));
+    }
+}
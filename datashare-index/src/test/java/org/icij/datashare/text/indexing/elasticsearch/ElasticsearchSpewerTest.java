@@ -411,6 +411,8 @@ public class ElasticsearchSpewerTest {
 
         GetResponse<ObjectNode> documentFields = es.client.get(doc -> doc.index(TEST_INDEX).id(document.getId()), ObjectNode.class);
         assertThat(nodeToMap(documentFields.source())).includes(entry("content", "this content should"));
+        Map<String, Object> metadata = (Map<String, Object>) nodeToMap(documentFields.source()).get("metadata");
+        assertThat(metadata).includes(entry(ElasticsearchSpewer.CONTENT_TEXT_FULL_LENGTH, 32));
     }
 
     @Test
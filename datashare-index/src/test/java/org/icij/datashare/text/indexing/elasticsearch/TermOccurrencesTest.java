@@ -0,0 +1,50 @@
+package org.icij.datashare.text.indexing.elasticsearch;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class TermOccurrencesTest {
+    @Test
+    public void test_is_supported() {
+        assertThat(TermOccurrences.isSupported("cont")).isTrue();
+        assertThat(TermOccurrences.isSupported("Tête")).isTrue();
+        assertThat(TermOccurrences.isSupported("john doe")).isFalse();
+        assertThat(TermOccurrences.isSupported("s'est")).isFalse();
+    }
+
+    @Test
+    public void test_offsets_without_matching_term() {
+        assertThat(TermOccurrences.offsets(Map.of("no", List.of(token(0, 2)), "match", List.of(token(3, 8))), "foo")).isEmpty();
+    }
+
+    @Test
+    public void test_offsets_are_sorted() {
+        // "this content contains Content"
+        Map<String, List<int[]>> tokens = Map.of(
+                "this", List.of(token(0, 4)),
+                "content", List.of(token(5, 12), token(22, 29)),
+                "contains", List.of(token(13, 21)));
+        assertThat(TermOccurrences.offsets(tokens, "cont")).isEqualTo(new int[]{5, 13, 22});
+    }
+
+    @Test
+    public void test_offsets_inside_terms() {
+        // "contigüe et accentué s'est tueTuE"
+        Map<String, List<int[]>> tokens = Map.of(
+                "contigue", List.of(token(0, 8)),
+                "et", List.of(token(9, 11)),
+                "accentue", List.of(token(12, 20)),
+                "s", List.of(token(21, 22)),
+                "est", List.of(token(23, 26)),
+                "tuetue", List.of(token(27, 33)));
+        assertThat(TermOccurrences.offsets(tokens, "tué")).isEqualTo(new int[]{17, 27, 30});
+    }
+
+    private static int[] token(int start, int end) {
+        return new int[]{start, end};
+    }
+}
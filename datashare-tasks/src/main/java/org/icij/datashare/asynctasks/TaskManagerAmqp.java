@@ -1,5 +1,6 @@
 package org.icij.datashare.asynctasks;
 
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -7,6 +8,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import org.icij.datashare.asynctasks.bus.amqp.*;
+import org.icij.datashare.asynctasks.bus.local.LocalWorkerServer;
 
 import org.icij.datashare.tasks.RoutingStrategy;
 
@@ -24,6 +26,7 @@ public class TaskManagerAmqp implements TaskManager {
     private final AmqpInterlocutor amqp;
     private final AmqpConsumer<TaskEvent, Consumer<TaskEvent>> eventConsumer;
     private final int taskPollingIntervalMs;
+    private final LocalWorkerServer localWorkers;
 
     public TaskManagerAmqp(AmqpInterlocutor amqp, TaskRepository taskRepository) throws IOException {
         this(amqp, taskRepository, RoutingStrategy.UNIQUE);
@@ -38,13 +41,29 @@ public class TaskManagerAmqp implements TaskManager {
     }
 
     public TaskManagerAmqp(AmqpInterlocutor amqp, TaskRepository tasks, RoutingStrategy routingStrategy, Runnable eventCallback, int taskPollingIntervalMs) throws IOException {
+        this(amqp, tasks, routingStrategy, eventCallback, taskPollingIntervalMs, null);
+    }
+
+    /**
+     * @param localWorkerSocket if not null, the Unix domain socket where workers running on the same host can connect.
+     *                          Python tasks are sent to them while they have room for it, and published on AMQP otherwise.
+     */
+    public TaskManagerAmqp(AmqpInterlocutor amqp, TaskRepository tasks, RoutingStrategy routingStrategy, Runnable eventCallback, int taskPollingIntervalMs, Path localWorkerSocket) throws IOException {
         this.amqp = amqp;
         this.tasks = tasks;
         this.routingStrategy = routingStrategy;
         this.taskPollingIntervalMs = taskPollingIntervalMs;
-        eventConsumer = new AmqpConsumer<>(amqp, event ->
+        Consumer<TaskEvent> eventHandler = event ->
                 ofNullable(TaskManager.super.handleAck(event)).flatMap(t ->
-                        ofNullable(eventCallback)).ifPresent(Runnable::run), AmqpQueue.MANAGER_EVENT, TaskEvent.class).consumeEvents();
+                        ofNullable(eventCallback)).ifPresent(Runnable::run);
+        eventConsumer = new AmqpConsumer<>(amqp, eventHandler, AmqpQueue.MANAGER_EVENT, TaskEvent.class).consumeEvents();
+        localWorkers = localWorkerSocket == null ? null : new LocalWorkerServer(localWorkerSocket, eventHandler, task -> {
+            try {
+                publish(task);
+            } catch (IOException e) {
+                logger.error("cannot publish task {} of disconnected local worker", task.id, e);
+            }
+        }).start();
     }
 
     @Override
@@ -53,6 +72,9 @@ public class TaskManagerAmqp implements TaskManager {
         if (taskView != null) {
             try {
                 logger.info("sending cancel event for {}", taskId);
+                if (localWorkers != null && localWorkers.cancel(new CancelEvent(taskId, false))) {
+                    return true;
+                }
                 amqp.publish(AmqpQueue.WORKER_EVENT, new CancelEvent(taskId, false));
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -75,6 +97,9 @@ public class TaskManagerAmqp implements TaskManager {
 
     @Override
     public boolean shutdown() throws IOException {
+        if (localWorkers != null) {
+            localWorkers.shutdown();
+        }
         amqp.publish(AmqpQueue.WORKER_EVENT, new ShutdownEvent());
         return true;
     }
@@ -91,6 +116,18 @@ public class TaskManagerAmqp implements TaskManager {
 
     @Override
     public <V extends Serializable> void enqueue(Task<V> task) throws IOException {
+        if (localWorkers != null && isPythonTask(task) && localWorkers.offer(task)) {
+            return;
+        }
+        publish(task);
+    }
+
+    private boolean isPythonTask(Task<?> task) throws IOException {
+        Group group = tasks.getTaskGroup(task.id);
+        return group != null && group.id() == TaskGroupType.Python;
+    }
+
+    private void publish(Task<?> task) throws IOException {
         switch (routingStrategy) {
             case GROUP -> amqp.publish(AmqpQueue.TASK, this.tasks.getTaskGroup(task.id).id().name(), task);
             case NAME -> amqp.publish(AmqpQueue.TASK, task.name, task);
@@ -133,6 +170,9 @@ public class TaskManagerAmqp implements TaskManager {
     }
 
     public void close() throws IOException {
+        if (localWorkers != null) {
+            localWorkers.close();
+        }
         clearDoneTasks();
         eventConsumer.shutdown();
     }
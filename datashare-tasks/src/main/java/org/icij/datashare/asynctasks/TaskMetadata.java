@@ -1,13 +1,22 @@
 package org.icij.datashare.asynctasks;
 
 import java.io.Serializable;
+import java.util.Map;
+
+public record TaskMetadata<V extends Serializable>(Task<V> task, Group group, Map<String, Object> checkpoint) {
+    public TaskMetadata(Task<V> task, Group group) {
+        this(task, group, null);
+    }
 
-public record TaskMetadata<V extends Serializable>(Task<V> task, Group group) {
     public String taskId() {
         return task.id;
     }
 
     TaskMetadata<?> withTask(Task<?> task) {
-        return new TaskMetadata<>(task, this.group);
+        return new TaskMetadata<>(task, this.group, this.checkpoint);
+    }
+
+    TaskMetadata<V> withCheckpoint(Map<String, Object> checkpoint) {
+        return new TaskMetadata<>(this.task, this.group, checkpoint);
     }
 }
@@ -2,6 +2,7 @@ package org.icij.datashare.asynctasks;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Map;
 import java.util.stream.Stream;
 
 public interface TaskRepository {
@@ -17,6 +18,17 @@ public interface TaskRepository {
 
     Group getTaskGroup(String taskId) throws IOException, UnknownTask;
 
+    /**
+     * stores durable progress markers for a running task, so that a re-queued task
+     * can resume where it was stopped. It replaces the previous checkpoint, a null checkpoint removes it.
+     */
+    void saveCheckpoint(String taskId, Map<String, Object> checkpoint) throws IOException, UnknownTask;
+
+    /**
+     * @return the last saved checkpoint of the task, empty if there is none
+     */
+    Map<String, Object> getCheckpoint(String taskId) throws IOException, UnknownTask;
+
 
     Stream<Task<? extends Serializable>> getTasks(TaskFilters filters) throws IOException, UnknownTask;
 }
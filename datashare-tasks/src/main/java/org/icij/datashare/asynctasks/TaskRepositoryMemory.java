@@ -2,6 +2,7 @@ package org.icij.datashare.asynctasks;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
@@ -30,7 +31,9 @@ public class TaskRepositoryMemory extends ConcurrentHashMap<String, TaskMetadata
 
     @Override
     public <V extends Serializable> void update(Task<V> task) throws IOException, UnknownTask {
-        put(task.id, super.get(task.id).withTask(task));
+        if (computeIfPresent(task.id, (id, metadata) -> metadata.withTask(task)) == null) {
+            throw new UnknownTask(task.id);
+        }
     }
 
     @Override
@@ -47,4 +50,17 @@ public class TaskRepositoryMemory extends ConcurrentHashMap<String, TaskMetadata
     public Group getTaskGroup(String taskId) throws IOException, UnknownTask {
         return super.get(taskId).group();
     }
+
+    @Override
+    public void saveCheckpoint(String taskId, Map<String, Object> checkpoint) throws IOException, UnknownTask {
+        if (computeIfPresent(taskId, (id, metadata) -> metadata.withCheckpoint(checkpoint)) == null) {
+            throw new UnknownTask(taskId);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getCheckpoint(String taskId) throws IOException, UnknownTask {
+        TaskMetadata<?> taskMetadata = Optional.ofNullable(super.get(taskId)).orElseThrow(() -> new UnknownTask(taskId));
+        return Optional.ofNullable(taskMetadata.checkpoint()).orElse(Map.of());
+    }
 }
@@ -2,6 +2,7 @@ package org.icij.datashare.asynctasks;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.redisson.Redisson;
@@ -43,7 +44,10 @@ public class TaskRepositoryRedis extends RedissonMap<String, TaskMetadata<?>> im
 
     @Override
     public <V extends Serializable> void update(Task<V> task) throws IOException, UnknownTask {
-        put(task.id, super.get(task.id).withTask(task));
+        // computeIfPresent locks the task entry, so that a checkpoint saved meanwhile is not lost
+        if (computeIfPresent(task.id, (id, metadata) -> metadata.withTask(task)) == null) {
+            throw new UnknownTask(task.id);
+        }
     }
 
     @Override
@@ -60,4 +64,17 @@ public class TaskRepositoryRedis extends RedissonMap<String, TaskMetadata<?>> im
     public Group getTaskGroup(String taskId) throws IOException, UnknownTask {
         return super.get(taskId).group();
     }
+
+    @Override
+    public void saveCheckpoint(String taskId, Map<String, Object> checkpoint) throws IOException, UnknownTask {
+        if (computeIfPresent(taskId, (id, metadata) -> metadata.withCheckpoint(checkpoint)) == null) {
+            throw new UnknownTask(taskId);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getCheckpoint(String taskId) throws IOException, UnknownTask {
+        TaskMetadata<?> taskMetadata = Optional.ofNullable(super.get(taskId)).orElseThrow(() -> new UnknownTask(taskId));
+        return Optional.ofNullable(taskMetadata.checkpoint()).orElse(Map.of());
+    }
 }
@@ -0,0 +1,76 @@
+package org.icij.datashare.asynctasks.bus.local;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static java.lang.String.format;
+
+/**
+ * Binary framing of the local worker transport.
+ * <p>
+ * A frame is a 4 bytes big endian length (of the type byte and the payload), a type byte and the payload:
+ * <ul>
+ *     <li>{@link #HELLO} worker to server: 4 bytes big endian number of tasks the worker accepts at once (its credits),
+ *     followed by the UTF-8 worker name</li>
+ *     <li>{@link #TASK} server to worker: the JSON task, like the messages of the AMQP task queue</li>
+ *     <li>{@link #EVENT} worker to server: the JSON task event (progress, result, error, cancelled), like the messages
+ *     of the AMQP manager event queue. Result, error and cancelled events give one credit back to the worker</li>
+ *     <li>{@link #WORKER_EVENT} server to worker: the JSON cancel or shutdown event, like the messages of the AMQP
+ *     worker event queue</li>
+ *     <li>{@link #CREDIT} worker to server: 4 bytes big endian number of credits added to the worker</li>
+ * </ul>
+ */
+public final class Frames {
+    public static final byte HELLO = 1;
+    public static final byte TASK = 2;
+    public static final byte EVENT = 3;
+    public static final byte WORKER_EVENT = 4;
+    public static final byte CREDIT = 5;
+    public static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+    public static final int HEADER_LENGTH = 5;
+
+    private Frames() {}
+
+    public record Frame(byte type, byte[] payload) {}
+
+    public static ByteBuffer encode(byte type, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + payload.length);
+        buffer.putInt(payload.length + 1).put(type).put(payload);
+        return buffer.flip();
+    }
+
+    /**
+     * @return the next frame of the channel, or null at the end of the stream
+     */
+    public static Frame read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        if (!readFully(channel, header, true)) {
+            return null;
+        }
+        int length = header.getInt(0);
+        if (length < 1 || length > MAX_FRAME_LENGTH) {
+            throw new IOException(format("invalid frame length %d", length));
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length - 1);
+        readFully(channel, payload, false);
+        return new Frame(header.get(4), payload.array());
+    }
+
+    public static int readInt(byte[] payload) {
+        return ByteBuffer.wrap(payload).getInt();
+    }
+
+    private static boolean readFully(ReadableByteChannel channel, ByteBuffer buffer, boolean eofAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (eofAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException(format("stream closed in the middle of a frame (%d/%d bytes)", buffer.position(), buffer.limit()));
+            }
+        }
+        return true;
+    }
+}
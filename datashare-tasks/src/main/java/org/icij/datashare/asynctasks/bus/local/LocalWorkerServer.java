@@ -0,0 +1,343 @@
+package org.icij.datashare.asynctasks.bus.local;
+
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.bus.amqp.CancelEvent;
+import org.icij.datashare.asynctasks.bus.amqp.CancelledEvent;
+import org.icij.datashare.asynctasks.bus.amqp.ErrorEvent;
+import org.icij.datashare.asynctasks.bus.amqp.Event;
+import org.icij.datashare.asynctasks.bus.amqp.ResultEvent;
+import org.icij.datashare.asynctasks.bus.amqp.ShutdownEvent;
+import org.icij.datashare.asynctasks.bus.amqp.TaskEvent;
+import org.icij.datashare.json.JsonObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import static java.lang.String.format;
+
+/**
+ * Transport of tasks to worker processes running on the same host, through a Unix domain socket
+ * (see {@link Frames} for the framing).
+ * <p>
+ * Workers connect to the socket and announce how many tasks they process at once. A task is only sent to a worker
+ * with credits left, and the final event of the task gives the credit back: a busy worker is never sent more tasks
+ * than it can take. When no local worker can take a task, {@link #offer(Task)} returns false and the task manager
+ * publishes it on AMQP for remote workers. The tasks in flight of a worker that disconnects are given to the
+ * <code>fallback</code> consumer.
+ * <p>
+ * Frames are written by one thread per worker, which gathers all the frames waiting for this worker in one write.
+ * <p>
+ * The socket is only accessible by the user running the server (in a directory with 0700 permissions, with 0600
+ * permissions itself), connections of other users are refused, and a worker can only send events of the tasks
+ * it has been sent.
+ */
+public class LocalWorkerServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalWorkerServer.class);
+
+    private final Path socketPath;
+    private final Consumer<TaskEvent> eventHandler;
+    private final Consumer<Task<?>> fallback;
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private volatile ServerSocketChannel serverChannel;
+    private volatile UserPrincipal owner;
+
+    public LocalWorkerServer(Path socketPath, Consumer<TaskEvent> eventHandler, Consumer<Task<?>> fallback) {
+        this.socketPath = socketPath;
+        this.eventHandler = eventHandler;
+        this.fallback = fallback;
+    }
+
+    public LocalWorkerServer start() throws IOException {
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (posix) {
+            checkPrivateDirectory(socketPath.toAbsolutePath().getParent());
+        }
+        Files.deleteIfExists(socketPath); // left by a previous run
+        serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        serverChannel.bind(UnixDomainSocketAddress.of(socketPath));
+        if (posix) {
+            Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+        }
+        owner = Files.getOwner(socketPath);
+        Thread acceptor = new Thread(this::accept, "local-worker-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        logger.info("listening to local workers on {}", socketPath);
+        return this;
+    }
+
+    public Path getSocketPath() {
+        return socketPath;
+    }
+
+    /**
+     * sends the task to the connected worker with the most credits
+     *
+     * @return false if there is no connected worker with credits left
+     */
+    public boolean offer(Task<?> task) throws IOException {
+        Connection connection = reserveCredit();
+        if (connection == null) {
+            return false;
+        }
+        connection.inFlight.put(task.id, task);
+        try {
+            connection.send(Frames.TASK, task.serialize());
+        } catch (ClosedChannelException e) { // worker disconnected meanwhile
+            return connection.inFlight.remove(task.id) == null;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the task has been sent to a local worker, which has been asked to cancel it
+     */
+    public boolean cancel(CancelEvent event) throws IOException {
+        for (Connection connection : connections) {
+            if (connection.inFlight.containsKey(event.taskId)) {
+                connection.send(Frames.WORKER_EVENT, event.serialize());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void shutdown() throws IOException {
+        byte[] shutdown = new ShutdownEvent().serialize();
+        for (Connection connection : connections) {
+            connection.send(Frames.WORKER_EVENT, shutdown);
+        }
+    }
+
+    public int getConnectedWorkers() {
+        return (int) connections.stream().filter(c -> c.name != null).count();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        Files.deleteIfExists(socketPath);
+    }
+
+    private synchronized Connection reserveCredit() {
+        Connection best = null;
+        for (Connection connection : connections) {
+            if (connection.credits > 0 && (best == null || connection.credits > best.credits)) {
+                best = connection;
+            }
+        }
+        if (best != null) {
+            best.credits--;
+        }
+        return best;
+    }
+
+    private synchronized void addCredits(Connection connection, int credits) {
+        connection.credits += credits;
+    }
+
+    /**
+     * creates the directory of the socket only accessible by the current user, or checks that it is
+     */
+    private static void checkPrivateDirectory(Path directory) throws IOException {
+        if (Files.notExists(directory)) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            return;
+        }
+        Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+        if (permissions.stream().anyMatch(p -> !p.name().startsWith("OWNER_"))) {
+            throw new IOException(format("the directory of the local worker socket %s must only be accessible by its owner (%s)",
+                    directory, PosixFilePermissions.toString(permissions)));
+        }
+    }
+
+    private void accept() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                if (!isFromOwner(channel)) {
+                    channel.close();
+                    continue;
+                }
+                Connection connection = new Connection(channel);
+                connections.add(connection);
+                connection.start();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                logger.error("cannot accept local worker connection", e);
+            }
+        }
+    }
+
+    /**
+     * @return false if the peer of the channel is known to run as another user than the one of the socket
+     */
+    private boolean isFromOwner(SocketChannel channel) throws IOException {
+        if (!channel.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+            return true;
+        }
+        UnixDomainPrincipal peer = channel.getOption(ExtendedSocketOptions.SO_PEERCRED);
+        if (peer.user().equals(owner)) {
+            return true;
+        }
+        logger.warn("refusing local worker connection of user {}", peer.user().getName());
+        return false;
+    }
+
+    private class Connection implements Closeable {
+        private final SocketChannel channel;
+        private final BlockingQueue<ByteBuffer> outbound = new LinkedBlockingQueue<>();
+        private final Map<String, Task<?>> inFlight = new ConcurrentHashMap<>();
+        private volatile String name;
+        private int credits = 0; // guarded by the server lock
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void start() {
+            Thread reader = new Thread(this::read, "local-worker-reader");
+            Thread writer = new Thread(this::write, "local-worker-writer");
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+            reader.start();
+            writer.start();
+        }
+
+        void send(byte type, byte[] payload) throws IOException {
+            if (!channel.isOpen()) {
+                throw new ClosedChannelException();
+            }
+            outbound.add(Frames.encode(type, payload));
+        }
+
+        private void read() {
+            try {
+                Frames.Frame frame;
+                while ((frame = Frames.read(channel)) != null) {
+                    switch (frame.type()) {
+                        case Frames.HELLO -> {
+                            int credits = readCredits(frame, frame.payload().length >= 4);
+                            addCredits(this, credits);
+                            name = new String(frame.payload(), 4, frame.payload().length - 4, StandardCharsets.UTF_8);
+                            logger.info("local worker {} connected with {} credit(s)", name, credits);
+                        }
+                        case Frames.CREDIT -> addCredits(this, readCredits(frame, frame.payload().length == 4));
+                        case Frames.EVENT -> handle(JsonObjectMapper.MAPPER.readValue(frame.payload(), TaskEvent.class));
+                        default -> logger.warn("unexpected frame type {} from local worker {}", frame.type(), name);
+                    }
+                }
+            } catch (IOException e) {
+                if (channel.isOpen()) {
+                    logger.error("error reading from local worker {}", name, e);
+                }
+            } finally {
+                disconnect();
+            }
+        }
+
+        private int readCredits(Frames.Frame frame, boolean validLength) throws IOException {
+            int credits = validLength ? Frames.readInt(frame.payload()) : -1;
+            if (credits < 0) {
+                throw new IOException(format("invalid frame type %d of %d bytes from local worker %s", frame.type(), frame.payload().length, name));
+            }
+            return credits;
+        }
+
+        private void handle(TaskEvent event) {
+            if (!inFlight.containsKey(event.taskId)) { // only the tasks sent to this worker can be updated by it
+                logger.warn("dropping event {} of local worker {} for a task it has not been sent", event, name);
+                return;
+            }
+            if (isFinal(event) && inFlight.remove(event.taskId) != null) {
+                addCredits(this, 1);
+            }
+            try {
+                eventHandler.accept(event);
+            } catch (RuntimeException e) {
+                logger.error("cannot handle event {} of local worker {}", event, name, e);
+            }
+        }
+
+        private void write() {
+            List<ByteBuffer> frames = new ArrayList<>();
+            try {
+                while (channel.isOpen()) {
+                    frames.add(outbound.take());
+                    outbound.drainTo(frames);
+                    ByteBuffer[] buffers = frames.toArray(ByteBuffer[]::new);
+                    while (Arrays.stream(buffers).anyMatch(ByteBuffer::hasRemaining)) {
+                        channel.write(buffers);
+                    }
+                    frames.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                if (channel.isOpen()) {
+                    logger.error("error writing to local worker {}", name, e);
+                }
+                disconnect();
+            }
+        }
+
+        private void disconnect() {
+            if (!connections.remove(this)) {
+                return;
+            }
+            try {
+                close();
+            } catch (IOException e) {
+                logger.warn("cannot close connection of local worker {}", name, e);
+            }
+            outbound.add(ByteBuffer.allocate(0)); // wakes up the writer
+            List<Task<?>> orphans = new ArrayList<>(inFlight.values());
+            inFlight.clear();
+            logger.info("local worker {} disconnected, {} task(s) in flight are sent back", name, orphans.size());
+            orphans.forEach(fallback);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static boolean isFinal(Event event) {
+        return event instanceof ResultEvent || event instanceof ErrorEvent || event instanceof CancelledEvent;
+    }
+}
@@ -1,5 +1,11 @@
 package org.icij.datashare.asynctasks;
 
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -8,8 +14,10 @@ import org.icij.datashare.PropertiesProvider;
 import org.icij.datashare.asynctasks.bus.amqp.AmqpInterlocutor;
 import org.icij.datashare.asynctasks.bus.amqp.AmqpQueue;
 import org.icij.datashare.asynctasks.bus.amqp.AmqpServerRule;
+import org.icij.datashare.asynctasks.bus.amqp.ResultEvent;
 import org.icij.datashare.asynctasks.bus.amqp.TaskError;
 import org.icij.datashare.asynctasks.bus.amqp.UriResult;
+import org.icij.datashare.asynctasks.bus.local.Frames;
 import org.icij.datashare.tasks.RoutingStrategy;
 import org.icij.datashare.time.DatashareTime;
 import org.icij.datashare.user.User;
@@ -30,6 +38,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
 import static org.junit.Assert.assertThrows;
 
 public class TaskManagerAmqpTest {
@@ -94,6 +103,32 @@ public class TaskManagerAmqpTest {
         }
     }
 
+    @Test(timeout = 5000)
+    public void test_python_task_is_sent_to_local_worker_with_credits() throws Exception {
+        Path socketDir = Files.createTempDirectory("datashare-local-worker");
+        try (TaskManagerAmqp localTaskManager = new TaskManagerAmqp(AMQP, new TaskRepositoryMemory(), RoutingStrategy.UNIQUE,
+                () -> nextMessage.countDown(), 5000, socketDir.resolve("nlp.sock"));
+             SocketChannel worker = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            worker.connect(UnixDomainSocketAddress.of(socketDir.resolve("nlp.sock")));
+            worker.write(Frames.encode(Frames.HELLO, ByteBuffer.allocate(4).putInt(1).array()));
+            Thread.sleep(100);
+
+            String pythonTaskId = localTaskManager.startTask("pythonTask", User.local(), new Group(TaskGroupType.Python), Map.of());
+            String otherPythonTaskId = localTaskManager.startTask("pythonTask", User.local(), new Group(TaskGroupType.Python), Map.of());
+
+            Frames.Frame frame = Frames.read(worker);
+            assertThat(frame.type()).isEqualTo(Frames.TASK);
+            assertThat(MAPPER.readValue(frame.payload(), Task.class).id).isEqualTo(pythonTaskId);
+            assertThat(taskQueue.poll(1, TimeUnit.SECONDS).id).isEqualTo(otherPythonTaskId); // no credit left: AMQP
+
+            worker.write(Frames.encode(Frames.EVENT, new ResultEvent<>(pythonTaskId, new TaskResult<>("result")).serialize()));
+            nextMessage.await();
+            assertThat(localTaskManager.getTask(pythonTaskId).getState()).isEqualTo(Task.State.DONE);
+        } finally {
+            Files.deleteIfExists(socketDir);
+        }
+    }
+
     @Test(timeout = 2000)
     public void test_task_progress() throws Exception {
         taskManager.startTask("taskName", User.local(), new HashMap<>());
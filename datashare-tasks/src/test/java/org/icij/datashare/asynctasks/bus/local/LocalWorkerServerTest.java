@@ -0,0 +1,213 @@
+package org.icij.datashare.asynctasks.bus.local;
+
+import org.icij.datashare.asynctasks.Task;
+import org.icij.datashare.asynctasks.TaskResult;
+import org.icij.datashare.asynctasks.bus.amqp.CancelEvent;
+import org.icij.datashare.asynctasks.bus.amqp.Event;
+import org.icij.datashare.asynctasks.bus.amqp.ResultEvent;
+import org.icij.datashare.asynctasks.bus.amqp.TaskEvent;
+import org.icij.datashare.user.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.icij.datashare.json.JsonObjectMapper.MAPPER;
+
+public class LocalWorkerServerTest {
+    private final BlockingQueue<TaskEvent> events = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Task<?>> fallback = new LinkedBlockingQueue<>();
+    private Path socketDir;
+    private LocalWorkerServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        socketDir = Files.createTempDirectory("datashare-local-worker");
+        server = new LocalWorkerServer(socketDir.resolve("nlp.sock"), events::add, fallback::add).start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(socketDir);
+    }
+
+    @Test(timeout = 5000)
+    public void test_offer_without_worker() throws Exception {
+        assertThat(server.offer(task())).isFalse();
+    }
+
+    @Test(timeout = 5000)
+    public void test_tasks_are_sent_within_worker_credits() throws Exception {
+        try (SocketChannel worker = connectWorker(1)) {
+            Task<?> task = task();
+
+            assertThat(server.offer(task)).isTrue();
+            assertThat(server.offer(task())).isFalse();
+
+            Frames.Frame frame = Frames.read(worker);
+            assertThat(frame.type()).isEqualTo(Frames.TASK);
+            assertThat(MAPPER.readValue(frame.payload(), Task.class).id).isEqualTo(task.id);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void test_result_event_is_handled_and_gives_credit_back() throws Exception {
+        try (SocketChannel worker = connectWorker(1)) {
+            Task<?> task = task();
+            server.offer(task);
+            Frames.read(worker);
+
+            send(worker, Frames.EVENT, new ResultEvent<>(task.id, new TaskResult<>(12)));
+
+            TaskEvent event = events.poll(2, TimeUnit.SECONDS);
+            assertThat(event).isInstanceOf(ResultEvent.class);
+            assertThat(event.taskId).isEqualTo(task.id);
+            assertThat(server.offer(task())).isTrue();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void test_credit_frame_adds_credits() throws Exception {
+        try (SocketChannel worker = connectWorker(0)) {
+            assertThat(server.offer(task())).isFalse();
+
+            worker.write(Frames.encode(Frames.CREDIT, ByteBuffer.allocate(4).putInt(2).array()));
+
+            waitFor(() -> offer(task()));
+            assertThat(server.offer(task())).isTrue();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void test_cancel_is_sent_to_the_worker_of_the_task() throws Exception {
+        try (SocketChannel worker = connectWorker(1)) {
+            Task<?> task = task();
+            server.offer(task);
+            Frames.read(worker);
+
+            assertThat(server.cancel(new CancelEvent(task.id, false))).isTrue();
+            assertThat(server.cancel(new CancelEvent("unknown", false))).isFalse();
+
+            Frames.Frame frame = Frames.read(worker);
+            assertThat(frame.type()).isEqualTo(Frames.WORKER_EVENT);
+            assertThat(((CancelEvent) MAPPER.readValue(frame.payload(), Event.class)).taskId).isEqualTo(task.id);
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void test_tasks_in_flight_of_disconnected_worker_are_sent_to_fallback() throws Exception {
+        Task<?> task = task();
+        try (SocketChannel worker = connectWorker(2)) {
+            server.offer(task);
+            Frames.read(worker);
+        }
+
+        assertThat(fallback.poll(2, TimeUnit.SECONDS).id).isEqualTo(task.id);
+        waitFor(() -> server.getConnectedWorkers() == 0);
+        assertThat(server.offer(task())).isFalse();
+    }
+
+    @Test(timeout = 5000)
+    public void test_event_of_a_task_not_sent_to_the_worker_is_dropped() throws Exception {
+        try (SocketChannel worker = connectWorker(1)) {
+            Task<?> task = task();
+            server.offer(task);
+            Frames.read(worker);
+
+            send(worker, Frames.EVENT, new ResultEvent<>("other", new TaskResult<>(12)));
+            send(worker, Frames.EVENT, new ResultEvent<>(task.id, new TaskResult<>(12)));
+
+            assertThat(events.poll(2, TimeUnit.SECONDS).taskId).isEqualTo(task.id);
+            assertThat(events).isEmpty();
+        }
+    }
+
+    @Test(timeout = 5000)
+    public void test_worker_sending_a_short_hello_is_disconnected() throws Exception {
+        try (SocketChannel worker = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            worker.connect(UnixDomainSocketAddress.of(server.getSocketPath()));
+            worker.write(Frames.encode(Frames.HELLO, new byte[] {0, 1}));
+
+            assertThat(Frames.read(worker)).isNull();
+        }
+        try (SocketChannel worker = connectWorker(1)) {
+            assertThat(server.offer(task())).isTrue();
+        }
+    }
+
+    @Test
+    public void test_socket_is_only_accessible_by_its_owner() throws Exception {
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(server.getSocketPath()))).isEqualTo("rw-------");
+    }
+
+    @Test
+    public void test_socket_directory_is_created_private() throws Exception {
+        Path socket = socketDir.resolve("sub").resolve("nlp.sock");
+        try (LocalWorkerServer other = new LocalWorkerServer(socket, events::add, fallback::add).start()) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent()))).isEqualTo("rwx------");
+        } finally {
+            Files.deleteIfExists(socket.getParent());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void test_socket_directory_accessible_by_others_is_refused() throws Exception {
+        Path sharedDir = Files.createDirectory(socketDir.resolve("shared"), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwxr-xr-x")));
+        try {
+            new LocalWorkerServer(sharedDir.resolve("nlp.sock"), events::add, fallback::add).start();
+        } finally {
+            Files.deleteIfExists(sharedDir);
+        }
+    }
+
+    private SocketChannel connectWorker(int credits) throws Exception {
+        int connected = server.getConnectedWorkers();
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(server.getSocketPath()));
+        byte[] name = "worker".getBytes(StandardCharsets.UTF_8);
+        channel.write(Frames.encode(Frames.HELLO, ByteBuffer.allocate(4 + name.length).putInt(credits).put(name).array()));
+        waitFor(() -> server.getConnectedWorkers() > connected);
+        return channel;
+    }
+
+    private static void send(SocketChannel channel, byte type, Event event) throws IOException {
+        ByteBuffer frame = Frames.encode(type, event.serialize());
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private boolean offer(Task<?> task) {
+        try {
+            return server.offer(task);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static Task<?> task() {
+        return new Task<>("org.icij.datashare.tasks.BatchNlpTask", User.local(), Map.of());
+    }
+}